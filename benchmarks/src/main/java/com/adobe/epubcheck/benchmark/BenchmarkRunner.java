@@ -0,0 +1,39 @@
+package com.adobe.epubcheck.benchmark;
+
+import com.adobe.epubcheck.api.EpubCheck;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs the benchmarks and writes the results as JSON to
+ * {@code results/epubcheck-<version>.json}, so that the results of two
+ * releases can be compared. The usual JMH command line options are accepted,
+ * e.g. a regular expression to select the benchmarks to run.
+ */
+public class BenchmarkRunner
+{
+  public static void main(String[] args) throws
+      RunnerException,
+      CommandLineOptionException
+  {
+    File results = new File("results");
+    if (!results.isDirectory() && !results.mkdirs())
+    {
+      System.err.println("Unable to create the results directory " + results.getAbsolutePath());
+      System.exit(1);
+    }
+    Options options = new OptionsBuilder()
+        .parent(new CommandLineOptions(args))
+        .resultFormat(ResultFormatType.JSON)
+        .result(new File(results, "epubcheck-" + EpubCheck.version() + ".json").getPath())
+        .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,78 @@
+package com.adobe.epubcheck.benchmark;
+
+import com.adobe.epubcheck.messages.Message;
+import com.adobe.epubcheck.messages.MessageDictionary;
+import com.adobe.epubcheck.messages.MessageId;
+import com.adobe.epubcheck.messages.MessageLocation;
+import com.adobe.epubcheck.reporting.CheckMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregation of the messages of a report: {@code messages} messages are
+ * reported at different locations, with {@code distinct} different texts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CheckMessageBenchmark
+{
+  @Param({"10000"})
+  public int messages;
+
+  @Param({"10", "1000"})
+  public int distinct;
+
+  private Message[] dictionaryMessages;
+  private MessageLocation[] locations;
+  private String[] args;
+
+  @Setup
+  public void setUp()
+  {
+    MessageDictionary dictionary = new MessageDictionary(null, new NullReport());
+    dictionaryMessages = new Message[]{
+        dictionary.getMessage(MessageId.RSC_005),
+        dictionary.getMessage(MessageId.RSC_007),
+        dictionary.getMessage(MessageId.CSS_022)
+    };
+    locations = new MessageLocation[messages];
+    args = new String[messages];
+    for (int i = 0; i < messages; i++)
+    {
+      locations[i] = new MessageLocation(String.format("EPUB/content_%05d.xhtml", i % 1000), i, 1);
+      args[i] = "argument " + (i % distinct);
+    }
+  }
+
+  @Benchmark
+  public List<CheckMessage> addCheckMessage()
+  {
+    List<CheckMessage> result = new ArrayList<CheckMessage>();
+    Map<Object, CheckMessage> index = new HashMap<Object, CheckMessage>();
+    for (int i = 0; i < messages; i++)
+    {
+      CheckMessage.addCheckMessage(result, index, dictionaryMessages[i % dictionaryMessages.length], locations[i],
+          args[i]);
+    }
+    return result;
+  }
+}
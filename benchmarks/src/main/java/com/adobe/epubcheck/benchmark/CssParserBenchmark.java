@@ -0,0 +1,60 @@
+package com.adobe.epubcheck.benchmark;
+
+import org.idpf.epubcheck.util.css.CssContentHandler;
+import org.idpf.epubcheck.util.css.CssErrorHandler;
+import org.idpf.epubcheck.util.css.CssExceptions.CssException;
+import org.idpf.epubcheck.util.css.CssParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of style sheets of growing size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CssParserBenchmark
+{
+  @Param({"1", "100", "1000"})
+  public int rules;
+
+  private String css;
+  private final CssErrorHandler errorHandler = new CssErrorHandler()
+  {
+    public void error(CssException e) throws
+        CssException
+    {
+    }
+  };
+
+  @Setup
+  public void setUp() throws
+      IOException
+  {
+    css = new SyntheticEpub(0).getStyleSheet(rules);
+  }
+
+  @Benchmark
+  public void parse() throws
+      IOException,
+      CssException
+  {
+    new CssParser().parse(new StringReader(css), "style.css", errorHandler, new CssContentHandler.CssDefaultHandler());
+  }
+}
@@ -0,0 +1,65 @@
+package com.adobe.epubcheck.benchmark;
+
+import com.adobe.epubcheck.api.EpubCheck;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end validation of synthetic publications of growing size, from a
+ * file and from memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EpubCheckBenchmark
+{
+  @Param({"10", "100", "1000"})
+  public int size;
+
+  private File file;
+  private byte[] bytes;
+
+  @Setup
+  public void setUp() throws
+      IOException
+  {
+    SyntheticEpub epub = new SyntheticEpub(size);
+    bytes = epub.toByteArray();
+    file = epub.toFile();
+    NullReport report = new NullReport();
+    new EpubCheck(file, report).doValidate();
+    if (report.getErrorCount() > 0 || report.getFatalErrorCount() > 0)
+    {
+      throw new IllegalStateException("The synthetic publication is not valid");
+    }
+  }
+
+  @Benchmark
+  public int validateFile()
+  {
+    return new EpubCheck(file, new NullReport()).doValidate();
+  }
+
+  @Benchmark
+  public int validateBuffer()
+  {
+    return new EpubCheck(ByteBuffer.wrap(bytes), new NullReport(), file.getPath()).doValidate();
+  }
+}
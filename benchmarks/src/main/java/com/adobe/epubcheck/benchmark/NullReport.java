@@ -0,0 +1,34 @@
+package com.adobe.epubcheck.benchmark;
+
+import com.adobe.epubcheck.api.MasterReport;
+import com.adobe.epubcheck.messages.Message;
+import com.adobe.epubcheck.messages.MessageLocation;
+import com.adobe.epubcheck.util.FeatureEnum;
+
+/**
+ * A report that keeps the message counts but prints nothing, so that the
+ * benchmarks measure the checks and not the output.
+ */
+public class NullReport extends MasterReport
+{
+  @Override
+  public void message(Message message, MessageLocation location, Object... args)
+  {
+  }
+
+  @Override
+  public void info(String resource, FeatureEnum feature, String value)
+  {
+  }
+
+  @Override
+  public int generate()
+  {
+    return 0;
+  }
+
+  @Override
+  public void initialize()
+  {
+  }
+}
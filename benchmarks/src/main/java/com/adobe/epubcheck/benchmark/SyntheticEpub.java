@@ -0,0 +1,202 @@
+package com.adobe.epubcheck.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Builds valid EPUB 3 publications of a given size from the seed publication
+ * of the StressTest ({@code /stress/}): each step adds a copy of the content
+ * document, of its style sheet and of its image, declared in the manifest,
+ * the spine and the navigation document, like StressTest#build() does.
+ */
+public class SyntheticEpub
+{
+  private static final String SEED = "/stress/";
+  private static final String STRING_FMT = "%05d";
+
+  private final int size;
+  private final String opf;
+  private final String nav;
+  private final String content;
+  private final byte[] css;
+  private final byte[] image;
+  private final byte[] container;
+
+  /**
+   * @param size the number of content documents, style sheets and images to
+   *             add to the seed publication
+   */
+  public SyntheticEpub(int size) throws
+      IOException
+  {
+    this.size = size;
+    this.opf = new String(read("EPUB/package.opf"), "UTF-8");
+    this.nav = new String(read("EPUB/nav.xhtml"), "UTF-8");
+    this.content = new String(read("EPUB/content_00000.xhtml"), "UTF-8");
+    this.css = read("EPUB/style_00000.css");
+    this.image = read("EPUB/image_00000.png");
+    this.container = read("META-INF/container.xml");
+  }
+
+  public int getSize()
+  {
+    return size;
+  }
+
+  /**
+   * @return the zipped publication
+   */
+  public byte[] toByteArray() throws
+      IOException
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ZipOutputStream zip = new ZipOutputStream(bytes);
+    try
+    {
+      writeStored(zip, "mimetype", "application/epub+zip".getBytes("US-ASCII"));
+      write(zip, "META-INF/container.xml", container);
+
+      StringBuilder manifest = new StringBuilder();
+      StringBuilder spine = new StringBuilder();
+      StringBuilder toc = new StringBuilder();
+      write(zip, "EPUB/content_00000.xhtml", content.getBytes("UTF-8"));
+      write(zip, "EPUB/style_00000.css", css);
+      write(zip, "EPUB/image_00000.png", image);
+      for (int i = 1; i <= size; i++)
+      {
+        String counter = String.format(STRING_FMT, i);
+        String xhtName = "content_" + counter + ".xhtml";
+        String cssName = "style_" + counter + ".css";
+        String imageName = "image_" + counter + ".png";
+
+        write(zip, "EPUB/" + imageName, image);
+        manifest.append("<item id=\"img_").append(counter).append("\" href=\"").append(imageName)
+            .append("\" media-type=\"image/png\"/>\n");
+        write(zip, "EPUB/" + cssName, css);
+        manifest.append("<item id=\"css_").append(counter).append("\" href=\"").append(cssName)
+            .append("\" media-type=\"text/css\"/>\n");
+        write(zip, "EPUB/" + xhtName, tweakXht(counter).getBytes("UTF-8"));
+        manifest.append("<item id=\"t_").append(counter).append("\" href=\"").append(xhtName)
+            .append("\" media-type=\"application/xhtml+xml\"/>\n");
+        spine.append("<itemref idref=\"t_").append(counter).append("\"/>\n");
+        toc.append("<li><a href=\"").append(xhtName).append("\">Lorem Ipsum ").append(counter)
+            .append("</a></li>\n");
+      }
+      write(zip, "EPUB/package.opf", opf.replace("</manifest>", manifest + "</manifest>")
+          .replace("</spine>", spine + "</spine>").getBytes("UTF-8"));
+      write(zip, "EPUB/nav.xhtml", nav.replace("</ol>", toc + "</ol>").getBytes("UTF-8"));
+    }
+    finally
+    {
+      zip.close();
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Writes the zipped publication to a new temporary file.
+   */
+  public File toFile() throws
+      IOException
+  {
+    File file = File.createTempFile("synthetic-" + size + "-", ".epub");
+    file.deleteOnExit();
+    FileOutputStream out = new FileOutputStream(file);
+    try
+    {
+      out.write(toByteArray());
+    }
+    finally
+    {
+      out.close();
+    }
+    return file;
+  }
+
+  /**
+   * @return the content document number {@code counter}, linking to its own
+   *         style sheet and image
+   */
+  private String tweakXht(String counter)
+  {
+    return content.replace("style_00000.css", "style_" + counter + ".css")
+        .replace("Lorem Ipsum 00000", "Lorem Ipsum " + counter)
+        .replace("image_00000.png", "image_" + counter + ".png");
+  }
+
+  /**
+   * @return a content document of the publication
+   */
+  public String getContentDocument()
+  {
+    return tweakXht(String.format(STRING_FMT, 1));
+  }
+
+  /**
+   * @return a style sheet made of {@code count} copies of the seed style sheet
+   */
+  public String getStyleSheet(int count) throws
+      IOException
+  {
+    String rules = new String(css, "UTF-8");
+    StringBuilder result = new StringBuilder(rules.length() * count);
+    for (int i = 0; i < count; i++)
+    {
+      result.append(rules).append('\n');
+    }
+    return result.toString();
+  }
+
+  private static void write(ZipOutputStream zip, String name, byte[] data) throws
+      IOException
+  {
+    zip.putNextEntry(new ZipEntry(name));
+    zip.write(data);
+    zip.closeEntry();
+  }
+
+  private static void writeStored(ZipOutputStream zip, String name, byte[] data) throws
+      IOException
+  {
+    ZipEntry entry = new ZipEntry(name);
+    entry.setMethod(ZipEntry.STORED);
+    entry.setSize(data.length);
+    CRC32 crc = new CRC32();
+    crc.update(data);
+    entry.setCrc(crc.getValue());
+    zip.putNextEntry(entry);
+    zip.write(data);
+    zip.closeEntry();
+  }
+
+  private static byte[] read(String path) throws
+      IOException
+  {
+    InputStream in = SyntheticEpub.class.getResourceAsStream(SEED + path);
+    if (in == null)
+    {
+      throw new IOException("Missing seed file: " + SEED + path);
+    }
+    try
+    {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1)
+      {
+        out.write(buffer, 0, read);
+      }
+      return out.toByteArray();
+    }
+    finally
+    {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.adobe.epubcheck.benchmark;
+
+import com.adobe.epubcheck.ocf.OCFBufferPackage;
+import com.adobe.epubcheck.ocf.OCFPackage;
+import com.adobe.epubcheck.util.EPUBVersion;
+import com.adobe.epubcheck.xml.XMLParser;
+import com.adobe.epubcheck.xml.XMLValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of a content document, without any validator and with the EPUB 3
+ * XHTML RelaxNG and Schematron schemas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XMLParserBenchmark
+{
+  private static final String ENTRY = "EPUB/content_00001.xhtml";
+
+  @Param({"false", "true"})
+  public boolean validate;
+
+  private OCFPackage ocf;
+  private XMLValidator rnc;
+  private XMLValidator sch;
+
+  @Setup
+  public void setUp() throws
+      IOException
+  {
+    ocf = new OCFBufferPackage(ByteBuffer.wrap(new SyntheticEpub(1).toByteArray()), "synthetic.epub");
+    rnc = new XMLValidator("schema/30/epub-xhtml-30.rnc");
+    sch = new XMLValidator("schema/30/epub-xhtml-30.sch");
+  }
+
+  @Benchmark
+  public NullReport process() throws
+      IOException
+  {
+    NullReport report = new NullReport();
+    XMLParser parser = new XMLParser(ocf, ocf.getInputStream(ENTRY), ENTRY, "application/xhtml+xml", report,
+        EPUBVersion.VERSION_3);
+    if (validate)
+    {
+      parser.addValidator(rnc);
+      parser.addValidator(sch);
+    }
+    parser.process();
+    return report;
+  }
+}
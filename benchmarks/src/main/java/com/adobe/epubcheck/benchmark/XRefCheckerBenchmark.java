@@ -0,0 +1,82 @@
+package com.adobe.epubcheck.benchmark;
+
+import com.adobe.epubcheck.ocf.OCFBufferPackage;
+import com.adobe.epubcheck.opf.XRefChecker;
+import com.adobe.epubcheck.util.EPUBVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checking of the cross-references of a publication with many documents, each
+ * linking to anchors of the next document, to its style sheet and to its image.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XRefCheckerBenchmark
+{
+  private static final int ANCHORS = 20;
+
+  @Param({"100", "1000"})
+  public int size;
+
+  private XRefChecker xrefChecker;
+
+  @Setup
+  public void setUp() throws
+      IOException
+  {
+    OCFBufferPackage ocf = new OCFBufferPackage(ByteBuffer.wrap(new SyntheticEpub(size).toByteArray()),
+        "synthetic.epub");
+    xrefChecker = new XRefChecker(ocf, new NullReport(), EPUBVersion.VERSION_3);
+    for (int i = 1; i <= size; i++)
+    {
+      xrefChecker.registerResource(content(i), "application/xhtml+xml", true, false, false);
+      xrefChecker.registerResource(String.format("EPUB/style_%05d.css", i), "text/css", false, false, false);
+      xrefChecker.registerResource(String.format("EPUB/image_%05d.png", i), "image/png", false, false, false);
+      for (int j = 0; j < ANCHORS; j++)
+      {
+        xrefChecker.registerAnchor(content(i), j + 1, 1, "a" + j, XRefChecker.RT_HYPERLINK);
+      }
+    }
+    for (int i = 1; i <= size; i++)
+    {
+      xrefChecker.registerReference(content(i), 1, 1, String.format("EPUB/style_%05d.css", i),
+          XRefChecker.RT_STYLESHEET);
+      xrefChecker.registerReference(content(i), 2, 1, String.format("EPUB/image_%05d.png", i),
+          XRefChecker.RT_IMAGE);
+      for (int j = 0; j < ANCHORS; j++)
+      {
+        xrefChecker.registerReference(content(i), 3 + j, 1, content(i % size + 1) + "#a" + j,
+            XRefChecker.RT_HYPERLINK);
+      }
+    }
+  }
+
+  private static String content(int i)
+  {
+    return String.format("EPUB/content_%05d.xhtml", i);
+  }
+
+  @Benchmark
+  public void checkReferences()
+  {
+    xrefChecker.checkReferences();
+  }
+}
@@ -34,6 +34,10 @@ if (!fs.existsSync(jarFilePath))
 var checkedFiles = [];
 var checkMessages = [];
 var io;
+var daemon = null;
+var daemonRestart = false;
+var daemonPort = 8089;
+var daemonRetries = 20;
 var epubDirectory = path.join(__dirname, './temp/epubs');
 var diffDirectory = path.join(__dirname, './temp/epubs/diffs');
 var uploadDirectory = path.join(__dirname, './temp/uploads');
@@ -46,9 +50,15 @@ var checkMessageOverrideFile = path.join(epubDirectory, 'CheckMessages.txt');
  * @param express_app - This needs to be provided when you want to extend your server with the server so you don't have to proxy
  * @param http_server - When supplying the express_app you need to also specify the http server
  * @param root - The root path used for responding with index.html
+ * @param daemon_port - The local port of the epubcheck validation daemon
  * @returns {*}
  */
-var main = function (port, override, express_app, http_server, root) {
+var main = function (port, override, express_app, http_server, root, daemon_port) {
+  if (daemon_port)
+  {
+    daemonPort = daemon_port;
+  }
+  start_daemon();
   initialize_directories();
   var initialize_check_messages = function () {
     fs.exists(checkMessageOverrideFile, function (exists) {
@@ -78,6 +88,7 @@ var main = function (port, override, express_app, http_server, root) {
         var writeStream = fs.createWriteStream(checkMessageOverrideFile, { flags:'w',
           encoding:'UTF-8',
           mode:0666 });
+        writeStream.on('finish', restart_daemon);
         readStream.pipe(writeStream);
 
       }
@@ -566,27 +577,106 @@ var unzip_epub = function (epubPath, timestamp, callback) {
 
 var check_epub = function (epubPath, timestamp, files, res, callback) {
   var output = epubPath + timestamp + '.json';
-  var parameters = ['-jar', jarFilePath, epubPath, '-u', '-j', output];
+  var query = '?usage=true&name=' + encodeURIComponent(path.basename(epubPath));
 
-  fs.exists(checkMessageOverrideFile, function (exists) {
-    if (exists)
+  post_to_daemon(epubPath, query, output, daemonRetries, function (success) {
+    if (callback)
     {
-      parameters.push('-c');
-      parameters.push(checkMessageOverrideFile);
+      callback(success, epubPath, timestamp, output, files, res);
     }
+  });
+};
 
-    var check = spawn('java', parameters);
-    check.on('exit', function (code) {
-      fs.exists(output, function (exists) {
-        if (callback)
-        {
-          callback(exists, epubPath, timestamp, output, files, res);
-        }
-      });
+/**
+ * Sends the EPUB to the validation daemon and saves the JSON report it answers
+ * with. The daemon may still be starting or restarting, so the request waits
+ * for it and refused or reset connections are retried.
+ */
+var post_to_daemon = function (epubPath, query, output, retries, callback) {
+  if (daemonRestart && retries > 0)
+  {
+    setTimeout(function () {
+      post_to_daemon(epubPath, query, output, retries - 1, callback);
+    }, 500);
+    return;
+  }
+  var request = http.request({
+    host:'127.0.0.1',
+    port:daemonPort,
+    method:'POST',
+    path:'/check' + query,
+    headers:{ 'Content-Type':'application/epub+zip' }
+  }, function (response) {
+    if (response.statusCode !== 200)
+    {
+      io.sockets.emit('error', 'The validation of ' + path.basename(epubPath) + ' failed (' + response.statusCode + ').');
+      response.resume();
+      callback(false);
+      return;
+    }
+    var outputStream = fs.createWriteStream(output);
+    response.pipe(outputStream);
+    outputStream.on('finish', function () {
+      callback(true);
     });
   });
+  request.on('error', function (err) {
+    if ((err.code === 'ECONNREFUSED' || err.code === 'ECONNRESET') && retries > 0)
+    {
+      setTimeout(function () {
+        post_to_daemon(epubPath, query, output, retries - 1, callback);
+      }, 500);
+    }
+    else
+    {
+      io.sockets.emit('error', 'Could not reach the validation daemon. ' + err);
+      callback(false);
+    }
+  });
+  fs.createReadStream(epubPath).pipe(request);
+};
+
+/**
+ * The daemon only reads the check message file it was started with, so it is
+ * started with the current one and restarted whenever the file is rewritten.
+ */
+var start_daemon = function () {
+  var args = ['-jar', jarFilePath, '--serve', daemonPort];
+  if (fs.existsSync(checkMessageOverrideFile))
+  {
+    args.push('-c', checkMessageOverrideFile);
+  }
+  daemon = spawn('java', args, { stdio:'inherit' });
+  daemon.on('exit', function (code) {
+    daemon = null;
+    if (daemonRestart)
+    {
+      daemonRestart = false;
+      start_daemon();
+    }
+  });
 };
 
+var restart_daemon = function () {
+  if (!daemon)
+  {
+    start_daemon();
+  }
+  else if (!daemonRestart)
+  {
+    // checks posted in the meantime are retried until the new daemon listens
+    daemonRestart = true;
+    daemon.kill();
+  }
+};
+
+process.on('exit', function () {
+  if (daemon)
+  {
+    daemon.kill();
+  }
+});
+
 var add_checked_file = function (json_path, output_folder, callback) {
   var checkedFile = new CheckedFile(json_path, output_folder);
   checkedFile.initialize(function () {
@@ -640,6 +730,7 @@ var get_default_check_messages = function (callback) {
     fs.exists(checkMessageOverrideFile, function (exists) {
       if (exists)
       {
+        restart_daemon();
         read_check_messages(function () {
           callback(true)
         });
@@ -665,7 +756,16 @@ var write_check_messages = function () {
     data += message.message + '\t';
     data += message.suggestion + '\n';
   }
-  fs.writeFile(checkMessageOverrideFile, data);
+  fs.writeFile(checkMessageOverrideFile, data, function (err) {
+    if (err)
+    {
+      io.sockets.emit('error', 'Could not write the check messages. ' + err);
+    }
+    else
+    {
+      restart_daemon();
+    }
+  });
 };
 
 var add_options = function (commander) {
@@ -673,13 +773,14 @@ var add_options = function (commander) {
     .version('0.0.1')
     .option('-p, --port <port>', 'Run the checkserver on port [port]', 8080)
     .option('-o, --override <file>', 'Use the epubcheck override file specified', null)
+    .option('-d, --daemon <port>', 'Run the epubcheck validation daemon on port [port]', 8089)
 };
 
 if (require.main === module)
 {
   add_options(program);
   program.parse(process.argv);
-  main(program.port, program.override);
+  main(program.port, program.override, null, null, null, program.daemon);
 }
 
 module.exports.main = main;
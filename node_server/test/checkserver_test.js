@@ -12,6 +12,7 @@ var debug = true;
 describe('checkserver tests', function () {
   var messages = [];
   var timestamp;
+  var overrideTimestamp;
   var resultInfo = {};
   var messageBackup = '';
   if (debug)
@@ -27,6 +28,7 @@ describe('checkserver tests', function () {
 
   before(function (done) {
     timestamp = new Date().getTime().toString();
+    overrideTimestamp = timestamp + '_override';
     messageBackup = app.checkMessageFile + '.bak';
     fs.exists(app.checkMessageFile, function (exists) {
       if (exists)
@@ -45,11 +47,13 @@ describe('checkserver tests', function () {
   after(function (done) {
     var testEpubDir = path.join(app.epubDir, 'Toy.epub' + timestamp);
     var testEpub2Dir = path.join(app.epubDir, 'Toy_modified.epub' + timestamp);
+    var overrideEpubDir = path.join(app.epubDir, 'Toy.epub' + overrideTimestamp);
     fs.exists(messageBackup, function (exists) {
       if (exists)
       {
         fs.renameSync(messageBackup, app.checkMessageFile);
       }
+      exec('rm -rf ' + overrideEpubDir + ' ' + overrideEpubDir + '.json');
       child = exec('rm -rf ' + testEpubDir, function (err, out) {
         testEpubDir += ".json";
         fs.unlink(testEpubDir, function () {
@@ -262,6 +266,70 @@ describe('checkserver tests', function () {
         });
     });
   });
+
+  describe('Check an epub with overridden messages', function () {
+    it('POST /set_messages should suppress all messages', function (done) {
+      for (var m = 0; m < messages.length; m++)
+      {
+        messages[m].severity = 'SUPPRESSED';
+      }
+      request(app)
+        .post('/set_messages')
+        .set('checkmessages', JSON.stringify(messages))
+        .expect(200)
+        .end(function (err, res) {
+          if (err)
+          {
+            console.log(res.text);
+            console.log(err);
+            debug_dump(err, 'error');
+          }
+          assert.equal(err, null);
+          done();
+        });
+    });
+
+    it('POST /check_epub should be validated with the override file', function (done) {
+      request(app)
+        .post('/check_epub')
+        .field('Toy.epub_Timestamp', overrideTimestamp)
+        .attach('Toy.epub', 'node_server/test/Toy.epub')
+        .expect(200)
+        .end(function (err, res) {
+          if (err)
+          {
+            console.log(res.text);
+            console.log(err);
+            debug_dump(err, 'error');
+          }
+          assert.equal(err, null);
+          var results = JSON.parse(res.text);
+          assert.equal(results.length, 1);
+          done();
+        });
+    });
+
+    it('Get check results without the suppressed messages', function (done) {
+      request(app)
+        .get('/get_results')
+        .set('publication', 'Toy.epub')
+        .set('timestamp', overrideTimestamp)
+        .expect(200)
+        .end(function (err, res) {
+          if (err)
+          {
+            console.log(res.text);
+            console.log(err);
+            debug_dump(err, 'error');
+          }
+          assert.equal(err, null);
+          var results = JSON.parse(res.text);
+          assert.equal(results.items.length, 7);
+          assert.equal(results.messages.length, 0);
+          done();
+        });
+    });
+  });
 });
 
 
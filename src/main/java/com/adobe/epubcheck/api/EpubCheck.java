@@ -21,19 +21,24 @@
  */
 package com.adobe.epubcheck.api;
 
+import com.adobe.epubcheck.css.CSSContentCache;
 import com.adobe.epubcheck.ctc.CheckManager;
 import com.adobe.epubcheck.messages.MessageId;
 import com.adobe.epubcheck.messages.MessageLocation;
+import com.adobe.epubcheck.ocf.OCFBufferPackage;
 import com.adobe.epubcheck.ocf.OCFChecker;
+import com.adobe.epubcheck.ocf.OCFDirectoryPackage;
 import com.adobe.epubcheck.ocf.OCFPackage;
 import com.adobe.epubcheck.ocf.OCFZipPackage;
 import com.adobe.epubcheck.opf.DocumentValidator;
 import com.adobe.epubcheck.util.CheckUtil;
 import com.adobe.epubcheck.util.DefaultReportImpl;
+import com.adobe.epubcheck.util.FeatureEnum;
 import com.adobe.epubcheck.util.ResourceUtil;
 import com.adobe.epubcheck.util.WriterReportImpl;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.Properties;
 import java.util.zip.ZipFile;
 
@@ -45,7 +50,10 @@ public class EpubCheck implements DocumentValidator
   private static String VERSION = null;
 	private static String BUILD_DATE = null; 
   private File epubFile;
+  private ByteBuffer epubBuffer;
   private Report report;
+  private int contentThreads = 1;
+  private CSSContentCache cssCache;
 
   public static String version()
   {
@@ -103,8 +111,9 @@ public class EpubCheck implements DocumentValidator
   }
 
   /*
-    * Create an epub validator to validate the given file and report issues to
-    * a given Report object.
+    * Create an epub validator to validate the given file, or the given
+    * directory holding an expanded publication, and report issues to a given
+    * Report object.
     */
   public EpubCheck(File epubFile, Report report)
   {
@@ -117,24 +126,54 @@ public class EpubCheck implements DocumentValidator
     this.report = report;
   }
 
+  /**
+   * Sets the number of content documents (XHTML, SVG, CSS, images...) that
+   * are validated at the same time. The default of 1 validates them one after
+   * the other; the reported messages are the same either way.
+   */
+  public void setContentThreads(int contentThreads)
+  {
+    this.contentThreads = contentThreads;
+  }
+
+  public int getContentThreads()
+  {
+    return contentThreads;
+  }
+
+  /**
+   * Sets the cache of style sheets shared with the validations of other
+   * publications, so that the style sheets they have in common are parsed
+   * once. The reported messages are the same with or without it.
+   */
+  public void setCssCache(CSSContentCache cssCache)
+  {
+    this.cssCache = cssCache;
+  }
+
+  public CSSContentCache getCssCache()
+  {
+    return cssCache;
+  }
+
+  /*
+    * Create an epub validator to validate the content of the given stream,
+    * which is read in memory. Issues will be reported to the given Report
+    * object.
+    */
   public EpubCheck(InputStream inputStream, Report report, String uri)
   {
-    File epubFile;
-    OutputStream out = null;
     try
     {
-      epubFile = File.createTempFile("epub", "." + ResourceUtil.getExtension(uri));
-      epubFile.deleteOnExit();
-      out = new FileOutputStream(epubFile);
-
-      byte[] bytes = new byte[1024];
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] bytes = new byte[32 * 1024];
       int read;
       while ((read = inputStream.read(bytes)) != -1)
       {
         out.write(bytes, 0, read);
       }
-
-      this.epubFile = epubFile;
+      this.epubBuffer = ByteBuffer.wrap(out.toByteArray());
+      this.epubFile = new File(uri);
       setReport(report);
     }
     catch (IOException e)
@@ -153,20 +192,21 @@ public class EpubCheck implements DocumentValidator
         {
         }
       }
-      if (out != null)
-      {
-        try
-        {
-          out.flush();
-          out.close();
-        }
-        catch (IOException ignored)
-        {
-        }
-      }
     }
   }
 
+  /*
+    * Create an epub validator to validate the zip file held by the given
+    * buffer (on the heap, direct or memory-mapped), without copying it or
+    * writing it to disk. Issues will be reported to the given Report object.
+    */
+  public EpubCheck(ByteBuffer epubBuffer, Report report, String uri)
+  {
+    this.epubBuffer = epubBuffer;
+    this.epubFile = new File(uri);
+    setReport(report);
+  }
+
   /**
   * Validate the file. Return true if no errors or warnings found.
   */
@@ -179,28 +219,57 @@ public class EpubCheck implements DocumentValidator
   public int doValidate()
   {
     ZipFile zip = null;
-    FileInputStream epubIn = null;
+    InputStream epubIn = null;
     try
     {
-      String extension = ResourceUtil.getExtension(epubFile.getName());
-      checkExtension(extension);
+      boolean expanded = epubBuffer == null && epubFile.isDirectory();
+      if (!expanded)
+      {
+        String extension = ResourceUtil.getExtension(epubFile.getName());
+        checkExtension(extension);
+      }
 
-      if (!epubFile.exists())
+      OCFPackage ocf;
+      if (expanded)
+      {
+        OCFDirectoryPackage directory = new OCFDirectoryPackage(epubFile);
+        directory.checkMimetype(report);
+        ocf = directory;
+      }
+      else if (epubBuffer != null)
+      {
+        ByteBuffer start = epubBuffer.duplicate();
+        byte[] header = new byte[Math.min(58, start.remaining())];
+        start.get(header);
+        checkEpubHeader(new ByteArrayInputStream(header));
+        ocf = new OCFBufferPackage(epubBuffer, epubFile.getPath());
+      }
+      else
       {
-        report.message(MessageId.PKG_018, new MessageLocation(epubFile.getName(), -1, -1));
-        return 2;
+        if (!epubFile.exists())
+        {
+          report.message(MessageId.PKG_018, new MessageLocation(epubFile.getName(), -1, -1));
+          return 2;
+        }
+
+        epubIn = new FileInputStream(epubFile);
+        checkEpubHeader(epubIn);
+        zip = new ZipFile(epubFile);
+        ocf = new OCFZipPackage(zip);
       }
 
-      epubIn = new FileInputStream(epubFile);
-      checkEpubHeader(epubIn);
-      zip = new ZipFile(epubFile);
+      if (report instanceof MasterReport)
+      {
+        ocf.setHashing(((MasterReport) report).isFeatureReported(FeatureEnum.SHA_256));
+      }
+      ocf.getCssParseCache().setContentCache(cssCache);
 
       /***Here are called custom checks (CTC Package)**/
-      CheckManager c = new CheckManager(zip, report);
+      CheckManager c = new CheckManager(ocf, report);
       c.checkPackage();
 
-      OCFPackage ocf = new OCFZipPackage(zip);
       OCFChecker checker = new OCFChecker(ocf, report, null);
+      checker.setContentThreads(contentThreads);
       checker.runChecks();
     }
     catch (IOException e)
@@ -253,7 +322,7 @@ public class EpubCheck implements DocumentValidator
     }
   }
 
-  void checkEpubHeader(FileInputStream epubIn) throws IOException
+  void checkEpubHeader(InputStream epubIn) throws IOException
   {
     byte[] header = new byte[58];
 
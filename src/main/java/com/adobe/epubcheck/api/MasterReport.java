@@ -1,21 +1,33 @@
 package com.adobe.epubcheck.api;
 
 import com.adobe.epubcheck.messages.*;
+import com.adobe.epubcheck.util.FeatureEnum;
 import com.adobe.epubcheck.util.ReportingLevel;
 import org.codehaus.jackson.annotate.JsonProperty;
 
 import java.io.File;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Reports are derived from this so that we can test for message Id coverage as well as have a centralized location for
  * severity reporting level testing.
+ * <p/>
+ * The state of a validation run is kept in the {@link ValidationContext} of
+ * its report. Reports share no mutable state, so separate {@link EpubCheck}
+ * instances, each with its own report, can validate on different threads at
+ * the same time and produce the same reports as when run one at a time.
  */
 public abstract class MasterReport implements Report
 {
-  public static Set<MessageId> reportedMessageIds = new HashSet<MessageId>();
-  int errorCount, warningCount, fatalErrorCount, usageCount = 0;
+  /**
+   * The IDs of the messages reported by all the reports of the JVM, used by
+   * the message coverage tests. The IDs reported during a single validation
+   * are given by {@link ValidationContext#getReportedMessageIds()}.
+   */
+  public static final Set<MessageId> reportedMessageIds = Collections.newSetFromMap(new ConcurrentHashMap<MessageId, Boolean>());
+  private final ValidationContext context = new ValidationContext();
   int reportingLevel = ReportingLevel.Info;
   private String ePubName;
   private MessageDictionary dictionary = new MessageDictionary(null, this);
@@ -39,38 +51,36 @@ public abstract class MasterReport implements Report
   @JsonProperty
   String customMessageFileName = null;
 
-  private void reportMessageId(MessageId id)
+  /**
+   * @return false if the report ignores the given feature, so that computing
+   *         it can be skipped
+   */
+  public boolean isFeatureReported(FeatureEnum feature)
   {
-    reportedMessageIds.add(id);
+    return true;
+  }
+
+  /**
+   * @return the state of the validation run this report is used for
+   */
+  public ValidationContext getContext()
+  {
+    return context;
   }
 
   @Override
-  public void message(MessageId id, MessageLocation location, Object... args)
+  public synchronized void message(MessageId id, MessageLocation location, Object... args)
   {
     Message message = getDictionary().getMessage(id);
     assert (message != null);
     Severity severity = message.getSeverity();
     if (ReportingLevel.getReportingLevel(severity) >= getReportingLevel())
     {
-      if (severity.equals(Severity.ERROR))
-      {
-        errorCount++;
-      }
-      else if (severity.equals(Severity.WARNING))
-      {
-        warningCount++;
-      }
-      else if (severity.equals(Severity.FATAL))
-      {
-        fatalErrorCount++;
-      }
-      else if (severity.equals(Severity.USAGE))
-      {
-        usageCount++;
-      }
+      context.countMessage(severity);
       this.message(message, location, args);
     }
-    reportMessageId(id);
+    context.addReportedMessageId(id);
+    reportedMessageIds.add(id);
   }
 
   @Override
@@ -119,19 +129,19 @@ public abstract class MasterReport implements Report
   @Override
   public int getErrorCount()
   {
-    return errorCount;
+    return context.getErrorCount();
   }
 
   @Override
   public int getWarningCount()
   {
-    return warningCount;
+    return context.getWarningCount();
   }
 
   @Override
   public int getFatalErrorCount()
   {
-    return fatalErrorCount;
+    return context.getFatalErrorCount();
   }
 
   @Override
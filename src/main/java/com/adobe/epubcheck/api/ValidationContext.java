@@ -0,0 +1,90 @@
+package com.adobe.epubcheck.api;
+
+import com.adobe.epubcheck.messages.MessageId;
+import com.adobe.epubcheck.messages.Severity;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The state of a single validation run: the number of messages reported for
+ * each severity and the IDs of the messages reported.
+ * <p/>
+ * Each report has its own context, and nothing in it is shared with other
+ * reports, so validations using different reports can run on different
+ * threads at the same time.
+ */
+public class ValidationContext
+{
+  private final AtomicInteger fatalErrorCount = new AtomicInteger();
+  private final AtomicInteger errorCount = new AtomicInteger();
+  private final AtomicInteger warningCount = new AtomicInteger();
+  private final AtomicInteger usageCount = new AtomicInteger();
+  private final Set<MessageId> reportedMessageIds = Collections.synchronizedSet(EnumSet.noneOf(MessageId.class));
+
+  /**
+   * Counts a message of the given severity.
+   */
+  public void countMessage(Severity severity)
+  {
+    switch (severity)
+    {
+      case FATAL:
+        fatalErrorCount.incrementAndGet();
+        break;
+      case ERROR:
+        errorCount.incrementAndGet();
+        break;
+      case WARNING:
+        warningCount.incrementAndGet();
+        break;
+      case USAGE:
+        usageCount.incrementAndGet();
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Records that a message was reported, whether or not its severity is above
+   * the reporting level.
+   */
+  public void addReportedMessageId(MessageId id)
+  {
+    reportedMessageIds.add(id);
+  }
+
+  /**
+   * @return a copy of the IDs of the messages reported so far
+   */
+  public Set<MessageId> getReportedMessageIds()
+  {
+    synchronized (reportedMessageIds)
+    {
+      return reportedMessageIds.isEmpty() ? EnumSet.noneOf(MessageId.class) : EnumSet.copyOf(reportedMessageIds);
+    }
+  }
+
+  public int getFatalErrorCount()
+  {
+    return fatalErrorCount.get();
+  }
+
+  public int getErrorCount()
+  {
+    return errorCount.get();
+  }
+
+  public int getWarningCount()
+  {
+    return warningCount.get();
+  }
+
+  public int getUsageCount()
+  {
+    return usageCount.get();
+  }
+}
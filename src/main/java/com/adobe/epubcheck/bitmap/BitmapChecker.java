@@ -26,21 +26,20 @@ import com.adobe.epubcheck.api.Report;
 import com.adobe.epubcheck.messages.MessageId;
 import com.adobe.epubcheck.messages.MessageLocation;
 import com.adobe.epubcheck.ocf.OCFPackage;
-import com.adobe.epubcheck.ocf.OCFZipPackage;
 import com.adobe.epubcheck.opf.ContentChecker;
 import com.adobe.epubcheck.util.CheckUtil;
-import com.sun.imageio.plugins.gif.GIFStreamMetadata;
 
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
 import javax.imageio.metadata.IIOMetadata;
-import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.metadata.IIOMetadataFormatImpl;
 import javax.imageio.stream.ImageInputStream;
-import java.io.File;
-import java.io.FileOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Iterator;
+
+import org.w3c.dom.Node;
 
 public class BitmapChecker implements ContentChecker
 {
@@ -100,136 +99,166 @@ public class BitmapChecker implements ContentChecker
     }
 
     String suffix = imgFileName.substring(pos + 1);
-    File tempFile = null;
-    ImageReader reader = null;
     if ("svg".compareToIgnoreCase(suffix) == 0)
     {
-      tempFile = getImageFile(ocf, imgFileName);
-      if (tempFile != null)
-      {
-        return new ImageHeuristics(0, 0, tempFile.length());
-      }
-      return null;
+      long length = getImageLength(imgFileName);
+      return length < 0 ? null : new ImageHeuristics(0, 0, length);
     }
 
-    Iterator<ImageReader> iterator = ImageIO.getImageReadersBySuffix(suffix);
-    if (iterator.hasNext())
+    if (!ImageIO.getImageReadersBySuffix(suffix).hasNext())
     {
-      reader = iterator.next();
-      ImageInputStream stream = null;
-      try
-      {
-        tempFile = getImageFile(ocf, imgFileName);
-
-        stream = new FileImageInputStream(tempFile);
-        reader.setInput(stream);
-
-        IIOMetadata metadata = reader.getStreamMetadata();
-        long length = tempFile.length();
-        if (metadata instanceof GIFStreamMetadata)
-        {
-          GIFStreamMetadata gifMetadata = (GIFStreamMetadata) metadata;
-          return new ImageHeuristics(gifMetadata.logicalScreenWidth,
-              gifMetadata.logicalScreenHeight,
-              length);
-        }
-        return new ImageHeuristics(reader.getWidth(0),reader.getHeight(0), length);
-      }
-      catch (IOException e)
-      {
-        report.message(MessageId.PKG_021, new MessageLocation(imgFileName, -1, -1, imgFileName));
-        return null;
-      }
-      catch (IllegalArgumentException argex)
+      throw new IOException("Not a known image file: " + imgFileName);
+    }
+    try
+    {
+      long length = getImageLength(imgFileName);
+      if (length < 0)
       {
-        report.message(MessageId.PKG_021, new MessageLocation(imgFileName, -1, -1, imgFileName));
-        return null;
+        throw new IllegalArgumentException("Missing image file: " + imgFileName);
       }
-      finally
+      int[] dimensions = readHeaderDimensions(imgFileName, suffix);
+      if (dimensions != null)
       {
-        if (reader != null)
-        {
-          reader.dispose();
-        }
-        if (stream != null)
-        {
-          stream.close();
-        }
+        return new ImageHeuristics(dimensions[0], dimensions[1], length);
       }
+      return readImageIODimensions(imgFileName, suffix, length);
+    }
+    catch (IOException e)
+    {
+      report.message(MessageId.PKG_021, new MessageLocation(imgFileName, -1, -1, imgFileName));
+      return null;
+    }
+    catch (IllegalArgumentException argex)
+    {
+      report.message(MessageId.PKG_021, new MessageLocation(imgFileName, -1, -1, imgFileName));
+      return null;
     }
-    throw new IOException("Not a known image file: " + imgFileName);
   }
 
-  private File getImageFile(OCFPackage ocf, String imgFileName) throws IOException
+  /**
+   * @return the size of the image, from the container metadata if available
+   *         or else by reading it; -1 if the image is not in the container
+   */
+  private long getImageLength(String imgFileName) throws
+      IOException
   {
-    if (ocf.getClass() == OCFZipPackage.class)
+    long length = ocf.getSize(imgFileName);
+    if (length >= 0)
     {
-      return getTempImageFile((OCFZipPackage) ocf, imgFileName);
+      return length;
     }
-    else
+    InputStream in = ocf.getInputStream(imgFileName);
+    if (in == null)
+    {
+      return -1;
+    }
+    try
+    {
+      length = 0;
+      byte[] bytes = new byte[32 * 1024];
+      int read;
+      while ((read = in.read(bytes)) > 0)
+      {
+        length += read;
+      }
+      return length;
+    }
+    finally
     {
-      return new File(ocf.getPackagePath() + File.separator + imgFileName);
+      in.close();
     }
   }
 
-  private class ImageHeuristics
+  private int[] readHeaderDimensions(String imgFileName, String suffix) throws
+      IOException
   {
-    public int width;
-    public int height;
-    public long length;
-
-    public ImageHeuristics(int width, int height, long length)
+    InputStream in = ocf.getInputStream(imgFileName);
+    if (in == null)
     {
-      this.width = width;
-      this.height = height;
-      this.length = length;
+      return null;
+    }
+    try
+    {
+      return ImageHeaderReader.readDimensions(new BufferedInputStream(in, 1024), suffix);
+    }
+    finally
+    {
+      in.close();
     }
   }
 
-  private File getTempImageFile(OCFZipPackage ocf, String imgFileName) throws IOException
+  /**
+   * Reads the image dimensions with ImageIO, for the images whose header
+   * couldn't be read.
+   */
+  private ImageHeuristics readImageIODimensions(String imgFileName, String suffix, long length) throws
+      IOException
   {
-    File file = null;
-    FileOutputStream os = null;
-    InputStream is = null;
+    ImageReader reader = ImageIO.getImageReadersBySuffix(suffix).next();
+    InputStream in = ocf.getInputStream(imgFileName);
+    ImageInputStream stream = null;
     try
     {
-      int pos = imgFileName.lastIndexOf(".");
-      if (pos == -1)
-      {
-        throw new IOException("No extension for file: " + imgFileName);
-      }
-      String suffix = imgFileName.substring(pos);
-      String prefix = "img";
-
-      file = File.createTempFile(prefix, suffix);
-      file.deleteOnExit();
-      os = new FileOutputStream(file);
+      stream = new MemoryCacheImageInputStream(in);
+      reader.setInput(stream);
 
-      is = ocf.getInputStream(imgFileName);
-      if (is == null)
-      {
-        return null;
-      }
-      byte[] bytes = new byte[32 * 1024];
-      int read;
-      while ((read = is.read(bytes)) > 0)
+      // the logical screen size of a GIF is in the standard metadata
+      IIOMetadata metadata = reader.getStreamMetadata();
+      if (metadata != null && metadata.isStandardMetadataFormatSupported())
       {
-        os.write(bytes, 0, read);
+        Node dimension = getChild(metadata.getAsTree(IIOMetadataFormatImpl.standardMetadataFormatName), "Dimension");
+        Node width = getChild(dimension, "HorizontalScreenSize");
+        Node height = getChild(dimension, "VerticalScreenSize");
+        if (width != null && height != null)
+        {
+          return new ImageHeuristics(getIntValue(width), getIntValue(height), length);
+        }
       }
+      return new ImageHeuristics(reader.getWidth(0), reader.getHeight(0), length);
     }
     finally
     {
-      if (os != null)
+      reader.dispose();
+      if (stream != null)
       {
-        os.flush();
-        os.close();
+        stream.close();
       }
-      if (is != null)
+      if (in != null)
       {
-        is.close();
+        in.close();
       }
     }
-    return file;  //To change body of created methods use File | Settings | File Templates.
+  }
+
+  private static Node getChild(Node node, String name)
+  {
+    for (Node child = node != null ? node.getFirstChild() : null; child != null; child = child.getNextSibling())
+    {
+      if (name.equals(child.getNodeName()))
+      {
+        return child;
+      }
+    }
+    return null;
+  }
+
+  private static int getIntValue(Node node)
+  {
+    return Integer.parseInt(node.getAttributes().getNamedItem("value").getNodeValue());
+  }
+
+  private class ImageHeuristics
+  {
+    public int width;
+    public int height;
+    public long length;
+
+    public ImageHeuristics(int width, int height, long length)
+    {
+      this.width = width;
+      this.height = height;
+      this.length = length;
+    }
   }
 
   private void checkImageDimensions(String imageFileName)
@@ -286,6 +315,7 @@ public class BitmapChecker implements ContentChecker
           checkHeader(header);
         }
         checkImageDimensions(path);
+        ocf.digestRemaining(path, in);
       }
       catch (IOException e)
       {
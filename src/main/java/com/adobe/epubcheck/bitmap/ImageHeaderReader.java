@@ -0,0 +1,176 @@
+package com.adobe.epubcheck.bitmap;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the dimensions of JPEG, PNG and GIF images from the first bytes of
+ * the image, without decoding it: the first SOF segment of a JPEG image, the
+ * IHDR chunk of a PNG image and the logical screen descriptor of a GIF image.
+ */
+final class ImageHeaderReader
+{
+  private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+  private ImageHeaderReader()
+  {
+  }
+
+  /**
+   * @param in     the image data; the stream is not closed
+   * @param suffix the file name extension, which gives the expected format
+   * @return the width and height of the image, or null if the format isn't
+   *         supported or the header can't be read
+   * @throws IOException if the stream can't be read
+   */
+  static int[] readDimensions(InputStream in, String suffix) throws
+      IOException
+  {
+    if ("jpg".equalsIgnoreCase(suffix) || "jpeg".equalsIgnoreCase(suffix))
+    {
+      return readJPEG(in);
+    }
+    if ("png".equalsIgnoreCase(suffix))
+    {
+      return readPNG(in);
+    }
+    if ("gif".equalsIgnoreCase(suffix))
+    {
+      return readGIF(in);
+    }
+    return null;
+  }
+
+  private static int[] readJPEG(InputStream in) throws
+      IOException
+  {
+    if (in.read() != 0xFF || in.read() != 0xD8)
+    {
+      return null;
+    }
+    while (true)
+    {
+      int b = in.read();
+      if (b != 0xFF)
+      {
+        return null;
+      }
+      // skip fill bytes
+      while (b == 0xFF)
+      {
+        b = in.read();
+      }
+      int marker = b;
+      if (marker == -1 || marker == 0xD9 || marker == 0xDA)
+      {
+        // end of file or start of scan before any frame header
+        return null;
+      }
+      if (marker == 0x01 || marker >= 0xD0 && marker <= 0xD8)
+      {
+        // markers without a segment
+        continue;
+      }
+      int length = readShort(in);
+      if (length < 2)
+      {
+        return null;
+      }
+      if (marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC)
+      {
+        // SOFn: sample precision, number of lines, number of samples per line
+        if (in.read() == -1)
+        {
+          return null;
+        }
+        int height = readShort(in);
+        int width = readShort(in);
+        // a height of 0 is defined later by a DNL segment
+        return height > 0 && width > 0 ? new int[]{width, height} : null;
+      }
+      if (!skipFully(in, length - 2))
+      {
+        return null;
+      }
+    }
+  }
+
+  private static int[] readPNG(InputStream in) throws
+      IOException
+  {
+    for (byte b : PNG_SIGNATURE)
+    {
+      if (in.read() != (b & 0xFF))
+      {
+        return null;
+      }
+    }
+    if (readInt(in) < 8 || in.read() != 'I' || in.read() != 'H' || in.read() != 'D' || in.read() != 'R')
+    {
+      return null;
+    }
+    int width = readInt(in);
+    int height = readInt(in);
+    return width > 0 && height > 0 ? new int[]{width, height} : null;
+  }
+
+  private static int[] readGIF(InputStream in) throws
+      IOException
+  {
+    if (in.read() != 'G' || in.read() != 'I' || in.read() != 'F' || in.read() != '8')
+    {
+      return null;
+    }
+    int version = in.read();
+    if (version != '7' && version != '9' || in.read() != 'a')
+    {
+      return null;
+    }
+    int width = readLittleEndianShort(in);
+    int height = readLittleEndianShort(in);
+    return width >= 0 && height >= 0 ? new int[]{width, height} : null;
+  }
+
+  private static int readShort(InputStream in) throws
+      IOException
+  {
+    int b1 = in.read();
+    int b2 = in.read();
+    return (b1 | b2) < 0 ? -1 : (b1 << 8) | b2;
+  }
+
+  private static int readLittleEndianShort(InputStream in) throws
+      IOException
+  {
+    int b1 = in.read();
+    int b2 = in.read();
+    return (b1 | b2) < 0 ? -1 : (b2 << 8) | b1;
+  }
+
+  private static int readInt(InputStream in) throws
+      IOException
+  {
+    int high = readShort(in);
+    int low = readShort(in);
+    return (high | low) < 0 ? -1 : (high << 16) | low;
+  }
+
+  private static boolean skipFully(InputStream in, long n) throws
+      IOException
+  {
+    while (n > 0)
+    {
+      long skipped = in.skip(n);
+      if (skipped <= 0)
+      {
+        if (in.read() == -1)
+        {
+          return false;
+        }
+        skipped = 1;
+      }
+      n -= skipped;
+    }
+    return true;
+  }
+}
@@ -29,6 +29,8 @@ import com.adobe.epubcheck.ocf.OCFPackage;
 import com.adobe.epubcheck.opf.ContentChecker;
 import com.adobe.epubcheck.opf.XRefChecker;
 import com.adobe.epubcheck.util.EPUBVersion;
+import com.google.common.base.Optional;
+import org.idpf.epubcheck.util.css.CssEvents;
 import org.idpf.epubcheck.util.css.CssExceptions;
 import org.idpf.epubcheck.util.css.CssParser;
 import org.idpf.epubcheck.util.css.CssSource;
@@ -41,7 +43,7 @@ public class CSSChecker implements ContentChecker
 {
   private final OCFPackage ocf;
   private final Report report;
-  private final String path; //css file path when Mode.FILE, host path when Mode.STRING
+  private final String path; //css file path when Mode.FILE, host path otherwise
   private final XRefChecker xrefChecker;
   private final EPUBVersion version;
   private final Mode mode;
@@ -51,9 +53,12 @@ public class CSSChecker implements ContentChecker
   private int line;  //where css string occurs in host
   private boolean isStyleAttribute;
 
-  private enum Mode
+  //Below only used when checking the style attributes of a document
+  private CssParser.StyleAttributeParser styleAttributeParser;
+
+  enum Mode
   {
-    FILE, STRING
+    FILE, STRING, STYLE_ATTRIBUTES
   }
 
   /**
@@ -61,13 +66,23 @@ public class CSSChecker implements ContentChecker
    */
   public CSSChecker(OCFPackage ocf, Report report, String path,
       XRefChecker xrefChecker, EPUBVersion version)
+  {
+    this(ocf, report, path, xrefChecker, version, Mode.FILE);
+  }
+
+  /**
+   * Constructor for CSS files, or for the style attributes of a document when
+   * the mode is STYLE_ATTRIBUTES.
+   */
+  CSSChecker(OCFPackage ocf, Report report, String path,
+      XRefChecker xrefChecker, EPUBVersion version, Mode mode)
   {
     this.ocf = ocf;
     this.report = report;
     this.path = path;
     this.xrefChecker = xrefChecker;
     this.version = version;
-    this.mode = Mode.FILE;
+    this.mode = mode;
   }
 
   /**
@@ -87,8 +102,41 @@ public class CSSChecker implements ContentChecker
     this.mode = Mode.STRING;
   }
 
+  /**
+   * Checks a style attribute of the document. All the attributes of the
+   * document are parsed by the same scanner and reported to the same handler,
+   * set up for the first one.
+   *
+   * @param value the value of the attribute
+   * @param line  the line of the element the attribute is on
+   */
+  public void checkStyleAttribute(String value, int line)
+  {
+    if (styleAttributeParser == null)
+    {
+      CSSHandler handler = new CSSHandler(path, xrefChecker, report, version);
+      styleAttributeParser = new CssParser().newStyleAttributeParser(path, handler, handler);
+    }
+    try
+    {
+      // the parser counts the lines from the line of the attribute, so the
+      // handler doesn't need a starting line number
+      styleAttributeParser.parse(value, Math.max(1, line));
+    }
+    catch (Exception e)
+    {
+      report.message(MessageId.PKG_008, new MessageLocation(path, -1, -1), e.getMessage());
+    }
+  }
+
   public void runChecks()
   {
+    if (this.mode == Mode.STYLE_ATTRIBUTES)
+    {
+      // the style attributes are checked as they are found
+      return;
+    }
+
     CssSource source = null;
 
     try
@@ -105,8 +153,16 @@ public class CSSChecker implements ContentChecker
         handler.setStartingLineNumber(this.line);
       }
 
-      source = getCssSource();
-      parseItem(source, handler);
+      CssEvents events = takeRecordedEvents();
+      if (events != null)
+      {
+        events.replay(handler, handler);
+      }
+      else
+      {
+        source = getCssSource();
+        parseItem(source, handler);
+      }
       handler.setStartingLineNumber(-1);
       this.line = -1;
     }
@@ -141,25 +197,53 @@ public class CSSChecker implements ContentChecker
     if (this.mode == Mode.FILE)
     {
       source = new CssSource(this.path, ocf.getInputStream(this.path));
-      String charset;
-      if (source.getInputStream().getBomCharset().isPresent())
+      checkCharsets(source.getInputStream().getBomCharset(), source.getInputStream().getCssCharset());
+    }
+    return source;
+  }
+
+  /**
+   * @return the events recorded when the same CSS was parsed by another check,
+   *         or null if it wasn't
+   */
+  CssEvents takeRecordedEvents()
+  {
+    if (ocf == null || isStyleAttribute)
+    {
+      return null;
+    }
+    if (this.mode == Mode.STRING)
+    {
+      return ocf.getCssParseCache().takeInlineStyle(this.path, this.value);
+    }
+    CSSParseCache.Stylesheet stylesheet = ocf.getCssParseCache().takeStylesheet(this.path);
+    if (stylesheet == null)
+    {
+      return null;
+    }
+    checkCharsets(stylesheet.getBomCharset(), stylesheet.getCssCharset());
+    return stylesheet.getEvents();
+  }
+
+  void checkCharsets(Optional<String> bomCharset, Optional<String> cssCharset)
+  {
+    String charset;
+    if (bomCharset.isPresent())
+    {
+      charset = bomCharset.get().toLowerCase();
+      if (!charset.equals("utf-8") && !charset.startsWith("utf-16"))
       {
-        charset = source.getInputStream().getBomCharset().get().toLowerCase();
-        if (!charset.equals("utf-8") && !charset.startsWith("utf-16"))
-        {
-          report.message(MessageId.CSS_004, new MessageLocation(path, -1, -1, ""), charset);
-        }
+        report.message(MessageId.CSS_004, new MessageLocation(path, -1, -1, ""), charset);
       }
-      if (source.getInputStream().getCssCharset().isPresent())
+    }
+    if (cssCharset.isPresent())
+    {
+      charset = cssCharset.get().toLowerCase();
+      if (!charset.equals("utf-8") && !charset.startsWith("utf-16"))
       {
-        charset = source.getInputStream().getCssCharset().get().toLowerCase();
-        if (!charset.equals("utf-8") && !charset.startsWith("utf-16"))
-        {
-          report.message(MessageId.CSS_003, new MessageLocation(path, 0, 0, ""), charset);
-        }
+        report.message(MessageId.CSS_003, new MessageLocation(path, 0, 0, ""), charset);
       }
     }
-    return source;
   }
 
   void parseItem(CssSource source, CSSHandler handler) throws IOException, CssExceptions.CssException
@@ -52,6 +52,16 @@ public class CSSCheckerFactory implements ContentCheckerFactory
     return new CSSChecker(ocf, report, value, isStyleAttribute, path, line, xrefChecker, version);
   }
 
+  /**
+   * Additional constructor for validating the style attributes of a document,
+   * each passed to the checker as the document is parsed
+   */
+  public CSSChecker newStyleAttributesInstance(OCFPackage ocf, Report report,
+      String path, XRefChecker xrefChecker, EPUBVersion version)
+  {
+    return new CSSChecker(ocf, report, path, xrefChecker, version, CSSChecker.Mode.STYLE_ATTRIBUTES);
+  }
+
   static private final CSSCheckerFactory instance = new CSSCheckerFactory();
 
   static public CSSCheckerFactory getInstance()
@@ -0,0 +1,423 @@
+/*
+ * Copyright (c) 2011 Adobe Systems Incorporated
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.adobe.epubcheck.css;
+
+import com.adobe.epubcheck.api.EpubCheck;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+/**
+ * The parser events of style sheets, shared by the validations of several
+ * publications. A style sheet is parsed once for all the publications that
+ * have a style sheet with the same content; the events are replayed to the
+ * handlers of each publication, which report the messages with their own
+ * paths and check the references against their own manifest.
+ * <p/>
+ * Style sheets are keyed by the SHA-256 of the format version, the checker
+ * version and their content. The most recently used ones are kept in memory,
+ * up to a total size of their CSS, and with a directory they are also stored
+ * on disk for the next runs, up to a total size of the files; the least
+ * recently used ones are removed first. A stored file starts with the format
+ * version, and only the classes of the recorded events are read from it; a
+ * stored style sheet that can't be read back is treated as not stored.
+ */
+public class CSSContentCache
+{
+  /**
+   * The version of the stored events. Snapshot builds share the checker
+   * version, so it must be changed whenever the recorded events change.
+   */
+  static final int FORMAT_VERSION = 1;
+  public static final long DEFAULT_MAX_MEMORY_SIZE = 32L * 1024 * 1024;
+  public static final long DEFAULT_MAX_DIRECTORY_SIZE = 256L * 1024 * 1024;
+
+  private static final int MAGIC = 0x45435353;
+  private static final String SUFFIX = ".css.ser";
+
+  private final long maxMemorySize;
+  private final File directory;
+  private final long maxDirectorySize;
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+  private long memorySize = 0;
+  private long directorySize = -1;
+
+  private static class Entry
+  {
+    final CSSParseCache.Stylesheet stylesheet;
+    final long size;
+
+    Entry(CSSParseCache.Stylesheet stylesheet, long size)
+    {
+      this.stylesheet = stylesheet;
+      this.size = size;
+    }
+  }
+
+  /**
+   * Creates a cache kept in memory only.
+   *
+   * @param maxMemorySize the total size of the CSS of the style sheets kept
+   *                      in memory, in bytes
+   */
+  public CSSContentCache(long maxMemorySize)
+  {
+    this(maxMemorySize, null, 0);
+  }
+
+  /**
+   * @param maxMemorySize    the total size of the CSS of the style sheets kept
+   *                         in memory, in bytes
+   * @param directory        the directory the style sheets are stored in, or
+   *                         null to keep them in memory only
+   * @param maxDirectorySize the total size of the files stored in the
+   *                         directory, in bytes
+   */
+  public CSSContentCache(long maxMemorySize, File directory, long maxDirectorySize)
+  {
+    if (maxMemorySize < 0)
+    {
+      throw new IllegalArgumentException("maxMemorySize");
+    }
+    if (directory != null && maxDirectorySize < 1)
+    {
+      throw new IllegalArgumentException("maxDirectorySize");
+    }
+    this.maxMemorySize = maxMemorySize;
+    this.directory = directory;
+    this.maxDirectorySize = maxDirectorySize;
+    if (directory != null)
+    {
+      directory.mkdirs();
+    }
+  }
+
+  /**
+   * @return the key of a style sheet with the given content
+   */
+  public String getKey(byte[] content)
+  {
+    try
+    {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(String.valueOf(FORMAT_VERSION).getBytes("UTF-8"));
+      digest.update((byte) 0);
+      digest.update(String.valueOf(EpubCheck.version()).getBytes("UTF-8"));
+      digest.update((byte) 0);
+      digest.update(content);
+      return String.format("%064x", new BigInteger(1, digest.digest()));
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      throw new IllegalStateException(e);
+    }
+    catch (IOException e)
+    {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @return the style sheet stored with the given key, or null if there is
+   *         none
+   */
+  public CSSParseCache.Stylesheet get(String key)
+  {
+    synchronized (entries)
+    {
+      Entry entry = entries.get(key);
+      if (entry != null || directory == null)
+      {
+        return entry == null ? null : entry.stylesheet;
+      }
+    }
+    File file = getFile(key);
+    Entry entry = read(file);
+    if (entry == null)
+    {
+      return null;
+    }
+    // the files are removed in the order they were last used
+    file.setLastModified(System.currentTimeMillis());
+    putInMemory(key, entry);
+    return entry.stylesheet;
+  }
+
+  /**
+   * Stores a style sheet, whose events must be a complete parse of the content
+   * the key was computed for.
+   *
+   * @param size the size of the content, in bytes
+   */
+  public void put(String key, CSSParseCache.Stylesheet stylesheet, long size)
+  {
+    Entry entry = new Entry(stylesheet, size);
+    putInMemory(key, entry);
+    if (directory != null)
+    {
+      write(getFile(key), entry);
+    }
+  }
+
+  private void putInMemory(String key, Entry entry)
+  {
+    if (entry.size > maxMemorySize)
+    {
+      return;
+    }
+    synchronized (entries)
+    {
+      Entry replaced = entries.put(key, entry);
+      memorySize += entry.size - (replaced == null ? 0 : replaced.size);
+      // iterated from the least recently used
+      Iterator<Entry> iterator = entries.values().iterator();
+      while (memorySize > maxMemorySize)
+      {
+        memorySize -= iterator.next().size;
+        iterator.remove();
+      }
+    }
+  }
+
+  private File getFile(String key)
+  {
+    return new File(directory, key + SUFFIX);
+  }
+
+  private static Entry read(File file)
+  {
+    if (!file.isFile())
+    {
+      return null;
+    }
+    try
+    {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      try
+      {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION)
+        {
+          return null;
+        }
+        long size = in.readLong();
+        Object stylesheet = new StylesheetInputStream(in).readObject();
+        return stylesheet instanceof CSSParseCache.Stylesheet
+            ? new Entry((CSSParseCache.Stylesheet) stylesheet, size) : null;
+      }
+      finally
+      {
+        in.close();
+      }
+    }
+    catch (Exception e)
+    {
+      // written by another build, being written, or not written by a cache
+      return null;
+    }
+  }
+
+  private void write(File file, Entry entry)
+  {
+    // written aside then renamed, so that other runs never read a partial file
+    File temp = null;
+    try
+    {
+      temp = File.createTempFile("css", ".tmp", file.getParentFile());
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+      try
+      {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(entry.size);
+        ObjectOutputStream objects = new ObjectOutputStream(out);
+        objects.writeObject(entry.stylesheet);
+        objects.flush();
+      }
+      finally
+      {
+        out.close();
+      }
+      long length = temp.length();
+      if (length <= maxDirectorySize && temp.renameTo(file))
+      {
+        temp = null;
+        stored(length);
+      }
+    }
+    catch (IOException e)
+    {
+      // the style sheet is still cached in memory
+    }
+    finally
+    {
+      if (temp != null)
+      {
+        temp.delete();
+      }
+    }
+  }
+
+  /**
+   * Accounts for a file added to the directory, and removes the least recently
+   * used files once the directory is too large.
+   */
+  private synchronized void stored(long length)
+  {
+    if (directorySize < 0)
+    {
+      // other runs may have stored files too, so it's only counted once here
+      // and again when files are removed
+      directorySize = getDirectorySize(listStoredFiles());
+    }
+    else
+    {
+      directorySize += length;
+    }
+    if (directorySize > maxDirectorySize)
+    {
+      removeLeastRecentlyUsed();
+    }
+  }
+
+  private void removeLeastRecentlyUsed()
+  {
+    File[] files = listStoredFiles();
+    final long[] lastModified = new long[files.length];
+    Integer[] order = new Integer[files.length];
+    for (int i = 0; i < files.length; i++)
+    {
+      lastModified[i] = files[i].lastModified();
+      order[i] = i;
+    }
+    Arrays.sort(order, new Comparator<Integer>()
+    {
+      public int compare(Integer a, Integer b)
+      {
+        return lastModified[a] < lastModified[b] ? -1 : lastModified[a] > lastModified[b] ? 1 : 0;
+      }
+    });
+    // down to three quarters, so that the directory isn't listed again on
+    // the next write
+    long size = getDirectorySize(files);
+    for (int i = 0; i < order.length && size > maxDirectorySize / 4 * 3; i++)
+    {
+      File file = files[order[i]];
+      long length = file.length();
+      if (file.delete())
+      {
+        size -= length;
+      }
+    }
+    directorySize = size;
+  }
+
+  private File[] listStoredFiles()
+  {
+    File[] files = directory.listFiles(new FileFilter()
+    {
+      public boolean accept(File file)
+      {
+        return file.getName().endsWith(SUFFIX) && file.isFile();
+      }
+    });
+    return files == null ? new File[0] : files;
+  }
+
+  private static long getDirectorySize(File[] files)
+  {
+    long size = 0;
+    for (File file : files)
+    {
+      size += file.length();
+    }
+    return size;
+  }
+
+  /**
+   * Only reads the classes of the recorded events, so that a file put in the
+   * directory by someone else can't make the cache create other objects.
+   */
+  private static class StylesheetInputStream extends ObjectInputStream
+  {
+    private static final String EVENTS_PREFIX = "org.idpf.epubcheck.util.css.Css";
+    private static final Set<String> ALLOWED_CLASSES = new HashSet<String>(Arrays.asList(
+        CSSParseCache.Stylesheet.class.getName(),
+        "com.google.common.base.Optional",
+        "com.google.common.base.Present",
+        "com.google.common.base.Absent",
+        "java.lang.Enum",
+        "java.util.ArrayList",
+        "java.util.Collections$EmptyList",
+        // the errors recorded with the events
+        "java.lang.Throwable",
+        "java.lang.Exception",
+        "java.lang.StackTraceElement",
+        "[Ljava.lang.StackTraceElement;"));
+
+    StylesheetInputStream(InputStream in) throws
+        IOException
+    {
+      super(in);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws
+        IOException,
+        ClassNotFoundException
+    {
+      String name = desc.getName();
+      if (!ALLOWED_CLASSES.contains(name) && !name.startsWith(EVENTS_PREFIX))
+      {
+        throw new InvalidClassException(name, "not a class of the recorded CSS events");
+      }
+      return super.resolveClass(desc);
+    }
+
+    @Override
+    protected Class<?> resolveProxyClass(String[] interfaces) throws
+        IOException
+    {
+      throw new InvalidClassException("proxy", "not a class of the recorded CSS events");
+    }
+  }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2011 Adobe Systems Incorporated
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package com.adobe.epubcheck.css;
+
+import com.google.common.base.Optional;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+import org.idpf.epubcheck.util.css.CssContentHandler;
+import org.idpf.epubcheck.util.css.CssErrorHandler;
+import org.idpf.epubcheck.util.css.CssEvents;
+import org.idpf.epubcheck.util.css.CssExceptions.CssException;
+import org.idpf.epubcheck.util.css.CssInputStream;
+import org.idpf.epubcheck.util.css.CssParser;
+import org.idpf.epubcheck.util.css.CssSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The parser events of the style sheets of a publication, recorded by the
+ * first check that parses them so that the checks that look at them later
+ * don't parse them again.
+ * <p/>
+ * Style sheets are looked up by their path in the container, CSS in
+ * <code>style</code> elements by the path of the document and the CSS itself.
+ * An entry is removed when it is taken, so each recording is replayed once.
+ * Large style sheets aren't recorded, nor is any more CSS once the recordings
+ * held reach a total size; the checks parse those again.
+ * <p/>
+ * With a {@link CSSContentCache}, style sheets whose content was parsed for
+ * another publication aren't parsed again either.
+ */
+public class CSSParseCache
+{
+  /**
+   * The size of the largest CSS that is recorded, in bytes for style sheets
+   * and in characters for <code>style</code> elements.
+   */
+  static final int MAX_RECORDED_SIZE = 256 * 1024;
+  /**
+   * The total size of the recordings held at the same time.
+   */
+  static final long MAX_RECORDED_TOTAL = 8 * 1024 * 1024;
+
+  private final ConcurrentMap<String, Recording<Stylesheet>> stylesheets = new ConcurrentHashMap<String, Recording<Stylesheet>>();
+  private final ConcurrentMap<List<String>, Recording<CssEvents>> inlineStyles = new ConcurrentHashMap<List<String>, Recording<CssEvents>>();
+  private final AtomicLong recordedSize = new AtomicLong();
+  private CSSContentCache contentCache;
+
+  private static class Recording<T>
+  {
+    final T value;
+    final long size;
+
+    Recording(T value, long size)
+    {
+      this.value = value;
+      this.size = size;
+    }
+  }
+
+  /**
+   * The recorded events of a style sheet, with the character sets detected when
+   * it was read.
+   */
+  public static class Stylesheet implements Serializable
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final CssEvents events;
+    private final Optional<String> bomCharset;
+    private final Optional<String> cssCharset;
+
+    Stylesheet(CssEvents events, CssInputStream stream)
+    {
+      this.events = events;
+      this.bomCharset = stream.getBomCharset();
+      this.cssCharset = stream.getCssCharset();
+    }
+
+    public CssEvents getEvents()
+    {
+      return events;
+    }
+
+    public Optional<String> getBomCharset()
+    {
+      return bomCharset;
+    }
+
+    public Optional<String> getCssCharset()
+    {
+      return cssCharset;
+    }
+  }
+
+  /**
+   * @param contentCache the style sheets shared with other publications, or
+   *                     null if they aren't shared
+   */
+  public void setContentCache(CSSContentCache contentCache)
+  {
+    this.contentCache = contentCache;
+  }
+
+  /**
+   * Parses a style sheet of the container, passing the events on to the given
+   * handlers, and records them for the checks that look at it later. When the
+   * content cache has a style sheet with the same content, its events are
+   * replayed instead.
+   *
+   * @param path the path of the style sheet in the container
+   * @param in   the content of the style sheet
+   */
+  public void parseStylesheet(String path, InputStream in, CssErrorHandler err, CssContentHandler doc) throws
+      IOException,
+      CssException
+  {
+    if (contentCache == null)
+    {
+      CountingInputStream counting = new CountingInputStream(in);
+      Stylesheet stylesheet = parse(path, counting, err, doc);
+      record(stylesheets, path, stylesheet, counting.getCount());
+      return;
+    }
+    byte[] content = ByteStreams.toByteArray(in);
+    String key = contentCache.getKey(content);
+    Stylesheet stylesheet = contentCache.get(key);
+    if (stylesheet == null)
+    {
+      // recorded on its own, so that the shared recording is complete and
+      // doesn't hold on to the handlers of this publication
+      stylesheet = parse(path, new ByteArrayInputStream(content), null, null);
+      contentCache.put(key, stylesheet, content.length);
+    }
+    record(stylesheets, path, stylesheet, content.length);
+    stylesheet.getEvents().replay(err, doc);
+  }
+
+  private static Stylesheet parse(String path, InputStream in, CssErrorHandler err, CssContentHandler doc) throws
+      IOException,
+      CssException
+  {
+    CssSource source = new CssSource(path, in);
+    CssEvents events = new CssEvents(err, doc);
+    new CssParser().parse(source, events, events);
+    return new Stylesheet(events, source.getInputStream());
+  }
+
+  /**
+   * @return the recorded style sheet, or null if it wasn't recorded or was
+   *         already taken
+   */
+  public Stylesheet takeStylesheet(String path)
+  {
+    return take(stylesheets, path);
+  }
+
+  /**
+   * @param path   the path of the document the CSS is in
+   * @param css    the content of the <code>style</code> element
+   * @param events the events of a complete parse of the CSS
+   */
+  public void putInlineStyle(String path, String css, CssEvents events)
+  {
+    record(inlineStyles, Arrays.asList(path, css), events, css.length());
+  }
+
+  /**
+   * @return the recorded events, or null if the CSS wasn't recorded or was
+   *         already taken
+   */
+  public CssEvents takeInlineStyle(String path, String css)
+  {
+    return take(inlineStyles, Arrays.asList(path, css));
+  }
+
+  /**
+   * Drops the recordings that weren't taken, once the checks that could take
+   * them are done.
+   */
+  public void clear()
+  {
+    stylesheets.clear();
+    inlineStyles.clear();
+    recordedSize.set(0);
+  }
+
+  /**
+   * @return the total size of the recordings held
+   */
+  long getRecordedSize()
+  {
+    return recordedSize.get();
+  }
+
+  private <K, V> void record(ConcurrentMap<K, Recording<V>> recordings, K key, V value, long size)
+  {
+    if (size > MAX_RECORDED_SIZE)
+    {
+      return;
+    }
+    if (recordedSize.addAndGet(size) > MAX_RECORDED_TOTAL)
+    {
+      recordedSize.addAndGet(-size);
+      return;
+    }
+    Recording<V> replaced = recordings.put(key, new Recording<V>(value, size));
+    if (replaced != null)
+    {
+      recordedSize.addAndGet(-replaced.size);
+    }
+  }
+
+  private <K, V> V take(ConcurrentMap<K, Recording<V>> recordings, K key)
+  {
+    Recording<V> recording = recordings.remove(key);
+    if (recording == null)
+    {
+      return null;
+    }
+    recordedSize.addAndGet(-recording.size);
+    return recording.value;
+  }
+}
@@ -5,10 +5,15 @@ import com.adobe.epubcheck.ctc.ContentValidator.ValidationType;
 import com.adobe.epubcheck.ctc.epubpackage.EpubPackage;
 import com.adobe.epubcheck.messages.MessageId;
 import com.adobe.epubcheck.messages.MessageLocation;
+import com.adobe.epubcheck.ocf.OCFPackage;
+import com.adobe.epubcheck.opf.DocumentValidator;
+import com.adobe.epubcheck.util.DeferredReport;
+import com.adobe.epubcheck.util.DefaultReportImpl;
 import com.adobe.epubcheck.util.EPUBVersion;
 import com.adobe.epubcheck.util.outWriter;
 
-import java.util.zip.ZipFile;
+import java.util.ArrayList;
+import java.util.List;
 
 public class CheckManager
 {
@@ -16,7 +21,7 @@ public class CheckManager
   private final EpubCheckContentFactory factory;
   private Report report;
 
-  public CheckManager(ZipFile zip, Report report)
+  public CheckManager(OCFPackage zip, Report report)
   {
     setReport(report);
     PackageReader pr = new PackageReader(zip, report);
@@ -37,36 +42,80 @@ public class CheckManager
     }
 
     EPUBVersion version = epack.getVersion();
-    outWriter.println("Validating against EPUB version " + version + " - custom validation");
+    String line = "Validating against EPUB version " + version + " - custom validation";
+    if (report instanceof DefaultReportImpl)
+    {
+      // held back with the rest of the text report in batch mode
+      ((DefaultReportImpl) report).printLine(line);
+    }
+    else
+    {
+      outWriter.println(line);
+    }
+
+    // checks that only look at the content documents share a single parse of
+    // each document; their messages are held back and reported in check order
+    List<DocumentValidator> validators = new ArrayList<DocumentValidator>();
+    List<DeferredReport> reports = new ArrayList<DeferredReport>();
+    ContentDocumentPass contentPass = new ContentDocumentPass(epack, report);
 
     if (version != null && version.equals(EPUBVersion.VERSION_3))
     {
-      factory.newInstance(report, ValidationType.RENDITION, epack).validate();
-      factory.newInstance(report, ValidationType.CFI, epack).validate();
-      factory.newInstance(report, ValidationType.METADATA_V3, epack).validate();
-      factory.newInstance(report, ValidationType.NAV, epack).validate();
+      addCheck(ValidationType.RENDITION, validators, reports, contentPass);
+      addCheck(ValidationType.CFI, validators, reports, contentPass);
+      addCheck(ValidationType.METADATA_V3, validators, reports, contentPass);
+      addCheck(ValidationType.NAV, validators, reports, contentPass);
     }
     else if (version != null && EPUBVersion.VERSION_2.equals(version))
     {
-      factory.newInstance(report, ValidationType.EPUB3_STRUCTURE, epack).validate();
-      factory.newInstance(report, ValidationType.METADATA_V2, epack).validate();
+      addCheck(ValidationType.EPUB3_STRUCTURE, validators, reports, contentPass);
+      addCheck(ValidationType.METADATA_V2, validators, reports, contentPass);
     }
     else
     {
       report.message(MessageId.OPF_024, new MessageLocation(epack.getFileName(), -1, -1), version);
     }
 
-    factory.newInstance(report, ValidationType.NCX, epack).validate();
-    factory.newInstance(report, ValidationType.MULTIPLE_CSS, epack).validate();
-    factory.newInstance(report, ValidationType.HTML_STRUCTURE, epack).validate();
-    factory.newInstance(report, ValidationType.LINK, epack).validate();
-    factory.newInstance(report, ValidationType.CSS_SEARCH, epack).validate();
-    factory.newInstance(report, ValidationType.TOC, epack).validate();
-    factory.newInstance(report, ValidationType.LANG, epack).validate();
-    factory.newInstance(report, ValidationType.SPINE, epack).validate();
-    factory.newInstance(report, ValidationType.TEXT, epack).validate();
-    factory.newInstance(report, ValidationType.SCRIPT, epack).validate();
-    factory.newInstance(report, ValidationType.SPAN, epack).validate();
-    factory.newInstance(report, ValidationType.SVG, epack).validate();
+    addCheck(ValidationType.NCX, validators, reports, contentPass);
+    addCheck(ValidationType.MULTIPLE_CSS, validators, reports, contentPass);
+    addCheck(ValidationType.HTML_STRUCTURE, validators, reports, contentPass);
+    addCheck(ValidationType.LINK, validators, reports, contentPass);
+    addCheck(ValidationType.CSS_SEARCH, validators, reports, contentPass);
+    addCheck(ValidationType.TOC, validators, reports, contentPass);
+    addCheck(ValidationType.LANG, validators, reports, contentPass);
+    addCheck(ValidationType.SPINE, validators, reports, contentPass);
+    addCheck(ValidationType.TEXT, validators, reports, contentPass);
+    addCheck(ValidationType.SCRIPT, validators, reports, contentPass);
+    addCheck(ValidationType.SPAN, validators, reports, contentPass);
+    addCheck(ValidationType.SVG, validators, reports, contentPass);
+
+    contentPass.run();
+    for (int i = 0; i < validators.size(); i++)
+    {
+      if (reports.get(i) != null)
+      {
+        reports.get(i).flush();
+      }
+      else
+      {
+        validators.get(i).validate();
+      }
+    }
+  }
+
+  private void addCheck(ValidationType type, List<DocumentValidator> validators, List<DeferredReport> reports, ContentDocumentPass contentPass)
+  {
+    DocumentValidator validator = factory.newInstance(report, type, epack);
+    DeferredReport checkReport = null;
+    if (validator instanceof ContentDocumentCheck)
+    {
+      // some checks look at the concrete report class, so only the content
+      // document checks get the deferring wrapper
+      checkReport = new DeferredReport(report);
+      validator = factory.newInstance(checkReport, type, epack);
+      contentPass.addCheck((ContentDocumentCheck) validator, checkReport);
+    }
+    validators.add(validator);
+    reports.add(checkReport);
   }
 }
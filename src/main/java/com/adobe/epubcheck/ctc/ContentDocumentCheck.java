@@ -0,0 +1,36 @@
+package com.adobe.epubcheck.ctc;
+
+import com.adobe.epubcheck.ctc.epubpackage.ManifestItem;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * A custom check that inspects the SAX events of every text content document
+ * in the manifest. Checks of this kind are driven by a {@link ContentDocumentPass},
+ * which parses each document once and feeds the same events to all of them.
+ */
+public interface ContentDocumentCheck
+{
+  /**
+   * Called once before the first document is parsed.
+   */
+  public void startPass();
+
+  /**
+   * @param mi          the manifest item about to be parsed
+   * @param fileToParse the container path of the item
+   * @return the handler that should receive the events of this document, or
+   *         null if this check has nothing to do with it
+   */
+  public DefaultHandler startDocument(ManifestItem mi, String fileToParse);
+
+  /**
+   * Called once the document has been parsed, with the handler returned by
+   * {@link #startDocument(ManifestItem, String)}.
+   */
+  public void endDocument(ManifestItem mi, String fileToParse, DefaultHandler handler);
+
+  /**
+   * Called once after the last document was parsed.
+   */
+  public void endPass();
+}
@@ -0,0 +1,103 @@
+package com.adobe.epubcheck.ctc;
+
+import com.adobe.epubcheck.api.Report;
+import com.adobe.epubcheck.ctc.epubpackage.EpubPackage;
+import com.adobe.epubcheck.ctc.epubpackage.ManifestItem;
+import com.adobe.epubcheck.ctc.xml.MultiplexHandler;
+import com.adobe.epubcheck.ctc.xml.XMLContentDocParser;
+import com.adobe.epubcheck.util.DeferredReport;
+import com.adobe.epubcheck.util.SearchDictionary;
+import com.adobe.epubcheck.util.SearchDictionary.DictionaryType;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses every text content document of the package once and dispatches the
+ * SAX events to all the registered {@link ContentDocumentCheck}s.
+ */
+public class ContentDocumentPass
+{
+  private final EpubPackage epack;
+  private final Report report;
+  private final List<ContentDocumentCheck> checks = new ArrayList<ContentDocumentCheck>();
+  private final List<Report> checkReports = new ArrayList<Report>();
+
+  public ContentDocumentPass(EpubPackage epack, Report report)
+  {
+    this.epack = epack;
+    this.report = report;
+  }
+
+  public void addCheck(ContentDocumentCheck check)
+  {
+    addCheck(check, report);
+  }
+
+  /**
+   * @param checkReport the report the check writes to; problems found while
+   *                    parsing a document are copied to it, as if the check
+   *                    had parsed the document itself
+   */
+  public void addCheck(ContentDocumentCheck check, Report checkReport)
+  {
+    checks.add(check);
+    checkReports.add(checkReport);
+  }
+
+  public void run()
+  {
+    if (checks.isEmpty())
+    {
+      return;
+    }
+
+    for (ContentDocumentCheck check : checks)
+    {
+      check.startPass();
+    }
+
+    SearchDictionary vtsd = SearchDictionary.forType(DictionaryType.VALID_TEXT_MEDIA_TYPES);
+    DeferredReport parseReport = new DeferredReport(report);
+    XMLContentDocParser parser = new XMLContentDocParser(epack.getZip(), parseReport);
+    DefaultHandler[] handlers = new DefaultHandler[checks.size()];
+    for (int i = 0; i < epack.getManifest().itemsLength(); i++)
+    {
+      ManifestItem mi = epack.getManifest().getItem(i);
+      if (!vtsd.isValidMediaType(mi.getMediaType()))
+      {
+        continue;
+      }
+      String fileToParse = epack.getManifestItemFileName(mi);
+
+      MultiplexHandler multiplexer = new MultiplexHandler();
+      for (int c = 0; c < handlers.length; c++)
+      {
+        handlers[c] = checks.get(c).startDocument(mi, fileToParse);
+        multiplexer.addHandler(handlers[c]);
+      }
+      if (multiplexer.isEmpty())
+      {
+        continue;
+      }
+
+      parser.parseDoc(fileToParse, multiplexer);
+
+      for (int c = 0; c < handlers.length; c++)
+      {
+        if (handlers[c] != null)
+        {
+          parseReport.flushTo(checkReports.get(c));
+          checks.get(c).endDocument(mi, fileToParse, handlers[c]);
+        }
+      }
+      parseReport.clear();
+    }
+
+    for (ContentDocumentCheck check : checks)
+    {
+      check.endPass();
+    }
+  }
+}
@@ -4,21 +4,21 @@ import com.adobe.epubcheck.api.Report;
 import com.adobe.epubcheck.messages.MessageId;
 import com.adobe.epubcheck.messages.MessageLocation;
 import com.adobe.epubcheck.ocf.EncryptionFilter;
+import com.adobe.epubcheck.ocf.OCFPackage;
 import com.adobe.epubcheck.util.EPUBVersion;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.*;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 class EntitySearch
 {
-  private final ZipFile zip;
+  private final OCFPackage zip;
   private final Hashtable<String, EncryptionFilter> enc;
   private final Report report;
   private final EPUBVersion version;
@@ -27,9 +27,13 @@ class EntitySearch
   static final HashSet<String> legalEntities2_0;
   static final HashSet<String> legalEntities3_0;
 
-  MessageId ENTITY_ERROR = MessageId.HTM_023;
-  MessageId ENTITY_OK = MessageId.HTM_006;
-  MessageId ENTITY_IMPROPER = MessageId.HTM_024;
+  // the message reported for each legal entity, by EPUB version
+  static final Map<String, MessageId> entityCodes2_0;
+  static final Map<String, MessageId> entityCodes3_0;
+
+  static final MessageId ENTITY_ERROR = MessageId.HTM_023;
+  static final MessageId ENTITY_OK = MessageId.HTM_006;
+  static final MessageId ENTITY_IMPROPER = MessageId.HTM_024;
 
   static
   {
@@ -63,9 +67,23 @@ class EntitySearch
         "&sdot;", "&vellip;", "&lceil;", "&rceil;", "&lfloor;", "&rfloor;", "&lang;", "&rang;", "&loz;", "&spades;", "&clubs;",
         "&hearts;", "&diams;");
 
+    // in EPUB 2 entities in either list are fine; in EPUB 3 only the ones in
+    // the 3.0 list are, and a usage message says so for the 2.0 ones
+    entityCodes2_0 = new HashMap<String, MessageId>();
+    entityCodes3_0 = new HashMap<String, MessageId>();
+    for (String entity : legalEntities2_0)
+    {
+      entityCodes2_0.put(entity, ENTITY_OK);
+      entityCodes3_0.put(entity, ENTITY_IMPROPER);
+    }
+    for (String entity : legalEntities3_0)
+    {
+      entityCodes2_0.put(entity, ENTITY_OK);
+      entityCodes3_0.put(entity, ENTITY_OK);
+    }
   }
 
-  public EntitySearch(EPUBVersion version, ZipFile zip, Report report)
+  public EntitySearch(EPUBVersion version, OCFPackage zip, Report report)
   {
     this.zip = zip;
     this.enc = new Hashtable<String, EncryptionFilter>();
@@ -76,12 +94,11 @@ class EntitySearch
   InputStream getInputStream(String name) throws
       IOException
   {
-    ZipEntry entry = zip.getEntry(name);
-    if (entry == null)
+    if (!zip.hasEntry(name))
     {
       return null;
     }
-    InputStream in = zip.getInputStream(entry);
+    InputStream in = zip.getInputStream(name);
     EncryptionFilter filter = enc.get(name);
     if (filter == null)
     {
@@ -101,58 +118,51 @@ class EntitySearch
     try
     {
       is = getInputStream(entry);
-      Scanner in = new Scanner(is);
+      Map<String, MessageId> entityCodes = version == EPUBVersion.VERSION_2 ? entityCodes2_0
+          : version == EPUBVersion.VERSION_3 ? entityCodes3_0 : Collections.<String, MessageId>emptyMap();
+      Reader in = new InputStreamReader(is, "UTF-8");
+      char[] buffer = new char[8192];
+      StringBuilder line = new StringBuilder();
       int lineCounter = 1;
+      boolean afterCarriageReturn = false;
+      int read;
 
-      while (in.hasNextLine())
+      // lines end like with Scanner.nextLine(), and are searched as they end
+      while ((read = in.read(buffer)) != -1)
       {
-        String line = in.nextLine();
-        Matcher matcher = entityPattern.matcher(line);
-        int position = 0;
-
-        while (matcher.find(position))
+        for (int i = 0; i < read; i++)
         {
-          MessageId messageCode = ENTITY_ERROR;
-          position = matcher.end();
-          String matchedText = line.substring(matcher.start(), matcher.end());
-          if (version == EPUBVersion.VERSION_2)
+          char c = buffer[i];
+          if (c == '\n' && afterCarriageReturn)
           {
-            if (legalEntities3_0.contains(matchedText) || legalEntities2_0.contains(matchedText))
-            {
-              // its in either the legal 2.0 list or the 3.0 list. Simply emit a usage message
-              messageCode = ENTITY_OK;
-            }
+            afterCarriageReturn = false;
           }
-          else if (version == EPUBVersion.VERSION_3)
+          else if (c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029' || c == '\u0085')
           {
-            if (legalEntities3_0.contains(matchedText))
-            {
-              // its in the 3.0 list.  just emit a usage message
-              messageCode = ENTITY_OK;
-            }
-            else if (legalEntities2_0.contains(matchedText))
-            {
-              // its in the 2.0 list.  Emit a usage message saying that only &amp; &apos; etc. are allowed
-              messageCode = ENTITY_IMPROPER;
-            }
+            searchLine(entry, line, lineCounter++, entityCodes);
+            line.setLength(0);
+            afterCarriageReturn = c == '\r';
+          }
+          else
+          {
+            line.append(c);
+            afterCarriageReturn = false;
           }
-
-          int contextStart = Math.max(0, matcher.start() - 20);
-          int contextEnd = Math.min(contextStart + 40, line.length() - 1);
-          String context = line.substring(contextStart, contextEnd);
-          report.message(messageCode, new MessageLocation(entry, lineCounter, matcher.start(), context.trim()));
         }
-        lineCounter++;
+      }
+      if (line.length() > 0)
+      {
+        searchLine(entry, line, lineCounter, entityCodes);
       }
     }
     catch (FileNotFoundException e1)
     {
-      String fileName = new File(zip.getName()).getName();
+      String fileName = zip.getName();
       report.message(MessageId.RSC_001, new MessageLocation(fileName, -1, -1), entry);
     }
     catch (IOException e1)
     {
-      String fileName = new File(zip.getName()).getName();
+      String fileName = zip.getName();
       report.message(MessageId.PKG_008, new MessageLocation(fileName, -1, -1), entry);
     }
     catch (Exception e)
@@ -175,4 +185,53 @@ class EntitySearch
     }
     return result;
   }
+
+  /**
+   * Reports the matches of {@link #entityPattern} in a line, without the cost
+   * of a regular expression.
+   */
+  private void searchLine(String entry, StringBuilder line, int lineNumber, Map<String, MessageId> entityCodes)
+  {
+    int length = line.length();
+    int position = 0;
+    while (position < length)
+    {
+      if (line.charAt(position) != '&')
+      {
+        position++;
+        continue;
+      }
+      int nameEnd = position + 1;
+      while (nameEnd < length && isEntityNameChar(line.charAt(nameEnd)))
+      {
+        nameEnd++;
+      }
+      if (nameEnd == position + 1 || nameEnd == length || !isEntityEndChar(line.charAt(nameEnd)))
+      {
+        position = Math.max(position + 1, nameEnd);
+        continue;
+      }
+
+      MessageId messageCode = entityCodes.get(line.substring(position, nameEnd + 1));
+      if (messageCode == null)
+      {
+        messageCode = ENTITY_ERROR;
+      }
+      int contextStart = Math.max(0, position - 20);
+      int contextEnd = Math.min(contextStart + 40, length - 1);
+      String context = line.substring(contextStart, contextEnd);
+      report.message(messageCode, new MessageLocation(entry, lineNumber, position, context.trim()));
+      position = nameEnd + 1;
+    }
+  }
+
+  private static boolean isEntityNameChar(char c)
+  {
+    return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+  }
+
+  private static boolean isEntityEndChar(char c)
+  {
+    return c == ';' || c == '|' || c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
 }
@@ -4,20 +4,16 @@ import com.adobe.epubcheck.api.Report;
 import com.adobe.epubcheck.ctc.epubpackage.EpubPackage;
 import com.adobe.epubcheck.ctc.epubpackage.ManifestItem;
 import com.adobe.epubcheck.ctc.xml.Epub3StructureHandler;
-import com.adobe.epubcheck.ctc.xml.XMLContentDocParser;
 import com.adobe.epubcheck.messages.MessageId;
 import com.adobe.epubcheck.messages.MessageLocation;
 import com.adobe.epubcheck.opf.DocumentValidator;
-import com.adobe.epubcheck.util.PathUtil;
-import com.adobe.epubcheck.util.SearchDictionary;
-import com.adobe.epubcheck.util.SearchDictionary.DictionaryType;
+import org.xml.sax.helpers.DefaultHandler;
 
-import java.util.zip.ZipEntry;
-
-public class Epub3StructureCheck implements DocumentValidator
+public class Epub3StructureCheck implements DocumentValidator, ContentDocumentCheck
 {
   private final Report report;
   private final EpubPackage epack;
+  private boolean result = false;
 
   public Epub3StructureCheck(EpubPackage epack, Report report)
   {
@@ -29,36 +25,43 @@ public class Epub3StructureCheck implements DocumentValidator
   @Override
   public boolean validate()
   {
-    boolean result = false;
+    ContentDocumentPass pass = new ContentDocumentPass(epack, report);
+    pass.addCheck(this);
+    pass.run();
+    return result;
+  }
 
-    SearchDictionary vtsd = new SearchDictionary(DictionaryType.VALID_TEXT_MEDIA_TYPES);
+  @Override
+  public void startPass()
+  {
+    result = false;
+  }
 
-    for (int i = 0; i < epack.getManifest().itemsLength(); i++)
+  @Override
+  public DefaultHandler startDocument(ManifestItem mi, String fileToParse)
+  {
+    if (!epack.getZip().hasEntry(fileToParse))
     {
-      ManifestItem mi = epack.getManifest().getItem(i);
-      if (vtsd.isValidMediaType(mi.getMediaType()))
-      {
-        XMLContentDocParser parser = new XMLContentDocParser(epack.getZip(), report);
-        Epub3StructureHandler epub3StructureHandler = new Epub3StructureHandler();
-        String fileToParse = epack.getManifestItemFileName(mi);
-
-        ZipEntry entry = epack.getZip().getEntry(fileToParse);
-        if (entry == null)
-        {
-          report.message(MessageId.RSC_001, new MessageLocation(epack.getFileName(), -1, -1), fileToParse);
-          continue;
-        }
-
-        epub3StructureHandler.setFileName(epack.getFileName());
-        epub3StructureHandler.setReport(report);
-        parser.parseDoc(fileToParse, epub3StructureHandler);
+      report.message(MessageId.RSC_001, new MessageLocation(epack.getFileName(), -1, -1), fileToParse);
+      return null;
+    }
+    Epub3StructureHandler epub3StructureHandler = new Epub3StructureHandler();
+    epub3StructureHandler.setFileName(epack.getFileName());
+    epub3StructureHandler.setReport(report);
+    return epub3StructureHandler;
+  }
 
-        if (epub3StructureHandler.getSpecificTagsCount() > 0)
-        {
-          result = true;
-        }
-      }
+  @Override
+  public void endDocument(ManifestItem mi, String fileToParse, DefaultHandler handler)
+  {
+    if (((Epub3StructureHandler) handler).getSpecificTagsCount() > 0)
+    {
+      result = true;
     }
-    return result;
+  }
+
+  @Override
+  public void endPass()
+  {
   }
 }
@@ -5,36 +5,33 @@ import com.adobe.epubcheck.ctc.css.EpubCSSCheckCSSHandler;
 import com.adobe.epubcheck.ctc.epubpackage.EpubPackage;
 import com.adobe.epubcheck.ctc.epubpackage.ManifestItem;
 import com.adobe.epubcheck.ctc.xml.CSSStyleAttributeHandler;
-import com.adobe.epubcheck.ctc.xml.XMLContentDocParser;
 import com.adobe.epubcheck.messages.MessageId;
 import com.adobe.epubcheck.messages.MessageLocation;
 import com.adobe.epubcheck.ocf.EncryptionFilter;
+import com.adobe.epubcheck.ocf.OCFPackage;
 import com.adobe.epubcheck.opf.DocumentValidator;
 import com.adobe.epubcheck.util.PathUtil;
 import com.adobe.epubcheck.util.SearchDictionary;
 import com.adobe.epubcheck.util.SearchDictionary.DictionaryType;
-import com.adobe.epubcheck.util.TextSearchDictionaryEntry;
-import org.idpf.epubcheck.util.css.CssParser;
-import org.idpf.epubcheck.util.css.CssSource;
+import org.xml.sax.helpers.DefaultHandler;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
 import java.util.Hashtable;
 import java.util.Vector;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
-public class EpubCSSCheck implements DocumentValidator
+public class EpubCSSCheck implements DocumentValidator, ContentDocumentCheck
 {
-  final ZipFile zip;
+  final OCFPackage zip;
   final Report report;
   final EpubPackage epack;
   final Hashtable<String, EncryptionFilter> enc;
   static final int EXCESSIVE_CSS_THRESHOLD = 10;
   final boolean isGlobalFixed;
+  private SearchDictionary tsd;
+  private EpubCSSCheckCSSHandler cssHandler;
+  private int numCssFiles;
 
   public EpubCSSCheck(EpubPackage epack, Report report)
   {
@@ -46,13 +43,21 @@ public class EpubCSSCheck implements DocumentValidator
   }
 
   public boolean validate()
+  {
+    ContentDocumentPass pass = new ContentDocumentPass(epack, report);
+    pass.addCheck(this);
+    pass.run();
+    return true;
+  }
+
+  @Override
+  public void startPass()
   {
     boolean hasFixedFormatItems = getHasFixedFormatItems(epack);
-    SearchDictionary tsd = new SearchDictionary(DictionaryType.CSS_VALUES);
-    SearchDictionary cssTypes = new SearchDictionary(DictionaryType.CSS_FILES);
-    SearchDictionary validTypes = new SearchDictionary(DictionaryType.VALID_TEXT_MEDIA_TYPES);
-    EpubCSSCheckCSSHandler handler = new EpubCSSCheckCSSHandler(report, isGlobalFixed, hasFixedFormatItems);
-    int numCssFiles = 0;
+    tsd = SearchDictionary.forType(DictionaryType.CSS_VALUES);
+    SearchDictionary cssTypes = SearchDictionary.forType(DictionaryType.CSS_FILES);
+    cssHandler = new EpubCSSCheckCSSHandler(report, isGlobalFixed, hasFixedFormatItems);
+    numCssFiles = 0;
 
     for (int i = 0; i < epack.getManifest().itemsLength(); i++)
     {
@@ -63,8 +68,7 @@ public class EpubCSSCheck implements DocumentValidator
         ++numCssFiles;
         String fileToParse = getEntryFileName(itemEntry, epack);
 
-        ZipEntry entry = epack.getZip().getEntry(fileToParse);
-        if (entry == null)
+        if (!epack.getZip().hasEntry(fileToParse))
         {
           report.message(MessageId.RSC_001, new MessageLocation(epack.getFileName(), -1, -1), fileToParse);
           continue;
@@ -73,11 +77,10 @@ public class EpubCSSCheck implements DocumentValidator
         try
         {
           InputStream inputStream = getInputStream(fileToParse);
-          CssSource source = new CssSource(fileToParse, inputStream);
-          CssParser parser = new CssParser();
-          handler.setPath(fileToParse);
+          cssHandler.setPath(fileToParse);
 
-          parser.parse(source, handler, handler);
+          // the CSS checker replays the events instead of parsing the file again
+          zip.getCssParseCache().parseStylesheet(fileToParse, inputStream, cssHandler, cssHandler);
         }
         catch (Exception e)
         {
@@ -85,54 +88,57 @@ public class EpubCSSCheck implements DocumentValidator
         }
       }
     }
+  }
 
-    for (int i = 0; i < epack.getManifest().itemsLength(); i++)
+  @Override
+  public DefaultHandler startDocument(ManifestItem itemEntry, String fileToParse)
+  {
+    if (!epack.getZip().hasEntry(fileToParse))
     {
-      ManifestItem itemEntry = epack.getManifest().getItem(i);
-      if (validTypes.isValidMediaType(itemEntry.getMediaType()))
-      {
-        String fileToParse = getEntryFileName(itemEntry, epack);
-        ZipEntry entry = epack.getZip().getEntry(fileToParse);
-        if (entry == null)
-        {
-          report.message(MessageId.RSC_001, new MessageLocation(epack.getFileName(), -1, -1), fileToParse);
-          continue;
-        }
+      report.message(MessageId.RSC_001, new MessageLocation(epack.getFileName(), -1, -1), fileToParse);
+      return null;
+    }
 
-        XMLContentDocParser parser;
-        String properties = itemEntry.getProperties();
-        boolean itemIsFixedFormat = (properties != null && properties.contains("rendition:layout-pre-paginated"));
+    String properties = itemEntry.getProperties();
+    boolean itemIsFixedFormat = (properties != null && properties.contains("rendition:layout-pre-paginated"));
 
-        parser = new XMLContentDocParser(epack.getZip(), report);
-        CSSStyleAttributeHandler h = new CSSStyleAttributeHandler(isGlobalFixed, itemIsFixedFormat);
-        h.setCssHandler(handler);
-        h.setReport(report);
-        h.setFileName(fileToParse);
-        parser.parseDoc(fileToParse, h);
-        Vector<CSSStyleAttributeHandler.StyleAttribute> styleTags = h.getStyleTagValues();
+    CSSStyleAttributeHandler h = new CSSStyleAttributeHandler(isGlobalFixed, itemIsFixedFormat);
+    h.setCssHandler(cssHandler);
+    h.setParseCache(zip.getCssParseCache());
+    h.setReport(report);
+    h.setFileName(fileToParse);
+    return h;
+  }
 
-        for (int t = 0; t < styleTags.size(); t++)
-        {
-          CSSStyleAttributeHandler.StyleAttribute value = styleTags.elementAt(t);
-          searchInsideValue(value, tsd, fileToParse);
-        }
+  @Override
+  public void endDocument(ManifestItem itemEntry, String fileToParse, DefaultHandler handler)
+  {
+    CSSStyleAttributeHandler h = (CSSStyleAttributeHandler) handler;
+    Vector<CSSStyleAttributeHandler.StyleAttribute> styleTags = h.getStyleTagValues();
 
-        Collection<CSSStyleAttributeHandler.StyleAttribute> styleAttributes = h.getStyleAttributesValues();
-        for (CSSStyleAttributeHandler.StyleAttribute value : styleAttributes)
-        {
-          searchInsideValue(value, tsd, fileToParse);
-          report.message(MessageId.ACC_013, new MessageLocation(fileToParse, value.getLine(), value.getColumn(), value.getValue()));
-        }
-      }
+    for (int t = 0; t < styleTags.size(); t++)
+    {
+      CSSStyleAttributeHandler.StyleAttribute value = styleTags.elementAt(t);
+      searchInsideValue(value, tsd, fileToParse);
     }
 
-    CheckUnusedCSSClassSelectors(handler, report);
+    Collection<CSSStyleAttributeHandler.StyleAttribute> styleAttributes = h.getStyleAttributesValues();
+    for (CSSStyleAttributeHandler.StyleAttribute value : styleAttributes)
+    {
+      searchInsideValue(value, tsd, fileToParse);
+      report.message(MessageId.ACC_013, new MessageLocation(fileToParse, value.getLine(), value.getColumn(), value.getValue()));
+    }
+  }
+
+  @Override
+  public void endPass()
+  {
+    CheckUnusedCSSClassSelectors(cssHandler, report);
 
     if (numCssFiles > EXCESSIVE_CSS_THRESHOLD)
     {
       report.message(MessageId.CSS_011, new MessageLocation(epack.getFileName(), -1, -1));
     }
-    return true;
   }
 
   boolean getHasFixedFormatItems(EpubPackage epack)
@@ -174,12 +180,11 @@ public class EpubCSSCheck implements DocumentValidator
   InputStream getInputStream(String name) throws
       IOException
   {
-    ZipEntry entry = zip.getEntry(name);
-    if (entry == null)
+    if (!zip.hasEntry(name))
     {
       return null;
     }
-    InputStream in = zip.getInputStream(entry);
+    InputStream in = zip.getInputStream(name);
     EncryptionFilter filter = enc.get(name);
     if (filter == null)
     {
@@ -194,17 +199,12 @@ public class EpubCSSCheck implements DocumentValidator
 
   void searchInsideValue(CSSStyleAttributeHandler.StyleAttribute entry, SearchDictionary tds, String file)
   {
-    for (int s = 0; s < tds.getDictEntries().size(); s++)
+    int[] matches = tds.getSearcher().countMatches(entry.getValue());
+    for (int s = 0; s < matches.length; s++)
     {
-      TextSearchDictionaryEntry de = tds.getDictEntries().get(s);
-      MessageId messageCode = de.getErrorCode();
-      Pattern p = de.getPattern();
-
-      Matcher matcher = p.matcher(entry.getValue());
-      int position = 0;
-      while (matcher.find(position))
+      MessageId messageCode = tds.getSearcher().getEntries().get(s).getErrorCode();
+      for (int m = 0; m < matches[s]; m++)
       {
-        position = matcher.end();
         report.message(messageCode, new MessageLocation(file, entry.getLine(), entry.getColumn(), entry.getValue().trim()));
       }
     }
@@ -4,20 +4,16 @@ import com.adobe.epubcheck.api.Report;
 import com.adobe.epubcheck.ctc.epubpackage.EpubPackage;
 import com.adobe.epubcheck.ctc.epubpackage.ManifestItem;
 import com.adobe.epubcheck.ctc.xml.AnchorTagHandler;
-import com.adobe.epubcheck.ctc.xml.XMLContentDocParser;
 import com.adobe.epubcheck.messages.MessageId;
 import com.adobe.epubcheck.messages.MessageLocation;
 import com.adobe.epubcheck.opf.DocumentValidator;
-import com.adobe.epubcheck.util.PathUtil;
-import com.adobe.epubcheck.util.SearchDictionary;
-import com.adobe.epubcheck.util.SearchDictionary.DictionaryType;
+import org.xml.sax.helpers.DefaultHandler;
 
 import java.io.File;
 import java.util.Vector;
-import java.util.zip.ZipEntry;
 
 
-public class EpubCfiCheck implements DocumentValidator
+public class EpubCfiCheck implements DocumentValidator, ContentDocumentCheck
 {
   private final Report report;
   private final EpubPackage epack;
@@ -31,35 +27,43 @@ public class EpubCfiCheck implements DocumentValidator
 
   public boolean validate()
   {
-    SearchDictionary validTypes = new SearchDictionary(DictionaryType.VALID_TEXT_MEDIA_TYPES);
+    ContentDocumentPass pass = new ContentDocumentPass(epack, report);
+    pass.addCheck(this);
+    pass.run();
+    return true;
+  }
+
+  @Override
+  public void startPass()
+  {
+  }
 
-    for (int i = 0; i < epack.getManifest().itemsLength(); i++)
+  @Override
+  public DefaultHandler startDocument(ManifestItem itemEntry, String fileToParse)
+  {
+    if (!epack.getZip().hasEntry(fileToParse))
     {
-      ManifestItem itemEntry = epack.getManifest().getItem(i);
-      if (validTypes.isValidMediaType(itemEntry.getMediaType()))
-      {
-        String fileToParse = epack.getManifestItemFileName(itemEntry);
-        ZipEntry entry = epack.getZip().getEntry(fileToParse);
-        if (entry == null)
-        {
-          report.message(MessageId.RSC_001, new MessageLocation(epack.getFileName(), -1, -1), fileToParse);
-          continue;
-        }
+      report.message(MessageId.RSC_001, new MessageLocation(epack.getFileName(), -1, -1), fileToParse);
+      return null;
+    }
+    return new AnchorTagHandler();
+  }
 
-        XMLContentDocParser parser = new XMLContentDocParser(epack.getZip(), report);
-        AnchorTagHandler h = new AnchorTagHandler();
-        parser.parseDoc(fileToParse, h);
-        Vector<AnchorTagHandler.DocTagContent> v = h.getHrefAttributesValues();
+  @Override
+  public void endDocument(ManifestItem itemEntry, String fileToParse, DefaultHandler handler)
+  {
+    Vector<AnchorTagHandler.DocTagContent> v = ((AnchorTagHandler) handler).getHrefAttributesValues();
 
-        for (int e = 0; e < v.size(); e++)
-        {
-          AnchorTagHandler.DocTagContent value = v.elementAt(e);
-          searchInsideValue(value, fileToParse);
-        }
-      }
+    for (int e = 0; e < v.size(); e++)
+    {
+      AnchorTagHandler.DocTagContent value = v.elementAt(e);
+      searchInsideValue(value, fileToParse);
     }
+  }
 
-    return true;
+  @Override
+  public void endPass()
+  {
   }
 
   private void searchInsideValue(AnchorTagHandler.DocTagContent entry, String file)
@@ -5,15 +5,14 @@ import com.adobe.epubcheck.ctc.epubpackage.EpubPackage;
 import com.adobe.epubcheck.ctc.epubpackage.ManifestItem;
 import com.adobe.epubcheck.ctc.epubpackage.SpineItem;
 import com.adobe.epubcheck.ctc.xml.HTMLTagsAnalyseHandler;
-import com.adobe.epubcheck.ctc.xml.XMLContentDocParser;
 import com.adobe.epubcheck.messages.MessageId;
 import com.adobe.epubcheck.messages.MessageLocation;
 import com.adobe.epubcheck.ocf.EncryptionFilter;
+import com.adobe.epubcheck.ocf.OCFPackage;
 import com.adobe.epubcheck.opf.DocumentValidator;
 import com.adobe.epubcheck.util.EPUBVersion;
 import com.adobe.epubcheck.util.FeatureEnum;
-import com.adobe.epubcheck.util.SearchDictionary;
-import com.adobe.epubcheck.util.SearchDictionary.DictionaryType;
+import org.xml.sax.helpers.DefaultHandler;
 
 import java.io.File;
 import java.io.IOException;
@@ -22,10 +21,8 @@ import java.util.Hashtable;
 import java.util.Scanner;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
-public class EpubHTML5StructureCheck implements DocumentValidator
+public class EpubHTML5StructureCheck implements DocumentValidator, ContentDocumentCheck
 {
   static final int hasHtml = 1;
   static final int hasPublic = 2;
@@ -34,10 +31,13 @@ public class EpubHTML5StructureCheck implements DocumentValidator
   static final int hasHTML5 = hasHtml;
   static final int hasHTML4 = hasPublic | hasW3C | hasXhtml;
 
-  final ZipFile zip;
+  final OCFPackage zip;
   final Report report;
   final EpubPackage epubPackage;
   final Hashtable<String, EncryptionFilter> enc;
+  private Hashtable<String, SpineItem> spineItems;
+  private boolean isGlobalFixed;
+  private int landmarkNavCount;
 
   public EpubHTML5StructureCheck(EpubPackage epack, Report report)
   {
@@ -50,119 +50,125 @@ public class EpubHTML5StructureCheck implements DocumentValidator
   @Override
   public boolean validate()
   {
-    boolean result = false;
-    SearchDictionary vtsd = new SearchDictionary(DictionaryType.VALID_TEXT_MEDIA_TYPES);
-    int landmarkNavCount = 0;
-    boolean isGlobalFixed = EpubPackage.isGlobalFixed(this.epubPackage);
+    ContentDocumentPass pass = new ContentDocumentPass(epubPackage, report);
+    pass.addCheck(this);
+    pass.run();
+    return false;
+  }
+
+  @Override
+  public void startPass()
+  {
+    landmarkNavCount = 0;
+    isGlobalFixed = EpubPackage.isGlobalFixed(this.epubPackage);
 
-    Hashtable<String, SpineItem> spineItems = new Hashtable<String, SpineItem>();
+    spineItems = new Hashtable<String, SpineItem>();
     for (int i = 0; i < epubPackage.getSpine().itemsLength(); ++i)
     {
       SpineItem si = epubPackage.getSpine().getItem(i);
       spineItems.put(si.getIdref(), si);
     }
+  }
 
-    for (int i = 0; i < epubPackage.getManifest().itemsLength(); i++)
+  @Override
+  public DefaultHandler startDocument(ManifestItem mi, String fileToParse)
+  {
+    HTMLTagsAnalyseHandler sh = new HTMLTagsAnalyseHandler();
+    sh.setReport(report);
+    SpineItem si = spineItems.get(mi.getId());
+    boolean itemIsFixedFormat = isGlobalFixed;
+    if (si != null)
     {
-      ManifestItem mi = epubPackage.getManifest().getItem(i);
-      if (vtsd.isValidMediaType(mi.getMediaType()))
+
+      String properties = si.getProperties();
+      if (properties != null)
       {
-        XMLContentDocParser parser = new XMLContentDocParser(epubPackage.getZip(), report);
-        HTMLTagsAnalyseHandler sh = new HTMLTagsAnalyseHandler();
-        sh.setReport(report);
-        SpineItem si = spineItems.get(mi.getId());
-        boolean itemIsFixedFormat = isGlobalFixed;
-        if (si != null)
+        if (properties != null && !properties.equals(""))
         {
-
-          String properties = si.getProperties();
-          if (properties != null)
+          properties = properties.replaceAll("[\\s]+", " ");
+          String propertyArray[] = properties.split(" ");
+          for (String prop : propertyArray)
           {
-            if (properties != null && !properties.equals(""))
+            if (prop.equals("rendition:layout-pre-paginated"))
             {
-              properties = properties.replaceAll("[\\s]+", " ");
-              String propertyArray[] = properties.split(" ");
-              for (String prop : propertyArray)
-              {
-                if (prop.equals("rendition:layout-pre-paginated"))
-                {
-                  itemIsFixedFormat = true;
-                }
-                else if (prop.equals("rendition:layout-reflowable"))
-                {
-                  itemIsFixedFormat = false;
-                }
-              }
+              itemIsFixedFormat = true;
+            }
+            else if (prop.equals("rendition:layout-reflowable"))
+            {
+              itemIsFixedFormat = false;
             }
           }
-          sh.setIsFixed(itemIsFixedFormat);
         }
+      }
+      sh.setIsFixed(itemIsFixedFormat);
+    }
 
-        String fileToParse = epubPackage.getManifestItemFileName(mi);
-
-        ZipEntry entry = zip.getEntry(fileToParse);
-        if (entry == null)
-        {
-          String fileName = new File(zip.getName()).getName();
-          report.message(MessageId.RSC_001, new MessageLocation(fileName, -1, -1), fileToParse);
-          continue;
-        }
-        sh.setVersion(epubPackage.getVersion());
-        sh.setFileName(fileToParse);
-        //parser.parseDoc(fileToParse, sh);
-        /***VALIDATE FILE EXTENSION***/
+    if (!zip.hasEntry(fileToParse))
+    {
+      String fileName = zip.getName();
+      report.message(MessageId.RSC_001, new MessageLocation(fileName, -1, -1), fileToParse);
+      return null;
+    }
+    sh.setVersion(epubPackage.getVersion());
+    sh.setFileName(fileToParse);
+    /***VALIDATE FILE EXTENSION***/
 
-        String fileExtension = mi.getHref().substring(mi.getHref().lastIndexOf('.') + 1, mi.getHref().length());
-        if (!(fileExtension.compareToIgnoreCase("html") == 0 || fileExtension.compareToIgnoreCase("htm") == 0 || fileExtension.compareToIgnoreCase("xhtml") == 0))
-        {
-          report.message(MessageId.HTM_014, new MessageLocation(mi.getHref(), -1, -1));
-        }
+    String fileExtension = mi.getHref().substring(mi.getHref().lastIndexOf('.') + 1, mi.getHref().length());
+    if (!(fileExtension.compareToIgnoreCase("html") == 0 || fileExtension.compareToIgnoreCase("htm") == 0 || fileExtension.compareToIgnoreCase("xhtml") == 0))
+    {
+      report.message(MessageId.HTM_014, new MessageLocation(mi.getHref(), -1, -1));
+    }
 
-        /***VALIDATE DOCTYPE***/
-        int docTypeMatches = findMatchingDocumentTypePatterns(fileToParse);
+    /***VALIDATE DOCTYPE***/
+    int docTypeMatches = findMatchingDocumentTypePatterns(fileToParse);
 
-        if ((0 != (docTypeMatches & hasHTML4)) && (epubPackage.getVersion() == EPUBVersion.VERSION_3))
-        {
-          report.message(MessageId.HTM_015, new MessageLocation(mi.getHref(), -1, -1));
-        }
-        else if ((0 != (docTypeMatches & hasHTML5)) && ((hasXhtml != (docTypeMatches & hasXhtml)))  &&  (epubPackage.getVersion() == EPUBVersion.VERSION_2))
-        {
-          report.message(MessageId.HTM_016, new MessageLocation(mi.getHref(), -1, -1));
-        }
-        parser.parseDoc(fileToParse, sh);
+    if ((0 != (docTypeMatches & hasHTML4)) && (epubPackage.getVersion() == EPUBVersion.VERSION_3))
+    {
+      report.message(MessageId.HTM_015, new MessageLocation(mi.getHref(), -1, -1));
+    }
+    else if ((0 != (docTypeMatches & hasHTML5)) && ((hasXhtml != (docTypeMatches & hasXhtml)))  &&  (epubPackage.getVersion() == EPUBVersion.VERSION_2))
+    {
+      report.message(MessageId.HTM_016, new MessageLocation(mi.getHref(), -1, -1));
+    }
+    return sh;
+  }
 
-        if (sh.getHtml5SpecTagsCounter() > 0)
-        {
-          report.info(fileToParse, FeatureEnum.HAS_HTML5, "true");
-          if (epubPackage.isSpineItem(mi.getId()))
-          {
-            // Report that there is HTML5 for the entire publication only if it is in a spine item.
-            // This is used for the 'is backward compatible' check.
-            // This is so the HTML5 (nav tag) in a toc document will be ignored for backwards compatibility testing.
-            report.info(null, FeatureEnum.HAS_HTML5, "true");
-          }
-        }
-        landmarkNavCount += sh.getLandmarkNavCount();
+  @Override
+  public void endDocument(ManifestItem mi, String fileToParse, DefaultHandler handler)
+  {
+    HTMLTagsAnalyseHandler sh = (HTMLTagsAnalyseHandler) handler;
+    if (sh.getHtml5SpecTagsCounter() > 0)
+    {
+      report.info(fileToParse, FeatureEnum.HAS_HTML5, "true");
+      if (epubPackage.isSpineItem(mi.getId()))
+      {
+        // Report that there is HTML5 for the entire publication only if it is in a spine item.
+        // This is used for the 'is backward compatible' check.
+        // This is so the HTML5 (nav tag) in a toc document will be ignored for backwards compatibility testing.
+        report.info(null, FeatureEnum.HAS_HTML5, "true");
       }
     }
+    landmarkNavCount += sh.getLandmarkNavCount();
+  }
+
+  @Override
+  public void endPass()
+  {
     if (landmarkNavCount != 1 && epubPackage.getVersion() == EPUBVersion.VERSION_3)
     {
       File zipFile = new File(zip.getName());
       report.message(MessageId.ACC_008, new MessageLocation(zipFile.getName(), -1, -1));
     }
-
-    return result;
   }
 
   InputStream getInputStream(String name) throws
       IOException
   {
-    ZipEntry entry = zip.getEntry(name);
-    if (entry == null)
+    if (!zip.hasEntry(name))
     {
       return null;
     }
-    InputStream in = zip.getInputStream(entry);
+    InputStream in = zip.getInputStream(name);
     EncryptionFilter filter = enc.get(name);
     if (filter == null)
     {
@@ -4,20 +4,15 @@ import com.adobe.epubcheck.api.Report;
 import com.adobe.epubcheck.ctc.epubpackage.EpubPackage;
 import com.adobe.epubcheck.ctc.epubpackage.ManifestItem;
 import com.adobe.epubcheck.ctc.xml.LangAttributeHandler;
-import com.adobe.epubcheck.ctc.xml.XMLContentDocParser;
 import com.adobe.epubcheck.messages.MessageId;
 import com.adobe.epubcheck.messages.MessageLocation;
+import com.adobe.epubcheck.ocf.OCFPackage;
 import com.adobe.epubcheck.opf.DocumentValidator;
-import com.adobe.epubcheck.util.PathUtil;
-import com.adobe.epubcheck.util.SearchDictionary;
-import com.adobe.epubcheck.util.SearchDictionary.DictionaryType;
+import org.xml.sax.helpers.DefaultHandler;
 
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
-
-public class EpubLangCheck implements DocumentValidator
+public class EpubLangCheck implements DocumentValidator, ContentDocumentCheck
 {
-  private final ZipFile zip;
+  private final OCFPackage zip;
   private final Report report;
   private final EpubPackage epack;
 
@@ -31,57 +26,66 @@ public class EpubLangCheck implements DocumentValidator
   @Override
   public boolean validate()
   {
-    boolean result = false;
-    SearchDictionary vtsd = new SearchDictionary(DictionaryType.VALID_TEXT_MEDIA_TYPES);
-    for (int i = 0; i < epack.getManifest().itemsLength(); i++)
-    {
-      ManifestItem mi = epack.getManifest().getItem(i);
-      if (vtsd.isValidMediaType(mi.getMediaType()))
-      {
-        XMLContentDocParser parser = new XMLContentDocParser(this.zip, report);
-        LangAttributeHandler sh = new LangAttributeHandler();
-        String fileToParse = epack.getManifestItemFileName(mi);
+    ContentDocumentPass pass = new ContentDocumentPass(epack, report);
+    pass.addCheck(this);
+    pass.run();
+    return false;
+  }
+
+  @Override
+  public void startPass()
+  {
+  }
 
-        ZipEntry entry = this.zip.getEntry(fileToParse);
-        if (entry == null)
-        {
-          report.message(MessageId.RSC_001, new MessageLocation(this.epack.getFileName(), -1, -1), fileToParse);
-          continue;
-        }
+  @Override
+  public DefaultHandler startDocument(ManifestItem mi, String fileToParse)
+  {
+    if (!this.zip.hasEntry(fileToParse))
+    {
+      report.message(MessageId.RSC_001, new MessageLocation(this.epack.getFileName(), -1, -1), fileToParse);
+      return null;
+    }
+    return new LangAttributeHandler();
+  }
 
-        parser.parseDoc(fileToParse, sh);
-        String langAttribute = sh.getLangAttr();
-        String xmlLangAttribute = sh.getXmlLangAttr();
-        if (langAttribute != null && xmlLangAttribute != null)
-        {
-          if (xmlLangAttribute.compareToIgnoreCase(langAttribute) != 0)
-          {
-            report.message(MessageId.HTM_017, new MessageLocation(fileToParse, -1, -1));
-          }
+  @Override
+  public void endDocument(ManifestItem mi, String fileToParse, DefaultHandler handler)
+  {
+    LangAttributeHandler sh = (LangAttributeHandler) handler;
+    String langAttribute = sh.getLangAttr();
+    String xmlLangAttribute = sh.getXmlLangAttr();
+    if (langAttribute != null && xmlLangAttribute != null)
+    {
+      if (xmlLangAttribute.compareToIgnoreCase(langAttribute) != 0)
+      {
+        report.message(MessageId.HTM_017, new MessageLocation(fileToParse, -1, -1));
+      }
 
-          if (!isValidLanguageDefinition(xmlLangAttribute))
-          {
-            report.message(MessageId.HTM_018, new MessageLocation(fileToParse, -1, -1));
-          }
-          if (!isValidLanguageDefinition(langAttribute))
-          {
-            report.message(MessageId.HTM_019, new MessageLocation(fileToParse, -1, -1));
-          }
-        }
-        else
-        {
-          if (xmlLangAttribute == null)
-          {
-            report.message(MessageId.HTM_020, new MessageLocation(fileToParse, -1, -1));
-          }
-          if (langAttribute == null)
-          {
-            report.message(MessageId.HTM_021, new MessageLocation(fileToParse, -1, -1));
-          }
-        }
+      if (!isValidLanguageDefinition(xmlLangAttribute))
+      {
+        report.message(MessageId.HTM_018, new MessageLocation(fileToParse, -1, -1));
+      }
+      if (!isValidLanguageDefinition(langAttribute))
+      {
+        report.message(MessageId.HTM_019, new MessageLocation(fileToParse, -1, -1));
+      }
+    }
+    else
+    {
+      if (xmlLangAttribute == null)
+      {
+        report.message(MessageId.HTM_020, new MessageLocation(fileToParse, -1, -1));
+      }
+      if (langAttribute == null)
+      {
+        report.message(MessageId.HTM_021, new MessageLocation(fileToParse, -1, -1));
       }
     }
-    return result;
+  }
+
+  @Override
+  public void endPass()
+  {
   }
 
   private boolean isValidLanguageDefinition(String language)
@@ -4,6 +4,7 @@ import com.adobe.epubcheck.api.Report;
 import com.adobe.epubcheck.ctc.epubpackage.*;
 import com.adobe.epubcheck.messages.MessageId;
 import com.adobe.epubcheck.messages.MessageLocation;
+import com.adobe.epubcheck.ocf.OCFPackage;
 import com.adobe.epubcheck.opf.DocumentValidator;
 import com.adobe.epubcheck.util.EpubConstants;
 import com.adobe.epubcheck.util.FeatureEnum;
@@ -12,8 +13,6 @@ import org.w3c.dom.*;
 
 import java.util.HashSet;
 import java.util.Vector;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 public class EpubNavCheck implements DocumentValidator
 {
@@ -25,7 +24,7 @@ public class EpubNavCheck implements DocumentValidator
 
   public EpubNavCheck(EpubPackage epack, Report report)
   {
-    ZipFile zip = epack.getZip();
+    OCFPackage zip = epack.getZip();
     this.packageMainDocument = epack.getPackDoc();
     this.epack = epack;
     docParser = new XmlDocParser(zip, report);
@@ -55,8 +54,7 @@ public class EpubNavCheck implements DocumentValidator
             fileToParse = navDoc;
           }
 
-          ZipEntry entry = epack.getZip().getEntry(fileToParse);
-          if (entry == null)
+          if (!epack.getZip().hasEntry(fileToParse))
           {
             report.message(MessageId.RSC_001, new MessageLocation(epack.getFileName(), -1, -1), fileToParse);
             continue;
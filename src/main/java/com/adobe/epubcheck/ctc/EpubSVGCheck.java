@@ -13,7 +13,6 @@ import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
 import java.util.Hashtable;
-import java.util.zip.ZipEntry;
 
 public class EpubSVGCheck implements DocumentValidator
 {
@@ -36,7 +35,7 @@ public class EpubSVGCheck implements DocumentValidator
   @Override
   public boolean validate()
   {
-    SearchDictionary validTypes = new SearchDictionary(SearchDictionary.DictionaryType.SVG_MEDIA_TYPES);
+    SearchDictionary validTypes = SearchDictionary.forType(SearchDictionary.DictionaryType.SVG_MEDIA_TYPES);
 
     boolean isGlobalFixed = EpubPackage.isGlobalFixed(this.epack);
 
@@ -55,8 +54,7 @@ public class EpubSVGCheck implements DocumentValidator
       {
         String fileToParse = epack.getManifestItemFileName(itemEntry);
 
-        ZipEntry entry = epack.getZip().getEntry(fileToParse);
-        if (entry == null)
+        if (!epack.getZip().hasEntry(fileToParse))
         {
           report.message(MessageId.RSC_001, new MessageLocation(epack.getFileName(), -1, -1), fileToParse);
           continue;
@@ -4,23 +4,20 @@ import com.adobe.epubcheck.api.Report;
 import com.adobe.epubcheck.ctc.epubpackage.EpubPackage;
 import com.adobe.epubcheck.ctc.epubpackage.ManifestItem;
 import com.adobe.epubcheck.ctc.xml.ScriptTagHandler;
-import com.adobe.epubcheck.ctc.xml.XMLContentDocParser;
 import com.adobe.epubcheck.messages.MessageId;
 import com.adobe.epubcheck.messages.MessageLocation;
+import com.adobe.epubcheck.ocf.OCFPackage;
 import com.adobe.epubcheck.opf.DocumentValidator;
 import com.adobe.epubcheck.util.EPUBVersion;
 import com.adobe.epubcheck.util.FeatureEnum;
-import com.adobe.epubcheck.util.SearchDictionary;
-import com.adobe.epubcheck.util.SearchDictionary.DictionaryType;
+import org.xml.sax.helpers.DefaultHandler;
 
 import java.io.*;
 import java.util.regex.Matcher;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
-public class EpubScriptCheck implements DocumentValidator
+public class EpubScriptCheck implements DocumentValidator, ContentDocumentCheck
 {
-  private final ZipFile zip;
+  private final OCFPackage zip;
   private final Report report;
   private final EpubPackage epack;
 
@@ -34,49 +31,63 @@ public class EpubScriptCheck implements DocumentValidator
   @Override
   public boolean validate()
   {
-    boolean result = false;
-    SearchDictionary vtsd = new SearchDictionary(DictionaryType.VALID_TEXT_MEDIA_TYPES);
-    for (int i = 0; i < epack.getManifest().itemsLength(); i++)
+    ContentDocumentPass pass = new ContentDocumentPass(epack, report);
+    pass.addCheck(this);
+    pass.run();
+    return false;
+  }
+
+  @Override
+  public void startPass()
+  {
+  }
+
+  @Override
+  public DefaultHandler startDocument(ManifestItem mi, String fileToParse)
+  {
+    if (!this.zip.hasEntry(fileToParse))
     {
-      ManifestItem mi = epack.getManifest().getItem(i);
-      if (vtsd.isValidMediaType(mi.getMediaType()))
+      report.message(MessageId.RSC_001, new MessageLocation(this.epack.getFileName(), -1, -1), fileToParse);
+      return null;
+    }
+    ScriptTagHandler sh = new ScriptTagHandler(this.report);
+    sh.setFileName(fileToParse);
+    sh.setVersion(epack.getVersion());
+    return sh;
+  }
+
+  @Override
+  public void endDocument(ManifestItem mi, String fileToParse, DefaultHandler handler)
+  {
+    ScriptTagHandler sh = (ScriptTagHandler) handler;
+    if (sh.getScriptElementCount() > 0 || sh.getInlineScriptCount() > 0)
+    {
+      if (sh.getInlineScriptCount() > 0)
       {
-        XMLContentDocParser parser = new XMLContentDocParser(this.zip, report);
-        ScriptTagHandler sh = new ScriptTagHandler(this.report);
-        String fileToParse = epack.getManifestItemFileName(mi);
-        ZipEntry entry = this.zip.getEntry(fileToParse);
-        if (entry == null)
-        {
-          report.message(MessageId.RSC_001, new MessageLocation(this.epack.getFileName(), -1, -1), fileToParse);
-          continue;
-        }
-        sh.setFileName(fileToParse);
-        sh.setVersion(epack.getVersion());
-        parser.parseDoc(fileToParse, sh);
-        if (sh.getScriptElementCount() > 0 || sh.getInlineScriptCount() > 0)
+        report.info(fileToParse, FeatureEnum.SCRIPT, "inline");
+      }
+      if (sh.getScriptElementCount() > 0)
+      {
+        report.info(fileToParse, FeatureEnum.SCRIPT, "tag");
+      }
+      if (epack.getVersion() != EPUBVersion.VERSION_2)
+      {
+        report.message(MessageId.SCP_010, new MessageLocation(fileToParse, -1, -1));
+        if (mi.getProperties() == null || !mi.getProperties().contains("scripted"))
         {
-          if (sh.getInlineScriptCount() > 0)
-          {
-            report.info(fileToParse, FeatureEnum.SCRIPT, "inline");
-          }
-          if (sh.getScriptElementCount() > 0)
-          {
-            report.info(fileToParse, FeatureEnum.SCRIPT, "tag");
-          }
-          if (epack.getVersion() != EPUBVersion.VERSION_2)
-          {
-            report.message(MessageId.SCP_010, new MessageLocation(fileToParse, -1, -1));
-            if (mi.getProperties() == null || !mi.getProperties().contains("scripted"))
-            {
-              report.message(MessageId.SCP_005, new MessageLocation(fileToParse, -1, -1));
-            }
-          }
+          report.message(MessageId.SCP_005, new MessageLocation(fileToParse, -1, -1));
         }
       }
+    }
+  }
 
-      checkJavascript(mi);
+  @Override
+  public void endPass()
+  {
+    for (int i = 0; i < epack.getManifest().itemsLength(); i++)
+    {
+      checkJavascript(epack.getManifest().getItem(i));
     }
-    return result;
   }
 
   void checkJavascript(ManifestItem mi)
@@ -87,8 +98,7 @@ public class EpubScriptCheck implements DocumentValidator
     if (mediaType != null && "text/javascript".equalsIgnoreCase(mediaType))
     {
       String fileToParse = epack.getManifestItemFileName(mi);
-      ZipEntry entry = this.zip.getEntry(fileToParse);
-      if (entry == null)
+      if (!this.zip.hasEntry(fileToParse))
       {
         report.message(MessageId.RSC_001, new MessageLocation(fileToParse, -1, -1), fileToParse);
         return;
@@ -107,7 +117,7 @@ public class EpubScriptCheck implements DocumentValidator
 
       try
       {
-        is = zip.getInputStream(entry);
+        is = zip.getInputStream(fileToParse);
         reader = new BufferedReader(new InputStreamReader(is));
         int lineNumber = 0;
         while (reader.ready())
@@ -4,20 +4,15 @@ import com.adobe.epubcheck.api.Report;
 import com.adobe.epubcheck.ctc.epubpackage.EpubPackage;
 import com.adobe.epubcheck.ctc.epubpackage.ManifestItem;
 import com.adobe.epubcheck.ctc.xml.SpanTagHandler;
-import com.adobe.epubcheck.ctc.xml.XMLContentDocParser;
 import com.adobe.epubcheck.messages.MessageId;
 import com.adobe.epubcheck.messages.MessageLocation;
+import com.adobe.epubcheck.ocf.OCFPackage;
 import com.adobe.epubcheck.opf.DocumentValidator;
-import com.adobe.epubcheck.util.PathUtil;
-import com.adobe.epubcheck.util.SearchDictionary;
-import com.adobe.epubcheck.util.SearchDictionary.DictionaryType;
+import org.xml.sax.helpers.DefaultHandler;
 
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
-
-public class EpubSpanCheck implements DocumentValidator
+public class EpubSpanCheck implements DocumentValidator, ContentDocumentCheck
 {
-  private final ZipFile zip;
+  private final OCFPackage zip;
   private final Report report;
   private final EpubPackage epack;
 
@@ -31,32 +26,41 @@ public class EpubSpanCheck implements DocumentValidator
   @Override
   public boolean validate()
   {
-    boolean result = false;
-    SearchDictionary vtsd = new SearchDictionary(DictionaryType.VALID_TEXT_MEDIA_TYPES);
-    for (int i = 0; i < epack.getManifest().itemsLength(); i++)
+    ContentDocumentPass pass = new ContentDocumentPass(epack, report);
+    pass.addCheck(this);
+    pass.run();
+    return false;
+  }
+
+  @Override
+  public void startPass()
+  {
+  }
+
+  @Override
+  public DefaultHandler startDocument(ManifestItem mi, String fileToParse)
+  {
+    if (!this.zip.hasEntry(fileToParse))
     {
-      ManifestItem mi = epack.getManifest().getItem(i);
-      if (vtsd.isValidMediaType(mi.getMediaType()))
-      {
-        XMLContentDocParser parser = new XMLContentDocParser(this.zip, report);
-        SpanTagHandler sh = new SpanTagHandler();
-        String fileToParse = epack.getManifestItemFileName(mi);
-
-        ZipEntry entry = this.zip.getEntry(fileToParse);
-        if (entry == null)
-        {
-          report.message(MessageId.RSC_001, new MessageLocation(this.epack.getFileName(), -1, -1), fileToParse);
-          continue;
-        }
-
-        parser.parseDoc(fileToParse, sh);
-        sh.countNestedElements(sh.getTopElement());
-        if (sh.getGenerateMessage() > 0)
-        {
-          report.message(MessageId.HTM_022, new MessageLocation(mi.getHref(), -1, -1));
-        }
-      }
+      report.message(MessageId.RSC_001, new MessageLocation(this.epack.getFileName(), -1, -1), fileToParse);
+      return null;
     }
-    return result;
+    return new SpanTagHandler();
+  }
+
+  @Override
+  public void endDocument(ManifestItem mi, String fileToParse, DefaultHandler handler)
+  {
+    SpanTagHandler sh = (SpanTagHandler) handler;
+    sh.countNestedElements(sh.getTopElement());
+    if (sh.getGenerateMessage() > 0)
+    {
+      report.message(MessageId.HTM_022, new MessageLocation(mi.getHref(), -1, -1));
+    }
+  }
+
+  @Override
+  public void endPass()
+  {
   }
 }
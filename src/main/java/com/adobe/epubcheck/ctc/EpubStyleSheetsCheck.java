@@ -4,18 +4,14 @@ import com.adobe.epubcheck.api.Report;
 import com.adobe.epubcheck.ctc.epubpackage.EpubPackage;
 import com.adobe.epubcheck.ctc.epubpackage.ManifestItem;
 import com.adobe.epubcheck.ctc.xml.LinkTagHandler;
-import com.adobe.epubcheck.ctc.xml.XMLContentDocParser;
 import com.adobe.epubcheck.messages.MessageId;
 import com.adobe.epubcheck.messages.MessageLocation;
 import com.adobe.epubcheck.opf.DocumentValidator;
-import com.adobe.epubcheck.util.PathUtil;
-import com.adobe.epubcheck.util.SearchDictionary;
-import com.adobe.epubcheck.util.SearchDictionary.DictionaryType;
+import org.xml.sax.helpers.DefaultHandler;
 
-import java.util.zip.ZipEntry;
 
 
-public class EpubStyleSheetsCheck implements DocumentValidator
+public class EpubStyleSheetsCheck implements DocumentValidator, ContentDocumentCheck
 {
   private final Report report;
   private final EpubPackage epack;
@@ -28,31 +24,37 @@ public class EpubStyleSheetsCheck implements DocumentValidator
 
   public boolean validate()
   {
-    SearchDictionary validTypes = new SearchDictionary(DictionaryType.VALID_TEXT_MEDIA_TYPES);
-
-    for (int i = 0; i < epack.getManifest().itemsLength(); i++)
-    {
-      ManifestItem mi = epack.getManifest().getItem(i);
+    ContentDocumentPass pass = new ContentDocumentPass(epack, report);
+    pass.addCheck(this);
+    pass.run();
+    return true;
+  }
 
-      if (validTypes.isValidMediaType(mi.getMediaType()))
-      {
-        String fileToParse = epack.getManifestItemFileName(mi);
+  @Override
+  public void startPass()
+  {
+  }
 
-        ZipEntry entry = epack.getZip().getEntry(fileToParse);
-        if (entry == null)
-        {
-          report.message(MessageId.RSC_001, new MessageLocation(this.epack.getFileName(), -1, -1), fileToParse);
-          continue;
-        }
+  @Override
+  public DefaultHandler startDocument(ManifestItem mi, String fileToParse)
+  {
+    if (!epack.getZip().hasEntry(fileToParse))
+    {
+      report.message(MessageId.RSC_001, new MessageLocation(this.epack.getFileName(), -1, -1), fileToParse);
+      return null;
+    }
+    return new LinkTagHandler(report);
+  }
 
-        XMLContentDocParser parser = new XMLContentDocParser(epack.getZip(), report);
-        LinkTagHandler h = new LinkTagHandler(report);
+  @Override
+  public void endDocument(ManifestItem mi, String fileToParse, DefaultHandler handler)
+  {
+    ((LinkTagHandler) handler).checkForMultipleStyleSheets(fileToParse);
+  }
 
-        parser.parseDoc(fileToParse, h);
-        h.checkForMultipleStyleSheets(fileToParse);
-      }
-    }
-    return true;
+  @Override
+  public void endPass()
+  {
   }
 }
 
@@ -9,8 +9,6 @@ import com.adobe.epubcheck.opf.DocumentValidator;
 import com.adobe.epubcheck.util.SearchDictionary;
 import com.adobe.epubcheck.util.SearchDictionary.DictionaryType;
 
-import java.util.zip.ZipEntry;
-
 public class EpubTextContentCheck implements DocumentValidator
 {
   private final Report report;
@@ -26,7 +24,7 @@ public class EpubTextContentCheck implements DocumentValidator
 
   public boolean validate()
   {
-    SearchDictionary validScriptTypes = new SearchDictionary(DictionaryType.SCRIPT_TYPES);
+    SearchDictionary validScriptTypes = SearchDictionary.forType(DictionaryType.SCRIPT_TYPES);
 
     for (int i = 0; i < epack.getManifest().itemsLength(); i++)
     {
@@ -35,8 +33,7 @@ public class EpubTextContentCheck implements DocumentValidator
       {
         String fileToParse = epack.getManifestItemFileName(itemEntry);
 
-        ZipEntry entry = epack.getZip().getEntry(fileToParse);
-        if (entry == null)
+        if (!epack.getZip().hasEntry(fileToParse))
         {
           report.message(MessageId.RSC_001, new MessageLocation(this.epack.getFileName(), -1, -1), fileToParse);
           continue;
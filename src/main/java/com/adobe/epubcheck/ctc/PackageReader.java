@@ -2,6 +2,7 @@ package com.adobe.epubcheck.ctc;
 
 import com.adobe.epubcheck.api.Report;
 import com.adobe.epubcheck.ctc.epubpackage.*;
+import com.adobe.epubcheck.ocf.OCFPackage;
 import com.adobe.epubcheck.util.EPUBVersion;
 import com.adobe.epubcheck.util.EpubConstants;
 import org.w3c.dom.Document;
@@ -10,18 +11,17 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import java.util.Vector;
-import java.util.zip.ZipFile;
 
 class PackageReader
 {
   private static final String containerEntry = "META-INF/container.xml";
-  private ZipFile zip;
+  private OCFPackage zip;
   private Report report;
   private String version;
   private EpubPackage epack;
   private String mainPackageFile;
 
-  public PackageReader(ZipFile zip, Report report)
+  public PackageReader(OCFPackage zip, Report report)
   {
     this.zip = zip;
     this.report = report;
@@ -4,6 +4,7 @@ import com.adobe.epubcheck.api.Report;
 import com.adobe.epubcheck.messages.MessageId;
 import com.adobe.epubcheck.messages.MessageLocation;
 import com.adobe.epubcheck.ocf.EncryptionFilter;
+import com.adobe.epubcheck.ocf.OCFPackage;
 import com.adobe.epubcheck.util.NamespaceHelper;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -19,18 +20,16 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Hashtable;
 import java.util.Stack;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 class XmlDocParser
 {
-  private final ZipFile zip;
+  private final OCFPackage zip;
   private final Hashtable<String, EncryptionFilter> enc;
   private final Report report;
   public static final String ElementLineNumberAttribute = "elementLineNumber";
   public static final String ElementColumnNumberAttribute = "elementColumnNumber";
 
-  public XmlDocParser(ZipFile zip, Report report)
+  public XmlDocParser(OCFPackage zip, Report report)
   {
     this.zip = zip;
     this.enc = new Hashtable<String, EncryptionFilter>();
@@ -48,7 +47,7 @@ class XmlDocParser
       is = getInputStream(fileEntry);
       if (is == null)
       {
-        String fileName = new File(zip.getName()).getName();
+        String fileName = zip.getName();
         report.message(MessageId.RSC_001, new MessageLocation(fileName, -1, -1), fileEntry);
       }
       else
@@ -85,12 +84,11 @@ class XmlDocParser
   InputStream getInputStream(String name) throws
       IOException
   {
-    ZipEntry entry = zip.getEntry(name);
-    if (entry == null)
+    if (!zip.hasEntry(name))
     {
       return null;
     }
-    InputStream in = zip.getInputStream(entry);
+    InputStream in = zip.getInputStream(name);
     EncryptionFilter filter = enc.get(name);
     if (filter == null)
     {
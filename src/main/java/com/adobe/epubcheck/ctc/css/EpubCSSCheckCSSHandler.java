@@ -5,6 +5,7 @@ import com.adobe.epubcheck.messages.MessageId;
 import com.adobe.epubcheck.messages.MessageLocation;
 import com.adobe.epubcheck.util.LocationImpl;
 import com.adobe.epubcheck.util.TextSearchDictionaryEntry;
+import com.adobe.epubcheck.util.TextSearcher;
 import com.google.common.base.Optional;
 import org.idpf.epubcheck.util.css.*;
 
@@ -24,9 +25,9 @@ public class EpubCSSCheckCSSHandler implements CssContentHandler, CssErrorHandle
   boolean inKeyFrames;
   CSSSelectorCollection currentFileSelectorCollection;
   CSSSelectorCollection inProgressSelectorCollection;
-  final Vector<TextSearchDictionaryEntry> declarationComponentItems = new Vector<TextSearchDictionaryEntry>();
-  final Vector<TextSearchDictionaryEntry> functionComponentItems = new Vector<TextSearchDictionaryEntry>();
-  final Vector<TextSearchDictionaryEntry> atRuleComponentItems = new Vector<TextSearchDictionaryEntry>();
+  static final TextSearcher declarationComponentItems;
+  static final TextSearcher functionComponentItems;
+  static final TextSearcher atRuleComponentItems;
   int startingLineNumber;
   int startingColumnNumber;
   boolean inFontFace;
@@ -95,7 +96,6 @@ public class EpubCSSCheckCSSHandler implements CssContentHandler, CssErrorHandle
     this.hasIndividualFixedFormatDocuments = hasIndividualFixedFormatDocuments;
     setReport(report);
     setScopeId(0);
-    buildCssSearchDictionaries();
   }
 
   public EpubCSSCheckCSSHandler(Report report, int startingLineNumber, int startingColumnNumber, boolean isGlobalFixedFormat, boolean hasIndividualFixedFormatDocuments)
@@ -106,7 +106,6 @@ public class EpubCSSCheckCSSHandler implements CssContentHandler, CssErrorHandle
     this.hasIndividualFixedFormatDocuments = hasIndividualFixedFormatDocuments;
     setReport(report);
     setScopeId(0);
-    buildCssSearchDictionaries();
   }
 
   public String getPath()
@@ -134,7 +133,19 @@ public class EpubCSSCheckCSSHandler implements CssContentHandler, CssErrorHandle
     this.scopeId = scopeId;
   }
 
-  void buildCssSearchDictionaries()
+  static
+  {
+    Vector<TextSearchDictionaryEntry> declarationItems = new Vector<TextSearchDictionaryEntry>();
+    Vector<TextSearchDictionaryEntry> functionItems = new Vector<TextSearchDictionaryEntry>();
+    Vector<TextSearchDictionaryEntry> atRuleItems = new Vector<TextSearchDictionaryEntry>();
+    buildCssSearchDictionaries(declarationItems, functionItems, atRuleItems);
+    declarationComponentItems = TextSearcher.compile(declarationItems);
+    functionComponentItems = TextSearcher.compile(functionItems);
+    atRuleComponentItems = TextSearcher.compile(atRuleItems);
+  }
+
+  static void buildCssSearchDictionaries(Vector<TextSearchDictionaryEntry> declarationComponentItems,
+      Vector<TextSearchDictionaryEntry> functionComponentItems, Vector<TextSearchDictionaryEntry> atRuleComponentItems)
   {
     String description;
     String value;
@@ -428,7 +439,7 @@ public class EpubCSSCheckCSSHandler implements CssContentHandler, CssErrorHandle
 
       for (CssGrammar.CssConstruct construct : declaration.getComponents())
       {
-        Vector<TextSearchDictionaryEntry> searchItems;
+        TextSearcher searchItems;
         String searchText;
         if (isFontSize)
         {
@@ -850,17 +861,14 @@ public class EpubCSSCheckCSSHandler implements CssContentHandler, CssErrorHandle
     report.message(MessageId.CSS_008, new MessageLocation(path, location.getLine(), location.getColumn()), message);
   }
 
-  void searchInsideValue(String entry, int line, int column, Vector<TextSearchDictionaryEntry> tds, String file, String context)
+  void searchInsideValue(String entry, int line, int column, TextSearcher tds, String file, String context)
   {
-    for (TextSearchDictionaryEntry de : tds)
+    int[] matches = tds.countMatches(entry);
+    for (int s = 0; s < matches.length; s++)
     {
-      Pattern p = de.getPattern();
-      Matcher matcher = p.matcher(entry);
-      int position = 0;
-      while (matcher.find(position))
+      for (int m = 0; m < matches[s]; m++)
       {
-        position = matcher.end();
-        report.message(de.getErrorCode(), getCorrectedMessageLocation(file, line, column, context));
+        report.message(tds.getEntries().get(s).getErrorCode(), getCorrectedMessageLocation(file, line, column, context));
       }
     }
   }
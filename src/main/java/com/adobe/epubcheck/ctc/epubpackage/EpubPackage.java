@@ -1,16 +1,16 @@
 package com.adobe.epubcheck.ctc.epubpackage;
 
+import com.adobe.epubcheck.ocf.OCFPackage;
 import com.adobe.epubcheck.util.EPUBVersion;
 import com.adobe.epubcheck.util.PathUtil;
 import org.w3c.dom.Document;
 
 import java.io.File;
-import java.util.zip.ZipFile;
 
 public class EpubPackage
 {
   private String packageMainFilePath;
-  private ZipFile zip;
+  private OCFPackage zip;
   private Document packDoc;
   private String packageMainPath = "";
   private PackageManifest manifest = new PackageManifest();
@@ -54,7 +54,7 @@ public class EpubPackage
     this.version = version;
   }
 
-  public EpubPackage(String packageMainFile, ZipFile zip, Document doc)
+  public EpubPackage(String packageMainFile, OCFPackage zip, Document doc)
   {
     setPackageMainFile(packageMainFile);
     setZip(zip);
@@ -65,8 +65,7 @@ public class EpubPackage
     }
     setManifest(new PackageManifest());
     setSpine(new PackageSpine());
-    File file = new File(zip.getName());
-    this.fileName = file.getName();
+    this.fileName = zip.getName();
   }
 
   public String getPackageMainFile()
@@ -109,12 +108,12 @@ public class EpubPackage
     this.spine = spine;
   }
 
-  public ZipFile getZip()
+  public OCFPackage getZip()
   {
     return zip;
   }
 
-  void setZip(ZipFile zip)
+  void setZip(OCFPackage zip)
   {
     this.zip = zip;
   }
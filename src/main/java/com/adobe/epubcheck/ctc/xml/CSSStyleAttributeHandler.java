@@ -1,10 +1,13 @@
 package com.adobe.epubcheck.ctc.xml;
 
 import com.adobe.epubcheck.api.Report;
+import com.adobe.epubcheck.css.CSSParseCache;
 import com.adobe.epubcheck.ctc.css.EpubCSSCheckCSSHandler;
 import com.adobe.epubcheck.messages.MessageId;
 import com.adobe.epubcheck.messages.MessageLocation;
 import com.adobe.epubcheck.util.LocationImpl;
+import org.idpf.epubcheck.util.css.CssEvents;
+import org.idpf.epubcheck.util.css.CssInputStream;
 import org.idpf.epubcheck.util.css.CssParser;
 import org.idpf.epubcheck.util.css.CssSource;
 import org.xml.sax.Attributes;
@@ -32,6 +35,7 @@ public class CSSStyleAttributeHandler extends DefaultHandler
   private final Stack<HashMap<String, EpubCSSCheckCSSHandler.ClassUsage>> localStyles = new Stack<HashMap<String, EpubCSSCheckCSSHandler.ClassUsage>>();
   private final Stack<Integer> styleLevels = new Stack<Integer>();
   private EpubCSSCheckCSSHandler cssHandler;
+  private CSSParseCache parseCache;
   private Report report;
 
   public CSSStyleAttributeHandler(boolean isGlobalFixedFormat, boolean  documentIsFixedFormat)
@@ -59,6 +63,11 @@ public class CSSStyleAttributeHandler extends DefaultHandler
     cssHandler = value;
   }
 
+  public void setParseCache(CSSParseCache parseCache)
+  {
+    this.parseCache = parseCache;
+  }
+
   public String getFileName()
   {
     return fileName;
@@ -247,7 +256,13 @@ public class CSSStyleAttributeHandler extends DefaultHandler
       handler.setPath(this.getFileName());
 
       HashMap<String, EpubCSSCheckCSSHandler.ClassUsage> localStyleMap = localStyles.peek();
-      parser.parse(source, handler, handler);
+      CssEvents events = new CssEvents(handler, handler);
+      parser.parse(source, events, events);
+      if (parseCache != null && isReadAsUtf8(source.getInputStream()))
+      {
+        // the CSS checker parses the same string, so it can replay the events
+        parseCache.putInlineStyle(getFileName(), s, events);
+      }
       HashMap<String, EpubCSSCheckCSSHandler.ClassUsage> map = handler.getClassMap();
       for (String key : map.keySet())
       {
@@ -267,6 +282,12 @@ public class CSSStyleAttributeHandler extends DefaultHandler
 
   }
 
+  private static boolean isReadAsUtf8(CssInputStream stream)
+  {
+    return !stream.getBomCharset().isPresent()
+        && (!stream.getCssCharset().isPresent() || stream.getCssCharset().get().equalsIgnoreCase("utf-8"));
+  }
+
   public void characters(char ch[], int start, int length) throws
       SAXException
   {
@@ -0,0 +1,209 @@
+package com.adobe.epubcheck.ctc.xml;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forwards the events of a single SAX parse to any number of handlers, in the
+ * order they were added.
+ */
+public class MultiplexHandler extends DefaultHandler
+{
+  private final List<DefaultHandler> handlers = new ArrayList<DefaultHandler>();
+
+  public void addHandler(DefaultHandler handler)
+  {
+    if (handler != null)
+    {
+      handlers.add(handler);
+    }
+  }
+
+  public boolean isEmpty()
+  {
+    return handlers.isEmpty();
+  }
+
+  @Override
+  public InputSource resolveEntity(String publicId, String systemId) throws
+      IOException,
+      SAXException
+  {
+    for (DefaultHandler h : handlers)
+    {
+      InputSource source = h.resolveEntity(publicId, systemId);
+      if (source != null)
+      {
+        return source;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void notationDecl(String name, String publicId, String systemId) throws
+      SAXException
+  {
+    for (DefaultHandler h : handlers)
+    {
+      h.notationDecl(name, publicId, systemId);
+    }
+  }
+
+  @Override
+  public void unparsedEntityDecl(String name, String publicId, String systemId, String notationName) throws
+      SAXException
+  {
+    for (DefaultHandler h : handlers)
+    {
+      h.unparsedEntityDecl(name, publicId, systemId, notationName);
+    }
+  }
+
+  @Override
+  public void setDocumentLocator(Locator locator)
+  {
+    for (DefaultHandler h : handlers)
+    {
+      h.setDocumentLocator(locator);
+    }
+  }
+
+  @Override
+  public void startDocument() throws
+      SAXException
+  {
+    for (DefaultHandler h : handlers)
+    {
+      h.startDocument();
+    }
+  }
+
+  @Override
+  public void endDocument() throws
+      SAXException
+  {
+    for (DefaultHandler h : handlers)
+    {
+      h.endDocument();
+    }
+  }
+
+  @Override
+  public void startPrefixMapping(String prefix, String uri) throws
+      SAXException
+  {
+    for (DefaultHandler h : handlers)
+    {
+      h.startPrefixMapping(prefix, uri);
+    }
+  }
+
+  @Override
+  public void endPrefixMapping(String prefix) throws
+      SAXException
+  {
+    for (DefaultHandler h : handlers)
+    {
+      h.endPrefixMapping(prefix);
+    }
+  }
+
+  @Override
+  public void startElement(String uri, String localName, String qName, Attributes attributes) throws
+      SAXException
+  {
+    for (DefaultHandler h : handlers)
+    {
+      h.startElement(uri, localName, qName, attributes);
+    }
+  }
+
+  @Override
+  public void endElement(String uri, String localName, String qName) throws
+      SAXException
+  {
+    for (DefaultHandler h : handlers)
+    {
+      h.endElement(uri, localName, qName);
+    }
+  }
+
+  @Override
+  public void characters(char[] ch, int start, int length) throws
+      SAXException
+  {
+    for (DefaultHandler h : handlers)
+    {
+      h.characters(ch, start, length);
+    }
+  }
+
+  @Override
+  public void ignorableWhitespace(char[] ch, int start, int length) throws
+      SAXException
+  {
+    for (DefaultHandler h : handlers)
+    {
+      h.ignorableWhitespace(ch, start, length);
+    }
+  }
+
+  @Override
+  public void processingInstruction(String target, String data) throws
+      SAXException
+  {
+    for (DefaultHandler h : handlers)
+    {
+      h.processingInstruction(target, data);
+    }
+  }
+
+  @Override
+  public void skippedEntity(String name) throws
+      SAXException
+  {
+    for (DefaultHandler h : handlers)
+    {
+      h.skippedEntity(name);
+    }
+  }
+
+  @Override
+  public void warning(SAXParseException e) throws
+      SAXException
+  {
+    for (DefaultHandler h : handlers)
+    {
+      h.warning(e);
+    }
+  }
+
+  @Override
+  public void error(SAXParseException e) throws
+      SAXException
+  {
+    for (DefaultHandler h : handlers)
+    {
+      h.error(e);
+    }
+  }
+
+  @Override
+  public void fatalError(SAXParseException e) throws
+      SAXException
+  {
+    for (DefaultHandler h : handlers)
+    {
+      h.fatalError(e);
+    }
+  }
+}
@@ -4,6 +4,7 @@ import com.adobe.epubcheck.api.Report;
 import com.adobe.epubcheck.messages.MessageId;
 import com.adobe.epubcheck.messages.MessageLocation;
 import com.adobe.epubcheck.ocf.EncryptionFilter;
+import com.adobe.epubcheck.ocf.OCFPackage;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
@@ -16,17 +17,15 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Hashtable;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 public class XMLContentDocParser
 {
 
-  private final ZipFile zip;
+  private final OCFPackage zip;
   private final Hashtable<String, EncryptionFilter> enc;
   private final Report report;
 
-  public XMLContentDocParser(ZipFile zip, Report report)
+  public XMLContentDocParser(OCFPackage zip, Report report)
   {
     this.zip = zip;
     this.enc = new Hashtable<String, EncryptionFilter>();
@@ -98,13 +97,11 @@ public class XMLContentDocParser
   InputStream getInputStream(String name) throws
       IOException
   {
-    ZipEntry entry = zip.getEntry(name);
-
-    if (entry == null)
+    if (!zip.hasEntry(name))
     {
       return null;
     }
-    InputStream in = zip.getInputStream(entry);
+    InputStream in = zip.getInputStream(name);
     EncryptionFilter filter = enc.get(name);
     if (filter == null)
     {
@@ -1,6 +1,11 @@
 package com.adobe.epubcheck.messages;
 
+import java.util.ArrayList;
+import java.util.Formattable;
 import java.util.IllegalFormatException;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * This is information associated with a check message.
@@ -12,6 +17,12 @@ public class Message
   private final Severity originalSeverity;
   private final String message;
   private final String suggestion;
+  // the message split into literal strings and argument indexes, or null if
+  // the message uses other conversions than plain %s
+  private final Object[] template;
+
+  private static final Pattern FORMAT_SPECIFIER = Pattern.compile("%(\\d+\\$)?([-#+ 0,(<]*)(\\d+)?(\\.\\d+)?([tT])?([a-zA-Z%])");
+  private static final String LINE_SEPARATOR = System.getProperty("line.separator");
 
   public Message(MessageId messageId, Severity severity, String message, String suggestion)
   {
@@ -19,6 +30,7 @@ public class Message
     this.originalSeverity = this.severity = severity;
     this.message = message;
     this.suggestion = suggestion;
+    this.template = compile(message);
   }
 
   public Message(MessageId messageId, Severity severity, Severity originalSeverity, String message, String suggestion)
@@ -28,6 +40,92 @@ public class Message
     this.originalSeverity = originalSeverity;
     this.message = message;
     this.suggestion = suggestion;
+    this.template = compile(message);
+  }
+
+  /**
+   * Splits a format string into literal strings and argument indexes, so that
+   * it doesn't have to be parsed again each time it is formatted.
+   *
+   * @return null if the format string uses other conversions than plain %s
+   *         (and %% or %n), which are left to String.format
+   */
+  static Object[] compile(String format)
+  {
+    if (format == null)
+    {
+      return null;
+    }
+    List<Object> parts = new ArrayList<Object>();
+    StringBuilder literal = new StringBuilder();
+    int ordinaryIndex = 0;
+    int last = 0;
+    Matcher m = FORMAT_SPECIFIER.matcher(format);
+    while (m.find())
+    {
+      if (format.indexOf('%', last) < m.start())
+      {
+        // a stray '%', which String.format rejects
+        return null;
+      }
+      literal.append(format, last, m.start());
+      last = m.end();
+      String conversion = m.group(6);
+      if (m.group(2).length() > 0 || m.group(3) != null || m.group(4) != null || m.group(5) != null)
+      {
+        return null;
+      }
+      if ("%".equals(conversion) || "n".equals(conversion))
+      {
+        if (m.group(1) != null)
+        {
+          return null;
+        }
+        literal.append("%".equals(conversion) ? "%" : LINE_SEPARATOR);
+        continue;
+      }
+      if (!"s".equals(conversion))
+      {
+        return null;
+      }
+      int index;
+      if (m.group(1) == null)
+      {
+        index = ordinaryIndex++;
+      }
+      else
+      {
+        String number = m.group(1).substring(0, m.group(1).length() - 1);
+        try
+        {
+          index = Integer.parseInt(number) - 1;
+        }
+        catch (NumberFormatException e)
+        {
+          return null;
+        }
+        if (index < 0)
+        {
+          return null;
+        }
+      }
+      if (literal.length() > 0)
+      {
+        parts.add(literal.toString());
+        literal.setLength(0);
+      }
+      parts.add(index);
+    }
+    if (format.indexOf('%', last) >= 0)
+    {
+      return null;
+    }
+    literal.append(format, last, format.length());
+    if (literal.length() > 0)
+    {
+      parts.add(literal.toString());
+    }
+    return parts.toArray();
   }
 
   public MessageId getID()
@@ -52,7 +150,12 @@ public class Message
 
   public String getMessage(Object... args)
   {
-    String result = this.getMessage();
+    String result = format(args);
+    if (result != null)
+    {
+      return result;
+    }
+    result = this.getMessage();
     try
     {
       result = String.format(result, args);
@@ -68,4 +171,32 @@ public class Message
   {
     return this.message;
   }
+
+  /**
+   * @return the message formatted with the precompiled template, or null if
+   *         it has to be formatted by String.format
+   */
+  private String format(Object[] args)
+  {
+    if (template == null || args == null)
+    {
+      return null;
+    }
+    StringBuilder sb = new StringBuilder(message.length() + 32);
+    for (Object part : template)
+    {
+      if (part instanceof String)
+      {
+        sb.append((String) part);
+        continue;
+      }
+      int index = (Integer) part;
+      if (index >= args.length || args[index] instanceof Formattable)
+      {
+        return null;
+      }
+      sb.append(String.valueOf(args[index]));
+    }
+    return sb.toString();
+  }
 }
@@ -1,6 +1,7 @@
 package com.adobe.epubcheck.messages;
 
 import com.google.common.base.Charsets;
+import com.google.common.io.Files;
 
 import com.adobe.epubcheck.api.Report;
 import com.adobe.epubcheck.util.PathUtil;
@@ -10,26 +11,47 @@ import java.io.*;
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.PropertyResourceBundle;
 import java.util.ResourceBundle;
 import java.util.ResourceBundle.Control;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 /**
  * This is a dictionary that maps the text of a message to a severity.
+ * <p/>
+ * The default messages are built once per locale and shared by all the
+ * dictionaries. The messages of a custom message file are loaded once per
+ * file (and again only if its modification time, size or checksum changes)
+ * into an overlay that is shared by all the dictionaries using that file.
  */
 public class MessageDictionary
 {
+  private static final String BUNDLE_NAME = "com.adobe.epubcheck.messages.MessageBundle";
+  private static final ConcurrentMap<Locale, Map<MessageId, Message>> defaultMessages = new ConcurrentHashMap<Locale, Map<MessageId, Message>>();
+  private static final ConcurrentMap<String, Overlay> overlays = new ConcurrentHashMap<String, Overlay>();
+
   File overrideFile;
   Report report;
-  static Map<MessageId, Severity> defaultSeverityMap = null;
+  static volatile Map<MessageId, Severity> defaultSeverityMap = null;
   static Pattern parameterPattern = Pattern.compile("%(\\d+)\\$s");
 
+  private final Locale locale;
+  private final Map<MessageId, Message> defaults;
+  private volatile Overlay overlay;
+
   public void setOverrideFile(File value)
   {
     overrideFile = value;
@@ -37,19 +59,55 @@ public class MessageDictionary
   }
 
   public MessageDictionary(File overrideFile, Report report)
+  {
+    this(overrideFile, report, Locale.getDefault());
+  }
+
+  public MessageDictionary(File overrideFile, Report report, Locale locale)
   {
     this.report = report;
     this.overrideFile = overrideFile;
+    this.locale = locale;
+    this.defaults = getDefaultMessages(locale);
     initMessageMap();
   }
 
-  Map<MessageId, Message> messages = new HashMap<MessageId, Message>();
-  static final ResourceBundle labels = ResourceBundle.getBundle("com.adobe.epubcheck.messages.MessageBundle",
-                                                                Locale.getDefault(), new UTF8Control());
-
   public Message getMessage(MessageId id)
   {
-    return this.messages.get(id);
+    Overlay current = overlay;
+    if (current != null)
+    {
+      Message message = current.messages.get(id);
+      if (message != null)
+      {
+        return message;
+      }
+    }
+    return defaults.get(id);
+  }
+
+  /**
+   * @return the default messages for the given locale, built on first use
+   */
+  static Map<MessageId, Message> getDefaultMessages(Locale locale)
+  {
+    Map<MessageId, Message> messages = defaultMessages.get(locale);
+    if (messages == null)
+    {
+      ResourceBundle labels = ResourceBundle.getBundle(BUNDLE_NAME, locale, new UTF8Control());
+      Map<MessageId, Message> map = new EnumMap<MessageId, Message>(MessageId.class);
+      for (Map.Entry<MessageId, Severity> entry : getDefaultSeverities().entrySet())
+      {
+        addMessage(map, labels, entry.getKey(), entry.getValue());
+      }
+      messages = Collections.unmodifiableMap(map);
+      Map<MessageId, Message> existing = defaultMessages.putIfAbsent(locale, messages);
+      if (existing != null)
+      {
+        messages = existing;
+      }
+    }
+    return messages;
   }
 
   static Map<MessageId, Severity> getDefaultSeverities()
@@ -289,35 +347,163 @@ public class MessageDictionary
     return defaultSeverityMap;
   }
 
-  void initDefaultMessageMap()
+  void initMessageMap()
   {
-    messages.clear();
-    for (Map.Entry<MessageId, Severity> entry : getDefaultSeverities().entrySet())
+    if (overrideFile == null)
     {
-      this.addMessage(entry.getKey(), entry.getValue());
+      overlay = null;
+      return;
     }
+    Overlay current = getOverlay(overrideFile, locale, defaults);
+    overlay = current;
+    current.reportProblems(report);
   }
 
-  void initMessageMap()
+  /**
+   * @return the overlay of the given custom message file, loaded if it isn't
+   *         cached yet or if the file changed since it was loaded
+   */
+  private static Overlay getOverlay(File file, Locale locale, Map<MessageId, Message> defaults)
+  {
+    String key = locale + ":" + file.getAbsolutePath();
+    long lastModified = file.lastModified();
+    long length = file.length();
+    Overlay current = overlays.get(key);
+    // an edit within the resolution of the modification time that keeps the
+    // size can only be seen in the content
+    if (current == null || current.lastModified != lastModified || current.length != length
+        || current.checksum != getChecksum(file))
+    {
+      current = new Overlay(file, defaults, lastModified, length);
+      overlays.put(key, current);
+    }
+    return current;
+  }
+
+  private static long getChecksum(File file)
+  {
+    try
+    {
+      return Files.getChecksum(file, new CRC32());
+    }
+    catch (IOException e)
+    {
+      return -1;
+    }
+  }
+
+  static void addMessage(Map<MessageId, Message> messages, ResourceBundle labels, MessageId messageId, Severity severity)
   {
-    initDefaultMessageMap();
-    loadOverriddenMessageSeverities();
+    try
+    {
+      messages.put(messageId, new Message(messageId, severity, labels.getString(messageId.name()), getSuggestion(labels, messageId)));
+    }
+    catch (Exception e)
+    {
+      outWriter.println("Couldn't locate message " + messageId.name());
+    }
+  }
+
+  static String getSuggestion(ResourceBundle labels, MessageId messageId)
+  {
+    String result;
+    try
+    {
+      result = labels.getString(messageId.name() + "_SUG");
+    }
+    catch (Exception ignore)
+    {
+      result = "";
+    }
+    return result;
+  }
+
+  public void dumpMessages(OutputStreamWriter outputStream) throws
+      IOException
+  {
+    // Output the messages in a tab separated format
+    outputStream.write("ID\tSeverity\tMessage\tSuggestion\n");
+    for (MessageId id : MessageId.values())
+    {
+      StringBuilder sb = new StringBuilder();
+      sb.append(id.toString());
+      sb.append("\t");
+      Message message = this.getMessage(id);
+      if (message != null)
+      {
+        sb.append(message.getSeverity());
+        sb.append("\t");
+        sb.append(message.getMessage());
+        sb.append("\t");
+        sb.append(message.getSuggestion());
+      }
+      else
+      {
+        sb.append("null\tnull\tnull\tnull");
+      }
+      sb.append("\n");
+      outputStream.write(sb.toString());
+    }
   }
 
-  void loadOverriddenMessageSeverities()
+  /**
+   * The messages of a custom message file that differ from the defaults, and
+   * the problems found in the file, which are reported again to each report
+   * using the overlay.
+   */
+  private static class Overlay
   {
-    if (overrideFile != null)
+    private final Map<MessageId, Message> defaults;
+    final long lastModified;
+    final long length;
+    // of the content that was loaded, -1 if it couldn't be read
+    long checksum = -1;
+    final Map<MessageId, Message> messages = new EnumMap<MessageId, Message>(MessageId.class);
+    private final File file;
+    private final List<Problem> problems = new ArrayList<Problem>();
+
+    Overlay(File file, Map<MessageId, Message> defaults, long lastModified, long length)
+    {
+      this.file = file;
+      this.defaults = defaults;
+      this.lastModified = lastModified;
+      this.length = length;
+      load();
+    }
+
+    Message getMessage(MessageId id)
+    {
+      Message message = messages.get(id);
+      return message != null ? message : defaults.get(id);
+    }
+
+    void reportProblems(Report report)
+    {
+      for (Problem problem : problems)
+      {
+        report.message(problem.id, new MessageLocation(problem.fileName, problem.line, problem.column, problem.context), problem.args);
+      }
+    }
+
+    private void addProblem(MessageId id, MessageLocation location, Object... args)
+    {
+      problems.add(new Problem(id, location, args));
+    }
+
+    private void load()
     {
       int lineNumber = -1;
       int columnNumber = -1;
       String line;
 
       FileInputStream fis = null;
+      CheckedInputStream cis = null;
       BufferedReader br = null;
       try
       {
-        fis = new FileInputStream(overrideFile);
-        br = new BufferedReader(new InputStreamReader(fis, Charset.forName("UTF-8")));
+        fis = new FileInputStream(file);
+        cis = new CheckedInputStream(fis, new CRC32());
+        br = new BufferedReader(new InputStreamReader(cis, Charset.forName("UTF-8")));
 
         lineNumber = 1;
 
@@ -342,7 +528,7 @@ public class MessageDictionary
             }
             catch (NoSuchElementException unused)
             {
-              report.message(MessageId.CHK_002, new MessageLocation("", lineNumber, 0), fields[0], PathUtil.removeWorkingDirectory(overrideFile.getAbsolutePath()));
+              addProblem(MessageId.CHK_002, new MessageLocation("", lineNumber, 0), fields[0], PathUtil.removeWorkingDirectory(file.getAbsolutePath()));
               continue;
             }
 
@@ -355,11 +541,11 @@ public class MessageDictionary
             }
             catch (NoSuchElementException ignored)
             {
-              report.message(MessageId.CHK_003, new MessageLocation("", lineNumber, columnNumber), fields[1], PathUtil.removeWorkingDirectory(overrideFile.getAbsolutePath()));
+              addProblem(MessageId.CHK_003, new MessageLocation("", lineNumber, columnNumber), fields[1], PathUtil.removeWorkingDirectory(file.getAbsolutePath()));
               continue;
             }
 
-            Message message = messages.get(id);
+            Message message = getMessage(id);
             String messageText = message.getMessage();
             if (fields.length >= 3 && fields[2] != null && fields[2].length() > 0)
             {
@@ -367,7 +553,7 @@ public class MessageDictionary
               messageText = checkMessageForParameterCount(lineNumber, columnNumber, message.getMessage(), fields[2]);
               if (messageText == null)
               {
-                report.message(MessageId.CHK_004, new MessageLocation("", lineNumber, 0, fields[2]), PathUtil.removeWorkingDirectory(overrideFile.getAbsolutePath()));
+                addProblem(MessageId.CHK_004, new MessageLocation("", lineNumber, 0, fields[2]), PathUtil.removeWorkingDirectory(file.getAbsolutePath()));
                 continue;
               }
             }
@@ -387,7 +573,7 @@ public class MessageDictionary
               suggestionText = checkMessageForParameterCount(lineNumber, columnNumber, message.getSuggestion(), fields[3]);
               if (suggestionText == null)
               {
-                report.message(MessageId.CHK_005, new MessageLocation("", lineNumber, 0, fields[3]), PathUtil.removeWorkingDirectory(overrideFile.getAbsolutePath()));
+                addProblem(MessageId.CHK_005, new MessageLocation("", lineNumber, 0, fields[3]), PathUtil.removeWorkingDirectory(file.getAbsolutePath()));
                 continue;
               }
             }
@@ -402,14 +588,15 @@ public class MessageDictionary
           }
           ++lineNumber;
         }
+        checksum = cis.getChecksum().getValue();
       }
       catch (FileNotFoundException fnf)
       {
-        report.message(MessageId.CHK_001, new MessageLocation(overrideFile.getAbsolutePath(), -1, -1));
+        addProblem(MessageId.CHK_001, new MessageLocation(file.getAbsolutePath(), -1, -1));
       }
       catch (IOException ex)
       {
-        report.message(MessageId.CHK_007, new MessageLocation("", lineNumber, columnNumber), PathUtil.removeWorkingDirectory(overrideFile.getAbsolutePath()), ex.getMessage());
+        addProblem(MessageId.CHK_007, new MessageLocation("", lineNumber, columnNumber), PathUtil.removeWorkingDirectory(file.getAbsolutePath()), ex.getMessage());
       }
       finally
       {
@@ -429,102 +616,68 @@ public class MessageDictionary
         }
       }
     }
-  }
 
-  String checkMessageForParameterCount(int lineNumber, int columnNumber, String originalText, String newText)
-  {
-    if (newText != null)
+    String checkMessageForParameterCount(int lineNumber, int columnNumber, String originalText, String newText)
     {
-      int maxOriginal = getParameterCount(lineNumber, columnNumber, originalText);
-      int maxNew = getParameterCount(lineNumber, columnNumber, newText);
-
-      if (maxNew <= maxOriginal)
+      if (newText != null)
       {
-        return newText;
+        int maxOriginal = getParameterCount(lineNumber, columnNumber, originalText);
+        int maxNew = getParameterCount(lineNumber, columnNumber, newText);
+
+        if (maxNew <= maxOriginal)
+        {
+          return newText;
+        }
+        return null;
       }
-      return null;
+      return originalText;
     }
-    return originalText;
-  }
 
-  int getParameterCount(int lineNumber, int columnNumber, String text)
-  {
-    int max = 0;
+    int getParameterCount(int lineNumber, int columnNumber, String text)
     {
-      Matcher m = parameterPattern.matcher(text);
-      while (m.find())
+      int max = 0;
       {
-        int absoluteColumnNumber = columnNumber + m.start();
-        String s = m.group(1);
-        try
+        Matcher m = parameterPattern.matcher(text);
+        while (m.find())
         {
-          Integer number = Integer.parseInt(s);
-          if (number > max)
+          int absoluteColumnNumber = columnNumber + m.start();
+          String s = m.group(1);
+          try
           {
-            max = number;
+            Integer number = Integer.parseInt(s);
+            if (number > max)
+            {
+              max = number;
+            }
+          }
+          catch (NumberFormatException ex)
+          {
+            String pathAdjustedFileName = PathUtil.removeWorkingDirectory(file.getAbsolutePath());
+            addProblem(MessageId.CHK_006, new MessageLocation("", lineNumber, absoluteColumnNumber, text), pathAdjustedFileName);
           }
-        }
-        catch (NumberFormatException ex)
-        {
-          String pathAdjustedFileName = PathUtil.removeWorkingDirectory(overrideFile.getAbsolutePath());
-          report.message(MessageId.CHK_006, new MessageLocation("", lineNumber, absoluteColumnNumber, text), pathAdjustedFileName);
         }
       }
+      return max;
     }
-    return max;
   }
 
-  void addMessage(MessageId messageId, Severity severity)
+  private static class Problem
   {
-    try
-    {
-      messages.put(messageId, new Message(messageId, severity, labels.getString(messageId.name()), getSuggestion(messageId)));
-    }
-    catch (Exception e)
+    final MessageId id;
+    final String fileName;
+    final int line;
+    final int column;
+    final String context;
+    final Object[] args;
+
+    Problem(MessageId id, MessageLocation location, Object[] args)
     {
-      outWriter.println("Couldn't locate message " + messageId.name());
-    }
-  }
-
-  String getSuggestion(MessageId messageId)
-  {
-    String result;
-    try
-    {
-      result = labels.getString(messageId.name() + "_SUG");
-    }
-    catch (Exception ignore)
-    {
-      result = "";
-    }
-    return result;
-  }
-
-  public void dumpMessages(OutputStreamWriter outputStream) throws
-      IOException
-  {
-    // Output the messages in a tab separated format
-    outputStream.write("ID\tSeverity\tMessage\tSuggestion\n");
-    for (MessageId id : MessageId.values())
-    {
-      StringBuilder sb = new StringBuilder();
-      sb.append(id.toString());
-      sb.append("\t");
-      Message message = this.getMessage(id);
-      if (message != null)
-      {
-        sb.append(message.getSeverity());
-        sb.append("\t");
-        sb.append(message.getMessage());
-        sb.append("\t");
-        sb.append(message.getSuggestion());
-      }
-      else
-      {
-        sb.append("null\tnull\tnull\tnull");
-      }
-      sb.append("\n");
-      outputStream.write(sb.toString());
+      this.id = id;
+      this.fileName = location.getFileName();
+      this.line = location.getLine();
+      this.column = location.getColumn();
+      this.context = location.getContext();
+      this.args = args;
     }
   }
 
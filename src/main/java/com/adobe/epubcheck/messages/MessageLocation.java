@@ -67,6 +67,15 @@ public class MessageLocation implements Comparable<MessageLocation>
     return !(this.getContext() == null && other.getContext() != null) && this.getFileName().equals(other.getFileName()) && this.getLine() == other.getLine() && this.getColumn() == other.getColumn() && (this.getContext() == null || this.getContext().equals(other.getContext()));
   }
 
+  @Override
+  public int hashCode()
+  {
+    int result = getFileName().hashCode();
+    result = 31 * result + line;
+    result = 31 * result + column;
+    return 31 * result + (context == null ? 0 : context.hashCode());
+  }
+
   int safeCompare(String a, String b)
   {
     if (a == null && b != null) return -1;
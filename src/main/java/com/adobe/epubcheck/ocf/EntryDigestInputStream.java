@@ -0,0 +1,111 @@
+package com.adobe.epubcheck.ocf;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Computes the SHA-256 digest and the size of a container entry while it is
+ * read, so that the entry doesn't have to be inflated again to report its
+ * checksum. The result is handed to the package only if the entry was read to
+ * its end.
+ */
+class EntryDigestInputStream extends FilterInputStream
+{
+  private final OCFPackage ocf;
+  private final String name;
+  private final MessageDigest digest;
+  private long size = 0;
+  private boolean done = false;
+
+  EntryDigestInputStream(OCFPackage ocf, String name, InputStream in) throws
+      NoSuchAlgorithmException
+  {
+    super(in);
+    this.ocf = ocf;
+    this.name = name;
+    this.digest = MessageDigest.getInstance("SHA-256");
+  }
+
+  @Override
+  public int read() throws
+      IOException
+  {
+    int b = in.read();
+    if (b == -1)
+    {
+      finish();
+    }
+    else if (!done)
+    {
+      digest.update((byte) b);
+      size++;
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws
+      IOException
+  {
+    int read = in.read(b, off, len);
+    if (read == -1)
+    {
+      finish();
+    }
+    else if (read > 0 && !done)
+    {
+      digest.update(b, off, read);
+      size += read;
+    }
+    return read;
+  }
+
+  @Override
+  public long skip(long n) throws
+      IOException
+  {
+    // skipped bytes must still go through the digest
+    byte[] buffer = new byte[(int) Math.max(1, Math.min(n, 8192))];
+    long skipped = 0;
+    while (skipped < n)
+    {
+      int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+      if (read == -1)
+      {
+        break;
+      }
+      skipped += read;
+    }
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported()
+  {
+    return false;
+  }
+
+  @Override
+  public void mark(int readlimit)
+  {
+  }
+
+  @Override
+  public void reset() throws
+      IOException
+  {
+    throw new IOException("mark/reset not supported");
+  }
+
+  private void finish()
+  {
+    if (!done)
+    {
+      done = true;
+      ocf.setEntryDigest(name, OCFPackage.toHexString(digest.digest()), size);
+    }
+  }
+}
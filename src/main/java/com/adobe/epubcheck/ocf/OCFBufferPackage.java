@@ -0,0 +1,448 @@
+package com.adobe.epubcheck.ocf;
+
+import com.adobe.epubcheck.api.Report;
+import com.adobe.epubcheck.messages.MessageId;
+import com.adobe.epubcheck.messages.MessageLocation;
+import com.adobe.epubcheck.util.FeatureEnum;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * An OCF container read from a {@link ByteBuffer} holding a whole zip file.
+ * The buffer can be on the heap, direct or memory-mapped; the central
+ * directory is read once and entries are served as slices of the buffer, so
+ * nothing is copied or written to disk.
+ * <p/>
+ * ZIP64 archives are not supported.
+ */
+public class OCFBufferPackage extends OCFPackage
+{
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int END_HEADER_SIGNATURE = 0x06054b50;
+  private static final int END_HEADER_SIZE = 22;
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final ByteBuffer buffer;
+  private final String path;
+  private final List<String> allEntries = new ArrayList<String>();
+  private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+  private static class Entry
+  {
+    final String name;
+    final int method;
+    final long time;
+    final long compressedSize;
+    final long size;
+    final int localHeaderOffset;
+
+    Entry(String name, int method, long time, long compressedSize, long size, int localHeaderOffset)
+    {
+      this.name = name;
+      this.method = method;
+      this.time = time;
+      this.compressedSize = compressedSize;
+      this.size = size;
+      this.localHeaderOffset = localHeaderOffset;
+    }
+  }
+
+  /**
+   * @param buffer the content of the zip file, from its position to its limit;
+   *               the buffer must not be modified while the package is used
+   * @param path   the path or name of the file the content comes from
+   * @throws IOException if the buffer doesn't hold a valid zip file
+   */
+  public OCFBufferPackage(ByteBuffer buffer, String path) throws
+      IOException
+  {
+    super();
+    this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    this.path = path;
+    readCentralDirectory();
+  }
+
+  private void readCentralDirectory() throws
+      IOException
+  {
+    int end = findEndHeader();
+    int count = buffer.getShort(end + 10) & 0xFFFF;
+    long size = buffer.getInt(end + 12) & 0xFFFFFFFFL;
+    long offset = buffer.getInt(end + 16) & 0xFFFFFFFFL;
+    if (count == 0xFFFF || size == 0xFFFFFFFFL || offset == 0xFFFFFFFFL)
+    {
+      throw new IOException("ZIP64 archives are not supported");
+    }
+    if (offset + size > end)
+    {
+      throw new IOException("invalid END header (bad central directory offset)");
+    }
+
+    int pos = (int) offset;
+    for (int i = 0; i < count; i++)
+    {
+      if (pos + 46 > end || buffer.getInt(pos) != CENTRAL_HEADER_SIGNATURE)
+      {
+        throw new IOException("invalid CEN header (bad signature)");
+      }
+      int method = buffer.getShort(pos + 10) & 0xFFFF;
+      long time = dosToJavaTime(buffer.getShort(pos + 12) & 0xFFFF, buffer.getShort(pos + 14) & 0xFFFF);
+      long compressedSize = buffer.getInt(pos + 20) & 0xFFFFFFFFL;
+      long uncompressedSize = buffer.getInt(pos + 24) & 0xFFFFFFFFL;
+      int nameLength = buffer.getShort(pos + 28) & 0xFFFF;
+      int extraLength = buffer.getShort(pos + 30) & 0xFFFF;
+      int commentLength = buffer.getShort(pos + 32) & 0xFFFF;
+      long localHeaderOffset = buffer.getInt(pos + 42) & 0xFFFFFFFFL;
+      if (compressedSize == 0xFFFFFFFFL || uncompressedSize == 0xFFFFFFFFL || localHeaderOffset == 0xFFFFFFFFL)
+      {
+        throw new IOException("ZIP64 archives are not supported");
+      }
+      if ((long) pos + 46 + nameLength + extraLength + commentLength > end)
+      {
+        throw new IOException("invalid CEN header (bad header size)");
+      }
+      if (localHeaderOffset + 30 > buffer.limit())
+      {
+        throw new IOException("invalid CEN header (bad local header offset)");
+      }
+
+      String name = decodeName(pos + 46, nameLength);
+      allEntries.add(name);
+      if (!entries.containsKey(name))
+      {
+        entries.put(name, new Entry(name, method, time, compressedSize, uncompressedSize, (int) localHeaderOffset));
+      }
+      pos += 46 + nameLength + extraLength + commentLength;
+    }
+  }
+
+  private int findEndHeader() throws
+      IOException
+  {
+    int last = buffer.limit() - END_HEADER_SIZE;
+    int first = Math.max(0, last - 0xFFFF);
+    for (int pos = last; pos >= first; pos--)
+    {
+      if (buffer.getInt(pos) == END_HEADER_SIGNATURE)
+      {
+        return pos;
+      }
+    }
+    throw new IOException("zip END header not found");
+  }
+
+  private String decodeName(int pos, int length) throws
+      IOException
+  {
+    ByteBuffer bytes = buffer.duplicate();
+    bytes.position(pos);
+    bytes.limit(pos + length);
+    // like ZipFile, reject names that aren't valid UTF-8
+    return UTF8.newDecoder().decode(bytes).toString();
+  }
+
+  private static long dosToJavaTime(int time, int date)
+  {
+    Calendar calendar = Calendar.getInstance();
+    calendar.clear();
+    calendar.set(((date >> 9) & 0x7F) + 1980, ((date >> 5) & 0x0F) - 1, date & 0x1F,
+        (time >> 11) & 0x1F, (time >> 5) & 0x3F, (time << 1) & 0x3E);
+    return calendar.getTimeInMillis();
+  }
+
+  /**
+   * @return the raw (compressed) data of the entry
+   */
+  private ByteBuffer getData(Entry entry) throws
+      IOException
+  {
+    int pos = entry.localHeaderOffset;
+    if (pos + 30 > buffer.limit() || buffer.getInt(pos) != LOCAL_HEADER_SIGNATURE)
+    {
+      throw new IOException("invalid LOC header (bad signature)");
+    }
+    long start = pos + 30L + (buffer.getShort(pos + 26) & 0xFFFF) + (buffer.getShort(pos + 28) & 0xFFFF);
+    if (start + entry.compressedSize > buffer.limit())
+    {
+      throw new EOFException("Unexpected end of ZLIB input stream");
+    }
+    ByteBuffer data = buffer.duplicate();
+    data.position((int) start);
+    data.limit((int) (start + entry.compressedSize));
+    return data.slice();
+  }
+
+  public boolean hasEntry(String name)
+  {
+    return entries.containsKey(name);
+  }
+
+  public long getTimeEntry(String name)
+  {
+    Entry entry = entries.get(name);
+    return entry == null ? 0L : entry.time;
+  }
+
+  @Override
+  public long getSize(String name)
+  {
+    Entry entry = entries.get(name);
+    return entry == null ? -1L : entry.size;
+  }
+
+  @Override
+  public InputStream getInputStream(String name) throws
+      IOException
+  {
+    Entry entry = entries.get(name);
+    if (entry == null)
+    {
+      return null;
+    }
+    InputStream in = digestOnRead(name, getRawInputStream(entry));
+    EncryptionFilter filter = enc.get(name);
+    if (filter == null)
+    {
+      return in;
+    }
+    if (filter.canDecrypt())
+    {
+      return filter.decrypt(in);
+    }
+    return null;
+  }
+
+  private InputStream getRawInputStream(Entry entry) throws
+      IOException
+  {
+    InputStream in = new ByteBufferInputStream(getData(entry));
+    if (entry.method == ZipEntry.STORED)
+    {
+      return in;
+    }
+    if (entry.method == ZipEntry.DEFLATED)
+    {
+      return new EntryInflaterInputStream(in, entry.size);
+    }
+    throw new IOException("invalid compression method");
+  }
+
+  @Override
+  protected OCFEntryIndex createEntryIndex()
+  {
+    return new OCFEntryIndex(allEntries);
+  }
+
+  @Override
+  public List<String> getEntries() throws
+      IOException
+  {
+    return getEntryIndex().getEntries();
+  }
+
+  @Override
+  public Set<String> getFileEntries() throws
+      IOException
+  {
+    return getEntryIndex().getFileEntries();
+  }
+
+  @Override
+  public Set<String> getDirectoryEntries() throws
+      IOException
+  {
+    return getEntryIndex().getDirectoryEntries();
+  }
+
+  public void reportMetadata(String fileName, Report report)
+  {
+    Entry entry = entries.get(fileName);
+    if (entry != null)
+    {
+      report.info(fileName, FeatureEnum.SIZE, String.valueOf(entry.size));
+      report.info(fileName, FeatureEnum.COMPRESSED_SIZE, String.valueOf(entry.compressedSize));
+      report.info(fileName, FeatureEnum.COMPRESSION_METHOD, getCompressionMethod(entry.method));
+      if (!isHashing())
+      {
+        return;
+      }
+      String digest = getEntryDigest(fileName);
+      if (digest != null)
+      {
+        report.info(fileName, FeatureEnum.SHA_256, digest);
+        return;
+      }
+      // the entry wasn't read in full during validation
+      try
+      {
+        report.info(fileName, FeatureEnum.SHA_256, getSHAHash(getRawInputStream(entry)));
+      }
+      catch (IOException e)
+      {
+        report.message(MessageId.PKG_008, new MessageLocation(fileName, -1, -1), fileName);
+      }
+    }
+  }
+
+  public String getName()
+  {
+    return new File(path).getName();
+  }
+
+  @Override
+  public String getPackagePath()
+  {
+    return path;
+  }
+
+  /**
+   * Reads a buffer without copying it; the buffer is private to the stream.
+   * Reads fail once the reading thread is interrupted, so that a cancelled
+   * validation ends soon.
+   */
+  private static class ByteBufferInputStream extends InputStream
+  {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer)
+    {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() throws
+        IOException
+    {
+      checkInterrupted();
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws
+        IOException
+    {
+      checkInterrupted();
+      if (len == 0)
+      {
+        return 0;
+      }
+      if (!buffer.hasRemaining())
+      {
+        return -1;
+      }
+      len = Math.min(len, buffer.remaining());
+      buffer.get(b, off, len);
+      return len;
+    }
+
+    @Override
+    public long skip(long n)
+    {
+      int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + skipped);
+      return skipped;
+    }
+
+    @Override
+    public int available()
+    {
+      return buffer.remaining();
+    }
+
+    private static void checkInterrupted() throws
+        InterruptedIOException
+    {
+      if (Thread.currentThread().isInterrupted())
+      {
+        throw new InterruptedIOException("validation cancelled");
+      }
+    }
+  }
+
+  /**
+   * Inflates raw deflate data the way ZipFile does: a dummy byte is fed at the
+   * end of the input, and the inflater is released when the stream is closed.
+   */
+  private static class EntryInflaterInputStream extends InflaterInputStream
+  {
+    private boolean eof = false;
+    private boolean closed = false;
+    private long remaining;
+
+    EntryInflaterInputStream(InputStream in, long size)
+    {
+      super(in, new Inflater(true), (int) Math.max(64, Math.min(size, 8192)));
+      this.remaining = size;
+    }
+
+    @Override
+    protected void fill() throws
+        IOException
+    {
+      if (eof)
+      {
+        throw new EOFException("Unexpected end of ZLIB input stream");
+      }
+      len = in.read(buf, 0, buf.length);
+      if (len == -1)
+      {
+        buf[0] = 0;
+        len = 1;
+        eof = true;
+      }
+      inf.setInput(buf, 0, len);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws
+        IOException
+    {
+      int read = super.read(b, off, len);
+      if (read > 0)
+      {
+        remaining -= read;
+      }
+      return read;
+    }
+
+    @Override
+    public int available() throws
+        IOException
+    {
+      if (closed)
+      {
+        return 0;
+      }
+      return remaining > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) Math.max(0, remaining);
+    }
+
+    @Override
+    public void close() throws
+        IOException
+    {
+      if (!closed)
+      {
+        closed = true;
+        inf.end();
+        super.close();
+      }
+    }
+  }
+}
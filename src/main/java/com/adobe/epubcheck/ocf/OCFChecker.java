@@ -36,8 +36,6 @@ import com.adobe.epubcheck.xml.XMLValidator;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.text.Normalizer;
-import java.text.Normalizer.Form;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
@@ -46,6 +44,7 @@ public class OCFChecker
   private final OCFPackage ocf;
   private Report report;
   private final EPUBVersion version;
+  private int contentThreads = 1;
   // Hashtable encryptedItems;
   // private EPUBVersion version = EPUBVersion.VERSION_3;
 
@@ -80,6 +79,15 @@ public class OCFChecker
     this.version = version;
   }
 
+  /**
+   * Sets the number of content documents the OPF checkers validate at the same
+   * time.
+   */
+  public void setContentThreads(int contentThreads)
+  {
+    this.contentThreads = contentThreads;
+  }
+
   public void runChecks()
   {
     if (!ocf.hasEntry(OCFData.containerEntry))
@@ -231,24 +239,26 @@ public class OCFChecker
       {
         opfChecker = new OPFChecker30(ocf, getReport(), opfPath, validationVersion);
       }
+      opfChecker.setContentThreads(contentThreads);
       opfChecker.runChecks();
       opfHandlers.add(opfChecker.getOPFHandler());
     }
+    // the CSS recordings are only replayed by the OPF checks
+    ocf.getCssParseCache().clear();
 
 		
 		
     // Check all file and directory entries in the container
     try
     {
-			Set<String> entriesSet = new HashSet<String>();
-			Set<String> normalizedEntriesSet = new HashSet<String>();
-			for (String entry : ocf.getFileEntries())
+      OCFEntryIndex entryIndex = ocf.getEntryIndex();
+      for (String entry : entryIndex.getFileEntries())
       {
-				if (!entriesSet.add(entry.toLowerCase(Locale.ENGLISH)))
+        if (entryIndex.isCaseConflict(entry))
         {
           getReport().message(MessageId.OPF_060, new MessageLocation(ocf.getPackagePath(), 0, 0), entry);
         }
-        else if (!normalizedEntriesSet.add(Normalizer.normalize(entry, Form.NFC)))
+        else if (entryIndex.isNormalizationConflict(entry))
         {
           getReport().message(MessageId.OPF_061, new MessageLocation(ocf.getPackagePath(), 0, 0), entry);
         }
@@ -277,17 +287,9 @@ public class OCFChecker
         OCFFilenameChecker.checkCompatiblyEscaped(entry, getReport(), validationVersion);
       }
 
-      for (String directory : ocf.getDirectoryEntries())
+      for (String directory : entryIndex.getDirectoryEntries())
       {
-        boolean hasContents = false;
-        for (String file : ocf.getFileEntries())
-        {
-          if (file.startsWith(directory))
-          {
-            hasContents = true;
-            break;
-          }
-        }
+        boolean hasContents = entryIndex.hasFileEntries(directory);
         if (!hasContents)
         {
           getReport().message(MessageId.PKG_014, new MessageLocation(ocf.getName(), -1, -1), directory);
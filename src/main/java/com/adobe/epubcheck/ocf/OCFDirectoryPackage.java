@@ -0,0 +1,259 @@
+package com.adobe.epubcheck.ocf;
+
+import com.adobe.epubcheck.api.MasterReport;
+import com.adobe.epubcheck.api.Report;
+import com.adobe.epubcheck.messages.MessageId;
+import com.adobe.epubcheck.messages.MessageLocation;
+import com.adobe.epubcheck.util.Archive;
+import com.adobe.epubcheck.util.FeatureEnum;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * An expanded (unpacked) OCF container, read directly from the file system.
+ * <p/>
+ * The entries are the files {@link Archive} would put in the EPUB, in the same
+ * order, and the package has the name of that EPUB. The metadata reported is
+ * the one of that EPUB too: entries are deflated except the mimetype file, and
+ * the compressed size of an entry is only computed when it is reported.
+ */
+public class OCFDirectoryPackage extends OCFPackage
+{
+  private final File baseDir;
+  private final File epubFile;
+  private final List<String> names;
+  private final Map<String, File> files = new HashMap<String, File>();
+
+  /**
+   * @param baseDir the root directory of the expanded publication
+   */
+  public OCFDirectoryPackage(File baseDir)
+  {
+    super();
+    Archive archive = new Archive(baseDir.getPath(), true);
+    this.baseDir = archive.getBaseDir();
+    this.epubFile = archive.getEpubFile();
+    this.names = archive.getEntryNames();
+    for (String name : names)
+    {
+      files.put(name, new File(this.baseDir, name));
+    }
+  }
+
+  public boolean hasEntry(String name)
+  {
+    return files.containsKey(name);
+  }
+
+  public long getTimeEntry(String name)
+  {
+    File file = files.get(name);
+    if (file == null)
+    {
+      return 0L;
+    }
+    // zip entries keep the modification time to the even second
+    return file.lastModified() / 2000 * 2000;
+  }
+
+  @Override
+  public long getSize(String name)
+  {
+    File file = files.get(name);
+    return file == null ? -1L : file.length();
+  }
+
+  @Override
+  public InputStream getInputStream(String name) throws
+      IOException
+  {
+    File file = files.get(name);
+    if (file == null)
+    {
+      return null;
+    }
+    InputStream in = digestOnRead(name, new FileInputStream(file));
+    EncryptionFilter filter = enc.get(name);
+    if (filter == null)
+    {
+      return in;
+    }
+    if (filter.canDecrypt())
+    {
+      return filter.decrypt(in);
+    }
+    return null;
+  }
+
+  @Override
+  protected OCFEntryIndex createEntryIndex()
+  {
+    return new OCFEntryIndex(names);
+  }
+
+  @Override
+  public List<String> getEntries() throws
+      IOException
+  {
+    return getEntryIndex().getEntries();
+  }
+
+  @Override
+  public Set<String> getFileEntries() throws
+      IOException
+  {
+    return getEntryIndex().getFileEntries();
+  }
+
+  @Override
+  public Set<String> getDirectoryEntries() throws
+      IOException
+  {
+    return getEntryIndex().getDirectoryEntries();
+  }
+
+  /**
+   * Reports the problems the header of the packed EPUB would have: a missing
+   * mimetype file or an unexpected media type in it.
+   */
+  public void checkMimetype(Report report) throws
+      IOException
+  {
+    if (!names.isEmpty() && "mimetype".equals(names.get(0)))
+    {
+      byte[] header = new byte[20];
+      int read = 0;
+      InputStream in = new FileInputStream(files.get("mimetype"));
+      try
+      {
+        int count;
+        while (read < header.length && (count = in.read(header, read, header.length - read)) != -1)
+        {
+          read += count;
+        }
+      }
+      finally
+      {
+        in.close();
+      }
+      if (read < header.length || !"application/epub+zip".equals(new String(header, "US-ASCII")))
+      {
+        report.message(MessageId.PKG_007, new MessageLocation(getName(), 0, 0));
+      }
+    }
+    else
+    {
+      report.message(MessageId.PKG_006, new MessageLocation(getName(), 0, 0));
+    }
+  }
+
+  public void reportMetadata(String fileName, Report report)
+  {
+    File file = files.get(fileName);
+    if (file != null)
+    {
+      boolean stored = fileName.equals("mimetype");
+      report.info(fileName, FeatureEnum.SIZE, String.valueOf(file.length()));
+      if (!(report instanceof MasterReport) || ((MasterReport) report).isFeatureReported(FeatureEnum.COMPRESSED_SIZE))
+      {
+        try
+        {
+          long compressedSize = stored ? file.length() : getDeflatedSize(file);
+          report.info(fileName, FeatureEnum.COMPRESSED_SIZE, String.valueOf(compressedSize));
+        }
+        catch (IOException e)
+        {
+          report.message(MessageId.PKG_008, new MessageLocation(fileName, -1, -1), fileName);
+        }
+      }
+      report.info(fileName, FeatureEnum.COMPRESSION_METHOD, getCompressionMethod(stored ? ZipEntry.STORED : ZipEntry.DEFLATED));
+      if (!isHashing())
+      {
+        return;
+      }
+      String digest = getEntryDigest(fileName);
+      if (digest != null)
+      {
+        report.info(fileName, FeatureEnum.SHA_256, digest);
+        return;
+      }
+      // the entry wasn't read in full during validation
+      try
+      {
+        report.info(fileName, FeatureEnum.SHA_256, getSHAHash(new FileInputStream(file)));
+      }
+      catch (IOException e)
+      {
+        report.message(MessageId.PKG_008, new MessageLocation(fileName, -1, -1), fileName);
+      }
+    }
+  }
+
+  /**
+   * @return the size of the file once deflated like the zip entries of the
+   *         packed EPUB, without keeping the compressed data
+   */
+  private static long getDeflatedSize(File file) throws
+      IOException
+  {
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    InputStream in = new FileInputStream(file);
+    try
+    {
+      byte[] input = new byte[8192];
+      byte[] output = new byte[8192];
+      long size = 0;
+      int read;
+      while ((read = in.read(input)) != -1)
+      {
+        deflater.setInput(input, 0, read);
+        while (!deflater.needsInput())
+        {
+          size += deflater.deflate(output);
+        }
+      }
+      deflater.finish();
+      while (!deflater.finished())
+      {
+        size += deflater.deflate(output);
+      }
+      return size;
+    }
+    finally
+    {
+      in.close();
+      deflater.end();
+    }
+  }
+
+  /**
+   * @return the name of the EPUB the directory is packed into
+   */
+  public String getName()
+  {
+    return epubFile.getName();
+  }
+
+  @Override
+  public String getPackagePath()
+  {
+    return epubFile.getPath();
+  }
+
+  /**
+   * @return the root directory of the expanded publication
+   */
+  public File getBaseDir()
+  {
+    return baseDir;
+  }
+}
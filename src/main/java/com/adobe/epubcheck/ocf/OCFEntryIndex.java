@@ -0,0 +1,120 @@
+package com.adobe.epubcheck.ocf;
+
+import java.text.Normalizer;
+import java.text.Normalizer.Form;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * An immutable index of the entries of a container, built once so that the
+ * container-level checks don't have to walk the entries again for each query.
+ */
+public class OCFEntryIndex
+{
+  private final List<String> entries;
+  private final Set<String> fileEntries;
+  private final Set<String> directoryEntries;
+  private final String[] sortedFileEntries;
+  private final Set<String> caseConflicts = new HashSet<String>();
+  private final Set<String> normalizationConflicts = new HashSet<String>();
+
+  /**
+   * @param entries all the entry names, in container order and including
+   *                duplicates; names ending with '/' are directories
+   */
+  public OCFEntryIndex(List<String> entries)
+  {
+    this(entries, filterEntries(entries, false), filterEntries(entries, true));
+  }
+
+  public OCFEntryIndex(List<String> entries, Set<String> fileEntries, Set<String> directoryEntries)
+  {
+    this.entries = Collections.unmodifiableList(new ArrayList<String>(entries));
+    this.fileEntries = Collections.unmodifiableSet(fileEntries);
+    this.directoryEntries = Collections.unmodifiableSet(directoryEntries);
+    this.sortedFileEntries = fileEntries.toArray(new String[fileEntries.size()]);
+    Arrays.sort(sortedFileEntries);
+
+    // an entry conflicts with one seen before it in the file entries set
+    Set<String> lowerCaseKeys = new HashSet<String>();
+    Set<String> normalizedKeys = new HashSet<String>();
+    for (String entry : fileEntries)
+    {
+      if (!lowerCaseKeys.add(entry.toLowerCase(Locale.ENGLISH)))
+      {
+        caseConflicts.add(entry);
+      }
+      else if (!normalizedKeys.add(Normalizer.normalize(entry, Form.NFC)))
+      {
+        normalizationConflicts.add(entry);
+      }
+    }
+  }
+
+  private static Set<String> filterEntries(List<String> entries, boolean directories)
+  {
+    Set<String> result = new HashSet<String>();
+    for (String entry : entries)
+    {
+      if (entry.endsWith("/") == directories)
+      {
+        result.add(entry);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return all the entries, in container order; may contain duplicates
+   */
+  public List<String> getEntries()
+  {
+    return entries;
+  }
+
+  public Set<String> getFileEntries()
+  {
+    return fileEntries;
+  }
+
+  public Set<String> getDirectoryEntries()
+  {
+    return directoryEntries;
+  }
+
+  /**
+   * @return true if there is a file entry under the given directory
+   */
+  public boolean hasFileEntries(String directory)
+  {
+    int index = Arrays.binarySearch(sortedFileEntries, directory);
+    if (index < 0)
+    {
+      index = -index - 1;
+    }
+    return index < sortedFileEntries.length && sortedFileEntries[index].startsWith(directory);
+  }
+
+  /**
+   * @return true if the entry has the same name as an entry met before it
+   *         when compared case-insensitively
+   */
+  public boolean isCaseConflict(String entry)
+  {
+    return caseConflicts.contains(entry);
+  }
+
+  /**
+   * @return true if the entry has the same NFC-normalized name as an entry met
+   *         before it, and isn't a case conflict
+   */
+  public boolean isNormalizationConflict(String entry)
+  {
+    return normalizationConflicts.contains(entry);
+  }
+}
@@ -1,6 +1,7 @@
 package com.adobe.epubcheck.ocf;
 
 import com.adobe.epubcheck.api.Report;
+import com.adobe.epubcheck.css.CSSParseCache;
 import com.adobe.epubcheck.opf.OPFData;
 import com.adobe.epubcheck.opf.OPFDataImpl;
 import com.adobe.epubcheck.opf.VersionRetriever;
@@ -11,12 +12,20 @@ import com.adobe.epubcheck.xml.XMLParser;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.zip.ZipEntry;
 
 public abstract class OCFPackage implements GenericResourceProvider
 {
   final Hashtable<String, EncryptionFilter> enc;
   String uniqueIdentifier;
+  private OCFEntryIndex entryIndex;
+  private boolean hashing = true;
+  private final Map<String, String> digests = new Hashtable<String, String>();
+  private final Map<String, Long> digestedSizes = new Hashtable<String, Long>();
+  private final CSSParseCache cssParseCache = new CSSParseCache();
 
   public OCFPackage()
   {
@@ -26,6 +35,8 @@ public abstract class OCFPackage implements GenericResourceProvider
   public void setEncryption(String name, EncryptionFilter encryptionFilter)
   {
     enc.put(name, encryptionFilter);
+    // a style sheet recorded before was parsed from the encrypted data
+    cssParseCache.takeStylesheet(name);
   }
 
 	public void setUniqueIdentifier(String idval) {
@@ -43,6 +54,15 @@ public abstract class OCFPackage implements GenericResourceProvider
 
   public abstract long getTimeEntry(String name);
 
+  /**
+   * @param name the name of a relative file in the container
+   * @return the uncompressed size of the file, or -1 if it isn't known
+   */
+  public long getSize(String name)
+  {
+    return -1L;
+  }
+
   /**
    * @param name the name of a relative file to fetch from the container.
    * @return an InputStream representing the data from the named file, possibly
@@ -72,6 +92,125 @@ public abstract class OCFPackage implements GenericResourceProvider
       IOException;
 
 
+  /**
+   * @return the index of the entries of this container, built on first use
+   * @throws IOException
+   */
+  public synchronized OCFEntryIndex getEntryIndex() throws
+      IOException
+  {
+    if (entryIndex == null)
+    {
+      entryIndex = createEntryIndex();
+    }
+    return entryIndex;
+  }
+
+  protected OCFEntryIndex createEntryIndex() throws
+      IOException
+  {
+    return new OCFEntryIndex(getEntries(), getFileEntries(), getDirectoryEntries());
+  }
+
+  /**
+   * @return the parser events of the style sheets of this container, shared by
+   *         the checks that parse them
+   */
+  public CSSParseCache getCssParseCache()
+  {
+    return cssParseCache;
+  }
+
+  /**
+   * @param hashing whether the SHA-256 checksum of the entries is computed and
+   *                reported; it can be turned off when the report doesn't use it
+   */
+  public void setHashing(boolean hashing)
+  {
+    this.hashing = hashing;
+  }
+
+  public boolean isHashing()
+  {
+    return hashing;
+  }
+
+  /**
+   * Wraps the raw (uncompressed but still encrypted) stream of an entry so that
+   * its checksum is computed the first time the entry is read in full.
+   */
+  protected InputStream digestOnRead(String name, InputStream in)
+  {
+    if (!hashing || in == null || digests.containsKey(name))
+    {
+      return in;
+    }
+    try
+    {
+      return new EntryDigestInputStream(this, name, in);
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      return in;
+    }
+  }
+
+  /**
+   * Reads the rest of a stream returned by {@link #getInputStream(String)}
+   * before it is closed, when the checksum of the entry is reported and hasn't
+   * been computed yet, so that the entry doesn't have to be inflated again for
+   * the report. A read error is ignored here; the entry is then read again by
+   * the report.
+   */
+  public void digestRemaining(String name, InputStream in)
+  {
+    if (!hashing || in == null || digests.containsKey(name))
+    {
+      return;
+    }
+    try
+    {
+      byte[] buffer = new byte[8192];
+      while (in.read(buffer) != -1)
+      {
+      }
+    }
+    catch (IOException ignored)
+    {
+    }
+  }
+
+  void setEntryDigest(String name, String digest, long size)
+  {
+    synchronized (digests)
+    {
+      if (!digests.containsKey(name))
+      {
+        digests.put(name, digest);
+        digestedSizes.put(name, size);
+      }
+    }
+  }
+
+  /**
+   * @return the SHA-256 checksum of an entry computed while it was read, or
+   *         null if the entry hasn't been read in full yet
+   */
+  protected String getEntryDigest(String name)
+  {
+    return digests.get(name);
+  }
+
+  /**
+   * @return the number of uncompressed bytes counted while the entry was read,
+   *         or -1 if the entry hasn't been read in full yet
+   */
+  protected long getDigestedSize(String name)
+  {
+    Long size = digestedSizes.get(name);
+    return size == null ? -1L : size;
+  }
+
   /**
    * @param fileName name of the file to test
    * @return true if I have an Encryption filter for this particular file.
@@ -168,6 +307,63 @@ public abstract class OCFPackage implements GenericResourceProvider
     return Collections.unmodifiableMap(result);
   }
 
+  static String getCompressionMethod(int method)
+  {
+    if (method == ZipEntry.DEFLATED)
+    {
+      return "Deflated";
+    }
+    if (method == ZipEntry.STORED)
+    {
+      return "Stored";
+    }
+    return "Unsupported";
+  }
+
+  static String getSHAHash(InputStream fis)
+  {
+    try
+    {
+
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      byte[] dataBytes = new byte[1024];
+
+      int nread;
+      while ((nread = fis.read(dataBytes)) != -1)
+      {
+        md.update(dataBytes, 0, nread);
+      }
+      return toHexString(md.digest());
+    }
+    catch (Exception e)
+    {
+      return "error!";
+    }
+    finally
+    {
+      if (fis != null)
+      {
+        try
+        {
+          fis.close();
+        }
+        catch (IOException ignored)
+        {
+        }
+      }
+    }
+  }
+
+  static String toHexString(byte[] bytes)
+  {
+    StringBuilder hexString = new StringBuilder();
+    for (byte aByte : bytes)
+    {
+      hexString.append(Integer.toHexString(0xFF & aByte));
+    }
+    return hexString.toString();
+  }
+
   public abstract void reportMetadata(String fileName, Report report);
 
   public abstract String getName();
@@ -8,11 +8,8 @@ import com.adobe.epubcheck.util.FeatureEnum;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.security.MessageDigest;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.Enumeration;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.zip.ZipEntry;
@@ -22,9 +19,6 @@ public class OCFZipPackage extends OCFPackage
 {
 
   private final ZipFile zip;
-  private List<String> allEntries = null;
-  private Set<String> fileEntries;
-  private Set<String> dirEntries;
 
   public OCFZipPackage(ZipFile zip)
   {
@@ -32,36 +26,23 @@ public class OCFZipPackage extends OCFPackage
     this.zip = zip;
   }
 
-  private void listEntries() throws
+  @Override
+  protected OCFEntryIndex createEntryIndex() throws
       IOException
   {
-    synchronized (zip)
+    List<String> entries = new ArrayList<String>();
+    try
     {
-      allEntries = new LinkedList<String>();
-      fileEntries = new HashSet<String>();
-      dirEntries = new HashSet<String>();
-
-      try
+      for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements(); )
       {
-        for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); )
-        {
-          ZipEntry entry = entries.nextElement();
-          allEntries.add(entry.getName());
-          if (entry.isDirectory())
-          {
-            dirEntries.add(entry.getName());
-          }
-          else
-          {
-            fileEntries.add(entry.getName());
-          }
-        }
-      }
-      catch (IllegalArgumentException ex)
-      {
-        throw new IOException(ex.getMessage());
+        entries.add(e.nextElement().getName());
       }
     }
+    catch (IllegalArgumentException ex)
+    {
+      throw new IOException(ex.getMessage());
+    }
+    return new OCFEntryIndex(entries);
   }
 
   /* (non-Javadoc)
@@ -85,6 +66,13 @@ public class OCFZipPackage extends OCFPackage
     return entry.getTime();
   }
 
+  @Override
+  public long getSize(String name)
+  {
+    ZipEntry entry = zip.getEntry(name);
+    return entry == null ? -1L : entry.getSize();
+  }
+
   /*
     * (non-Javadoc)
     * @see com.adobe.epubcheck.ocf.OCFPackage#getInputStream(java.lang.String)
@@ -98,7 +86,7 @@ public class OCFZipPackage extends OCFPackage
     {
       return null;
     }
-    InputStream in = zip.getInputStream(entry);
+    InputStream in = digestOnRead(name, zip.getInputStream(entry));
     EncryptionFilter filter = enc.get(name);
     if (filter == null)
     {
@@ -115,14 +103,7 @@ public class OCFZipPackage extends OCFPackage
   public List<String> getEntries() throws
       IOException
   {
-    synchronized (zip)
-    {
-      if (allEntries == null)
-      {
-        listEntries();
-      }
-    }
-    return Collections.unmodifiableList(allEntries);
+    return getEntryIndex().getEntries();
   }
 
   /* (non-Javadoc)
@@ -132,23 +113,7 @@ public class OCFZipPackage extends OCFPackage
   public Set<String> getFileEntries() throws
       IOException
   {
-    synchronized (zip)
-    {
-      if (allEntries == null)
-      {
-        listEntries();
-      }
-      HashSet<String> entryNames = new HashSet<String>();
-      for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); )
-      {
-        ZipEntry entry = entries.nextElement();
-        if (!entry.isDirectory())
-        {
-          entryNames.add(entry.getName());
-        }
-      }
-      return Collections.unmodifiableSet(fileEntries);
-    }
+    return getEntryIndex().getFileEntries();
   }
 
   /* (non-Javadoc)
@@ -158,16 +123,7 @@ public class OCFZipPackage extends OCFPackage
   public Set<String> getDirectoryEntries() throws
       IOException
   {
-    HashSet<String> entryNames = new HashSet<String>();
-    for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); )
-    {
-      ZipEntry entry = entries.nextElement();
-      if (entry.isDirectory())
-      {
-        entryNames.add(entry.getName());
-      }
-    }
-    return entryNames;
+    return getEntryIndex().getDirectoryEntries();
   }
 
   public void reportMetadata(String fileName, Report report)
@@ -175,9 +131,21 @@ public class OCFZipPackage extends OCFPackage
     ZipEntry entry = zip.getEntry(fileName);
     if (entry != null)
     {
-      report.info(fileName, FeatureEnum.SIZE, String.valueOf(entry.getSize()));
+      long size = entry.getSize() < 0 ? getDigestedSize(fileName) : entry.getSize();
+      report.info(fileName, FeatureEnum.SIZE, String.valueOf(size));
       report.info(fileName, FeatureEnum.COMPRESSED_SIZE, String.valueOf(entry.getCompressedSize()));
-      report.info(fileName, FeatureEnum.COMPRESSION_METHOD, this.getCompressionMethod(entry));
+      report.info(fileName, FeatureEnum.COMPRESSION_METHOD, getCompressionMethod(entry.getMethod()));
+      if (!isHashing())
+      {
+        return;
+      }
+      String digest = getEntryDigest(fileName);
+      if (digest != null)
+      {
+        report.info(fileName, FeatureEnum.SHA_256, digest);
+        return;
+      }
+      // the entry wasn't read in full during validation
       InputStream inputStream = null;
       try
       {
@@ -207,74 +175,6 @@ public class OCFZipPackage extends OCFPackage
     }
   }
 
-  private String getCompressionMethod(ZipEntry entry)
-  {
-    if (entry == null)
-    {
-      return "";
-    }
-    int method = entry.getMethod();
-    if (method == ZipEntry.DEFLATED)
-    {
-      return "Deflated";
-    }
-    if (method == ZipEntry.STORED)
-    {
-      return "Stored";
-    }
-    return "Unsupported";
-  }
-
-  private static String getSHAHash(InputStream fis)
-  {
-    try
-    {
-
-      MessageDigest md = MessageDigest.getInstance("SHA-256");
-      byte[] dataBytes = new byte[1024];
-
-      int nread;
-      while ((nread = fis.read(dataBytes)) != -1)
-      {
-        md.update(dataBytes, 0, nread);
-      }
-      byte[] bytes = md.digest();
-
-      //convert the byte to hex format method 1
-      //StringBuilder sb = new StringBuilder();
-      //for (int i = 0; i < bytes.length; i++)
-      //{
-      //  sb.append(Integer.toString((bytes[i] & 0xff) + 0x100, 16).substring(1));
-      //}
-
-      //convert the byte to hex format method 2
-      StringBuilder hexString = new StringBuilder();
-      for (byte aByte : bytes)
-      {
-        hexString.append(Integer.toHexString(0xFF & aByte));
-      }
-
-      return hexString.toString();
-    }
-    catch (Exception e)
-    {
-      return "error!";
-    }
-    finally
-    {
-      if (fis != null)
-      {
-        try
-        {
-          fis.close();
-        }
-        catch (IOException ignored)
-        {
-        }
-      }
-    }
-  }
-
   public String getName()
   {
     return new File(this.zip.getName()).getName();
@@ -0,0 +1,83 @@
+package com.adobe.epubcheck.opf;
+
+/**
+ * The ids of a resource, with the reference type of the element each id is
+ * on. The ids are kept in an open-addressed table with linear probing, so a
+ * document with many ids only takes two arrays instead of an entry object per
+ * id.
+ */
+final class AnchorSet
+{
+  private String[] ids = new String[16];
+  private int[] types = new int[16];
+  private int size;
+
+  /**
+   * Adds an id, unless the resource already has it.
+   *
+   * @return false if the id was already in the set, whose type is then kept
+   */
+  synchronized boolean add(String id, int type)
+  {
+    int i = indexOf(id);
+    if (ids[i] != null)
+    {
+      return false;
+    }
+    ids[i] = id;
+    types[i] = type;
+    // kept at most half full, so that probe sequences stay short
+    if (++size * 2 > ids.length)
+    {
+      grow();
+    }
+    return true;
+  }
+
+  /**
+   * @return the type the id was added with, or -1 if the resource doesn't
+   *         have it
+   */
+  synchronized int getType(String id)
+  {
+    int i = indexOf(id);
+    return ids[i] != null ? types[i] : -1;
+  }
+
+  synchronized int size()
+  {
+    return size;
+  }
+
+  /**
+   * @return the slot of the id, or the empty slot it would be added to
+   */
+  private int indexOf(String id)
+  {
+    int mask = ids.length - 1;
+    int h = id.hashCode();
+    int i = (h ^ (h >>> 16)) & mask;
+    while (ids[i] != null && !ids[i].equals(id))
+    {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  private void grow()
+  {
+    String[] oldIds = ids;
+    int[] oldTypes = types;
+    ids = new String[oldIds.length * 2];
+    types = new int[oldIds.length * 2];
+    for (int j = 0; j < oldIds.length; j++)
+    {
+      if (oldIds[j] != null)
+      {
+        int i = indexOf(oldIds[j]);
+        ids[i] = oldIds[j];
+        types[i] = oldTypes[j];
+      }
+    }
+  }
+}
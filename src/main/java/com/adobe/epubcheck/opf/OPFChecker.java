@@ -33,6 +33,7 @@ import com.adobe.epubcheck.ncx.NCXCheckerFactory;
 import com.adobe.epubcheck.ocf.OCFFilenameChecker;
 import com.adobe.epubcheck.ocf.OCFPackage;
 import com.adobe.epubcheck.ops.OPSCheckerFactory;
+import com.adobe.epubcheck.util.DeferredReport;
 import com.adobe.epubcheck.util.EPUBVersion;
 import com.adobe.epubcheck.util.FeatureEnum;
 import com.adobe.epubcheck.util.GenericResourceProvider;
@@ -44,6 +45,10 @@ import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class OPFChecker implements DocumentValidator
 {
@@ -59,6 +64,7 @@ public class OPFChecker implements DocumentValidator
   Hashtable<String, ContentCheckerFactory> contentCheckerFactoryMap;
   EPUBVersion version;
   GenericResourceProvider resourceProvider = null;
+  int contentThreads = 1;
 
   private void initContentCheckerFactoryMap()
   {
@@ -117,18 +123,14 @@ public class OPFChecker implements DocumentValidator
     for (int i = 0; i < itemCount; i++)
     {
       OPFItem item = opfHandler.getItem(i);
-      try
-      {
-        xrefChecker.registerResource(item.getPath(),
-            item.getMimeType(), item.isInSpine(),
-            new FallbackChecker().checkItemFallbacks(item, opfHandler, true),
-            new FallbackChecker().checkImageFallbacks(item, opfHandler));
-      }
-      catch (IllegalArgumentException e)
+      if (!xrefChecker.registerResource(item.getPath(),
+          item.getMimeType(), item.isInSpine(),
+          new FallbackChecker().checkItemFallbacks(item, opfHandler, true),
+          new FallbackChecker().checkImageFallbacks(item, opfHandler)))
       {
         report.message(MessageId.RSC_005,
             new MessageLocation(path, item.getLineNumber(), item.getColumnNumber()),
-            e.getMessage());
+            "duplicate resource: " + item.getPath());
       }
 
       report.info(item.getPath(), FeatureEnum.DECLARED_MIMETYPE, item.getMimeType());
@@ -138,11 +140,24 @@ public class OPFChecker implements DocumentValidator
     checkGuide();
     checkBindings();
 
+    List<OPFItem> contentItems = new ArrayList<OPFItem>();
     for (int i = 0; i < itemCount; i++)
     {
       OPFItem item = opfHandler.getItem(i);
 
-			if (!item.path.matches("^[^:/?#]+://.*"))
+			if (!PathUtil.isRemote(item.path))
+      {
+        contentItems.add(item);
+      }
+    }
+
+    if (contentThreads > 1 && contentItems.size() > 1)
+    {
+      checkItemContentInParallel(contentItems);
+    }
+    else
+    {
+      for (OPFItem item : contentItems)
       {
         checkItemContent(item);
       }
@@ -151,6 +166,74 @@ public class OPFChecker implements DocumentValidator
     xrefChecker.checkReferences();
   }
 
+  /**
+   * Sets the number of content documents that are validated at the same time.
+   * A value of 1 (the default) checks them one after the other.
+   */
+  public void setContentThreads(int contentThreads)
+  {
+    this.contentThreads = Math.max(1, contentThreads);
+  }
+
+  /**
+   * Runs the content checkers on a fixed pool of worker threads. Each item
+   * reports to its own deferred report, which is forwarded to the main report
+   * in manifest order, so the output is the same as in sequential mode.
+   */
+  void checkItemContentInParallel(List<OPFItem> items)
+  {
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(contentThreads, items.size()));
+    List<Future<?>> results = new ArrayList<Future<?>>(items.size());
+    List<DeferredReport> itemReports = new ArrayList<DeferredReport>(items.size());
+    try
+    {
+      for (final OPFItem item : items)
+      {
+        final DeferredReport itemReport = new DeferredReport(report);
+        itemReports.add(itemReport);
+        results.add(executor.submit(new Runnable()
+        {
+          public void run()
+          {
+            checkItemContent(item, itemReport);
+          }
+        }));
+      }
+
+      for (int i = 0; i < results.size(); i++)
+      {
+        try
+        {
+          results.get(i).get();
+        }
+        catch (InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException(e);
+        }
+        catch (ExecutionException e)
+        {
+          Throwable cause = e.getCause();
+          if (cause instanceof RuntimeException)
+          {
+            throw (RuntimeException) cause;
+          }
+          if (cause instanceof Error)
+          {
+            throw (Error) cause;
+          }
+          throw new RuntimeException(cause);
+        }
+        itemReports.get(i).flush();
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+    xrefChecker.sortReferences();
+  }
+
   void checkBindings()
   {
 
@@ -414,6 +497,11 @@ public class OPFChecker implements DocumentValidator
   }
 
   void checkItemContent(OPFItem item)
+  {
+    checkItemContent(item, report);
+  }
+
+  void checkItemContent(OPFItem item, Report itemReport)
   {
     String mimeType = item.getMimeType();
     String path = item.getPath();
@@ -442,7 +530,7 @@ public class OPFChecker implements DocumentValidator
       if (checkerFactory != null)
       {
         ContentChecker checker = checkerFactory.newInstance(ocf,
-            report, path, mimeType, properties, xrefChecker,
+            itemReport, path, mimeType, properties, xrefChecker,
             version);
         checker.runChecks();
       }
@@ -28,8 +28,17 @@ import com.adobe.epubcheck.messages.MessageLocation;
 import com.adobe.epubcheck.ocf.OCFPackage;
 import com.adobe.epubcheck.util.EPUBVersion;
 import com.adobe.epubcheck.util.FeatureEnum;
-
-import java.util.*;
+import com.adobe.epubcheck.util.PathUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class XRefChecker
 {
@@ -54,55 +63,6 @@ public class XRefChecker
 
   public static final int RT_SVG_SYMBOL = 0x12;
 
-  private class Reference
-  {
-    final String resource;
-
-    final int lineNumber;
-
-    final int columnNumber;
-
-    final String refResource;
-
-    final String fragment;
-
-    final int type;
-
-    public Reference(String srcResource, int srcLineNumber,
-        int srcColumnNumber, String refResource, String fragment,
-        int type)
-    {
-      this.fragment = fragment;
-      this.lineNumber = srcLineNumber;
-      this.columnNumber = srcColumnNumber;
-      this.refResource = refResource;
-      this.resource = srcResource;
-      this.type = type;
-    }
-
-  }
-
-  private class Anchor
-  {
-
-    final String id;
-
-    final int lineNumber;
-
-    final int columnNumber;
-
-    final int type;
-
-    public Anchor(String id, int lineNumber, int columnNumber, int type)
-    {
-      this.id = id;
-      this.lineNumber = lineNumber;
-      this.columnNumber = columnNumber;
-      this.type = type;
-    }
-
-  }
-
   private class Resource
   {
 
@@ -110,7 +70,7 @@ public class XRefChecker
 
     final String mimeType;
 
-    final Hashtable<String, Anchor> anchors;
+    final AnchorSet anchors;
 
     final boolean inSpine;
 
@@ -118,25 +78,48 @@ public class XRefChecker
 
     final boolean hasValidImageFallback;
 
+    final int index;
+
     Resource(String resource, String type, boolean inSpine,
-        boolean hasValidItemFallback, boolean hasValidImageFallback)
+        boolean hasValidItemFallback, boolean hasValidImageFallback, int index)
     {
+      this.index = index;
       this.mimeType = type;
       this.resource = resource;
       this.inSpine = inSpine;
       this.hasValidItemFallback = hasValidItemFallback;
       this.hasValidImageFallback = hasValidImageFallback;
-      this.anchors = new Hashtable<String, Anchor>();
+      this.anchors = new AnchorSet();
     }
   }
 
-  private final Hashtable<String, Resource> resources = new Hashtable<String, Resource>();
+  private final Map<String, Resource> resources = new ConcurrentHashMap<String, Resource>();
 
-  private final HashSet<String> undeclared = new HashSet<String>();
+  private final Hashtable<String, String> bindings = new Hashtable<String, String>();
 
-  private final Vector<Reference> references = new Vector<Reference>();
+  // The references, in the order they are registered. The paths of the
+  // referencing and referenced resources are interned as indexes in paths,
+  // and the other fields are kept in parallel arrays, so that a reference
+  // takes no object of its own besides its fragment.
+  private final Map<String, Integer> pathIds = new HashMap<String, Integer>();
 
-  private final Hashtable<String, String> bindings = new Hashtable<String, String>();
+  private final List<String> paths = new ArrayList<String>();
+
+  private int[] refSources = new int[64];
+
+  private int[] refTargets = new int[64];
+
+  private int[] refLines = new int[64];
+
+  private int[] refColumns = new int[64];
+
+  private int[] refTypes = new int[64];
+
+  private String[] refFragments = new String[64];
+
+  private int refCount;
+
+  private final BitSet undeclared = new BitSet();
 
   private final Report report;
 
@@ -154,8 +137,8 @@ public class XRefChecker
 
   public String getMimeType(String path)
   {
-    return resources.get(path) != null ? resources.get(path).mimeType
-        : null;
+    Resource res = resources.get(path);
+    return res != null ? res.mimeType : null;
   }
 
   public Set<String> getBindingsMimeTypes()
@@ -168,38 +151,40 @@ public class XRefChecker
     return bindings.get(mimeType);
   }
 
-  public void registerBinding(String mimeType, String handlerSrc)
+  public synchronized void registerBinding(String mimeType, String handlerSrc)
   {
     bindings.put(mimeType, handlerSrc);
   }
 
-  public void registerResource(String resource, String mimeType,
+  /**
+   * @return false if a resource with the same path was already registered,
+   *         in which case the first one is kept
+   */
+  public synchronized boolean registerResource(String resource, String mimeType,
       boolean inSpine, boolean hasValidItemFallback,
       boolean hasValidImageFallback)
   {
-    if (resources.get(resource) != null)
+    if (resources.containsKey(resource))
     {
-      throw new IllegalArgumentException("duplicate resource: "
-          + resource);
+      return false;
     }
     resources.put(resource, new Resource(resource, mimeType, inSpine,
-        hasValidItemFallback, hasValidImageFallback));
+        hasValidItemFallback, hasValidImageFallback, resources.size()));
+    return true;
   }
 
-  public void registerAnchor(String resource, int lineNumber,
+  /**
+   * Registers an id of a resource, which references to the resource can have
+   * as fragment. Anchors of different resources are registered concurrently.
+   *
+   * @return false if the resource isn't registered or already has the id;
+   *         duplicate ids are reported by the schemas
+   */
+  public boolean registerAnchor(String resource, int lineNumber,
       int columnNumber, String id, int type)
   {
     Resource res = resources.get(resource);
-    if (res == null)
-    {
-      throw new IllegalArgumentException("unregistered resource: "
-          + resource);
-    }
-    if (res.anchors.get(id) != null)
-    {
-      throw new IllegalArgumentException("duplicate id: " + id);
-    }
-    res.anchors.put(id, new Anchor(id, lineNumber, columnNumber, type));
+    return res != null && res.anchors.add(id, type);
   }
 
   void registerReference(String srcResource, int srcLineNumber,
@@ -211,8 +196,38 @@ public class XRefChecker
       return;
     }
     report.info(srcResource, FeatureEnum.RESOURCE, refResource);
-    references.add(new Reference(srcResource, srcLineNumber,
-        srcColumnNumber, refResource, refFragment, type));
+    synchronized (this)
+    {
+      if (refCount == refTypes.length)
+      {
+        int capacity = 2 * refCount;
+        refSources = Arrays.copyOf(refSources, capacity);
+        refTargets = Arrays.copyOf(refTargets, capacity);
+        refLines = Arrays.copyOf(refLines, capacity);
+        refColumns = Arrays.copyOf(refColumns, capacity);
+        refTypes = Arrays.copyOf(refTypes, capacity);
+        refFragments = Arrays.copyOf(refFragments, capacity);
+      }
+      refSources[refCount] = getPathId(srcResource);
+      refTargets[refCount] = getPathId(refResource);
+      refLines[refCount] = srcLineNumber;
+      refColumns[refCount] = srcColumnNumber;
+      refTypes[refCount] = type;
+      refFragments[refCount] = refFragment;
+      refCount++;
+    }
+  }
+
+  private int getPathId(String path)
+  {
+    Integer id = pathIds.get(path);
+    if (id == null)
+    {
+      id = paths.size();
+      pathIds.put(path, id);
+      paths.add(path);
+    }
+    return id;
   }
 
   public void registerReference(String srcResource, int srcLineNumber,
@@ -225,7 +240,7 @@ public class XRefChecker
 		// see http://code.google.com/p/epubcheck/issues/detail?id=190
 		// see http://code.google.com/p/epubcheck/issues/detail?id=261
     int query = ref.indexOf('?');
-		if (query >= 0 && !ref.matches("^[^:/?#]+://.*")) {
+		if (query >= 0 && !PathUtil.isRemote(ref)) {
       ref = ref.substring(0, query).trim();
     }
 
@@ -247,52 +262,125 @@ public class XRefChecker
         refResource, refFragment, type);
   }
 
-  public void checkReferences()
+  /**
+   * Puts the references back in the order of registration of the resources
+   * they come from, which is the order they are found in when resources are
+   * checked one after the other. References registered concurrently by
+   * several content checkers are otherwise interleaved at random.
+   */
+  public synchronized void sortReferences()
   {
-    Enumeration<Reference> refs = references.elements();
-    while (refs.hasMoreElements())
+    // a counting sort on the index of the referencing resource, which keeps
+    // the order of the references of each resource; references from
+    // resources that aren't registered come first
+    int[] sourceIndexes = new int[paths.size()];
+    for (int id = 0; id < sourceIndexes.length; id++)
+    {
+      sourceIndexes[id] = getResourceIndex(paths.get(id)) + 1;
+    }
+    int[] starts = new int[resources.size() + 2];
+    for (int i = 0; i < refCount; i++)
+    {
+      starts[sourceIndexes[refSources[i]] + 1]++;
+    }
+    for (int k = 1; k < starts.length; k++)
+    {
+      starts[k] += starts[k - 1];
+    }
+    int[] order = new int[refCount];
+    for (int i = 0; i < refCount; i++)
+    {
+      order[starts[sourceIndexes[refSources[i]]]++] = i;
+    }
+    refSources = permute(refSources, order);
+    refTargets = permute(refTargets, order);
+    refLines = permute(refLines, order);
+    refColumns = permute(refColumns, order);
+    refTypes = permute(refTypes, order);
+    String[] fragments = new String[refFragments.length];
+    for (int k = 0; k < refCount; k++)
+    {
+      fragments[k] = refFragments[order[k]];
+    }
+    refFragments = fragments;
+  }
+
+  private static int[] permute(int[] values, int[] order)
+  {
+    int[] permuted = new int[values.length];
+    for (int k = 0; k < order.length; k++)
+    {
+      permuted[k] = values[order[k]];
+    }
+    return permuted;
+  }
+
+  private int getResourceIndex(String resource)
+  {
+    Resource res = resources.get(resource);
+    return res != null ? res.index : -1;
+  }
+
+  public synchronized void checkReferences()
+  {
+    // the referenced resources are looked up once per path, not once per
+    // reference
+    Resource[] targets = new Resource[paths.size()];
+    boolean[] remote = new boolean[paths.size()];
+    for (int id = 0; id < targets.length; id++)
+    {
+      targets[id] = resources.get(paths.get(id));
+      remote[id] = PathUtil.isRemote(paths.get(id));
+    }
+    for (int i = 0; i < refCount; i++)
     {
-      Reference ref = refs.nextElement();
-      checkReference(ref);
+      checkReference(i, targets, remote);
     }
 
   }
 
-  private void checkReference(Reference ref)
+  private void checkReference(int i, Resource[] targets, boolean[] remote)
   {
-    Resource res = resources.get(ref.refResource);
+    int target = refTargets[i];
+    Resource res = targets[target];
+    String resource = paths.get(refSources[i]);
+    String refResource = paths.get(target);
+    String fragment = refFragments[i];
+    int lineNumber = refLines[i];
+    int columnNumber = refColumns[i];
+    int type = refTypes[i];
     if (res == null)
 	  {
-      if(ref.refResource.matches("^[^:/?#]+://.*")
-          && !(version == EPUBVersion.VERSION_3 && (ref.type == RT_AUDIO || ref.type == RT_VIDEO)))
+      if(remote[target]
+          && !(version == EPUBVersion.VERSION_3 && (type == RT_AUDIO || type == RT_VIDEO)))
       {
         report.message(MessageId.RSC_006,
-            new MessageLocation(ref.resource, ref.lineNumber, ref.columnNumber, ref.refResource));
+            new MessageLocation(resource, lineNumber, columnNumber, refResource));
       }
-      else if (!ocf.hasEntry(ref.refResource) && !ref.refResource.matches("^[^:/?#]+://.*"))
+      else if (!remote[target] && !ocf.hasEntry(refResource))
       {
         report.message(MessageId.RSC_007,
-            new MessageLocation(ref.resource, ref.lineNumber, ref.columnNumber, ref.refResource));
+            new MessageLocation(resource, lineNumber, columnNumber, refResource));
 
       }
-      else if (!undeclared.contains(ref.refResource))
+      else if (!undeclared.get(target))
       {
-        undeclared.add(ref.refResource);
+        undeclared.set(target);
         report.message(MessageId.RSC_008,
-            new MessageLocation(ref.resource, ref.lineNumber, ref.columnNumber, ref.refResource));
+            new MessageLocation(resource, lineNumber, columnNumber, refResource));
       }
       return;
     }
 
-    if (ref.fragment == null)
+    if (fragment == null)
     {
-      switch (ref.type)
+      switch (type)
       {
         case RT_SVG_PAINT:
         case RT_SVG_CLIP_PATH:
         case RT_SVG_SYMBOL:
           report.message(MessageId.RSC_015,
-              new MessageLocation(ref.resource, ref.lineNumber, ref.columnNumber, ref.refResource));
+              new MessageLocation(resource, lineNumber, columnNumber, refResource));
           break;
         case RT_HYPERLINK:
           // if mimeType is null, we should have reported an error already
@@ -303,12 +391,12 @@ public class XRefChecker
               && !res.hasValidItemFallback)
           {
             report.message(MessageId.RSC_010,
-                new MessageLocation(ref.resource, ref.lineNumber, ref.columnNumber, ref.refResource));
+                new MessageLocation(resource, lineNumber, columnNumber, refResource));
           }
           if (/* !res.mimeType.equals("font/opentype") && */!res.inSpine)
           {
             report.message(MessageId.RSC_011,
-                new MessageLocation(ref.resource, ref.lineNumber, ref.columnNumber, ref.refResource));
+                new MessageLocation(resource, lineNumber, columnNumber, refResource));
           }
           break;
         case RT_IMAGE:
@@ -318,7 +406,7 @@ public class XRefChecker
               && !res.hasValidImageFallback)
           {
             report.message(MessageId.MED_003,
-                new MessageLocation(ref.resource, ref.lineNumber, ref.columnNumber),
+                new MessageLocation(resource, lineNumber, columnNumber),
                 res.mimeType);
           }
           break;
@@ -338,21 +426,21 @@ public class XRefChecker
 						&& !res.hasValidItemFallback)
         {
           report.message(MessageId.CSS_010,
-              new MessageLocation(ref.resource, ref.lineNumber, ref.columnNumber),
+              new MessageLocation(resource, lineNumber, columnNumber),
               res.mimeType);
         }
           break;
       }
     }
     else
-    { //if (ref.fragment == null) {
-      if (ref.fragment.startsWith("epubcfi("))
+    { //if (fragment == null) {
+      if (fragment.startsWith("epubcfi("))
       {
         //Issue 150
         return;
       }
 
-      switch (ref.type)
+      switch (type)
       {
         case RT_HYPERLINK:
           // if mimeType is null, we should have reported an error already
@@ -363,47 +451,47 @@ public class XRefChecker
               && !res.hasValidItemFallback)
           {
             report.message(MessageId.RSC_010,
-                new MessageLocation(ref.resource, ref.lineNumber, ref.columnNumber, ref.refResource + "#" + ref.fragment));
+                new MessageLocation(resource, lineNumber, columnNumber, refResource + "#" + fragment));
           }
           if (!res.inSpine)
           {
             report.message(MessageId.RSC_011,
-                new MessageLocation(ref.resource, ref.lineNumber, ref.columnNumber, ref.refResource + "#" + ref.fragment));
+                new MessageLocation(resource, lineNumber, columnNumber, refResource + "#" + fragment));
           }
           break;
         case RT_IMAGE:
           report.message(MessageId.RSC_009,
-              new MessageLocation(ref.resource, ref.lineNumber, ref.columnNumber, ref.refResource + "#" + ref.fragment));
+              new MessageLocation(resource, lineNumber, columnNumber, refResource + "#" + fragment));
           break;
         case RT_STYLESHEET:
           report.message(MessageId.RSC_013,
-              new MessageLocation(ref.resource, ref.lineNumber, ref.columnNumber, ref.refResource + "#" + ref.fragment));
+              new MessageLocation(resource, lineNumber, columnNumber, refResource + "#" + fragment));
           break;
       }
-      Anchor anchor = res.anchors.get(ref.fragment);
-      if (anchor == null)
+      int anchorType = res.anchors.getType(fragment);
+      if (anchorType < 0)
       {
         report.message(MessageId.RSC_012,
-            new MessageLocation(ref.resource, ref.lineNumber, ref.columnNumber, ref.refResource + "#" + ref.fragment));
+            new MessageLocation(resource, lineNumber, columnNumber, refResource + "#" + fragment));
       }
       else
       {
-        switch (ref.type)
+        switch (type)
         {
           case RT_SVG_PAINT:
           case RT_SVG_CLIP_PATH:
-            if (anchor.type != ref.type)
+            if (anchorType != type)
             {
               report.message(MessageId.RSC_014,
-                  new MessageLocation(ref.resource, ref.lineNumber, ref.columnNumber, ref.refResource + "#" + ref.fragment));
+                  new MessageLocation(resource, lineNumber, columnNumber, refResource + "#" + fragment));
             }
             break;
           case RT_SVG_SYMBOL:
           case RT_HYPERLINK:
-            if (anchor.type != ref.type && anchor.type != RT_GENERIC)
+            if (anchorType != type && anchorType != RT_GENERIC)
             {
               report.message(MessageId.RSC_014,
-                  new MessageLocation(ref.resource, ref.lineNumber, ref.columnNumber, ref.refResource + "#" + ref.fragment));
+                  new MessageLocation(resource, lineNumber, columnNumber, refResource + "#" + fragment));
             }
             break;
         }
@@ -23,6 +23,7 @@
 package com.adobe.epubcheck.ops;
 
 import com.adobe.epubcheck.api.Report;
+import com.adobe.epubcheck.css.CSSChecker;
 import com.adobe.epubcheck.css.CSSCheckerFactory;
 import com.adobe.epubcheck.messages.MessageId;
 import com.adobe.epubcheck.messages.MessageLocation;
@@ -90,6 +91,7 @@ public class OPSHandler implements XMLHandler
   boolean epubTypeInUse = false;
   boolean checkedUnsupportedXMLVersion = false;
   StringBuilder textNode;
+  CSSChecker styleAttributes;
   Stack<ElementLocation> elementLocationStack = new Stack<ElementLocation>();
 
   public OPSHandler(OCFPackage ocf, String path, XRefChecker xrefChecker, XMLParser parser,
@@ -366,10 +368,12 @@ public class OPSHandler implements XMLHandler
         String style = e.getAttribute("style");
         if (style != null && style.length() > 0)
         {
-          CSSCheckerFactory.getInstance().newInstance(
-              ocf, report, style, true, path,
-              currentLocation.getLineNumber(),
-              currentLocation.getColumnNumber(), xrefChecker, version).runChecks();
+          if (styleAttributes == null)
+          {
+            styleAttributes = CSSCheckerFactory.getInstance().newStyleAttributesInstance(
+                ocf, report, path, xrefChecker, version);
+          }
+          styleAttributes.checkStyleAttribute(style, currentLocation.getLineNumber());
         }
       }
     }
@@ -66,17 +66,20 @@ public class OPSHandler30 extends OPSHandler
   };
 
 
-  static HashSet<String> scriptEvents;
+  static volatile HashSet<String> scriptEvents;
 
   public static HashSet<String> getScriptEvents()
   {
-    if (scriptEvents == null)
+    HashSet<String> events = scriptEvents;
+    if (events == null)
     {
-      scriptEvents = new HashSet<String>();
-      Collections.addAll(scriptEvents, scriptEventsStrings);
-      Collections.addAll(scriptEvents, mouseEventsStrings);
+      // filled before it is published, as other threads may read it
+      events = new HashSet<String>();
+      Collections.addAll(events, scriptEventsStrings);
+      Collections.addAll(events, mouseEventsStrings);
+      scriptEvents = events;
     }
-    return scriptEvents;
+    return events;
   }
 
   static final String[] mouseEventsStrings =
@@ -98,16 +101,18 @@ public class OPSHandler30 extends OPSHandler
           "onmousewheel",
           "onscroll"
       };
-  static HashSet<String> mouseEvents;
+  static volatile HashSet<String> mouseEvents;
 
   public static HashSet<String> getMouseEvents()
   {
-    if (mouseEvents == null)
+    HashSet<String> events = mouseEvents;
+    if (events == null)
     {
-      mouseEvents = new HashSet<String>();
-      Collections.addAll(mouseEvents, mouseEventsStrings);
+      events = new HashSet<String>();
+      Collections.addAll(events, mouseEventsStrings);
+      mouseEvents = events;
     }
-    return mouseEvents;
+    return events;
   }
 
 
@@ -385,7 +390,7 @@ public class OPSHandler30 extends OPSHandler
       return;
     }
 
-		if (src.matches("^[^:/?#]+://.*"))
+		if (PathUtil.isRemote(src))
     {
       propertiesSet.add("remote-resources");
     }
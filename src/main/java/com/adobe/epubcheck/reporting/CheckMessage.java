@@ -1,18 +1,33 @@
 package com.adobe.epubcheck.reporting;
 
 import com.adobe.epubcheck.messages.Message;
+import com.adobe.epubcheck.messages.MessageId;
 import com.adobe.epubcheck.messages.MessageLocation;
 import com.adobe.epubcheck.messages.Severity;
 import org.codehaus.jackson.annotate.JsonProperty;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Formattable;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @SuppressWarnings("FieldCanBeLocal")
 public class CheckMessage implements Comparable<CheckMessage>
 {
   private static final int MAX_LOCATIONS = 25;
+  private static final Pattern FORMAT_SPECIFIER = Pattern.compile("%(\\d+\\$)?([-#+ 0,(<]*)(\\d+)?(\\.\\d+)?([a-zA-Z%])");
+  // marks the templates whose text can't be predicted from the arguments alone
+  private static final int[] NOT_SIMPLE = new int[0];
+  private static final Map<String, int[]> templateArguments = new ConcurrentHashMap<String, int[]>();
   @JsonProperty
   private final String ID;
   @JsonProperty
@@ -25,22 +40,57 @@ public class CheckMessage implements Comparable<CheckMessage>
   private final List<MessageLocation> locations = new ArrayList<MessageLocation>();
   @JsonProperty
   private final String suggestion;
+  private final Set<MessageLocation> locationSet = new HashSet<MessageLocation>();
+  private Message template;
+  private Object[] args;
 
-  private CheckMessage(Message message, MessageLocation location, Object... args)
+  private CheckMessage(Message message, String text, MessageLocation location, Object... args)
   {
     this.ID = message.getID().toString();
-    this.message = message.getMessage(args);
+    this.message = text;
+    if (text == null)
+    {
+      // the text is formatted when the report is generated
+      this.template = message;
+      this.args = args;
+    }
     this.locations.add(location);
+    this.locationSet.add(location);
     this.severity = message.getSeverity();
     this.suggestion = ("".equals(message.getSuggestion())) ? null : message.getSuggestion();
   }
 
-  public static CheckMessage addCheckMessage(List<CheckMessage> checkMessages, Message message, MessageLocation location, Object... args)
+  /**
+   * Adds a message to a list of messages, merging it with a message of the
+   * list that has the same ID and the same text.
+   *
+   * @param checkMessages the messages, in the order they were first reported
+   * @param index         the index of the messages of the list, keyed by their
+   *                      ID and arguments
+   */
+  public static CheckMessage addCheckMessage(List<CheckMessage> checkMessages, Map<Object, CheckMessage> index, Message message, MessageLocation location, Object... args)
   {
-    CheckMessage result = findCheckMessage(checkMessages, message.getID().toString(), message.getMessage(args));
+    String template = message.getMessage();
+    int[] used = getTemplateArguments(template);
+    String[] parts = used == NOT_SIMPLE ? null : getArgumentStrings(used, args);
+    Object key;
+    String text = null;
+    if (parts != null)
+    {
+      // messages with the same arguments have the same text
+      key = new Key(message.getID(), template, false, parts);
+    }
+    else
+    {
+      text = message.getMessage(args);
+      key = new Key(message.getID(), template, true, new String[]{text});
+    }
+
+    CheckMessage result = index.get(key);
     if (result == null)
     {
-      result = new CheckMessage(message, location, args);
+      result = new CheckMessage(message, text, location, args);
+      index.put(key, result);
       checkMessages.add(result);
     }
     else
@@ -50,58 +100,159 @@ public class CheckMessage implements Comparable<CheckMessage>
     return result;
   }
 
-  void addLocation(MessageLocation location)
+  /**
+   * @return the indexes of the arguments used by a message template, in
+   *         increasing order, or NOT_SIMPLE if the template uses arguments
+   *         in other ways than as plain strings
+   */
+  private static int[] getTemplateArguments(String template)
   {
-    if (this.findLocation(location) == null)
+    int[] result = templateArguments.get(template);
+    if (result == null)
     {
-      if (this.locations.size() == CheckMessage.MAX_LOCATIONS)
+      result = parseTemplateArguments(template);
+      templateArguments.put(template, result);
+    }
+    return result;
+  }
+
+  private static int[] parseTemplateArguments(String template)
+  {
+    SortedSet<Integer> used = new TreeSet<Integer>();
+    int ordinaryIndex = 0;
+    Matcher matcher = FORMAT_SPECIFIER.matcher(template);
+    while (matcher.find())
+    {
+      char conversion = matcher.group(5).charAt(0);
+      if (conversion == '%' || conversion == 'n')
       {
-        ++additionalLocations;
-        this.locations.add(new MessageLocation("There is 1 additional location for this message.", -1, -1));
+        continue;
       }
-      else if (this.locations.size() < CheckMessage.MAX_LOCATIONS)
+      if ((conversion != 's' && conversion != 'S') || matcher.group(2).length() > 0
+          || matcher.group(3) != null || matcher.group(4) != null)
       {
-        this.locations.add(location);
+        return NOT_SIMPLE;
       }
-      else
+      used.add(matcher.group(1) != null
+          ? Integer.parseInt(matcher.group(1).substring(0, matcher.group(1).length() - 1)) - 1
+          : ordinaryIndex++);
+    }
+    int[] result = new int[used.size()];
+    int i = 0;
+    for (Integer index : used)
+    {
+      if (index < 0)
       {
-        ++additionalLocations;
-        MessageLocation infoLocation = this.locations.get(this.locations.size() - 1);
-        infoLocation.setFileName(String.format("There are %1$s additional locations for this message.", additionalLocations));
+        return NOT_SIMPLE;
       }
+      result[i++] = index;
     }
+    return result;
   }
 
-  private static CheckMessage findCheckMessage(List<CheckMessage> checkMessages, String id, String text)
+  /**
+   * @return the string values of the arguments used by a template, or null if
+   *         they don't predict the text of the message
+   */
+  private static String[] getArgumentStrings(int[] used, Object[] args)
   {
-    for (CheckMessage message : checkMessages)
+    if (args == null || used.length > 0 && used[used.length - 1] >= args.length)
+    {
+      return null;
+    }
+    String[] result = new String[used.length];
+    for (int i = 0; i < used.length; i++)
     {
-      if (message.ID.equals(id))
+      Object arg = args[used[i]];
+      if (arg instanceof Formattable)
       {
-        if (message.message.equals(text))
-        {
-          return message;
-        }
+        return null;
       }
+      result[i] = String.valueOf(arg);
     }
-    return null;
+    return result;
   }
 
-  public Severity getSeverity()
+  /**
+   * The aggregation key of a message: its ID and template, and either the
+   * arguments used by the template or the formatted text.
+   */
+  private static final class Key
   {
-    return this.severity;
+    private final MessageId id;
+    private final String template;
+    private final boolean formatted;
+    private final String[] parts;
+    private final int hash;
+
+    Key(MessageId id, String template, boolean formatted, String[] parts)
+    {
+      this.id = id;
+      this.template = template;
+      this.formatted = formatted;
+      this.parts = parts;
+      this.hash = 31 * (31 * id.hashCode() + template.hashCode()) + Arrays.hashCode(parts);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+      if (!(obj instanceof Key))
+      {
+        return false;
+      }
+      Key other = (Key) obj;
+      return hash == other.hash && formatted == other.formatted && id == other.id
+          && template.equals(other.template) && Arrays.equals(parts, other.parts);
+    }
+  }
+
+  /**
+   * @return the text of the message, formatted on first use
+   */
+  String getMessage()
+  {
+    if (message == null && template != null)
+    {
+      message = template.getMessage(args);
+      template = null;
+      args = null;
+    }
+    return message;
   }
 
-  private MessageLocation findLocation(MessageLocation location)
+  void addLocation(MessageLocation location)
   {
-    for (MessageLocation l : this.locations)
+    if (!this.locationSet.contains(location))
     {
-      if (l.equals(location))
+      if (this.locations.size() == CheckMessage.MAX_LOCATIONS)
       {
-        return l;
+        ++additionalLocations;
+        this.locations.add(new MessageLocation("There is 1 additional location for this message.", -1, -1));
+      }
+      else if (this.locations.size() < CheckMessage.MAX_LOCATIONS)
+      {
+        this.locations.add(location);
+        this.locationSet.add(location);
+      }
+      else
+      {
+        ++additionalLocations;
+        MessageLocation infoLocation = this.locations.get(this.locations.size() - 1);
+        infoLocation.setFileName(String.format("There are %1$s additional locations for this message.", additionalLocations));
       }
     }
-    return null;
+  }
+
+  public Severity getSeverity()
+  {
+    return this.severity;
   }
 
   public String toString()
@@ -121,7 +272,7 @@ public class CheckMessage implements Comparable<CheckMessage>
       text += "LINE NUMBER: " + location.getLine() + lineSeparator;
     }
     text += "COLUMN NUMBER: " + location.getColumn() + lineSeparator;
-    text += "DESCRIPTION (long): " + this.message + lineSeparator;
+    text += "DESCRIPTION (long): " + this.getMessage() + lineSeparator;
     text += "=========================================================================================================================="
         + lineSeparator;
 
@@ -151,7 +302,7 @@ public class CheckMessage implements Comparable<CheckMessage>
       return comp < 0 ? -1 : 1;
     }
 
-    comp = safeCompare(message, o.message);
+    comp = safeCompare(getMessage(), o.getMessage());
     if (comp != 0)
     {
       return comp;
@@ -178,6 +329,11 @@ public class CheckMessage implements Comparable<CheckMessage>
     return 0;
   }
 
+  List<MessageLocation> getLocations()
+  {
+    return locations;
+  }
+
   public void sortLocations()
   {
     Collections.sort(locations);
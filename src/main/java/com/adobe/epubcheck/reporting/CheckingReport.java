@@ -13,6 +13,7 @@ import org.codehaus.jackson.annotate.JsonProperty;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
 
 public class CheckingReport extends MasterReport
@@ -31,6 +32,8 @@ public class CheckingReport extends MasterReport
   @JsonProperty
   final List<CheckMessage> messages = new ArrayList<CheckMessage>();
 
+  final Map<Object, CheckMessage> messageIndex = new HashMap<Object, CheckMessage>();
+
   final String outputFile;
 
   public CheckingReport(String epubPath, String outFile)
@@ -105,6 +108,18 @@ public class CheckingReport extends MasterReport
     return 0;
   }
 
+  /**
+   * Writes the JSON report to the given stream rather than to the output file.
+   * The stream is left open.
+   */
+  public void generate(OutputStream out) throws
+      IOException
+  {
+    this.setStopDate();
+    this.setParameters();
+    writeJsonReport(out);
+  }
+
   public void initialize()
   {
     this.setStartDate();
@@ -113,13 +128,11 @@ public class CheckingReport extends MasterReport
   void getJsonReport(String path) throws
       IOException
   {
-    sortCollections();
     FileOutputStream out = null;
     try
     {
       out = new FileOutputStream(path);
-      JsonWriter jw = JsonWriter.createJsonWriter(true);
-      jw.writeJson(this, out);
+      writeJsonReport(out);
     }
     finally
     {
@@ -130,9 +143,22 @@ public class CheckingReport extends MasterReport
     }
   }
 
+  void writeJsonReport(OutputStream out) throws
+      IOException
+  {
+    sortCollections();
+    JsonWriter jw = JsonWriter.createJsonWriter(true);
+    jw.writeJson(this, out);
+  }
+
   void sortCollections()
   {
     Collections.sort(getItems());
+    for (CheckMessage m : messages)
+    {
+      // the texts are only formatted now that the report is generated
+      m.getMessage();
+    }
     Collections.sort(messages);
     for (CheckMessage m : messages)
     {
@@ -156,13 +182,13 @@ public class CheckingReport extends MasterReport
   }
 
   @Override
-  public void message(Message message, MessageLocation location, Object... args)
+  public synchronized void message(Message message, MessageLocation location, Object... args)
   {
-    CheckMessage.addCheckMessage(messages, message, location, args);
+    CheckMessage.addCheckMessage(messages, messageIndex, message, location, args);
   }
 
   @Override
-  public void info(String resource, FeatureEnum feature, String value)
+  public synchronized void info(String resource, FeatureEnum feature, String value)
   {
     this.publication.handleInfo(resource, feature, value);
     if (resource != null && !resource.equals(""))
@@ -0,0 +1,168 @@
+package com.adobe.epubcheck.reporting;
+
+import com.adobe.epubcheck.api.EpubCheck;
+import com.adobe.epubcheck.api.MasterReport;
+import com.adobe.epubcheck.api.ValidationContext;
+import com.adobe.epubcheck.messages.Message;
+import com.adobe.epubcheck.messages.MessageLocation;
+import com.adobe.epubcheck.util.FeatureEnum;
+import com.adobe.epubcheck.util.PathUtil;
+import com.adobe.epubcheck.util.outWriter;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.util.MinimalPrettyPrinter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * A JSON report written as newline-delimited JSON: each message is written on
+ * its own line as soon as it is reported, and a last line holds the checker
+ * summary. Messages are neither kept nor merged, so the memory used doesn't
+ * depend on the number of messages.
+ */
+public class NdjsonReport extends MasterReport
+{
+  private static final JsonFactory factory = new JsonFactory();
+
+  private final File outputFile;
+  private OutputStream out;
+  private JsonGenerator generator;
+  private IOException writeError;
+
+  private Date startDate;
+
+  public NdjsonReport(String epubPath, File outputFile)
+  {
+    this.outputFile = outputFile;
+    this.setEpubFileName(epubPath);
+  }
+
+  /**
+   * Writes the report to the given stream rather than to a file. The stream is
+   * left open.
+   */
+  public NdjsonReport(String epubPath, OutputStream out)
+  {
+    this.outputFile = null;
+    this.out = out;
+    this.setEpubFileName(epubPath);
+  }
+
+  public void initialize()
+  {
+    this.startDate = new Date();
+  }
+
+  @Override
+  public boolean isFeatureReported(FeatureEnum feature)
+  {
+    return false;
+  }
+
+  @Override
+  public synchronized void message(Message message, MessageLocation location, Object... args)
+  {
+    if (writeError != null)
+    {
+      return;
+    }
+    try
+    {
+      JsonGenerator json = getGenerator();
+      json.writeStartObject();
+      json.writeStringField("ID", message.getID().toString());
+      json.writeStringField("severity", message.getSeverity().toString());
+      json.writeStringField("message", message.getMessage(args));
+      json.writeStringField("fileName", PathUtil.removeWorkingDirectory(location.getFileName()));
+      json.writeNumberField("line", location.getLine());
+      json.writeNumberField("column", location.getColumn());
+      if (location.getContext() != null)
+      {
+        json.writeStringField("context", location.getContext());
+      }
+      if (message.getSuggestion() != null && !message.getSuggestion().equals(""))
+      {
+        json.writeStringField("suggestion", message.getSuggestion());
+      }
+      json.writeEndObject();
+      json.writeRaw('\n');
+      json.flush();
+    }
+    catch (IOException e)
+    {
+      writeError = e;
+    }
+  }
+
+  @Override
+  public void info(String resource, FeatureEnum feature, String value)
+  {
+  }
+
+  public int generate()
+  {
+    try
+    {
+      if (writeError != null)
+      {
+        throw writeError;
+      }
+      long elapsedTime = startDate == null ? -1 : new Date().getTime() - startDate.getTime();
+      JsonGenerator json = getGenerator();
+      json.writeStartObject();
+      json.writeObjectFieldStart("checker");
+      File epubFile = new File(this.getEpubFileName());
+      json.writeStringField("path", PathUtil.removeWorkingDirectory(epubFile.getAbsolutePath()));
+      json.writeStringField("filename", epubFile.getName());
+      json.writeStringField("checkerVersion", EpubCheck.version());
+      if (startDate != null)
+      {
+        json.writeStringField("checkDate", new SimpleDateFormat("MM-dd-yyyy HH:mm:ss").format(startDate));
+      }
+      json.writeNumberField("elapsedTime", elapsedTime);
+      ValidationContext context = getContext();
+      json.writeNumberField("nFatal", context.getFatalErrorCount());
+      json.writeNumberField("nError", context.getErrorCount());
+      json.writeNumberField("nWarning", context.getWarningCount());
+      json.writeNumberField("nUsage", context.getUsageCount());
+      json.writeEndObject();
+      json.writeEndObject();
+      json.writeRaw('\n');
+      json.close();
+      if (outputFile != null)
+      {
+        out.close();
+      }
+    }
+    catch (IOException e)
+    {
+      outWriter.println("Incorrect path to save NDJSON file.");
+      return 1;
+    }
+    return 0;
+  }
+
+  private JsonGenerator getGenerator() throws
+      IOException
+  {
+    if (generator == null)
+    {
+      if (out == null)
+      {
+        out = new FileOutputStream(outputFile);
+      }
+      generator = factory.createJsonGenerator(out, JsonEncoding.UTF8);
+      generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+      generator.configure(JsonGenerator.Feature.ESCAPE_NON_ASCII, true);
+      // each value ends its own line
+      generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+    }
+    return generator;
+  }
+}
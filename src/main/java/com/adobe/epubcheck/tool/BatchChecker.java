@@ -0,0 +1,507 @@
+package com.adobe.epubcheck.tool;
+
+import com.adobe.epubcheck.api.EpubCheck;
+import com.adobe.epubcheck.api.Report;
+import com.adobe.epubcheck.css.CSSContentCache;
+import com.adobe.epubcheck.reporting.CheckingReport;
+import com.adobe.epubcheck.reporting.NdjsonReport;
+import com.adobe.epubcheck.util.DefaultReportImpl;
+import com.adobe.epubcheck.util.FeatureEnum;
+import com.adobe.epubcheck.util.Messages;
+import com.adobe.epubcheck.util.ReportingLevel;
+import com.adobe.epubcheck.util.XmlReportImpl;
+import com.adobe.epubcheck.util.outWriter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * Validates a whole set of EPUB files in the same JVM, so that startup, class
+ * loading and schema compilation are paid once for all of them.
+ * <p/>
+ * The set of files is given either as a directory (searched recursively for
+ * <code>.epub</code> files), as a glob pattern (<code>*</code>, <code>?</code>
+ * and <code>**</code> are supported), or as a text file listing one path per
+ * line. Each publication gets its own report and the result codes of all the
+ * publications are combined, using the same bit flags as
+ * {@link EpubCheck#doValidate()}.
+ */
+public class BatchChecker
+{
+  public enum OutputType
+  {
+    TEXT, XML, JSON, NDJSON
+  }
+
+  private final List<File> epubFiles;
+  private int jobs = Runtime.getRuntime().availableProcessors();
+  private int contentThreads = 1;
+  private CSSContentCache cssCache;
+  private int reportingLevel = ReportingLevel.Info;
+  private File customMessageFile;
+  private OutputType outputType = OutputType.TEXT;
+  private File outputDir;
+
+  public BatchChecker(List<File> epubFiles)
+  {
+    this.epubFiles = epubFiles;
+  }
+
+  /**
+   * Sets the number of publications validated at the same time.
+   */
+  public void setJobs(int jobs)
+  {
+    this.jobs = Math.max(1, jobs);
+  }
+
+  public void setContentThreads(int contentThreads)
+  {
+    this.contentThreads = contentThreads;
+  }
+
+  /**
+   * @param cssCache the style sheets shared by the validations, or null
+   */
+  public void setCssCache(CSSContentCache cssCache)
+  {
+    this.cssCache = cssCache;
+  }
+
+  public void setReportingLevel(int reportingLevel)
+  {
+    this.reportingLevel = reportingLevel;
+  }
+
+  public void setCustomMessageFile(File customMessageFile)
+  {
+    this.customMessageFile = customMessageFile;
+  }
+
+  /**
+   * @param outputType the kind of report written for each publication
+   * @param outputDir  the directory XML or JSON reports are written to; if
+   *                   null, each report is written next to its publication
+   */
+  public void setOutput(OutputType outputType, File outputDir)
+  {
+    this.outputType = outputType;
+    this.outputDir = outputDir;
+  }
+
+  /**
+   * Validates all the publications and prints a summary.
+   *
+   * @return the result codes of all the publications, or-ed together
+   */
+  public int run()
+  {
+    if (outputDir != null && !outputDir.isDirectory() && !outputDir.mkdirs())
+    {
+      System.err.println(String.format(Messages.get("batch_output_dir_error"), outputDir.getPath()));
+      return 4;
+    }
+
+    List<File> reportFiles = getReportFiles();
+    int[] results = new int[epubFiles.size()];
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(jobs, epubFiles.size())));
+    try
+    {
+      List<Future<Integer>> futures = new ArrayList<Future<Integer>>(epubFiles.size());
+      for (int i = 0; i < epubFiles.size(); i++)
+      {
+        final File epubFile = epubFiles.get(i);
+        final File reportFile = reportFiles.get(i);
+        futures.add(executor.submit(new Callable<Integer>()
+        {
+          public Integer call() throws
+              Exception
+          {
+            return validate(epubFile, reportFile);
+          }
+        }));
+      }
+      for (int i = 0; i < futures.size(); i++)
+      {
+        try
+        {
+          results[i] = futures.get(i).get();
+        }
+        catch (ExecutionException e)
+        {
+          System.err.println(String.format(Messages.get("batch_book_failed"), epubFiles.get(i).getPath(), e.getCause()));
+          results[i] = 4;
+        }
+      }
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      return 4;
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+
+    return summarize(results);
+  }
+
+  int validate(File epubFile, File reportFile)
+  {
+    Report report = createReport(epubFile, reportFile);
+    report.initialize();
+    // the text reports of publications validated at the same time would
+    // otherwise interleave their lines
+    boolean held = report instanceof DefaultReportImpl && jobs > 1 && epubFiles.size() > 1;
+    if (held)
+    {
+      ((DefaultReportImpl) report).holdLines();
+    }
+    report.info(null, FeatureEnum.TOOL_NAME, "epubcheck");
+    report.info(null, FeatureEnum.TOOL_VERSION, EpubCheck.version());
+
+    int result;
+    try
+    {
+      EpubCheck check = new EpubCheck(epubFile, report);
+      check.setContentThreads(contentThreads);
+      check.setCssCache(cssCache);
+      result = check.doValidate();
+    }
+    finally
+    {
+      report.close();
+      if (held)
+      {
+        synchronized (this)
+        {
+          ((DefaultReportImpl) report).printHeldLines();
+        }
+      }
+    }
+    if (report.generate() != 0)
+    {
+      result |= 4;
+    }
+    return result;
+  }
+
+  private Report createReport(File epubFile, File reportFile)
+  {
+    Report report;
+    switch (outputType)
+    {
+      case JSON:
+        report = new CheckingReport(epubFile.getPath(), reportFile.getPath());
+        break;
+      case XML:
+        report = new XmlReportImpl(reportFile, epubFile.getPath(), EpubCheck.version());
+        break;
+      case NDJSON:
+        report = new NdjsonReport(epubFile.getPath(), reportFile);
+        break;
+      default:
+        report = new DefaultReportImpl(epubFile.getPath());
+        break;
+    }
+    report.setReportingLevel(reportingLevel);
+    if (customMessageFile != null)
+    {
+      report.setOverrideFile(customMessageFile);
+      report.setCustomMessageFile(customMessageFile.getAbsolutePath());
+    }
+    return report;
+  }
+
+  /**
+   * Reports are named after the publication; publications with the same name
+   * in different directories get a numbered suffix so they don't overwrite
+   * each other.
+   */
+  private List<File> getReportFiles()
+  {
+    List<File> reportFiles = new ArrayList<File>(epubFiles.size());
+    if (outputType == OutputType.TEXT)
+    {
+      for (int i = 0; i < epubFiles.size(); i++)
+      {
+        reportFiles.add(null);
+      }
+      return reportFiles;
+    }
+
+    String suffix;
+    switch (outputType)
+    {
+      case JSON:
+        suffix = "check.json";
+        break;
+      case NDJSON:
+        suffix = "check.ndjson";
+        break;
+      default:
+        suffix = "check.xml";
+        break;
+    }
+    // lorem.epub is reported in lorem.epubcheck.json, the next lorem.epub in
+    // lorem-2.epubcheck.json, or lorem-3.epubcheck.json if there is also a
+    // lorem-2.epub
+    Set<String> names = new HashSet<String>();
+    for (File epubFile : epubFiles)
+    {
+      if (outputDir != null)
+      {
+        names.add(epubFile.getName());
+      }
+    }
+    Set<String> assigned = new HashSet<String>();
+    for (File epubFile : epubFiles)
+    {
+      if (outputDir == null)
+      {
+        reportFiles.add(new File(epubFile.getPath() + suffix));
+        continue;
+      }
+      String name = epubFile.getName();
+      if (!assigned.add(name))
+      {
+        int dot = name.lastIndexOf('.');
+        String unique;
+        int count = 2;
+        do
+        {
+          unique = dot > 0
+              ? name.substring(0, dot) + "-" + count + name.substring(dot)
+              : name + "-" + count;
+          count++;
+        }
+        while (names.contains(unique) || !assigned.add(unique));
+        name = unique;
+      }
+      reportFiles.add(new File(outputDir, name + suffix));
+    }
+    return reportFiles;
+  }
+
+  private int summarize(int[] results)
+  {
+    int combined = 0;
+    int valid = 0, warnings = 0, errors = 0, fatal = 0;
+    List<String> lines = new ArrayList<String>();
+    for (int i = 0; i < results.length; i++)
+    {
+      int result = results[i];
+      combined |= result;
+      String status;
+      if ((result & 4) != 0)
+      {
+        fatal++;
+        status = "FATAL";
+      }
+      else if ((result & 2) != 0)
+      {
+        errors++;
+        status = "ERROR";
+      }
+      else if ((result & 1) != 0)
+      {
+        warnings++;
+        status = "WARNING";
+      }
+      else
+      {
+        valid++;
+        status = "OK";
+      }
+      lines.add(status + ": " + epubFiles.get(i).getPath());
+    }
+    lines.add(String.format(Messages.get("batch_summary"), results.length, valid, warnings, errors, fatal));
+
+    for (String line : lines)
+    {
+      outWriter.println(line);
+    }
+    if (outputDir != null)
+    {
+      writeSummary(new File(outputDir, "summary.txt"), lines);
+    }
+    return combined;
+  }
+
+  private void writeSummary(File summaryFile, List<String> lines)
+  {
+    PrintWriter out = null;
+    try
+    {
+      out = new PrintWriter(summaryFile, "UTF-8");
+      for (String line : lines)
+      {
+        out.println(line);
+      }
+    }
+    catch (IOException e)
+    {
+      System.err.println(String.format(Messages.get("batch_output_dir_error"), summaryFile.getPath()));
+    }
+    finally
+    {
+      if (out != null)
+      {
+        out.close();
+      }
+    }
+  }
+
+  /**
+   * Lists the publications designated by a directory, a glob pattern or a
+   * file listing one path per line (empty lines and lines starting with '#'
+   * are ignored).
+   */
+  public static List<File> findEpubFiles(String source) throws
+      IOException
+  {
+    List<File> files = new ArrayList<File>();
+    File sourceFile = new File(source);
+    if (sourceFile.isDirectory())
+    {
+      collectEpubFiles(sourceFile, null, "", files);
+    }
+    else if (sourceFile.isFile())
+    {
+      if (isEpubFile(sourceFile))
+      {
+        files.add(sourceFile);
+      }
+      else
+      {
+        readFileList(sourceFile, files);
+      }
+    }
+    else if (source.indexOf('*') >= 0 || source.indexOf('?') >= 0)
+    {
+      String normalized = source.replace('\\', '/');
+      int wildcard = Math.min(indexOfOrLength(normalized, '*'), indexOfOrLength(normalized, '?'));
+      int slash = normalized.lastIndexOf('/', wildcard);
+      File baseDir = new File(slash < 0 ? "." : (slash == 0 ? "/" : normalized.substring(0, slash)));
+      Pattern pattern = globToPattern(normalized.substring(slash + 1));
+      if (baseDir.isDirectory())
+      {
+        collectEpubFiles(baseDir, pattern, "", files);
+      }
+    }
+    return files;
+  }
+
+  private static void collectEpubFiles(File dir, Pattern pattern, String relativePath, List<File> files)
+  {
+    File[] children = dir.listFiles();
+    if (children == null)
+    {
+      return;
+    }
+    Arrays.sort(children);
+    for (File child : children)
+    {
+      String childPath = relativePath + child.getName();
+      if (child.isDirectory())
+      {
+        collectEpubFiles(child, pattern, childPath + "/", files);
+      }
+      else if (pattern == null ? isEpubFile(child) : pattern.matcher(childPath).matches())
+      {
+        files.add(child);
+      }
+    }
+  }
+
+  private static void readFileList(File listFile, List<File> files) throws
+      IOException
+  {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(listFile), "UTF-8"));
+    try
+    {
+      String line;
+      while ((line = reader.readLine()) != null)
+      {
+        line = line.trim();
+        if (line.length() > 0 && !line.startsWith("#"))
+        {
+          files.add(new File(line));
+        }
+      }
+    }
+    finally
+    {
+      reader.close();
+    }
+  }
+
+  private static boolean isEpubFile(File file)
+  {
+    return file.getName().toLowerCase().endsWith(".epub");
+  }
+
+  private static int indexOfOrLength(String s, char c)
+  {
+    int index = s.indexOf(c);
+    return index < 0 ? s.length() : index;
+  }
+
+  /**
+   * Converts a glob to a regular expression matched against paths relative to
+   * the base directory: '**' matches across directories, '*' and '?' don't.
+   */
+  static Pattern globToPattern(String glob)
+  {
+    StringBuilder regex = new StringBuilder();
+    for (int i = 0; i < glob.length(); i++)
+    {
+      char c = glob.charAt(i);
+      if (c == '*')
+      {
+        if (i + 1 < glob.length() && glob.charAt(i + 1) == '*')
+        {
+          i++;
+          if (i + 1 < glob.length() && glob.charAt(i + 1) == '/')
+          {
+            i++;
+            regex.append("(?:.*/)?");
+          }
+          else
+          {
+            regex.append(".*");
+          }
+        }
+        else
+        {
+          regex.append("[^/]*");
+        }
+      }
+      else if (c == '?')
+      {
+        regex.append("[^/]");
+      }
+      else
+      {
+        regex.append(Pattern.quote(String.valueOf(c)));
+      }
+    }
+    return Pattern.compile(regex.toString());
+  }
+}
@@ -26,6 +26,7 @@ package com.adobe.epubcheck.tool;
 import com.adobe.epubcheck.api.EpubCheck;
 import com.adobe.epubcheck.api.EpubCheckFactory;
 import com.adobe.epubcheck.api.Report;
+import com.adobe.epubcheck.css.CSSContentCache;
 import com.adobe.epubcheck.nav.NavCheckerFactory;
 import com.adobe.epubcheck.opf.DocumentValidator;
 import com.adobe.epubcheck.opf.DocumentValidatorFactory;
@@ -33,6 +34,7 @@ import com.adobe.epubcheck.opf.OPFCheckerFactory;
 import com.adobe.epubcheck.ops.OPSCheckerFactory;
 import com.adobe.epubcheck.overlay.OverlayCheckerFactory;
 import com.adobe.epubcheck.reporting.CheckingReport;
+import com.adobe.epubcheck.reporting.NdjsonReport;
 import com.adobe.epubcheck.util.*;
 
 import java.io.File;
@@ -40,6 +42,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class EpubChecker
@@ -52,12 +55,23 @@ public class EpubChecker
   boolean keep = false;
   boolean jsonOutput = false;
   boolean xmlOutput = false;
+  boolean ndjsonOutput = false;
   File fileOut;
   File listChecksOut;
   File customMessageFile;
   boolean listChecks = false;
   boolean useCustomMessageFile = false;
   boolean failOnWarnings = false;
+  int contentThreads = 1;
+  int archiveThreads = Runtime.getRuntime().availableProcessors();
+  CSSContentCache cssCache = null;
+  boolean batch = false;
+  int batchJobs = Runtime.getRuntime().availableProcessors();
+  boolean outputNamed = false;
+  int serverPort = -1;
+  int serverQueue = 16;
+  int serverTimeout = 300;
+  long serverMaxUpload = ValidationServer.DEFAULT_MAX_UPLOAD_SIZE;
 
   int reportingLevel = ReportingLevel.Info;
 
@@ -138,6 +152,8 @@ public class EpubChecker
         version);
     if (check.getClass() == EpubCheck.class)
     {
+      ((EpubCheck)check).setContentThreads(contentThreads);
+      ((EpubCheck)check).setCssCache(cssCache);
       int validationResult = ((EpubCheck)check).doValidate();
       if (validationResult == 0)
       {
@@ -222,6 +238,14 @@ public class EpubChecker
     {
       if (processArguments(args))
       {
+        if (serverPort >= 0)
+        {
+          return returnValue = processServer();
+        }
+        if (batch && !listChecks)
+        {
+          return returnValue = processBatch();
+        }
         Report report = createReport();
         report.initialize();
         if (listChecks)
@@ -253,6 +277,72 @@ public class EpubChecker
     return returnValue;
   }
 
+  /**
+   * Validates all the publications designated by the path (a directory, a
+   * glob pattern or a file listing the paths) in this JVM.
+   *
+   * @return the validation results of all the publications, or-ed together
+   */
+  private int processBatch() throws
+      IOException
+  {
+    List<File> epubFiles = BatchChecker.findEpubFiles(path);
+    if (epubFiles.isEmpty())
+    {
+      System.err.println(String.format(Messages.get("batch_no_files"), path));
+      return 1;
+    }
+
+    BatchChecker checker = new BatchChecker(epubFiles);
+    checker.setJobs(batchJobs);
+    checker.setContentThreads(contentThreads);
+    checker.setCssCache(cssCache);
+    checker.setReportingLevel(reportingLevel);
+    if (useCustomMessageFile)
+    {
+      checker.setCustomMessageFile(customMessageFile);
+    }
+    if (jsonOutput)
+    {
+      checker.setOutput(BatchChecker.OutputType.JSON, outputNamed ? fileOut : null);
+    }
+    else if (xmlOutput)
+    {
+      checker.setOutput(BatchChecker.OutputType.XML, outputNamed ? fileOut : null);
+    }
+    else if (ndjsonOutput)
+    {
+      checker.setOutput(BatchChecker.OutputType.NDJSON, outputNamed ? fileOut : null);
+    }
+    return checker.run();
+  }
+
+  /**
+   * Runs the validation server until the process is stopped.
+   */
+  private int processServer() throws
+      IOException,
+      InterruptedException
+  {
+    final ValidationServer server = new ValidationServer(serverPort, batchJobs, serverQueue, serverTimeout * 1000L);
+    server.setMaxUploadSize(serverMaxUpload);
+    if (useCustomMessageFile)
+    {
+      server.setCustomMessageFile(customMessageFile);
+    }
+    server.start();
+    Runtime.getRuntime().addShutdownHook(new Thread()
+    {
+      @Override
+      public void run()
+      {
+        server.stop();
+      }
+    });
+    Thread.currentThread().join();
+    return 0;
+  }
+
   private void dumpMessageDictionary(Report report) throws
       IOException
   {
@@ -308,6 +398,10 @@ public class EpubChecker
     {
       report = new XmlReportImpl(fileOut, path, EpubCheck.version());
     }
+    else if (ndjsonOutput)
+    {
+      report = new NdjsonReport(path, fileOut);
+    }
     else
     {
       report = new DefaultReportImpl(path);
@@ -416,9 +510,25 @@ public class EpubChecker
           return 1;
         }
 
-        epub.createArchive();
+        // the directory is only packed when the EPUB is kept
+        if (keep)
+        {
+          epub.setThreads(archiveThreads);
+          try
+          {
+            epub.createArchive();
+          }
+          catch (RuntimeException ex)
+          {
+            System.err.println(ex.getMessage());
+            System.err.println(Messages.get("there_were_errors"));
+            return 1;
+          }
+        }
         report.setEpubFileName(epub.getEpubFile().getAbsolutePath());
-        EpubCheck check = new EpubCheck(epub.getEpubFile(), report);
+        EpubCheck check = new EpubCheck(keep ? epub.getEpubFile() : epub.getBaseDir(), report);
+        check.setContentThreads(contentThreads);
+        check.setCssCache(cssCache);
         int validationResult = check.doValidate();
         if (validationResult == 0)
         {
@@ -445,10 +555,6 @@ public class EpubChecker
             epub.deleteEpubFile();
           }
         }
-        else
-        {
-          epub.deleteEpubFile();
-        }
       }
       else
       {
@@ -535,6 +641,144 @@ public class EpubChecker
           throw new RuntimeException(Messages.get("mode_argument_expected"));
         }
       }
+      else if (args[i].equals("--threads") || args[i].equals("-threads") || args[i].equals("-t"))
+      {
+        int threads = 0;
+        if (i + 1 < args.length)
+        {
+          try
+          {
+            threads = Integer.parseInt(args[++i]);
+          }
+          catch (NumberFormatException ignored)
+          {
+          }
+        }
+        if (threads < 1)
+        {
+          outWriter.println(Messages.get("display_help"));
+          throw new RuntimeException(Messages.get("threads_argument_expected"));
+        }
+        contentThreads = threads;
+        archiveThreads = threads;
+      }
+      else if (args[i].equals("--batch") || args[i].equals("-batch") || args[i].equals("-b"))
+      {
+        batch = true;
+      }
+      else if (args[i].equals("--jobs") || args[i].equals("-jobs"))
+      {
+        int jobs = 0;
+        if (i + 1 < args.length)
+        {
+          try
+          {
+            jobs = Integer.parseInt(args[++i]);
+          }
+          catch (NumberFormatException ignored)
+          {
+          }
+        }
+        if (jobs < 1)
+        {
+          outWriter.println(Messages.get("display_help"));
+          throw new RuntimeException(Messages.get("jobs_argument_expected"));
+        }
+        batchJobs = jobs;
+      }
+      else if (args[i].equals("--cssCache") || args[i].equals("-cssCache"))
+      {
+        if (i + 1 < args.length)
+        {
+          cssCache = new CSSContentCache(CSSContentCache.DEFAULT_MAX_MEMORY_SIZE, new File(args[++i]),
+              CSSContentCache.DEFAULT_MAX_DIRECTORY_SIZE);
+        }
+        else
+        {
+          outWriter.println(Messages.get("display_help"));
+          throw new RuntimeException(Messages.get("css_cache_argument_expected"));
+        }
+      }
+      else if (args[i].equals("--serve") || args[i].equals("-serve"))
+      {
+        int value = -1;
+        if (i + 1 < args.length)
+        {
+          try
+          {
+            value = Integer.parseInt(args[++i]);
+          }
+          catch (NumberFormatException ignored)
+          {
+          }
+        }
+        if (value < 0)
+        {
+          outWriter.println(Messages.get("display_help"));
+          throw new RuntimeException(Messages.get("server_port_argument_expected"));
+        }
+        serverPort = value;
+      }
+      else if (args[i].equals("--queue") || args[i].equals("-queue"))
+      {
+        int value = -1;
+        if (i + 1 < args.length)
+        {
+          try
+          {
+            value = Integer.parseInt(args[++i]);
+          }
+          catch (NumberFormatException ignored)
+          {
+          }
+        }
+        if (value < 1)
+        {
+          outWriter.println(Messages.get("display_help"));
+          throw new RuntimeException(Messages.get("queue_argument_expected"));
+        }
+        serverQueue = value;
+      }
+      else if (args[i].equals("--maxUpload") || args[i].equals("-maxUpload"))
+      {
+        int value = 0;
+        if (i + 1 < args.length)
+        {
+          try
+          {
+            value = Integer.parseInt(args[++i]);
+          }
+          catch (NumberFormatException ignored)
+          {
+          }
+        }
+        if (value < 1)
+        {
+          outWriter.println(Messages.get("display_help"));
+          throw new RuntimeException(Messages.get("max_upload_argument_expected"));
+        }
+        serverMaxUpload = value * 1024L * 1024L;
+      }
+      else if (args[i].equals("--timeout") || args[i].equals("-timeout"))
+      {
+        int value = -1;
+        if (i + 1 < args.length)
+        {
+          try
+          {
+            value = Integer.parseInt(args[++i]);
+          }
+          catch (NumberFormatException ignored)
+          {
+          }
+        }
+        if (value < 1)
+        {
+          outWriter.println(Messages.get("display_help"));
+          throw new RuntimeException(Messages.get("timeout_argument_expected"));
+        }
+        serverTimeout = value;
+      }
       else if (args[i].equals("--save") || args[i].equals("-save") || args[i].equals("-s"))
       {
         keep = true;
@@ -544,6 +788,7 @@ public class EpubChecker
         if ((args.length > (i + 1)) && !(args[i+1].startsWith("-")))
         {
           fileOut = new File(args[++i]);
+          outputNamed = true;
         }
         else
         {
@@ -564,6 +809,7 @@ public class EpubChecker
         if ((args.length > (i + 1)) && !(args[i+1].startsWith("-")))
         {
           fileOut = new File(args[++i]);
+          outputNamed = true;
         }
         else
         {
@@ -579,6 +825,27 @@ public class EpubChecker
         }
         jsonOutput = true;
       }
+      else if (args[i].equals("--ndjson") || args[i].equals("-ndjson"))
+      {
+        if ((args.length > (i + 1)) && !(args[i+1].startsWith("-")))
+        {
+          fileOut = new File(args[++i]);
+          outputNamed = true;
+        }
+        else
+        {
+          File pathFile = new File(path);
+          if (pathFile.isDirectory())
+          {
+            fileOut = new File(pathFile.getAbsoluteFile().getParentFile(), pathFile.getName() + "check.ndjson");
+          }
+          else
+          {
+            fileOut = new File(path + "check.ndjson");
+          }
+        }
+        ndjsonOutput = true;
+      }
       else if (args[i].equals("--info") || args[i].equals("-i"))
       {
         reportingLevel = ReportingLevel.Info;
@@ -674,7 +941,7 @@ public class EpubChecker
       }
     }
 
-    if (xmlOutput && jsonOutput)
+    if ((xmlOutput ? 1 : 0) + (jsonOutput ? 1 : 0) + (ndjsonOutput ? 1 : 0) > 1)
     {
       System.err.println(Messages.get("output_type_conflict"));
       return false;
@@ -698,7 +965,7 @@ public class EpubChecker
 
     if (path == null)
     {
-      if (listChecks)
+      if (listChecks || serverPort >= 0)
       {
         return true;
       }
@@ -708,6 +975,15 @@ public class EpubChecker
         return false;
       }
     }
+    else if (batch)
+    {
+      if (mode != null)
+      {
+        System.err.println(Messages.get("mode_version_ignored"));
+        mode = null;
+        expanded = false;
+      }
+    }
     else if (path.matches(".+\\.[Ee][Pp][Uu][Bb]"))
     {
       if (mode != null || version != EPUBVersion.VERSION_3)
@@ -0,0 +1,421 @@
+package com.adobe.epubcheck.tool;
+
+import com.adobe.epubcheck.api.EpubCheck;
+import com.adobe.epubcheck.reporting.CheckingReport;
+import com.adobe.epubcheck.util.FeatureEnum;
+import com.adobe.epubcheck.util.Messages;
+import com.adobe.epubcheck.util.ReportingLevel;
+import com.adobe.epubcheck.util.outWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A long-running validation service listening on the loopback interface, so
+ * that clients validating many uploads don't pay the JVM startup and schema
+ * compilation for each of them.
+ * <p/>
+ * <code>POST /check?name=book.epub</code> validates the EPUB sent as the
+ * request body and answers with the JSON report written by
+ * {@link CheckingReport}; the <code>X-EpubCheck-Result</code> header holds the
+ * result flags of {@link EpubCheck#doValidate()}. The optional parameter
+ * <code>usage=true</code> has the same meaning as the <code>-u</code> command
+ * line option; a custom message file can only be set when the server is
+ * created. <code>GET /status</code> reports the number of active and queued
+ * validations, and the number of admitted requests, which also counts the
+ * requests whose body is still being read.
+ * <p/>
+ * At most <code>workers</code> publications are validated at the same time and
+ * at most <code>queueSize</code> more are waiting; further requests are
+ * answered with 503 before their body is read. Bodies larger than the maximum
+ * upload size are answered with 413. A validation that doesn't complete
+ * within the timeout is answered with 504 and interrupted: reading the EPUB
+ * fails from then on, so the validation ends and frees its worker as soon as
+ * it next reads from the EPUB. A validation stuck in a computation that
+ * doesn't read keeps its worker until it ends.
+ */
+public class ValidationServer
+{
+  private static final String JSON_TYPE = "application/json; charset=UTF-8";
+  public static final long DEFAULT_MAX_UPLOAD_SIZE = 512L * 1024 * 1024;
+
+  // the states of a submitted validation
+  private static final int QUEUED = 0, RUNNING = 1, CANCELLED = 2;
+
+  private final int port;
+  private final int workers;
+  private final int queueSize;
+  private final long timeoutMillis;
+  // the validations running or waiting, which hold a slot until they end
+  private final Semaphore slots;
+  private long maxUploadSize = DEFAULT_MAX_UPLOAD_SIZE;
+  private File customMessageFile;
+  private HttpServer server;
+  private ThreadPoolExecutor validationExecutor;
+  private ExecutorService requestExecutor;
+
+  public ValidationServer(int port, int workers, int queueSize, long timeoutMillis)
+  {
+    this.port = port;
+    this.workers = Math.max(1, workers);
+    this.queueSize = Math.max(1, queueSize);
+    this.timeoutMillis = timeoutMillis;
+    this.slots = new Semaphore(this.workers + this.queueSize);
+  }
+
+  /**
+   * @param maxUploadSize the size in bytes of the largest EPUB accepted
+   */
+  public void setMaxUploadSize(long maxUploadSize)
+  {
+    this.maxUploadSize = maxUploadSize;
+  }
+
+  /**
+   * @param customMessageFile the custom message file used for all the
+   *                          validations, or null
+   */
+  public void setCustomMessageFile(File customMessageFile)
+  {
+    this.customMessageFile = customMessageFile;
+  }
+
+  public synchronized void start() throws
+      IOException
+  {
+    validationExecutor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(queueSize));
+    // each request thread holding a slot either waits for a validation or
+    // reads the body of one; the last thread answers requests beyond that
+    // with 503 right away
+    requestExecutor = Executors.newFixedThreadPool(workers + queueSize + 1);
+
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+    server.createContext("/check", new CheckHandler());
+    server.createContext("/status", new StatusHandler());
+    server.setExecutor(requestExecutor);
+    server.start();
+    outWriter.println(String.format(Messages.get("server_started"), getPort()));
+  }
+
+  public synchronized void stop()
+  {
+    if (server != null)
+    {
+      server.stop(0);
+      requestExecutor.shutdownNow();
+      validationExecutor.shutdownNow();
+      server = null;
+    }
+  }
+
+  /**
+   * @return the port the server listens to, which is only known after
+   *         {@link #start()} if the server was created with port 0
+   */
+  public int getPort()
+  {
+    return server != null ? server.getAddress().getPort() : port;
+  }
+
+  private class CheckHandler implements HttpHandler
+  {
+    public void handle(HttpExchange exchange) throws
+        IOException
+    {
+      try
+      {
+        if (!"POST".equals(exchange.getRequestMethod()))
+        {
+          sendError(exchange, 405, "Only POST requests are supported.");
+          return;
+        }
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        String name = params.get("name");
+        if (name == null || name.length() == 0)
+        {
+          name = "upload.epub";
+        }
+        name = new File(name).getName();
+        boolean usage = "true".equals(params.get("usage"));
+        if (params.containsKey("customMessages"))
+        {
+          sendError(exchange, 400, "Custom message files can only be set when the server is started.");
+          return;
+        }
+        if (getContentLength(exchange) > maxUploadSize)
+        {
+          sendError(exchange, 413, "The EPUB is larger than " + maxUploadSize + " bytes.");
+          return;
+        }
+        if (!slots.tryAcquire())
+        {
+          sendError(exchange, 503, "Too many pending validations.");
+          return;
+        }
+        AtomicInteger state = new AtomicInteger(QUEUED);
+        try
+        {
+          ByteBuffer epub = readBody(exchange.getRequestBody(), maxUploadSize);
+          if (epub == null)
+          {
+            sendError(exchange, 413, "The EPUB is larger than " + maxUploadSize + " bytes.");
+            return;
+          }
+          check(exchange, epub, name, usage, state);
+        }
+        finally
+        {
+          // the slot is released by the validation if it was started
+          if (state.compareAndSet(QUEUED, CANCELLED))
+          {
+            slots.release();
+          }
+        }
+      }
+      finally
+      {
+        exchange.close();
+      }
+    }
+  }
+
+  private class StatusHandler implements HttpHandler
+  {
+    public void handle(HttpExchange exchange) throws
+        IOException
+    {
+      try
+      {
+        String status = "{\"version\":\"" + EpubCheck.version() + "\",\"active\":"
+            + validationExecutor.getActiveCount() + ",\"queued\":"
+            + validationExecutor.getQueue().size() + ",\"admitted\":"
+            + (workers + queueSize - slots.availablePermits()) + "}";
+        send(exchange, 200, JSON_TYPE, status);
+      }
+      finally
+      {
+        exchange.close();
+      }
+    }
+  }
+
+  private static long getContentLength(HttpExchange exchange)
+  {
+    String length = exchange.getRequestHeaders().getFirst("Content-Length");
+    try
+    {
+      return length != null ? Long.parseLong(length.trim()) : -1;
+    }
+    catch (NumberFormatException e)
+    {
+      return -1;
+    }
+  }
+
+  private void check(HttpExchange exchange, final ByteBuffer epub, final String name, final boolean usage,
+      final AtomicInteger state) throws
+      IOException
+  {
+    Future<ValidationResult> future;
+    try
+    {
+      future = validationExecutor.submit(new Callable<ValidationResult>()
+      {
+        public ValidationResult call() throws
+            Exception
+        {
+          if (!state.compareAndSet(QUEUED, RUNNING))
+          {
+            return null;
+          }
+          try
+          {
+            return validate(epub, name, usage, customMessageFile);
+          }
+          finally
+          {
+            slots.release();
+          }
+        }
+      });
+    }
+    catch (RejectedExecutionException e)
+    {
+      sendError(exchange, 503, "Too many pending validations.");
+      return;
+    }
+
+    ValidationResult result;
+    try
+    {
+      result = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+    catch (TimeoutException e)
+    {
+      cancel(future);
+      sendError(exchange, 504, "The validation timed out.");
+      return;
+    }
+    catch (InterruptedException e)
+    {
+      cancel(future);
+      Thread.currentThread().interrupt();
+      sendError(exchange, 503, "The server is shutting down.");
+      return;
+    }
+    catch (ExecutionException e)
+    {
+      sendError(exchange, 500, "The validation failed: " + e.getCause());
+      return;
+    }
+
+    exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+    exchange.getResponseHeaders().set("X-EpubCheck-Result", String.valueOf(result.flags));
+    exchange.sendResponseHeaders(200, 0);
+    OutputStream out = exchange.getResponseBody();
+    result.report.generate(out);
+    out.close();
+  }
+
+  /**
+   * Interrupts a running validation, which then fails to read the EPUB, or
+   * removes a waiting one from the queue.
+   */
+  private void cancel(Future<ValidationResult> future)
+  {
+    future.cancel(true);
+    validationExecutor.purge();
+  }
+
+  private static class ValidationResult
+  {
+    final CheckingReport report;
+    final int flags;
+
+    ValidationResult(CheckingReport report, int flags)
+    {
+      this.report = report;
+      this.flags = flags;
+    }
+  }
+
+  private static ValidationResult validate(ByteBuffer epub, String name, boolean usage, File customMessageFile)
+  {
+    CheckingReport report = new CheckingReport(name, null);
+    report.setReportingLevel(usage ? ReportingLevel.Usage : ReportingLevel.Info);
+    if (customMessageFile != null)
+    {
+      report.setOverrideFile(customMessageFile);
+    }
+    report.initialize();
+    if (customMessageFile != null)
+    {
+      report.setCustomMessageFile(customMessageFile.getAbsolutePath());
+    }
+    report.info(null, FeatureEnum.TOOL_NAME, "epubcheck");
+    report.info(null, FeatureEnum.TOOL_VERSION, EpubCheck.version());
+
+    int flags;
+    try
+    {
+      flags = new EpubCheck(epub, report, name).doValidate();
+    }
+    finally
+    {
+      report.close();
+    }
+    return new ValidationResult(report, flags);
+  }
+
+  private static void send(HttpExchange exchange, int code, String contentType, String body) throws
+      IOException
+  {
+    byte[] bytes = body.getBytes("UTF-8");
+    exchange.getResponseHeaders().set("Content-Type", contentType);
+    exchange.sendResponseHeaders(code, bytes.length);
+    OutputStream out = exchange.getResponseBody();
+    out.write(bytes);
+    out.close();
+  }
+
+  private static void sendError(HttpExchange exchange, int code, String message) throws
+      IOException
+  {
+    send(exchange, code, "text/plain; charset=UTF-8", message);
+  }
+
+  static Map<String, String> parseQuery(String query) throws
+      IOException
+  {
+    Map<String, String> params = new HashMap<String, String>();
+    if (query == null)
+    {
+      return params;
+    }
+    for (String param : query.split("&"))
+    {
+      int eq = param.indexOf('=');
+      if (eq > 0)
+      {
+        params.put(URLDecoder.decode(param.substring(0, eq), "UTF-8"),
+            URLDecoder.decode(param.substring(eq + 1), "UTF-8"));
+      }
+      else if (param.length() > 0)
+      {
+        params.put(URLDecoder.decode(param, "UTF-8"), "");
+      }
+    }
+    return params;
+  }
+
+  /**
+   * @return the body, or null if it is larger than the maximum size
+   */
+  private static ByteBuffer readBody(InputStream in, long maxSize) throws
+      IOException
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try
+    {
+      byte[] buffer = new byte[32 * 1024];
+      int read;
+      while ((read = in.read(buffer)) > 0)
+      {
+        if (out.size() + (long) read > maxSize)
+        {
+          return null;
+        }
+        out.write(buffer, 0, read);
+      }
+    }
+    finally
+    {
+      in.close();
+    }
+    return ByteBuffer.wrap(out.toByteArray());
+  }
+}
@@ -1,17 +1,43 @@
 package com.adobe.epubcheck.util;
 
+import com.google.common.io.Files;
+import org.apache.commons.compress.archivers.zip.ScatterZipOutputStream;
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntryRequest;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.parallel.InputStreamSupplier;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.CRC32;
-import java.util.zip.CheckedInputStream;
 
+/**
+ * Packs an expanded publication into an EPUB file next to its directory.
+ * <p/>
+ * The archive is written without ZIP64 extensions, which EPUB reading systems
+ * aren't required to support: a publication with more than 65535 files, a
+ * file of 4 GB or more, or an archive reaching 4 GB is rejected with an error
+ * instead.
+ */
 public class Archive
 {
+  private static final int MAX_ZIP_ENTRIES = 0xFFFF;
+
+  private int threads = Runtime.getRuntime().availableProcessors();
+
   private ArrayList<String> paths;
 
   private ArrayList<String> names;
@@ -22,6 +48,10 @@ public class Archive
 
   private String epubName;
 
+  private boolean collected;
+
+  private boolean hasMimetype;
+
 
   public Archive(String base, boolean save)
   {
@@ -58,6 +88,55 @@ public class Archive
     return epubFile;
   }
 
+  public File getBaseDir()
+  {
+    return baseDir;
+  }
+
+  /**
+   * @return the names of the files put in the archive, in archive order
+   */
+  public List<String> getEntryNames()
+  {
+    collect();
+    return Collections.unmodifiableList(names);
+  }
+
+  /**
+   * Collects the files of the publication once.
+   *
+   * @return whether there is a mimetype file, which is made the first entry
+   */
+  private boolean collect()
+  {
+    if (!collected)
+    {
+      collectFiles(baseDir, "");
+      hasMimetype = moveMimetypeFirst();
+      collected = true;
+    }
+    return hasMimetype;
+  }
+
+  /**
+   * Makes the mimetype file the first entry.
+   *
+   * @return whether there is a mimetype file
+   */
+  private boolean moveMimetypeFirst()
+  {
+    int mimetype = names.indexOf("mimetype");
+    if (mimetype > -1)
+    {
+      String name = names.remove(mimetype);
+      String path = paths.remove(mimetype);
+      names.add(0, name);
+      paths.add(0, path);
+      return true;
+    }
+    return false;
+  }
+
   public void deleteEpubFile()
   {
     if (!epubFile.delete())
@@ -66,79 +145,98 @@ public class Archive
     }
   }
 
+  /**
+   * @param threads the number of entries deflated at the same time, by default
+   *                the number of available processors
+   */
+  public void setThreads(int threads)
+  {
+    this.threads = Math.max(1, threads);
+  }
+
   public void createArchive()
   {
-    // using commons compress to allow setting filename encoding pre java7
+    // entries are deflated concurrently, each into its own scatter stream, and
+    // written in order as soon as they're ready; at most a few are pending at
+    // once
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    Queue<Future<CompressedEntry>> pending = new LinkedList<Future<CompressedEntry>>();
     ZipArchiveOutputStream out = null;
     try
     {
-      collectFiles(baseDir, "");
-
       //make mimetype the first entry
-      int mimetype = names.indexOf("mimetype");
-      if (mimetype > -1)
+      boolean mimetype = collect();
+      if (!mimetype)
       {
-        String name = names.remove(mimetype);
-        String path = paths.remove(mimetype);
-        names.add(0, name);
-        paths.add(0, path);
+        System.err.println("No mimetype file found in expanded publication, output archive will be invalid");
       }
-      else
+
+      if (paths.size() > MAX_ZIP_ENTRIES)
       {
-        System.err.println("No mimetype file found in expanded publication, output archive will be invalid");
+        throw new IOException("The publication has " + paths.size() + " files, more than the "
+            + MAX_ZIP_ENTRIES + " an archive without ZIP64 extensions can hold");
       }
 
+      // using commons compress to allow setting filename encoding pre java7
       out = new ZipArchiveOutputStream(epubFile);
       out.setEncoding("UTF-8");
+      out.setUseZip64(Zip64Mode.Never);
 
-      for (int i = 0; i < paths.size(); i++)
+      int first = mimetype ? 1 : 0;
+      if (mimetype)
       {
-        ZipArchiveEntry entry = new ZipArchiveEntry(new File(paths.get(i)), names.get(i));
-        if (i == 0 && mimetype > -1)
-        {
-          entry.setMethod(ZipArchiveEntry.STORED);
-          entry.setSize(getSize(paths.get(i)));
-          entry.setCrc(getCRC(paths.get(i)));
-        }
-        else
+        writeStoredEntry(out, names.get(0), new File(paths.get(0)));
+      }
+      int next = first;
+      for (int i = first; i < paths.size(); i++)
+      {
+        for (; next < paths.size() && next <= i + 2 * threads; next++)
         {
-          entry.setMethod(ZipArchiveEntry.DEFLATED);
+          final String name = names.get(next);
+          final File file = new File(paths.get(next));
+          pending.add(executor.submit(new Callable<CompressedEntry>()
+          {
+            public CompressedEntry call() throws
+                IOException
+            {
+              return new CompressedEntry(name, file);
+            }
+          }));
         }
-        out.putArchiveEntry(entry);
-        FileInputStream in = null;
+        CompressedEntry entry = getEntry(pending.poll());
         try
         {
-          in = new FileInputStream(paths.get(i));
-
-          byte[] buf = new byte[1024];
-          int len;
-          while ((len = in.read(buf)) > 0)
-          {
-            out.write(buf, 0, len);
-          }
-          out.closeArchiveEntry();
+          entry.writeTo(out);
         }
         finally
         {
-          if (in != null)
-          {
-            in.close();
-          }
+          entry.delete();
         }
       }
+      out.finish();
     }
     catch (Exception e)
     {
-      throw new RuntimeException(e.getMessage());
+      throw new RuntimeException(e.getMessage(), e);
     }
     finally
     {
+      executor.shutdown();
+      // release the entries that were deflated but not written
+      for (Future<CompressedEntry> entry : pending)
+      {
+        try
+        {
+          entry.get().delete();
+        }
+        catch (Exception ignored)
+        {
+        }
+      }
       try
       {
         if (out != null)
         {
-          out.flush();
-          out.finish();
           out.close();
         }
       }
@@ -147,71 +245,136 @@ public class Archive
       }
     }
   }
-  private File makeCanonical(File f)
+
+  private static void writeStoredEntry(ZipArchiveOutputStream out, String name, File file) throws
+      IOException
+  {
+    byte[] content = Files.toByteArray(file);
+    CRC32 crc = new CRC32();
+    crc.update(content);
+    ZipArchiveEntry entry = newEntry(name, file);
+    entry.setMethod(ZipArchiveEntry.STORED);
+    entry.setSize(content.length);
+    entry.setCrc(crc.getValue());
+    out.putArchiveEntry(entry);
+    out.write(content);
+    out.closeArchiveEntry();
+  }
+
+  /**
+   * @return an entry with only the modification time of the file, and no
+   *         extra field for the other times
+   */
+  private static ZipArchiveEntry newEntry(String name, File file)
+  {
+    ZipArchiveEntry entry = new ZipArchiveEntry(name);
+    entry.setTime(file.lastModified());
+    return entry;
+  }
+
+  private static CompressedEntry getEntry(Future<CompressedEntry> future) throws
+      IOException,
+      InterruptedException
   {
-    if (f == null)
-    {
-      return null;
-    }
     try
     {
-      return f.getCanonicalFile();
+      return future.get();
     }
-    catch (IOException ignored)
+    catch (ExecutionException e)
     {
-      return f.getAbsoluteFile();
+      if (e.getCause() instanceof IOException)
+      {
+        throw (IOException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
     }
   }
 
-  private long getSize(String path) throws IOException
+  /**
+   * An entry of the archive, deflated into a scatter stream backed by a
+   * temporary file, from which it is copied to the archive without being
+   * deflated again.
+   */
+  private static class CompressedEntry
   {
-    FileInputStream in = null;
-    try
+    private final File spool;
+    private final ScatterZipOutputStream scatter;
+
+    CompressedEntry(String name, File file) throws
+        IOException
     {
-      in = new FileInputStream(path);
-      byte[] buf = new byte[1024];
-      int len;
-      int size = 0;
-      while ((len = in.read(buf)) > 0)
+      final InputStream in = new FileInputStream(file);
+      File spool = null;
+      ScatterZipOutputStream scatter = null;
+      boolean complete = false;
+      try
+      {
+        spool = File.createTempFile("epubcheck", ".deflated");
+        scatter = ScatterZipOutputStream.fileBased(spool);
+        ZipArchiveEntry entry = newEntry(name, file);
+        entry.setMethod(ZipArchiveEntry.DEFLATED);
+        // the stream is closed once it is deflated
+        scatter.addArchiveEntry(ZipArchiveEntryRequest.createZipArchiveEntryRequest(entry, new InputStreamSupplier()
+        {
+          public InputStream get()
+          {
+            return in;
+          }
+        }));
+        complete = true;
+      }
+      finally
       {
-        size += len;
+        this.spool = spool;
+        this.scatter = scatter;
+        // the temporary file of a failed entry is not released by the caller
+        if (!complete)
+        {
+          in.close();
+          delete();
+        }
       }
-      return size;
     }
-    finally
+
+    void writeTo(ZipArchiveOutputStream out) throws
+        IOException
+    {
+      scatter.writeTo(out);
+    }
+
+    void delete()
     {
-      if (in != null)
+      try
       {
-        in.close();
+        if (scatter != null)
+        {
+          scatter.close();
+        }
+      }
+      catch (IOException ignored)
+      {
+      }
+      if (spool != null && spool.exists() && !spool.delete())
+      {
+        spool.deleteOnExit();
       }
     }
   }
 
-  private long getCRC(String path) throws IOException
+  private File makeCanonical(File f)
   {
-    CheckedInputStream cis = null;
-    FileInputStream fis = null;
+    if (f == null)
+    {
+      return null;
+    }
     try
     {
-      fis = new FileInputStream(path);
-      cis = new CheckedInputStream(fis, new CRC32());
-      byte[] buf = new byte[128];
-      while (cis.read(buf) >= 0)
-      {
-      }
+      return f.getCanonicalFile();
     }
-    finally
+    catch (IOException ignored)
     {
-      if (fis != null)
-      {
-        fis.close();
-      }
-      if (cis != null)
-      {
-        cis.close();
-      }
+      return f.getAbsoluteFile();
     }
-    return cis.getChecksum().getValue();
   }
 
 //	public void createArchiveOld() {
@@ -26,11 +26,17 @@ import com.adobe.epubcheck.messages.Message;
 import com.adobe.epubcheck.messages.MessageLocation;
 import com.adobe.epubcheck.messages.Severity;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class DefaultReportImpl extends MasterReport
 {
   static boolean DEBUG = false;
   boolean quiet;
-  boolean saveQuiet;
+
+  private static final int STDOUT = 0, STDERR = 1, WRITER = 2;
+  private List<String> heldLines;
+  private List<Integer> heldStreams;
 
   public static String ePubVersion;
 
@@ -58,33 +64,83 @@ public class DefaultReportImpl extends MasterReport
     }
     return message.replaceAll("[\\s]+", " ");
   }
-  boolean pushQuiet()
+  @Override
+  public synchronized void message(Message message, MessageLocation location, Object... args)
   {
-    saveQuiet = outWriter.isQuiet();
-    outWriter.setQuiet(quiet);
-    return saveQuiet;
+    Severity severity = message.getSeverity();
+    String text = formatMessage(message, location, args);
+    if (severity.equals(Severity.USAGE))
+    {
+      // only the report's own quiet flag applies; the global one is left
+      // alone, as it is shared with the reports used on other threads
+      if (!quiet)
+      {
+        print(STDOUT, text);
+      }
+    }
+    else
+    {
+      print(STDERR, text);
+    }
   }
 
-  void popQuiet()
+  /**
+   * Holds back the lines of the report until {@link #printHeldLines()}, so
+   * that they can be printed as one block while other publications are
+   * validated.
+   */
+  public synchronized void holdLines()
   {
-    outWriter.setQuiet(saveQuiet);
+    heldLines = new ArrayList<String>();
+    heldStreams = new ArrayList<Integer>();
   }
 
-  @Override
-  public void message(Message message, MessageLocation location, Object... args)
+  /**
+   * Prints the lines held back since {@link #holdLines()}, and the following
+   * ones as they come.
+   */
+  public synchronized void printHeldLines()
   {
-    Severity severity = message.getSeverity();
-    String text = formatMessage(message, location, args);
-    if (severity.equals(Severity.USAGE))
+    List<String> lines = heldLines;
+    List<Integer> streams = heldStreams;
+    heldLines = null;
+    heldStreams = null;
+    if (lines != null)
     {
-      pushQuiet();
-      outWriter.println(text);
-      popQuiet();
+      for (int i = 0; i < lines.size(); i++)
+      {
+        print(streams.get(i), lines.get(i));
+      }
     }
-    else
+  }
+
+  /**
+   * Prints a line of progress information, like the lines of the report.
+   */
+  public synchronized void printLine(String text)
+  {
+    print(WRITER, text);
+  }
+
+  private void print(int stream, String text)
+  {
+    if (heldLines != null)
+    {
+      heldLines.add(text);
+      heldStreams.add(stream);
+    }
+    else if (stream == STDOUT)
+    {
+      System.out.println(text);
+    }
+    else if (stream == STDERR)
     {
       System.err.println(text);
     }
+    else
+    {
+      outWriter.println(text);
+    }
   }
 
   String formatMessage(Message message, MessageLocation location, Object... args)
@@ -102,7 +158,14 @@ public class DefaultReportImpl extends MasterReport
   }
 
   @Override
-  public void info(String resource, FeatureEnum feature, String value)
+  public boolean isFeatureReported(FeatureEnum feature)
+  {
+    // item metadata is only printed when debugging
+    return feature != FeatureEnum.SHA_256 && (DEBUG || feature != FeatureEnum.COMPRESSED_SIZE);
+  }
+
+  @Override
+  public synchronized void info(String resource, FeatureEnum feature, String value)
   {
     if (ReportingLevel.Info >= getReportingLevel())
     {
@@ -111,7 +174,7 @@ public class DefaultReportImpl extends MasterReport
         case FORMAT_VERSION:
           if (!quiet)
           {
-            outWriter.println(String.format(Messages.get("validating_version_message"), value));
+            print(WRITER, String.format(Messages.get("validating_version_message"), value));
           }
           break;
         default:
@@ -119,11 +182,11 @@ public class DefaultReportImpl extends MasterReport
           {
             if (resource == null)
             {
-              outWriter.println("INFO: [" + feature + "]=" + value);
+              print(WRITER, "INFO: [" + feature + "]=" + value);
             }
             else
             {
-              outWriter.println("INFO: [" + feature + " (" +
+              print(WRITER, "INFO: [" + feature + " (" +
                   resource + ")]=" + value);
             }
           }
@@ -0,0 +1,218 @@
+package com.adobe.epubcheck.util;
+
+import com.adobe.epubcheck.api.Report;
+import com.adobe.epubcheck.messages.Message;
+import com.adobe.epubcheck.messages.MessageDictionary;
+import com.adobe.epubcheck.messages.MessageId;
+import com.adobe.epubcheck.messages.MessageLocation;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds back the messages and infos reported by a checker so that they can be
+ * forwarded to the real report later, in a predictable order, whatever the
+ * order (or thread) in which the checkers actually ran.
+ */
+public class DeferredReport implements Report
+{
+  private final Report delegate;
+  private final List<Entry> entries = new ArrayList<Entry>();
+  private int errorCount, warningCount, fatalErrorCount;
+
+  public DeferredReport(Report delegate)
+  {
+    this.delegate = delegate;
+    resetCounts();
+  }
+
+  /**
+   * Counts start from the totals of the wrapped report, so that checkers
+   * comparing counts before and after their work see their own messages even
+   * though they have not been forwarded yet.
+   */
+  private void resetCounts()
+  {
+    errorCount = delegate.getErrorCount();
+    warningCount = delegate.getWarningCount();
+    fatalErrorCount = delegate.getFatalErrorCount();
+  }
+
+  private void count(MessageId id)
+  {
+    MessageDictionary dictionary = delegate.getDictionary();
+    Message message = dictionary == null ? null : dictionary.getMessage(id);
+    if (message == null || ReportingLevel.getReportingLevel(message.getSeverity()) < getReportingLevel())
+    {
+      return;
+    }
+    switch (message.getSeverity())
+    {
+      case FATAL:
+        fatalErrorCount++;
+        break;
+      case ERROR:
+        errorCount++;
+        break;
+      case WARNING:
+        warningCount++;
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Forwards all the held entries to the wrapped report and clears them.
+   */
+  public void flush()
+  {
+    flushTo(delegate);
+    entries.clear();
+    resetCounts();
+  }
+
+  /**
+   * Forwards a copy of all the held entries to the given report.
+   */
+  public void flushTo(Report target)
+  {
+    for (Entry entry : entries)
+    {
+      entry.replay(target);
+    }
+  }
+
+  public void clear()
+  {
+    entries.clear();
+    resetCounts();
+  }
+
+  @Override
+  public void message(final MessageId id, final MessageLocation location, final Object... args)
+  {
+    count(id);
+    entries.add(new Entry()
+    {
+      void replay(Report target)
+      {
+        target.message(id, location, args);
+      }
+    });
+  }
+
+  @Override
+  public void message(final Message message, final MessageLocation location, final Object... args)
+  {
+    entries.add(new Entry()
+    {
+      void replay(Report target)
+      {
+        target.message(message, location, args);
+      }
+    });
+  }
+
+  @Override
+  public void info(final String resource, final FeatureEnum feature, final String value)
+  {
+    entries.add(new Entry()
+    {
+      void replay(Report target)
+      {
+        target.info(resource, feature, value);
+      }
+    });
+  }
+
+  @Override
+  public int getErrorCount()
+  {
+    return errorCount;
+  }
+
+  @Override
+  public int getWarningCount()
+  {
+    return warningCount;
+  }
+
+  @Override
+  public int getFatalErrorCount()
+  {
+    return fatalErrorCount;
+  }
+
+  @Override
+  public int generate()
+  {
+    return delegate.generate();
+  }
+
+  @Override
+  public void initialize()
+  {
+    delegate.initialize();
+  }
+
+  @Override
+  public void setEpubFileName(String value)
+  {
+    delegate.setEpubFileName(value);
+  }
+
+  @Override
+  public String getEpubFileName()
+  {
+    return delegate.getEpubFileName();
+  }
+
+  @Override
+  public void setCustomMessageFile(String customMessageFileName)
+  {
+    delegate.setCustomMessageFile(customMessageFileName);
+  }
+
+  @Override
+  public String getCustomMessageFile()
+  {
+    return delegate.getCustomMessageFile();
+  }
+
+  @Override
+  public int getReportingLevel()
+  {
+    return delegate.getReportingLevel();
+  }
+
+  @Override
+  public void setReportingLevel(int level)
+  {
+    delegate.setReportingLevel(level);
+  }
+
+  @Override
+  public void close()
+  {
+    delegate.close();
+  }
+
+  @Override
+  public void setOverrideFile(File customMessageFile)
+  {
+    delegate.setOverrideFile(customMessageFile);
+  }
+
+  @Override
+  public MessageDictionary getDictionary()
+  {
+    return delegate.getDictionary();
+  }
+
+  private static abstract class Entry
+  {
+    abstract void replay(Report target);
+  }
+}
@@ -6,12 +6,13 @@ import com.adobe.epubcheck.messages.MessageLocation;
 import org.xml.sax.Attributes;
 import org.xml.sax.Locator;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Stack;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class NamespaceHelper
 {
@@ -27,26 +28,6 @@ public class NamespaceHelper
     expectedNamespaces.add(EpubConstants.DCElements);
   }
 
-  private class IdHashMap<K,V> extends HashMap<K, V>
-  {
-    final long id;
-    public long getId()
-    {
-      return id;
-    }
-
-    public IdHashMap(long id)
-    {
-      super();
-      this.id = id;
-    }
-    public IdHashMap(long id, Map<K, V> m)
-    {
-      super(m);
-      this.id = id;
-    }
-  }
-
   private static boolean isExpectedNamespace(String uri)
   {
     return (uri != null) ? expectedNamespaces.contains(uri) : false;
@@ -57,8 +38,6 @@ public class NamespaceHelper
     private String prefix;
     private String uri;
     private MessageLocation location;
-    private boolean inUse;
-    private Pattern prefixPattern;
 
     public NamespaceInstance(long id, String prefix, String uri, MessageLocation location)
     {
@@ -66,8 +45,6 @@ public class NamespaceHelper
       setPrefix(prefix);
       setUri(uri);
       setLocation(location);
-      setInUse(false);
-      setPrefixPattern(Pattern.compile("^" + prefix + ":.+"));
     }
 
     public long getId()
@@ -110,26 +87,6 @@ public class NamespaceHelper
       this.location = location;
     }
 
-    public boolean isInUse()
-    {
-      return inUse;
-    }
-
-    public void setInUse(boolean inUse)
-    {
-      this.inUse = inUse;
-    }
-
-    public Pattern getPrefixPattern()
-    {
-      return prefixPattern;
-    }
-
-    public void setPrefixPattern(Pattern prefixPattern)
-    {
-      this.prefixPattern = prefixPattern;
-    }
-
     @Override
     public String toString()
     {
@@ -144,28 +101,25 @@ public class NamespaceHelper
     }
   }
 
+  /**
+   * The declarations of a namespace context. A context only holds the
+   * declarations made in its scope, the ones of the enclosing contexts are
+   * looked up through its parent.
+   */
   private class NamespaceContext
   {
-    private long id;
+    private final long id;
     private int useCount;
-    private IdHashMap<String, String> prefixMap;
-    private IdHashMap<String, NamespaceInstance> uriMap;
-
-    public NamespaceContext(long id)
-    {
-      this.useCount = 1;
-      this.id = id;
-      this.prefixMap = new IdHashMap<String, String>(id);
-      this.uriMap = new IdHashMap<String, NamespaceInstance>(id);
-    }
+    private final NamespaceContext parent;
+    private final Map<String, String> prefixMap = new HashMap<String, String>();
+    // the index of the instance declared for each uri, in declaration order
+    private final Map<String, Integer> uriMap = new LinkedHashMap<String, Integer>();
 
-    public NamespaceContext(long id, NamespaceContext other)
+    public NamespaceContext(long id, NamespaceContext parent)
     {
-      other.decrementUseCount();
       this.useCount = 1;
       this.id = id;
-      this.prefixMap = new IdHashMap<String, String>(id, other.getPrefixMap());
-      this.uriMap = new IdHashMap<String, NamespaceInstance>(id, other.getUriMap());
+      this.parent = parent;
     }
 
     public long getId()
@@ -184,109 +138,162 @@ public class NamespaceHelper
     {
       return --useCount;
     }
-    public IdHashMap<String, String> getPrefixMap()
+    public NamespaceContext getParent()
+    {
+      return parent;
+    }
+    public Map<String, String> getPrefixMap()
     {
       return prefixMap;
     }
-    public IdHashMap<String, NamespaceInstance> getUriMap()
+    public Map<String, Integer> getUriMap()
     {
-      return  uriMap;
+      return uriMap;
     }
   }
 
-  private Stack<NamespaceContext> contexts = new Stack<NamespaceContext>();
+  private final List<NamespaceInstance> instances = new ArrayList<NamespaceInstance>();
+  private final BitSet instancesInUse = new BitSet();
+  private NamespaceContext currentContext;
 
   public NamespaceHelper()
   {
-    contexts.push(new NamespaceContext(id++));
+    currentContext = new NamespaceContext(id++, null);
   }
 
-  private void  pushContext()
+  private void pushContext()
   {
     ++id;
-    NamespaceContext currentContext = contexts.peek();
     currentContext.incrementUseCount();
   }
 
-  private String findMatchingPrefix(String qName)
+  private String resolvePrefix(String prefix)
   {
-    NamespaceContext currentContext = contexts.peek();
+    for (NamespaceContext context = currentContext; context != null; context = context.getParent())
+    {
+      String uri = context.getPrefixMap().get(prefix);
+      if (uri != null)
+      {
+        return uri;
+      }
+    }
+    return null;
+  }
 
-    for (NamespaceInstance instance : currentContext.getUriMap().values())
+  private int resolveUri(String uri)
+  {
+    for (NamespaceContext context = currentContext; context != null; context = context.getParent())
     {
-      Pattern p = instance.getPrefixPattern();
-      Matcher m = p.matcher(qName);
-      if (m.find())
+      Integer instance = context.getUriMap().get(uri);
+      if (instance != null)
       {
-        return instance.getPrefix();
+        return instance;
       }
     }
+    return -1;
+  }
+
+  private String findMatchingPrefix(String qName)
+  {
+    int index = qName.indexOf(':');
+    if (index < 0 || index == qName.length() - 1)
+    {
+      return null;
+    }
+    String prefix = qName.substring(0, index);
 
+    // the prefix matches if a namespace instance in scope was declared with
+    // it, that instance being the last one declared for its uri
+    for (NamespaceContext context = currentContext; context != null; context = context.getParent())
+    {
+      String uri = context.getPrefixMap().get(prefix);
+      if (uri != null)
+      {
+        int instance = context.getUriMap().get(uri);
+        if (prefix.equals(instances.get(instance).getPrefix()) && resolveUri(uri) == instance)
+        {
+          return prefix;
+        }
+      }
+    }
     return null;
   }
 
   private void recordPrefixUse(String prefix)
   {
-    NamespaceContext currentContext = contexts.peek();
-    String uri = currentContext.getPrefixMap().get(prefix);
+    String uri = resolvePrefix(prefix);
     if (uri != null)
     {
-      NamespaceInstance instance = currentContext.getUriMap().get(uri);
-      if (instance != null && !instance.isInUse())
-      {
-        instance.setInUse(true);
-      }
+      recordUriUse(uri);
     }
   }
 
   private void recordUriUse(String uri)
   {
-    NamespaceContext currentContext = contexts.peek();
     if (uri != null)
     {
-      NamespaceInstance instance = currentContext.getUriMap().get(uri);
-      if (instance != null && !instance.isInUse())
+      int instance = resolveUri(uri);
+      if (instance >= 0)
       {
-        instance.setInUse(true);
+        instancesInUse.set(instance);
       }
     }
   }
 
   private void popContext(Report report)
   {
-    NamespaceContext currentContext = contexts.peek();
     if (0 == currentContext.decrementUseCount())
     {
-      for (NamespaceInstance instance : currentContext.getUriMap().values())
+      // report on namespaces that are in this scope and not in use
+      for (int instance : currentContext.getUriMap().values())
       {
-        // report on namespaces that are in this scope (ie, its id matches) and its not in use
-        if (currentContext.getId() == instance.getId() && !instance.isInUse())
+        if (!instancesInUse.get(instance))
         {
-          report.message(MessageId.HTM_044,  instance.getLocation(), instance.getUri());
+          report.message(MessageId.HTM_044, instances.get(instance).getLocation(), instances.get(instance).getUri());
         }
       }
-      contexts.pop();
+      currentContext = currentContext.getParent();
     }
   }
 
   public void declareNamespace(String prefix, String uri, MessageLocation location, Report report)
   {
-    NamespaceContext currentContext = contexts.peek();
     if (id != currentContext.getId())
     {
-      NamespaceContext newContext = new NamespaceContext(id, currentContext);
-      contexts.push(newContext);
-      currentContext = newContext;
+      currentContext.decrementUseCount();
+      currentContext = new NamespaceContext(id, currentContext);
     }
     currentContext.getPrefixMap().put(prefix, uri);
-    currentContext.getUriMap().put(uri, new NamespaceInstance(id, prefix, uri, location));
+    currentContext.getUriMap().remove(uri);
+    currentContext.getUriMap().put(uri, instances.size());
+    instances.add(new NamespaceInstance(id, prefix, uri, location));
     if (!isExpectedNamespace(uri))
     {
       report.message(MessageId.HTM_010,  location, uri);
     }
   }
 
-  static final Pattern xmlnsUriPattern = Pattern.compile("xmlns:([a-zA-Z]+)");
+  /**
+   * @return the prefix declared by an attribute named like
+   *         <code>xmlns:([a-zA-Z]+)</code>, or <code>null</code>
+   */
+  private static String getDeclaredPrefix(String qName)
+  {
+    if (qName.length() <= 6 || !qName.startsWith("xmlns:"))
+    {
+      return null;
+    }
+    for (int i = 6; i < qName.length(); i++)
+    {
+      char c = qName.charAt(i);
+      if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z'))
+      {
+        return null;
+      }
+    }
+    return qName.substring(6);
+  }
+
   public void onStartElement(String fileName, Locator locator, String uri, String qName, Attributes attributes, Report report)
   {
 
@@ -295,11 +302,11 @@ public class NamespaceHelper
     for (int i = 0; i < attributes.getLength(); ++i)
     {
       String aqName = attributes.getQName(i);
-      Matcher m = xmlnsUriPattern.matcher(aqName);
-      if (m.matches())
+      String declaredPrefix = getDeclaredPrefix(aqName);
+      if (declaredPrefix != null)
       {
-        // the group holds the prefix, the value holds the uri
-        declareNamespace(m.group(1), attributes.getValue(i), new MessageLocation(fileName, locator.getLineNumber(), locator.getColumnNumber(), aqName), report);
+        // the attribute name holds the prefix, the value holds the uri
+        declareNamespace(declaredPrefix, attributes.getValue(i), new MessageLocation(fileName, locator.getLineNumber(), locator.getColumnNumber(), aqName), report);
       }
       else
       {
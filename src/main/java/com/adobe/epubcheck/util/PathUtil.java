@@ -26,11 +26,24 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.util.Stack;
 import java.util.StringTokenizer;
+import java.util.regex.Pattern;
 
 public class PathUtil
 {
   static final String workingDirectory  = System.getProperty("user.dir");
 
+  private static final Pattern REMOTE = Pattern.compile("[^:/?#]+://.*");
+
+  /**
+   * @return whether the reference is an absolute URL with an authority, such
+   *         as <code>http://example.org/</code>, rather than a path in the
+   *         container
+   */
+  public static boolean isRemote(String ref)
+  {
+    return REMOTE.matcher(ref).matches();
+  }
+
   public static String resolveRelativeReference(String base, String ref,
 			String baseRewrite) throws IllegalArgumentException {
 
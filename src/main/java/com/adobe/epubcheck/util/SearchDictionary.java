@@ -2,10 +2,13 @@ package com.adobe.epubcheck.util;
 
 import com.adobe.epubcheck.messages.MessageId;
 
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class SearchDictionary
 {
+  private static final Map<DictionaryType, SearchDictionary> dictionaries = new ConcurrentHashMap<DictionaryType, SearchDictionary>();
 
   public enum DictionaryType
   {
@@ -39,10 +42,27 @@ public class SearchDictionary
     {
       buildSVGSearchDictionary();
     }
+    searcher = TextSearcher.compile(v);
+  }
+
+  /**
+   * @return a dictionary of the given type shared by all the checks, which must
+   *         not modify its entries
+   */
+  public static SearchDictionary forType(DictionaryType dt)
+  {
+    SearchDictionary dictionary = dictionaries.get(dt);
+    if (dictionary == null)
+    {
+      dictionary = new SearchDictionary(dt);
+      dictionaries.put(dt, dictionary);
+    }
+    return dictionary;
   }
 
   private final Vector<TextSearchDictionaryEntry> v = new Vector<TextSearchDictionaryEntry>();
   private final Vector<TextSearchDictionaryEntry> e = new Vector<TextSearchDictionaryEntry>();
+  private final TextSearcher searcher;
 /*
 	String[] validTypes = new String[] 
 	    { "application/xhtml+xml",
@@ -76,12 +96,12 @@ public class SearchDictionary
 
     //search eval() expression
     description = "rotateX()";
-    value = "rotateX()";
+    value = "rotateX";
     de = new TextSearchDictionaryEntry(description, value, MessageId.CSS_009);
     v.add(de);
 
     description = "rotateY()";
-    value = "rotateY()";
+    value = "rotateY";
     de = new TextSearchDictionaryEntry(description, value, MessageId.CSS_009);
     v.add(de);
 
@@ -175,6 +195,14 @@ public class SearchDictionary
     return e;
   }
 
+  /**
+   * @return the dictionary entries compiled to be searched for all at once
+   */
+  public TextSearcher getSearcher()
+  {
+    return searcher;
+  }
+
   void buildSVGSearchDictionary()
   {
     String description;
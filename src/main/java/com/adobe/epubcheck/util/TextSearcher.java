@@ -0,0 +1,259 @@
+package com.adobe.epubcheck.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Searches a text for all the entries of a dictionary in a single scan.
+ * <p/>
+ * Entries whose expression is a plain string are compiled into an Aho-Corasick
+ * automaton, and the other ones are combined into one regular expression.
+ * Matches are counted for each entry the same way repeated calls to
+ * {@link Matcher#find(int)} from the end of the previous match would count
+ * them: the matches of an entry never overlap, but the matches of different
+ * entries can. Entry expressions must not use back references, as their groups
+ * are renumbered once combined.
+ * <p/>
+ * A searcher is immutable and can be shared between threads.
+ */
+public final class TextSearcher
+{
+  private static final String REGEX_METACHARACTERS = "\\[](){}.*+?^$|";
+
+  private final List<TextSearchDictionaryEntry> entries;
+
+  // the literal entries, as an automaton over the characters they use
+  private final int[] literalEntries;
+  private final int[] literalLengths;
+  private final char[] alphabet;
+  private final int[][] transitions;
+  private final int[][] outputs;
+
+  // the other entries, each captured by a group of the combined expression
+  private final int[] regexEntries;
+  private final int[] regexGroups;
+  private final Pattern combined;
+
+  private TextSearcher(List<TextSearchDictionaryEntry> entries)
+  {
+    this.entries = Collections.unmodifiableList(new ArrayList<TextSearchDictionaryEntry>(entries));
+
+    List<Integer> literals = new ArrayList<Integer>();
+    List<Integer> regexes = new ArrayList<Integer>();
+    for (int i = 0; i < entries.size(); i++)
+    {
+      (isLiteral(entries.get(i).getRegexExp()) ? literals : regexes).add(i);
+    }
+
+    literalEntries = toArray(literals);
+    literalLengths = new int[literalEntries.length];
+    TreeSet<Character> characters = new TreeSet<Character>();
+    for (int l = 0; l < literalEntries.length; l++)
+    {
+      String literal = entries.get(literalEntries[l]).getRegexExp();
+      literalLengths[l] = literal.length();
+      for (int c = 0; c < literal.length(); c++)
+      {
+        characters.add(literal.charAt(c));
+      }
+    }
+    alphabet = new char[characters.size()];
+    int symbol = 0;
+    for (Character c : characters)
+    {
+      alphabet[symbol++] = c;
+    }
+
+    List<int[]> gotos = new ArrayList<int[]>();
+    List<List<Integer>> matches = new ArrayList<List<Integer>>();
+    addState(gotos, matches);
+    for (int l = 0; l < literalEntries.length; l++)
+    {
+      String literal = entries.get(literalEntries[l]).getRegexExp();
+      int state = 0;
+      for (int c = 0; c < literal.length(); c++)
+      {
+        int s = Arrays.binarySearch(alphabet, literal.charAt(c));
+        if (gotos.get(state)[s] < 0)
+        {
+          gotos.get(state)[s] = addState(gotos, matches);
+        }
+        state = gotos.get(state)[s];
+      }
+      matches.get(state).add(l);
+    }
+
+    // turn the trie into a complete automaton, breadth first so that the
+    // failure state of a state is always complete before the state itself
+    int[] failures = new int[gotos.size()];
+    LinkedList<Integer> queue = new LinkedList<Integer>();
+    for (int s = 0; s < alphabet.length; s++)
+    {
+      int next = gotos.get(0)[s];
+      if (next < 0)
+      {
+        gotos.get(0)[s] = 0;
+      }
+      else
+      {
+        failures[next] = 0;
+        queue.add(next);
+      }
+    }
+    while (!queue.isEmpty())
+    {
+      int state = queue.removeFirst();
+      matches.get(state).addAll(matches.get(failures[state]));
+      for (int s = 0; s < alphabet.length; s++)
+      {
+        int next = gotos.get(state)[s];
+        if (next < 0)
+        {
+          gotos.get(state)[s] = gotos.get(failures[state])[s];
+        }
+        else
+        {
+          failures[next] = gotos.get(failures[state])[s];
+          queue.add(next);
+        }
+      }
+    }
+    transitions = gotos.toArray(new int[gotos.size()][]);
+    outputs = new int[matches.size()][];
+    for (int state = 0; state < outputs.length; state++)
+    {
+      outputs[state] = toArray(matches.get(state));
+    }
+
+    regexEntries = toArray(regexes);
+    regexGroups = new int[regexEntries.length];
+    if (regexEntries.length == 0)
+    {
+      combined = null;
+    }
+    else
+    {
+      // the first lookahead only lets the scan stop where an entry matches, the
+      // following ones capture the match of each entry at that position
+      StringBuilder gate = new StringBuilder();
+      StringBuilder captures = new StringBuilder();
+      int group = 0;
+      for (int r = 0; r < regexEntries.length; r++)
+      {
+        String regex = entries.get(regexEntries[r]).getRegexExp();
+        group += Pattern.compile(regex).matcher("").groupCount();
+        gate.append(r == 0 ? "" : "|").append("(?:").append(regex).append(')');
+        captures.append("(?=(").append(regex).append(")?)");
+      }
+      for (int r = 0; r < regexEntries.length; r++)
+      {
+        regexGroups[r] = ++group;
+        group += Pattern.compile(entries.get(regexEntries[r]).getRegexExp()).matcher("").groupCount();
+      }
+      combined = Pattern.compile("(?=" + gate + ")" + captures);
+    }
+  }
+
+  /**
+   * Compiles the given dictionary entries.
+   */
+  public static TextSearcher compile(List<TextSearchDictionaryEntry> entries)
+  {
+    return new TextSearcher(entries);
+  }
+
+  public List<TextSearchDictionaryEntry> getEntries()
+  {
+    return entries;
+  }
+
+  /**
+   * Scans the given text once.
+   *
+   * @return the number of matches in the text of each entry, indexed like
+   *         {@link #getEntries()}
+   */
+  public int[] countMatches(CharSequence text)
+  {
+    int[] counts = new int[entries.size()];
+
+    if (literalEntries.length > 0)
+    {
+      int[] ends = new int[literalEntries.length];
+      int state = 0;
+      for (int i = 0; i < text.length(); i++)
+      {
+        int symbol = Arrays.binarySearch(alphabet, text.charAt(i));
+        state = symbol < 0 ? 0 : transitions[state][symbol];
+        for (int literal : outputs[state])
+        {
+          if (i + 1 - literalLengths[literal] >= ends[literal])
+          {
+            ends[literal] = i + 1;
+            counts[literalEntries[literal]]++;
+          }
+        }
+      }
+    }
+
+    if (combined != null)
+    {
+      int[] ends = new int[regexEntries.length];
+      Matcher matcher = combined.matcher(text);
+      while (matcher.find())
+      {
+        for (int r = 0; r < regexEntries.length; r++)
+        {
+          int start = matcher.start(regexGroups[r]);
+          if (start >= ends[r])
+          {
+            ends[r] = matcher.end(regexGroups[r]);
+            counts[regexEntries[r]]++;
+          }
+        }
+      }
+    }
+    return counts;
+  }
+
+  private static boolean isLiteral(String regex)
+  {
+    if (regex.length() == 0)
+    {
+      return false;
+    }
+    for (int i = 0; i < regex.length(); i++)
+    {
+      if (REGEX_METACHARACTERS.indexOf(regex.charAt(i)) >= 0)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int addState(List<int[]> gotos, List<List<Integer>> matches)
+  {
+    int[] row = new int[alphabet.length];
+    Arrays.fill(row, -1);
+    gotos.add(row);
+    matches.add(new ArrayList<Integer>());
+    return gotos.size() - 1;
+  }
+
+  private static int[] toArray(List<Integer> list)
+  {
+    int[] array = new int[list.size()];
+    for (int i = 0; i < array.length; i++)
+    {
+      array[i] = list.get(i);
+    }
+    return array;
+  }
+}
@@ -58,7 +58,7 @@ public class WriterReportImpl extends MasterReport
   }
 
   @Override
-  public void message(Message message, MessageLocation location, Object... args)
+  public synchronized void message(Message message, MessageLocation location, Object... args)
   {
     if (message.getSeverity().equals(Severity.ERROR))
     {
@@ -105,7 +105,13 @@ public class WriterReportImpl extends MasterReport
   }
 
   @Override
-  public void info(String resource, FeatureEnum feature, String value)
+  public boolean isFeatureReported(FeatureEnum feature)
+  {
+    return feature != FeatureEnum.SHA_256;
+  }
+
+  @Override
+  public synchronized void info(String resource, FeatureEnum feature, String value)
   {
     if (ReportingLevel.Info >= getReportingLevel())
     {
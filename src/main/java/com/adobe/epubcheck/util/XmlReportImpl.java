@@ -5,15 +5,36 @@ import com.adobe.epubcheck.messages.Message;
 import com.adobe.epubcheck.messages.MessageLocation;
 import com.adobe.epubcheck.messages.Severity;
 
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import java.io.*;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
 
+/**
+ * Writes the report as a JHOVE XML document.
+ * <p/>
+ * Messages are spooled to a temporary file as they are reported and only
+ * counted in memory; the document is written with a StAX writer once the
+ * validation is over.
+ */
 public class XmlReportImpl extends MasterReport
 {
+  // the message kinds, in the order they are written
+  private static final int FATAL = 0;
+  private static final int WARN = 1;
+  private static final int ERROR = 2;
+  private static final int HINT = 3;
+  private static final String[] MESSAGE_PREFIXES = {"FATAL: ", "WARN: ", "ERROR: ", "HINT: "};
+  private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+  private static final String DOCMD_PREFIX = "docmd";
+  private static final String DOCMD_NS = "http://www.fcla.edu/docmd";
+
   private final File outputFile;
-  private PrintWriter out;
+  private XMLStreamWriter out;
 
   private String epubCheckDate;
   private String epubCheckName = "epubcheck";
@@ -45,10 +66,10 @@ public class XmlReportImpl extends MasterReport
   private boolean hasFixedLayout;
   private boolean hasScripts;
 
-  private final List<String> warns = new ArrayList<String>();
-  private final List<String> errors = new ArrayList<String>();
-  private final List<String> fatalErrors = new ArrayList<String>();
-  private final List<String> hints = new ArrayList<String>();
+  private final int[] messageCounts = new int[MESSAGE_PREFIXES.length];
+  private File spoolFile;
+  private DataOutputStream spool;
+  private IOException spoolError;
 
   public XmlReportImpl(File out, String ePubName, String versionEpubCheck)
   {
@@ -64,10 +85,18 @@ public class XmlReportImpl extends MasterReport
   @Override
   public void close()
   {
+    try
+    {
+      closeSpool();
+    }
+    catch (IOException ignored)
+    {
+      // reported when the document is generated
+    }
   }
 
   @Override
-  public void message(Message message, MessageLocation location, Object... args)
+  public synchronized void message(Message message, MessageLocation location, Object... args)
   {
     if (message.getSeverity().equals(Severity.ERROR))
     {
@@ -85,32 +114,86 @@ public class XmlReportImpl extends MasterReport
 
   void error(String resource, int line, int column, String message)
   {
-    errors.add((resource == null ? "" : "/" + resource) +
-        (line <= 0 ? "" : "(" + line + ")") + ": " + message);
-    	
+    spoolMessage(ERROR, resource, line, message);
   }
 
   public void hint(String resource, int line, int column, String message)
   {
-    hints.add((resource == null ? "" : "/" + resource) +
-              (line <= 0 ? "" : "(" + line + ")") + ": " + message );
-
+    spoolMessage(HINT, resource, line, message);
   }
 
   void fatalError(String resource, int line, int column, String message)
   {
-    fatalErrors.add((resource == null ? "" : "/" + resource) +
-        (line <= 0 ? "" : "(" + line + ")") + ": " + message);
+    spoolMessage(FATAL, resource, line, message);
   }
 
   void warning(String resource, int line, int column, String message)
   {
-    warns.add((resource == null ? "" : "/" + resource) +
-        (line <= 0 ? "" : "(" + line + ")") + ": " + message);
+    spoolMessage(WARN, resource, line, message);
+  }
+
+  private synchronized void spoolMessage(int kind, String resource, int line, String message)
+  {
+    if (spoolError != null)
+    {
+      return;
+    }
+    String text = (resource == null ? "" : "/" + resource) +
+        (line <= 0 ? "" : "(" + line + ")") + ": " + message;
+    try
+    {
+      if (spool == null)
+      {
+        if (spoolFile != null)
+        {
+          throw new IOException("the report was already generated");
+        }
+        spoolFile = File.createTempFile("epubcheck", ".messages");
+        spool = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spoolFile)));
+      }
+      byte[] bytes = text.getBytes("UTF-8");
+      spool.writeByte(kind);
+      spool.writeInt(bytes.length);
+      spool.write(bytes);
+      messageCounts[kind]++;
+    }
+    catch (IOException e)
+    {
+      spoolError = e;
+    }
+  }
+
+  private synchronized void closeSpool() throws
+      IOException
+  {
+    if (spool != null)
+    {
+      DataOutputStream stream = spool;
+      spool = null;
+      stream.close();
+    }
+    if (spoolError != null)
+    {
+      throw spoolError;
+    }
+  }
+
+  private synchronized void deleteSpool()
+  {
+    if (spoolFile != null && !spoolFile.delete())
+    {
+      spoolFile.deleteOnExit();
+    }
   }
 
   @Override
-  public void info(String resource, FeatureEnum feature, String value)
+  public boolean isFeatureReported(FeatureEnum feature)
+  {
+    return feature != FeatureEnum.SHA_256;
+  }
+
+  @Override
+  public synchronized void info(String resource, FeatureEnum feature, String value)
   {
     switch (feature)
     {
@@ -219,23 +302,31 @@ public class XmlReportImpl extends MasterReport
 
   public int generate()
   {
-    // Quick and dirty XML generation...
     int returnCode = 1;
-    out = null;
+    OutputStream os = null;
     int ident = 0;
 
     try
     {
-      out = new PrintWriter(outputFile, "UTF-8");
-      out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+      closeSpool();
+      os = new BufferedOutputStream(new FileOutputStream(outputFile));
+      out = XMLOutputFactory.newInstance().createXMLStreamWriter(os, "UTF-8");
+      out.writeStartDocument("UTF-8", "1.0");
+      endLine();
       String epubCheckDate = "2012-10-31";
-      output(ident++,
-          "<jhove xmlns=\"http://hul.harvard.edu/ois/xml/ns/jhove\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"" +
-              // " xsi:schemaLocation=\"http://hul.harvard.edu/ois/xml/ns/jhove jhove.xsd\"" + 
-              " name=\"" + epubCheckName + "\" release=\"" + epubCheckVersion +
-              "\" date=\"" + epubCheckDate + "\">");
+      startLine(ident++);
+      out.writeStartElement("jhove");
+      out.writeDefaultNamespace("http://hul.harvard.edu/ois/xml/ns/jhove");
+      out.writeNamespace("xsi", "http://www.w3.org/2001/XMLSchema-instance");
+      out.writeAttribute("name", epubCheckName);
+      out.writeAttribute("release", epubCheckVersion);
+      out.writeAttribute("date", epubCheckDate);
+      endLine();
       generateElement(ident, "date", fromTime(System.currentTimeMillis()));
-            output(ident++, "<repInfo uri=\"" + encodeContent(getNameFromPath(getEpubFileName())) + "\">");
+      startLine(ident++);
+      out.writeStartElement("repInfo");
+      out.writeAttribute("uri", getNameFromPath(getEpubFileName()));
+      endLine();
       generateElement(ident, "created", creationDate);
       generateElement(ident, "lastModified", lastModifiedDate);
       if (formatName == null)
@@ -252,7 +343,7 @@ public class XmlReportImpl extends MasterReport
       {
         generateElement(ident, "customMessageFileName", customMessageFileName);
       }
-      if (fatalErrors.isEmpty() && errors.isEmpty())
+      if (messageCounts[FATAL] == 0 && messageCounts[ERROR] == 0)
       {
         generateElement(ident, "status", "Well-formed");
       }
@@ -260,38 +351,31 @@ public class XmlReportImpl extends MasterReport
       {
         generateElement(ident, "status", "Not well-formed");
       }
-      if (!warns.isEmpty() || !fatalErrors.isEmpty() || !errors.isEmpty() || !hints.isEmpty())
+      if (spoolFile != null)
       {
-        output(ident++, "<messages>");
-        for (String f : fatalErrors)
-        {
-          generateElement(ident, "message", "FATAL: " + encodeContent(f));
-        }
-
-        for (String w : warns)
-        {
-          generateElement(ident, "message", "WARN: " + encodeContent(w));
-        }
-
-        for (String e : errors)
-        {
-          generateElement(ident, "message", "ERROR: " + encodeContent(e));
-        }
-
-        for (String e : hints)
+        startLine(ident++);
+        out.writeStartElement("messages");
+        endLine();
+        // the messages are read back from the spool file, one severity at a time
+        for (int kind = 0; kind < MESSAGE_PREFIXES.length; kind++)
         {
-            generateElement(ident, "message", "HINT: " + encodeContent(e));
+          if (messageCounts[kind] > 0)
+          {
+            generateMessages(ident, kind);
+          }
         }
-        output(--ident, "</messages>");
+        closeElements(--ident, 1);
       }
       generateElement(ident, "mimeType", formatName);
-      output(ident++, "<properties>");
+      startLine(ident++);
+      out.writeStartElement("properties");
+      endLine();
 
       generateProperty(ident, "PageCount", pagesCount);
       generateProperty(ident, "CharacterCount", charsCount);
       generateProperty(ident, "Language", language, "String");
 
-      output(ident++, "<property><name>Info</name><values arity=\"List\" type=\"Property\">");
+      startListProperty(ident++, "Info");
       generateProperty(ident, "Identifier", identifier, "String");
       generateProperty(ident, "CreationDate", creationDate, "Date");
       generateProperty(ident, "ModDate", lastModifiedDate, "Date");
@@ -318,37 +402,37 @@ public class XmlReportImpl extends MasterReport
         String[] cs = new String[0];
         generateProperty(ident, "Rights", cs, "String");
       }
-      output(--ident, "</values></property>");
+      closeElements(--ident, 2);
 
       if (!embeddedFonts.isEmpty() || !refFonts.isEmpty())
       {
-        output(ident++, "<property><name>Fonts</name><values arity=\"List\" type=\"Property\">");
+        startListProperty(ident++, "Fonts");
 
         for (String f : embeddedFonts)
         {
-          output(ident++, "<property><name>Font</name><values arity=\"List\" type=\"Property\">");
+          startListProperty(ident++, "Font");
           generateProperty(ident, "FontName", encodeContent(getNameFromPath(f)), "String");
           generateProperty(ident, "FontFile", true);
-          output(--ident, "</values></property>");
+          closeElements(--ident, 2);
         }
         for (String f : refFonts)
         {
-          output(ident++, "<property><name>Font</name><values arity=\"List\" type=\"Property\">");
+          startListProperty(ident++, "Font");
           generateProperty(ident, "FontName", encodeContent(getNameFromPath(f)), "String");
           generateProperty(ident, "FontFile", false);
-          output(--ident, "</values></property>");
+          closeElements(--ident, 2);
         }
-        output(--ident, "</values></property>");
+        closeElements(--ident, 2);
       }
 
       if (!references.isEmpty())
       {
-        output(ident++, "<property><name>References</name><values arity=\"List\" type=\"Property\">");
+        startListProperty(ident++, "References");
         for (String r : references)
         {
           generateProperty(ident, "Reference", encodeContent(r), "String");
         }
-        output(--ident, "</values></property>");
+        closeElements(--ident, 2);
       }
 
       if (hasEncryption)
@@ -379,13 +463,22 @@ public class XmlReportImpl extends MasterReport
       boolean withDocumentMD = false;
       if (withDocumentMD)
       {
-        output(ident++, "<property><name>DocumentMDMetadata</name><values arity=\"Scalar\" type=\"Object\"><value>");
+        startLine(ident++);
+        out.writeStartElement("property");
+        writeTextElement("name", "DocumentMDMetadata");
+        out.writeStartElement("values");
+        out.writeAttribute("arity", "Scalar");
+        out.writeAttribute("type", "Object");
+        out.writeStartElement("value");
+        endLine();
         generateDocumentMD(ident);
-        output(--ident, "</value></values></property>");
+        closeElements(--ident, 3);
       }
-      output(--ident, "</properties>");
-      output(--ident, "</repInfo>");
-      output(--ident, "</jhove>");
+      closeElements(--ident, 1);
+      closeElements(--ident, 1);
+      closeElements(--ident, 1);
+      out.writeEndDocument();
+      out.flush();
       returnCode = 0;
     }
     catch (FileNotFoundException e)
@@ -393,11 +486,6 @@ public class XmlReportImpl extends MasterReport
       System.err.println("FileNotFound error: " + e.getMessage());
       returnCode = 1;
     }
-    catch (UnsupportedEncodingException e)
-    {
-      System.err.println("FileNotFound error: " + e.getMessage());
-      returnCode = 1;
-    }
     catch (IOException e)
     {
       System.err.println("IOException error: " + e.getMessage());
@@ -412,114 +500,225 @@ public class XmlReportImpl extends MasterReport
     {
       if (out != null)
       {
-        out.close();
+        try
+        {
+          out.close();
+        }
+        catch (XMLStreamException ignored)
+        {
+        }
+        out = null;
       }
+      if (os != null)
+      {
+        try
+        {
+          os.close();
+        }
+        catch (IOException e)
+        {
+          System.err.println("IOException error: " + e.getMessage());
+          returnCode = 1;
+        }
+      }
+      deleteSpool();
     }
     return returnCode;
   }
 
-  private void generateDocumentMD(int ident)
+  private void generateMessages(int ident, int kind) throws
+      IOException,
+      XMLStreamException
   {
-    output(ident++, "<docmd:document xmlns:docmd=\"http://www.fcla.edu/docmd\">");
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(spoolFile)));
+    try
+    {
+      int remaining = messageCounts[kind];
+      while (remaining > 0)
+      {
+        int recordKind = in.readByte();
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        if (recordKind == kind)
+        {
+          generateElement(ident, "message", MESSAGE_PREFIXES[kind] + encodeContent(new String(bytes, "UTF-8")));
+          remaining--;
+        }
+      }
+    }
+    finally
+    {
+      in.close();
+    }
+  }
 
-    generateElement(ident, "docmd:PageCount", pagesCount);
-    generateElement(ident, "docmd:CharacterCount", charsCount);
-    generateElement(ident, "docmd:Language", language);
+  private void generateDocumentMD(int ident) throws
+      XMLStreamException
+  {
+    startLine(ident++);
+    out.writeStartElement(DOCMD_PREFIX, "document", DOCMD_NS);
+    out.writeNamespace(DOCMD_PREFIX, DOCMD_NS);
+    endLine();
+
+    generateDocumentMDElement(ident, "PageCount", pagesCount == 0 ? null : Long.toString(pagesCount));
+    generateDocumentMDElement(ident, "CharacterCount", charsCount == 0 ? null : Long.toString(charsCount));
+    generateDocumentMDElement(ident, "Language", language);
     for (String f : embeddedFonts)
     {
-      output(ident, "<docmd:Font FontName=\"" + encodeContent(getNameFromPath(f)) + "\" isEmbedded=\"true\" />");
+      generateDocumentMDFont(ident, f, true);
     }
     for (String f : refFonts)
     {
-      output(ident, "<docmd:Font FontName=\"" + encodeContent(getNameFromPath(f)) + "\" isEmbedded=\"false\" />");
+      generateDocumentMDFont(ident, f, false);
     }
     for (String r : references)
     {
-      generateElement(ident, "docmd:Reference", encodeContent(r));
+      generateDocumentMDElement(ident, "Reference", encodeContent(r));
     }
-    //if (hasEncryption) generateElement(ident, "docmd:Features", "hasEncryption");
-    //if (hasSignatures) generateElement(ident, "docmd:Features", "hasSignatures");
+    //if (hasEncryption) generateDocumentMDElement(ident, "Features", "hasEncryption");
+    //if (hasSignatures) generateDocumentMDElement(ident, "Features", "hasSignatures");
     if (hasAudio)
     {
-      generateElement(ident, "docmd:Features", "hasAudio");
+      generateDocumentMDElement(ident, "Features", "hasAudio");
     }
     if (hasVideo)
     {
-      generateElement(ident, "docmd:Features", "hasVideo");
+      generateDocumentMDElement(ident, "Features", "hasVideo");
     }
     if (hasFixedLayout)
     {
-      generateElement(ident, "docmd:Features", "hasFixedLayout");
+      generateDocumentMDElement(ident, "Features", "hasFixedLayout");
     }
     if (hasScripts)
     {
-      generateElement(ident, "docmd:Features", "hasScripts");
+      generateDocumentMDElement(ident, "Features", "hasScripts");
     }
 
-    output(--ident, "</docmd:document>");
+    closeElements(--ident, 1);
   }
 
-  private void output(int ident, String value)
+  private void generateDocumentMDElement(int ident, String name, String value) throws
+      XMLStreamException
+  {
+    if (value == null || value.trim().length() == 0)
+    {
+      return;
+    }
+    startLine(ident);
+    out.writeStartElement(DOCMD_PREFIX, name, DOCMD_NS);
+    out.writeCharacters(value.trim());
+    out.writeEndElement();
+    endLine();
+  }
+
+  private void generateDocumentMDFont(int ident, String font, boolean embedded) throws
+      XMLStreamException
+  {
+    startLine(ident);
+    out.writeEmptyElement(DOCMD_PREFIX, "Font", DOCMD_NS);
+    out.writeAttribute("FontName", encodeContent(getNameFromPath(font)));
+    out.writeAttribute("isEmbedded", embedded ? "true" : "false");
+    endLine();
+  }
+
+  private void startLine(int ident) throws
+      XMLStreamException
   {
     char[] spaces = new char[ident];
     Arrays.fill(spaces, ' ');
-    out.print(spaces);
-    out.println(value);
+    out.writeCharacters(spaces, 0, ident);
   }
 
-  private void generateElement(int ident, String name, String value)
+  private void endLine() throws
+      XMLStreamException
   {
-    if (value == null || value.trim().length() == 0)
+    out.writeCharacters(LINE_SEPARATOR);
+  }
+
+  /**
+   * Closes the given number of elements, on a line of their own.
+   */
+  private void closeElements(int ident, int count) throws
+      XMLStreamException
+  {
+    startLine(ident);
+    for (int i = 0; i < count; i++)
     {
-      return;
+      out.writeEndElement();
     }
-    StringBuilder sb = new StringBuilder();
-    sb.append('<').append(name).append('>');
-    sb.append(encodeContent(value.trim()));
-    sb.append("</").append(name).append('>');
-    output(ident, sb.toString());
+    endLine();
   }
 
-  private void generateElement(int ident, String name, long value)
+  /**
+   * Opens a property holding a list of properties; the property and its
+   * values element are closed by {@link #closeElements(int, int)}.
+   */
+  private void startListProperty(int ident, String name) throws
+      XMLStreamException
   {
-    if (value == 0)
+    startLine(ident);
+    out.writeStartElement("property");
+    writeTextElement("name", name);
+    out.writeStartElement("values");
+    out.writeAttribute("arity", "List");
+    out.writeAttribute("type", "Property");
+    endLine();
+  }
+
+  private void writeTextElement(String name, String value) throws
+      XMLStreamException
+  {
+    out.writeStartElement(name);
+    out.writeCharacters(value);
+    out.writeEndElement();
+  }
+
+  private void generateElement(int ident, String name, String value) throws
+      XMLStreamException
+  {
+    if (value == null || value.trim().length() == 0)
     {
       return;
     }
-    generateElement(ident, name, Long.toString(value));
+    startLine(ident);
+    writeTextElement(name, value.trim());
+    endLine();
   }
 
-  private void generateProperty(int ident, String name, String[] value, String type)
+  private void generateProperty(int ident, String name, String[] value, String type) throws
+      XMLStreamException
   {
     if (value == null || value.length == 0)
     {
       return;
     }
-    StringBuilder sb = new StringBuilder();
-    sb.append("<property><name>").append(name).append("</name>");
-    sb.append("<values arity=\"").append(value.length == 1 ? "Scalar" : "Array").append("\" type=\"").append(type).append("\">");
+    startLine(ident);
+    out.writeStartElement("property");
+    writeTextElement("name", name);
+    out.writeStartElement("values");
+    out.writeAttribute("arity", value.length == 1 ? "Scalar" : "Array");
+    out.writeAttribute("type", type);
     for (String v : value)
     {
-      sb.append("<value>").append(encodeContent(v)).append("</value>");
+      writeTextElement("value", v == null ? "" : v);
     }
-    sb.append("</values></property>");
-    output(ident, sb.toString());
+    out.writeEndElement();
+    out.writeEndElement();
+    endLine();
   }
 
-  private void generateProperty(int ident, String name, String value, String type)
+  private void generateProperty(int ident, String name, String value, String type) throws
+      XMLStreamException
   {
     if (value == null || value.trim().length() == 0)
     {
       return;
     }
-    StringBuilder sb = new StringBuilder();
-    sb.append("<property><name>").append(name).append("</name><values arity=\"Scalar\" type=\"").append(type).append("\">");
-    sb.append("<value>").append(encodeContent(value)).append("</value>");
-    sb.append("</values></property>");
-    output(ident, sb.toString());
+    generateProperty(ident, name, new String[]{value}, type);
   }
 
-  private void generateProperty(int ident, String name, long value)
+  private void generateProperty(int ident, String name, long value) throws
+      XMLStreamException
   {
     if (value == 0)
     {
@@ -528,7 +727,8 @@ public class XmlReportImpl extends MasterReport
     generateProperty(ident, name, Long.toString(value), "Long");
   }
 
-  private void generateProperty(int ident, String name, boolean value)
+  private void generateProperty(int ident, String name, boolean value) throws
+      XMLStreamException
   {
     generateProperty(ident, name, value ? "true" : "false", "Boolean");
   }
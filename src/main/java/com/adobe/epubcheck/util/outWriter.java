@@ -2,7 +2,7 @@ package com.adobe.epubcheck.util;
 
 public class outWriter
 {
-  static boolean isQuiet = false;
+  static volatile boolean isQuiet = false;
   public outWriter(){}
 
   public static void setQuiet(boolean isQuiet)
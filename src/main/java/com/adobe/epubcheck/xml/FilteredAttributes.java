@@ -0,0 +1,109 @@
+package com.adobe.epubcheck.xml;
+
+import org.xml.sax.Attributes;
+
+import java.util.Arrays;
+
+/**
+ * A view of the attributes reported by the parser without some of them,
+ * selected by index. The view doesn't copy the attributes and is only valid
+ * during the <code>startElement</code> event it was set up for.
+ */
+final class FilteredAttributes implements Attributes
+{
+  private Attributes attributes;
+  private int[] indexes = new int[8];
+  private int length;
+
+  /**
+   * Resets the view to the given attributes, with no attribute kept.
+   */
+  void reset(Attributes attributes)
+  {
+    this.attributes = attributes;
+    this.length = 0;
+  }
+
+  /**
+   * Keeps the attribute at the given index of the underlying attributes.
+   * Attributes must be kept in increasing index order.
+   */
+  void keep(int index)
+  {
+    if (length == indexes.length)
+    {
+      indexes = Arrays.copyOf(indexes, 2 * length);
+    }
+    indexes[length++] = index;
+  }
+
+  private int toViewIndex(int index)
+  {
+    return index < 0 ? -1 : Math.max(-1, Arrays.binarySearch(indexes, 0, length, index));
+  }
+
+  private boolean isValid(int index)
+  {
+    return index >= 0 && index < length;
+  }
+
+  public int getLength()
+  {
+    return length;
+  }
+
+  public String getURI(int index)
+  {
+    return isValid(index) ? attributes.getURI(indexes[index]) : null;
+  }
+
+  public String getLocalName(int index)
+  {
+    return isValid(index) ? attributes.getLocalName(indexes[index]) : null;
+  }
+
+  public String getQName(int index)
+  {
+    return isValid(index) ? attributes.getQName(indexes[index]) : null;
+  }
+
+  public String getType(int index)
+  {
+    return isValid(index) ? attributes.getType(indexes[index]) : null;
+  }
+
+  public String getValue(int index)
+  {
+    return isValid(index) ? attributes.getValue(indexes[index]) : null;
+  }
+
+  public int getIndex(String uri, String localName)
+  {
+    return toViewIndex(attributes.getIndex(uri, localName));
+  }
+
+  public int getIndex(String qName)
+  {
+    return toViewIndex(attributes.getIndex(qName));
+  }
+
+  public String getType(String uri, String localName)
+  {
+    return getType(getIndex(uri, localName));
+  }
+
+  public String getType(String qName)
+  {
+    return getType(getIndex(qName));
+  }
+
+  public String getValue(String uri, String localName)
+  {
+    return getValue(getIndex(uri, localName));
+  }
+
+  public String getValue(String qName)
+  {
+    return getValue(getIndex(qName));
+  }
+}
@@ -0,0 +1,84 @@
+package com.adobe.epubcheck.xml;
+
+import com.adobe.epubcheck.util.ResourceUtil;
+import com.thaiopensource.validate.Schema;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Process-wide cache of compiled schemas, keyed by schema resource path.
+ * <p/>
+ * Compiled Jing schemas are immutable and can create any number of validators
+ * concurrently, so every {@link XMLValidator} for the same resource shares a
+ * single instance. A schema is compiled the first time it is requested; other
+ * threads asking for it in the meantime wait for that compilation instead of
+ * starting their own.
+ */
+public final class SchemaCache
+{
+  private static final ConcurrentMap<String, FutureTask<Schema>> schemas = new ConcurrentHashMap<String, FutureTask<Schema>>();
+
+  private SchemaCache()
+  {
+  }
+
+  public static Schema getSchema(final String schemaName)
+  {
+    String resourcePath = ResourceUtil.getResourcePath(schemaName);
+    FutureTask<Schema> task = schemas.get(resourcePath);
+    if (task == null)
+    {
+      FutureTask<Schema> newTask = new FutureTask<Schema>(new Callable<Schema>()
+      {
+        public Schema call() throws
+            Exception
+        {
+          return XMLValidator.createSchema(schemaName);
+        }
+      });
+      task = schemas.putIfAbsent(resourcePath, newTask);
+      if (task == null)
+      {
+        task = newTask;
+        task.run();
+      }
+    }
+
+    try
+    {
+      return task.get();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    catch (ExecutionException e)
+    {
+      // don't keep the failure around, a later request may succeed
+      schemas.remove(resourcePath, task);
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException)
+      {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error)
+      {
+        throw (Error) cause;
+      }
+      throw new Error("Internal error: " + cause + " " + schemaName);
+    }
+  }
+
+  /**
+   * Drops all the compiled schemas; they are compiled again on next use.
+   */
+  public static void clear()
+  {
+    schemas.clear();
+  }
+}
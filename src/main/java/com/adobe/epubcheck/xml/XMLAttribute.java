@@ -27,9 +27,9 @@ public class XMLAttribute extends XMLNode
 
   private final String value;
 
-  XMLAttribute(String namespace, String prefix, String name, String value)
+  XMLAttribute(String namespace, String name, String qName, String value)
   {
-    super(namespace, prefix, name);
+    super(namespace, name, qName);
     this.value = value;
   }
 
@@ -22,34 +22,88 @@
 
 package com.adobe.epubcheck.xml;
 
+import java.util.Arrays;
+
+/**
+ * An element of the document being parsed.
+ * <p/>
+ * The parser reuses one instance per depth of the element stack, so an
+ * element is only valid until its end tag: handlers must not keep references
+ * to it past {@link XMLHandler#endElement()}.
+ */
 public class XMLElement extends XMLNode
 {
 
-  private final XMLAttribute[] attributes;
+  // namespace, name, qualified name and value of each attribute
+  private String[] attributeData = new String[4 * 8];
+
+  private int attributeCount;
+
+  // created on demand by getAttribute(int)
+  private XMLAttribute[] attributes;
 
   private final XMLElement parent;
 
   private Object privateData;
 
-  XMLElement(String namespace, String prefix, String name,
-      XMLAttribute[] attributes, XMLElement parent)
+  XMLElement(XMLElement parent)
   {
-    super(namespace, prefix, name);
-    this.attributes = attributes;
+    super(null, null, "");
     this.parent = parent;
   }
 
-  public int getAttributeCount()
+  void start(String namespace, String name, String qName)
+  {
+    set(namespace, name, qName);
+    if (attributes != null)
+    {
+      Arrays.fill(attributes, 0, Math.min(attributeCount, attributes.length), null);
+    }
+    Arrays.fill(attributeData, 0, 4 * attributeCount, null);
+    attributeCount = 0;
+    privateData = null;
+  }
+
+  void addAttribute(String namespace, String name, String qName, String value)
   {
-    if (attributes == null)
+    int offset = 4 * attributeCount;
+    if (offset == attributeData.length)
     {
-      return 0;
+      attributeData = Arrays.copyOf(attributeData, 2 * offset);
     }
-    return attributes.length;
+    attributeData[offset] = namespace;
+    attributeData[offset + 1] = name;
+    attributeData[offset + 2] = qName;
+    attributeData[offset + 3] = value;
+    attributeCount++;
+  }
+
+  public int getAttributeCount()
+  {
+    return attributeCount;
   }
 
   public XMLAttribute getAttribute(int i)
   {
+    if (i < 0 || i >= attributeCount)
+    {
+      throw new ArrayIndexOutOfBoundsException(i);
+    }
+    if (attributes == null || attributes.length < attributeCount)
+    {
+      XMLAttribute[] created = new XMLAttribute[attributeData.length / 4];
+      if (attributes != null)
+      {
+        System.arraycopy(attributes, 0, created, 0, attributes.length);
+      }
+      attributes = created;
+    }
+    if (attributes[i] == null)
+    {
+      int offset = 4 * i;
+      attributes[i] = new XMLAttribute(attributeData[offset], attributeData[offset + 1],
+          attributeData[offset + 2], attributeData[offset + 3]);
+    }
     return attributes[i];
   }
 
@@ -60,17 +114,13 @@ public class XMLElement extends XMLNode
 
   public String getAttributeNS(String ns, String name)
   {
-    if (attributes == null)
-    {
-      return null;
-    }
-    for (XMLAttribute attr : attributes)
+    for (int offset = 0; offset < 4 * attributeCount; offset += 4)
     {
-      String ans = attr.getNamespace();
-      if (attr.getName().equals(name)
+      String ans = attributeData[offset];
+      if (attributeData[offset + 1].equals(name)
           && (ans == null ? ns == null : ns != null && ans.equals(ns)))
       {
-        return attr.getValue();
+        return attributeData[offset + 3];
       }
     }
     return null;
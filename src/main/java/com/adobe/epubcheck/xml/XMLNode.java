@@ -25,15 +25,22 @@ package com.adobe.epubcheck.xml;
 public class XMLNode
 {
 
-  private final String namespace;
-  private final String name;
-  private final String prefix;
+  private String namespace;
+  private String name;
+  private String qName;
+  private String prefix;
 
-  XMLNode(String namespace, String prefix, String name)
+  XMLNode(String namespace, String name, String qName)
+  {
+    set(namespace, name, qName);
+  }
+
+  void set(String namespace, String name, String qName)
   {
     this.namespace = namespace;
-    this.prefix = prefix;
     this.name = name;
+    this.qName = qName;
+    this.prefix = null;
   }
 
   public String getName()
@@ -48,6 +55,16 @@ public class XMLNode
 
   public String getPrefix()
   {
+    // most nodes are never asked for their prefix
+    if (prefix == null)
+    {
+      int index = qName.indexOf(':');
+      if (index < 0)
+      {
+        return null;
+      }
+      prefix = qName.substring(0, index);
+    }
     return prefix;
   }
 
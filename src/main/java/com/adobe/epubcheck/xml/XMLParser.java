@@ -35,7 +35,6 @@ import org.xml.sax.*;
 import org.xml.sax.ext.DeclHandler;
 import org.xml.sax.ext.LexicalHandler;
 import org.xml.sax.ext.Locator2;
-import org.xml.sax.helpers.AttributesImpl;
 import org.xml.sax.helpers.DefaultHandler;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -54,6 +53,9 @@ public class XMLParser extends DefaultHandler implements LexicalHandler, DeclHan
   private final InputStream resourceIn;
   private final Vector<XMLHandler> contentHandlers = new Vector<XMLHandler>();
   private XMLElement currentElement;
+  private final List<XMLElement> elementStack = new ArrayList<XMLElement>();
+  private int depth;
+  private final FilteredAttributes filteredAttributes = new FilteredAttributes();
   private final Vector<ContentHandler> validatorContentHandlers = new Vector<ContentHandler>();
   private final Vector<DTDHandler> validatorDTDHandlers = new Vector<DTDHandler>();
   private final Vector<LexicalHandler> validatorLexicalHandlers = new Vector<LexicalHandler>();
@@ -385,6 +387,7 @@ public class XMLParser extends DefaultHandler implements LexicalHandler, DeclHan
       (contentHandlers.elementAt(i)).endElement();
     }
     currentElement = currentElement.getParent();
+    depth--;
   }
 
   public void endPrefixMapping(String arg0) throws
@@ -472,34 +475,29 @@ public class XMLParser extends DefaultHandler implements LexicalHandler, DeclHan
       SAXException
   {
 
-    AttributesImpl attribs = new AttributesImpl(atts);
-
-    if (mimeType.equals("application/xhtml+xml")
-        && version == EPUBVersion.VERSION_3)
+    // data-* attributes are hidden from the schema validators, by masking
+    // their index in the attributes the parser reported
+    boolean filterData = mimeType.equals("application/xhtml+xml")
+        && version == EPUBVersion.VERSION_3;
+    Attributes attribs = atts;
+    int count = atts.getLength();
+    if (filterData)
     {
-      try
+      for (int i = 0; i < count; i++)
       {
-        int len = attribs.getLength();
-        List<String> removals = new ArrayList<String>();
-        for (int i = 0; i < len; i++)
+        if (atts.getLocalName(i).startsWith("data-"))
         {
-          if (attribs.getLocalName(i).startsWith("data-"))
+          filteredAttributes.reset(atts);
+          for (int j = 0; j < count; j++)
           {
-            removals.add(attribs.getQName(i));
+            if (!atts.getLocalName(j).startsWith("data-"))
+            {
+              filteredAttributes.keep(j);
+            }
           }
+          attribs = filteredAttributes;
+          break;
         }
-        for (String remove : removals)
-        {
-          int rmv = attribs.getIndex(remove);
-          // outWriter.println("removing attribute " +
-          // attribs.getQName(rmv));
-          attribs.removeAttribute(rmv);
-        }
-      }
-      catch (Exception e)
-      {
-        System.err.println("data-* removal exception: "
-            + e.getMessage());
       }
     }
 
@@ -509,44 +507,26 @@ public class XMLParser extends DefaultHandler implements LexicalHandler, DeclHan
       (validatorContentHandlers.elementAt(i))
           .startElement(namespaceURI, localName, qName, attribs);
     }
-    int index = qName.indexOf(':');
-    String prefix;
-    String name;
-    if (index < 0)
-    {
-      prefix = null;
-      name = qName;
-    }
-    else
+
+    // elements are reused along the element stack
+    if (depth == elementStack.size())
     {
-      prefix = qName.substring(0, index);
-      name = qName.substring(index + 1);
+      elementStack.add(new XMLElement(currentElement));
     }
-    int count = attribs.getLength();
-    XMLAttribute[] attributes = count == 0 ? null : new XMLAttribute[count];
+    XMLElement element = elementStack.get(depth++);
+    element.start(namespaceURI, getLocalName(localName, qName), qName);
     for (int i = 0; i < count; i++)
     {
-      String attName = attribs.getLocalName(i);
-      String attNamespace = attribs.getURI(i);
-      String attQName = attribs.getQName(i);
-      int attIndex = attQName.indexOf(':');
-      String attPrefix;
-      if (attIndex < 0)
+      String attName = atts.getLocalName(i);
+      if (filterData && attName.startsWith("data-"))
       {
-        attPrefix = null;
-        attNamespace = null;
+        continue;
       }
-      else
-      {
-        attPrefix = attQName.substring(0, attIndex);
-      }
-      String attValue = attribs.getValue(i);
-      assert attributes != null;
-      attributes[i] = new XMLAttribute(attNamespace, attPrefix, attName,
-          attValue);
+      String attQName = atts.getQName(i);
+      String attNamespace = attQName.indexOf(':') < 0 ? null : atts.getURI(i);
+      element.addAttribute(attNamespace, attName, attQName, atts.getValue(i));
     }
-    currentElement = new XMLElement(namespaceURI, prefix, name, attributes,
-        currentElement);
+    currentElement = element;
     int len = contentHandlers.size();
     for (int i = 0; i < len; i++)
     {
@@ -554,6 +534,16 @@ public class XMLParser extends DefaultHandler implements LexicalHandler, DeclHan
     }
   }
 
+  private static String getLocalName(String localName, String qName)
+  {
+    if (localName.length() > 0)
+    {
+      return localName;
+    }
+    int index = qName.indexOf(':');
+    return index < 0 ? qName : qName.substring(index + 1);
+  }
+
   public void startPrefixMapping(String arg0, String arg1)
       throws
       SAXException
@@ -189,7 +189,7 @@ public class XMLValidator
   }
 
   // handles errors in schemas
-  private class ErrorHandlerImpl implements ErrorHandler
+  private static class ErrorHandlerImpl implements ErrorHandler
   {
 
     public void error(SAXParseException exception) throws
@@ -212,7 +212,21 @@ public class XMLValidator
 
   }
 
+  /**
+   * Creates a validator for the given schema resource. The compiled schema
+   * comes from the {@link SchemaCache} and is shared with all the other
+   * validators for the same resource.
+   */
   public XMLValidator(String schemaName)
+  {
+    schema = SchemaCache.getSchema(schemaName);
+  }
+
+  /**
+   * Compiles the given schema resource. Use {@link SchemaCache#getSchema(String)}
+   * rather than calling this directly.
+   */
+  static Schema createSchema(String schemaName)
   {
     try
     {
@@ -246,7 +260,7 @@ public class XMLValidator
         schemaReader = new AutoSchemaReader();
       }
 
-      schema = schemaReader.createSchema(schemaSource,
+      return schemaReader.createSchema(schemaSource,
           mapBuilder.toPropertyMap());
     }
     catch (RuntimeException e)
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2012 International Digital Publishing Forum
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of
+ *  this software and associated documentation files (the "Software"), to deal in
+ *  the Software without restriction, including without limitation the rights to
+ *  use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ *  the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ *  FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ *  COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ *  IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *  CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package org.idpf.epubcheck.util.css;
+
+import org.idpf.epubcheck.util.css.CssExceptions.CssException;
+import org.idpf.epubcheck.util.css.CssGrammar.CssAtRule;
+import org.idpf.epubcheck.util.css.CssGrammar.CssDeclaration;
+import org.idpf.epubcheck.util.css.CssGrammar.CssSelector;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The events of a CssParser run, recorded so that they can be replayed to
+ * other handlers without parsing the CSS again. The events are also passed on
+ * to the handlers given at construction, if any, as they are recorded.
+ * <p/>
+ * The grammar objects are shared by all the handlers the events are replayed
+ * to, which must not modify them. A recording can be serialized, without the
+ * handlers it passed the events on to.
+ */
+public final class CssEvents implements CssContentHandler, CssErrorHandler, Serializable
+{
+  private static final long serialVersionUID = 1L;
+
+  private enum Type
+  {
+    START_DOCUMENT, END_DOCUMENT, START_AT_RULE, END_AT_RULE, SELECTORS, END_SELECTORS, DECLARATION, ERROR
+  }
+
+  private final transient CssErrorHandler err;
+  private final transient CssContentHandler doc;
+  private final List<Type> types = new ArrayList<Type>();
+  private final List<Object> values = new ArrayList<Object>();
+
+  /**
+   * Creates a recording that only records the events.
+   */
+  public CssEvents()
+  {
+    this(null, null);
+  }
+
+  /**
+   * Creates a recording that passes the events on to the given handlers.
+   */
+  public CssEvents(CssErrorHandler err, CssContentHandler doc)
+  {
+    this.err = err;
+    this.doc = doc;
+  }
+
+  /**
+   * Sends the recorded events, in the order they were recorded, to the given
+   * handlers.
+   */
+  @SuppressWarnings("unchecked")
+  public void replay(CssErrorHandler err, CssContentHandler doc) throws
+      CssException
+  {
+    for (int i = 0; i < types.size(); i++)
+    {
+      Object value = values.get(i);
+      switch (types.get(i))
+      {
+        case START_DOCUMENT:
+          doc.startDocument();
+          break;
+        case END_DOCUMENT:
+          doc.endDocument();
+          break;
+        case START_AT_RULE:
+          doc.startAtRule((CssAtRule) value);
+          break;
+        case END_AT_RULE:
+          doc.endAtRule((String) value);
+          break;
+        case SELECTORS:
+          doc.selectors((List<CssSelector>) value);
+          break;
+        case END_SELECTORS:
+          doc.endSelectors((List<CssSelector>) value);
+          break;
+        case DECLARATION:
+          doc.declaration((CssDeclaration) value);
+          break;
+        case ERROR:
+          err.error((CssException) value);
+          break;
+      }
+    }
+  }
+
+  /**
+   * @return the number of events recorded
+   */
+  public int size()
+  {
+    return types.size();
+  }
+
+  private void add(Type type, Object value)
+  {
+    types.add(type);
+    values.add(value);
+  }
+
+  public void error(CssException e) throws
+      CssException
+  {
+    add(Type.ERROR, e);
+    if (err != null)
+    {
+      err.error(e);
+    }
+  }
+
+  public void startDocument()
+  {
+    add(Type.START_DOCUMENT, null);
+    if (doc != null)
+    {
+      doc.startDocument();
+    }
+  }
+
+  public void endDocument()
+  {
+    add(Type.END_DOCUMENT, null);
+    if (doc != null)
+    {
+      doc.endDocument();
+    }
+  }
+
+  public void startAtRule(CssAtRule atRule)
+  {
+    add(Type.START_AT_RULE, atRule);
+    if (doc != null)
+    {
+      doc.startAtRule(atRule);
+    }
+  }
+
+  public void endAtRule(String name)
+  {
+    add(Type.END_AT_RULE, name);
+    if (doc != null)
+    {
+      doc.endAtRule(name);
+    }
+  }
+
+  public void selectors(List<CssSelector> selectors)
+  {
+    add(Type.SELECTORS, selectors);
+    if (doc != null)
+    {
+      doc.selectors(selectors);
+    }
+  }
+
+  public void endSelectors(List<CssSelector> selectors)
+  {
+    add(Type.END_SELECTORS, selectors);
+    if (doc != null)
+    {
+      doc.endSelectors(selectors);
+    }
+  }
+
+  public void declaration(CssDeclaration declaration)
+  {
+    add(Type.DECLARATION, declaration);
+    if (doc != null)
+    {
+      doc.declaration(declaration);
+    }
+  }
+}
@@ -31,6 +31,7 @@ import org.idpf.epubcheck.util.css.CssExceptions.CssGrammarException;
 import org.idpf.epubcheck.util.css.CssParser.ContextRestrictions;
 import org.idpf.epubcheck.util.css.CssTokenList.CssTokenIterator;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 
@@ -51,8 +52,10 @@ public class CssGrammar
   /**
    * Abstract base for all CssConstructs.
    */
-  public static abstract class CssConstruct
+  public static abstract class CssConstruct implements Serializable
   {
+    private static final long serialVersionUID = 1L;
+
     final CssLocation location;
     final Type type;
 
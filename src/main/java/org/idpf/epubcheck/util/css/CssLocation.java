@@ -24,6 +24,8 @@ package org.idpf.epubcheck.util.css;
 
 import com.google.common.base.Objects;
 
+import java.io.Serializable;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -31,8 +33,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
  *
  * @author mgylling
  */
-public final class CssLocation
+public final class CssLocation implements Serializable
 {
+  private static final long serialVersionUID = 1L;
 
   final int line;
   final int col;
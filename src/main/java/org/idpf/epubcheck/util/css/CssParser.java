@@ -22,22 +22,25 @@
 package org.idpf.epubcheck.util.css;
 
 import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 import com.google.common.collect.Lists;
 import org.idpf.epubcheck.util.css.CssExceptions.CssException;
 import org.idpf.epubcheck.util.css.CssExceptions.CssGrammarException;
 import org.idpf.epubcheck.util.css.CssGrammar.*;
-import org.idpf.epubcheck.util.css.CssToken.CssTokenConsumer;
+import org.idpf.epubcheck.util.css.CssScanner.ScannerFailure;
 import org.idpf.epubcheck.util.css.CssTokenList.CssTokenIterator;
 import org.idpf.epubcheck.util.css.CssTokenList.PrematureEOFException;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
 import java.util.List;
 import java.util.NoSuchElementException;
 
 import static com.google.common.base.Preconditions.*;
 import static org.idpf.epubcheck.util.css.CssExceptions.CssErrorCode.*;
 import static org.idpf.epubcheck.util.css.CssToken.Matchers.*;
+import static org.idpf.epubcheck.util.css.CssTokenList.Filters.FILTER_NONE;
 import static org.idpf.epubcheck.util.css.CssTokenList.Filters.FILTER_S_CMNT;
 import static org.idpf.epubcheck.util.css.CssTokenList.Filters.FILTER_S_CMNT_CDO_CDC;
 
@@ -77,45 +80,51 @@ public final class CssParser
       IOException,
       CssException
   {
+    try
+    {
+      CssTokenIterator iter = scan(reader, systemID, err);
 
-    CssTokenIterator iter = scan(reader, systemID, err);
-
-    doc.startDocument();
+      doc.startDocument();
 
-    while (iter.hasNext(FILTER_S_CMNT_CDO_CDC))
-    {
-      CssToken tk = iter.next(FILTER_S_CMNT_CDO_CDC);
-      try
+      while (iter.hasNext(FILTER_S_CMNT_CDO_CDC))
       {
-
-        if (tk.type == CssToken.Type.ATKEYWORD)
+        CssToken tk = iter.next(FILTER_S_CMNT_CDO_CDC);
+        try
         {
-          handleAtRule(tk, iter, doc, err);
-          if (debug)
+
+          if (tk.type == CssToken.Type.ATKEYWORD)
           {
-            checkArgument(MATCH_SEMI_CLOSEBRACE.apply(iter.last));
+            handleAtRule(tk, iter, doc, err);
+            if (debug)
+            {
+              checkArgument(MATCH_SEMI_CLOSEBRACE.apply(iter.last));
+            }
           }
-        }
-        else
-        {
-          handleRuleSet(tk, iter, doc, err);
-          if (debug)
+          else
           {
-            checkArgument(MATCH_CLOSEBRACE.apply(iter.last));
+            handleRuleSet(tk, iter, doc, err);
+            if (debug)
+            {
+              checkArgument(MATCH_CLOSEBRACE.apply(iter.last));
+            }
           }
-        }
 
+        }
+        catch (PrematureEOFException te)
+        {
+          // The subroutines report premature EOF to ErrHandler
+          // on occurrence; if the listener rethrows it will
+          // be a CssException so we don't catch it here.
+          break;
+        }
       }
-      catch (PrematureEOFException te)
-      {
-        // The subroutines report premature EOF to ErrHandler
-        // on occurrence; if the listener rethrows it will
-        // be a CssException so we don't catch it here.
-        break;
-      }
-    }
 
-    doc.endDocument();
+      doc.endDocument();
+    }
+    catch (ScannerFailure e)
+    {
+      e.rethrow();
+    }
   }
 
   /**
@@ -125,57 +134,106 @@ public final class CssParser
       IOException,
       CssException
   {
-    CssTokenIterator iter = scan(reader, systemID, err);
-    doc.startDocument();
-    while (iter.hasNext())
+    parseStyleAttribute(new CssScanner(reader, systemID, err), err, doc);
+  }
+
+  /**
+   * Creates a parser for the CSS style attributes of a document. The
+   * attributes are scanned by a single scanner, whose buffers are set up once
+   * instead of once per attribute.
+   */
+  public StyleAttributeParser newStyleAttributeParser(String systemID, final CssErrorHandler err, final CssContentHandler doc)
+  {
+    return new StyleAttributeParser(systemID, err, doc);
+  }
+
+  /**
+   * Parses CSS style attributes one after the other, reporting the events of
+   * each attribute to the same handlers.
+   */
+  public final class StyleAttributeParser
+  {
+    private final CssScanner scanner;
+    private final CssErrorHandler err;
+    private final CssContentHandler doc;
+
+    private StyleAttributeParser(String systemID, CssErrorHandler err, CssContentHandler doc)
     {
-      CssToken tk = iter.next();
-			
-			if(MATCH_SEMI.apply(tk)) 
-			{
-				continue; //starting with ';' is allowed, Issue 238
-			}
-      try
-      {
-			
-        CssDeclaration decl = handleDeclaration(tk, iter, doc, err, true);
-        if (decl != null)
-        {
-          doc.declaration(decl);
-        }
-        else
-        {
-          // #handleDeclaration has issued errors
-          return;
-        }
-      }
-      catch (PrematureEOFException te)
-      {
-        // The subroutines report premature EOF to ErrHandler
-        // on occurrence; if the listener rethrows it will
-        // be a CssException so we don't catch it here.
-        break;
-      }
+      this.scanner = new CssScanner(new StringReader(""), systemID, err);
+      this.err = err;
+      this.doc = doc;
+    }
+
+    /**
+     * Parse a CSS style attribute. The locations reported are on lines counted
+     * from the given line, the line of the attribute in its document.
+     */
+    public void parse(String value, int line) throws
+        IOException,
+        CssException
+    {
+      scanner.reset(new StringReader(value), line);
+      parseStyleAttribute(scanner, err, doc);
     }
-    doc.endDocument();
   }
 
-  private CssTokenIterator scan(Reader reader, String systemID, CssErrorHandler err) throws
+  private void parseStyleAttribute(final CssScanner scanner, final CssErrorHandler err, final CssContentHandler doc) throws
       IOException,
       CssException
   {
-
-    final CssTokenList tokens = new CssTokenList();
-
-    new CssScanner(reader, systemID, err, new CssTokenConsumer()
+    try
     {
-      public void add(final CssToken token)
+      CssTokenIterator iter = new CssTokenIterator(FILTER_S_CMNT, scanner.tokens());
+      doc.startDocument();
+      while (iter.hasNext())
       {
-        tokens.add(token);
+        CssToken tk = iter.next();
+
+        if (MATCH_SEMI.apply(tk))
+        {
+          continue; //starting with ';' is allowed, Issue 238
+        }
+        try
+        {
+
+          CssDeclaration decl = handleDeclaration(tk, iter, doc, err, true);
+          if (decl != null)
+          {
+            doc.declaration(decl);
+          }
+          else
+          {
+            // #handleDeclaration has issued errors, the rest of the
+            // attribute is still scanned for lexical errors
+            iter.skipRemaining();
+            return;
+          }
+        }
+        catch (PrematureEOFException te)
+        {
+          // The subroutines report premature EOF to ErrHandler
+          // on occurrence; if the listener rethrows it will
+          // be a CssException so we don't catch it here.
+          break;
+        }
       }
-    }).scan();
+      doc.endDocument();
+    }
+    catch (ScannerFailure e)
+    {
+      e.rethrow();
+    }
+  }
 
-    return tokens.iterator(FILTER_S_CMNT); // default filter
+  /**
+   * The tokens are scanned as the parser reads them, so that only the tokens
+   * read ahead are kept in memory. Exceptions raised while scanning are
+   * thrown wrapped in a ScannerFailure.
+   */
+  private CssTokenIterator scan(Reader reader, String systemID, CssErrorHandler err)
+  {
+    return new CssTokenIterator(FILTER_S_CMNT, // default filter
+        new CssScanner(reader, systemID, err).tokens());
   }
 
   /**
@@ -447,7 +505,7 @@ public final class CssParser
           return null;
         }
         selector.components.add(seq);
-        int idx = iter.index();
+        boolean spaced = iter.peek(FILTER_NONE).type == CssToken.Type.S;
         start = iter.next();
         if (MATCH_OPENBRACE.apply(start))
         {
@@ -466,7 +524,7 @@ public final class CssParser
           selector.components.add(comb);
           start = iter.next();
         }
-        else if (iter.list.get(idx + 1).type == CssToken.Type.S)
+        else if (spaced)
         {
           selector.components.add(new CssSelectorCombinator(' ', start.location));
         }
@@ -503,7 +561,7 @@ public final class CssParser
     if (debug)
     {
       checkArgument(start.type == CssToken.Type.ATKEYWORD);
-      checkArgument(iter.index() == iter.list.indexOf(start));
+      checkArgument(iter.last == start);
       checkArgument(iter.filter() == FILTER_S_CMNT);
     }
 
@@ -636,27 +694,25 @@ public final class CssParser
       checkArgument(iter.last.getChar() == '{');
       debugIndex = iter.index();
     }
-    List<CssToken> list = iter.list;
-    for (int i = iter.index() + 1; i < list.size(); i++)
+    boolean hasRuleSet;
+    try
     {
-      CssToken tk = list.get(i);
-      if (MATCH_OPENBRACE.apply(tk))
-      {
-        return true;
-      }
-      else if (MATCH_SEMI_CLOSEBRACE.apply(tk))
-      {
-        return false;
-      }
+      hasRuleSet = MATCH_OPENBRACE.apply(iter.peek(MATCH_BRACE_SEMI));
+    }
+    catch (NoSuchElementException nse)
+    {
+      hasRuleSet = false;
     }
     if (debug)
     {
       checkState(iter.last.getChar() == '{');
       checkState(iter.index() == debugIndex);
     }
-    return false;
+    return hasRuleSet;
   }
 
+  private static final Predicate<CssToken> MATCH_BRACE_SEMI = Predicates.or(MATCH_OPENBRACE, MATCH_SEMI_CLOSEBRACE);
+
   static final class ContextRestrictions
   {
 
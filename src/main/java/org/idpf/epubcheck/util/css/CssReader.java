@@ -44,7 +44,7 @@ final class CssReader
   static final int DEFAULT_PUSHBACK_BUFFER_SIZE = 8096;
   private final int[] buf;
   private int pos;
-  private final Reader in;
+  private Reader in;
   private int prevLine = 1;
 
   /**
@@ -93,6 +93,23 @@ final class CssReader
 
   }
 
+  /**
+   * Sets this reader up to read another resource, reusing the pushback buffer.
+   * The line numbers of the new resource start at the given line.
+   */
+  void reset(Reader reader, int line)
+  {
+    checkArgument(line >= 1);
+    this.in = checkNotNull(reader);
+    this.pos = buf.length;
+    this.prevLine = line;
+    this.curChar = 0;
+    this.prevChar = 0;
+    this.offset = 0;
+    this.line = line;
+    this.col = 1;
+  }
+
   /**
    * Returns the next character in the stream and advances the readers
    * position. If there are no more characters, -1 is returned the first time
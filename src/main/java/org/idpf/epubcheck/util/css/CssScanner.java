@@ -24,6 +24,7 @@ package org.idpf.epubcheck.util.css;
 import com.google.common.base.Ascii;
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Optional;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -37,6 +38,7 @@ import org.idpf.epubcheck.util.css.CssToken.Type;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -61,7 +63,9 @@ final class CssScanner
   private final CssReader reader;
   private final CssToken.CssTokenConsumer consumer;
   private final CssEscapeMemoizer escapes;
-  private TokenBuilder builder;
+  // reused for every token
+  private final TokenBuilder builder;
+  private final TokenBuilder suffix;
   private final CssErrorHandler errHandler;
   private final boolean debug = false;
   private char cur;
@@ -69,144 +73,235 @@ final class CssScanner
   private CssScanner(final Reader in, final String systemID, final CssErrorHandler errHandler,
       final CssTokenConsumer consumer, final int pushbackBufferSize)
   {
-    this.consumer = checkNotNull(consumer);
+    this.consumer = consumer;
     this.errHandler = checkNotNull(errHandler);
     this.reader = new CssReader(in, systemID, pushbackBufferSize);
     this.escapes = new CssEscapeMemoizer(reader);
+    this.builder = new TokenBuilder(reader, errHandler);
+    this.suffix = new TokenBuilder(reader, errHandler);
   }
 
   CssScanner(Reader in, final String systemID, final CssErrorHandler errHandler,
       final CssTokenConsumer consumer)
   {
-    this(in, systemID, errHandler, consumer, CssReader.DEFAULT_PUSHBACK_BUFFER_SIZE);
+    this(in, systemID, errHandler, checkNotNull(consumer), CssReader.DEFAULT_PUSHBACK_BUFFER_SIZE);
   }
 
+  /**
+   * Creates a scanner whose tokens are pulled with {@link #next()} or
+   * {@link #tokens()}.
+   */
+  CssScanner(Reader in, final String systemID, final CssErrorHandler errHandler)
+  {
+    this(in, systemID, errHandler, null, CssReader.DEFAULT_PUSHBACK_BUFFER_SIZE);
+  }
+
+  /**
+   * Sets this scanner up to scan another input, keeping its buffers. The line
+   * numbers of the tokens of the new input start at the given line.
+   */
+  void reset(Reader in, int line)
+  {
+    reader.reset(in, line);
+  }
+
+  /**
+   * Scans the whole input, passing each token to the consumer.
+   */
   void scan() throws
       IOException,
       CssException
   {
-    int ch;
-    int next;
-    while (true)
+    checkState(consumer != null);
+    CssToken token;
+    while ((token = next()) != null)
     {
-      ch = reader.next();
-      if (ch == -1)
-      {
-        break;
-      }
-      builder = new TokenBuilder(reader, /* this, */errHandler);
-      cur = (char) ch;
-      next = reader.peek();
-      escapes.reset(builder);
+      consumer.add(token);
+    }
+  }
 
-      if (WHITESPACE.matches(cur))
-      {
-        _ws();
-      }
-      else if (cur == '-' && equals(reader.peek(2), CDC_LL))
-      {
-        _cdc();
-      }
-      else if (O.matches(cur) && matchesOrEOF(reader.at(4), WHITESPACE)
-          && equals(reader.peek(3), ONLY_LL, true))
-      {
-        _only();
-      }
-      else if (N.matches(cur) && matchesOrEOF(reader.at(3), WHITESPACE)
-          && equals(reader.peek(2), NOT_LL, true))
-      {
-        _not();
-      }
-      else if (A.matches(cur) && matchesOrEOF(reader.at(3), WHITESPACE)
-          && equals(reader.peek(2), AND_LL, true))
-      {
-        _and();
-      }
-      else if (U.matches(cur) && equals(reader.peek(3), URI_LL, true))
-      {
-        _uri();
-      }
-      else if (U.matches(cur) && next == '+'
-          && matchesOrEOF(reader.at(2), URANGESTART))
+  /**
+   * Scans the next token of the input.
+   *
+   * @return the token, or <code>null</code> at the end of the input
+   */
+  CssToken next() throws
+      IOException,
+      CssException
+  {
+    int ch = reader.next();
+    if (ch == -1)
+    {
+      return null;
+    }
+    builder.reset(reader);
+    cur = (char) ch;
+    int next = reader.peek();
+    escapes.reset(builder);
+
+    if (WHITESPACE.matches(cur))
+    {
+      _ws();
+    }
+    else if (cur == '-' && equals(reader.peek(2), CDC_LL))
+    {
+      _cdc();
+    }
+    else if (O.matches(cur) && matchesOrEOF(reader.at(4), WHITESPACE)
+        && equals(reader.peek(3), ONLY_LL, true))
+    {
+      _only();
+    }
+    else if (N.matches(cur) && matchesOrEOF(reader.at(3), WHITESPACE)
+        && equals(reader.peek(2), NOT_LL, true))
+    {
+      _not();
+    }
+    else if (A.matches(cur) && matchesOrEOF(reader.at(3), WHITESPACE)
+        && equals(reader.peek(2), AND_LL, true))
+    {
+      _and();
+    }
+    else if (U.matches(cur) && equals(reader.peek(3), URI_LL, true))
+    {
+      _uri();
+    }
+    else if (U.matches(cur) && next == '+'
+        && matchesOrEOF(reader.at(2), URANGESTART))
+    {
+      _urange();
+    }
+    else if (NMSTART.matches(cur) || cur == '-'
+        && matches(next, NMSTART) || escapes.get(0).isPresent()
+        || (cur == '-' && escapes.get(1).isPresent()))
+    {
+      _ident();
+      if (reader.peek() == '(')
       {
-        _urange();
+        _function();
       }
-      else if (NMSTART.matches(cur) || cur == '-'
-          && matches(next, NMSTART) || escapes.get(0).isPresent()
-          || (cur == '-' && escapes.get(1).isPresent()))
+    }
+    else if (cur == '@'
+        && ((matches(next, NMSTART) || escapes.get(1).isPresent()) || (next == '-'
+        && (matches(reader.at(2), NMSTART)) || escapes.get(
+        2).isPresent())))
+    {
+      _atkeyword();
+    }
+    else if (NUMEND.matches(cur) || NUMSTART.matches(cur)
+        && matches(next, NUMEND) || UNARY.matches(cur)
+        && next == '.' && matches(reader.at(2), NUMEND))
+    {
+      _num();
+    }
+    else if (cur == '<' && equals(reader.peek(3), CDO_LL))
+    {
+      _cdo();
+    }
+    else if (cur == '/' && next == '*')
+    {
+      _comment();
+    }
+    else if (QUOTES.matches(cur))
+    {
+      _string();
+    }
+    else if (cur == '#'
+        && (matches(next, NMCHAR) || escapes.get(1).isPresent()))
+    {
+      _hashname();
+    }
+    else if (cur == '.'
+        && (matches(next, NMCHAR) || escapes.get(1).isPresent()))
+    {
+      _classname();
+    }
+    else if (cur == '!'
+        && forwardMatch("important", true, false))
+    {
+      _important();
+    }
+    else if (cur == '~' && next == '=')
+    {
+      _includes();
+    }
+    else if (cur == '|' && next == '=')
+    {
+      _dashmatch();
+    }
+    else if (cur == '^' && next == '=')
+    {
+      _prefixmatch();
+    }
+    else if (cur == '$' && next == '=')
+    {
+      _suffixmatch();
+    }
+    else if (cur == '*' && next == '=')
+    {
+      _substringmatch();
+    }
+    else
+    {
+      builder.type = Type.CHAR;
+      builder.append(cur);
+    }
+    return builder.asToken();
+  }
+
+  /**
+   * The tokens of the input, scanned as they are iterated. An
+   * <code>IOException</code> or a <code>CssException</code> raised while
+   * scanning is thrown wrapped in a {@link ScannerFailure}.
+   */
+  Iterator<CssToken> tokens()
+  {
+    return new AbstractIterator<CssToken>()
+    {
+      @Override
+      protected CssToken computeNext()
       {
-        _ident();
-        if (reader.peek() == '(')
+        try
         {
-          _function();
+          CssToken token = CssScanner.this.next();
+          return token == null ? endOfData() : token;
+        }
+        catch (IOException e)
+        {
+          throw new ScannerFailure(e);
+        }
+        catch (CssException e)
+        {
+          throw new ScannerFailure(e);
         }
       }
-      else if (cur == '@'
-          && ((matches(next, NMSTART) || escapes.get(1).isPresent()) || (next == '-'
-          && (matches(reader.at(2), NMSTART)) || escapes.get(
-          2).isPresent())))
-      {
-        _atkeyword();
-      }
-      else if (NUMEND.matches(cur) || NUMSTART.matches(cur)
-          && matches(next, NUMEND) || UNARY.matches(cur)
-          && next == '.' && matches(reader.at(2), NUMEND))
-      {
-        _num();
-      }
-      else if (cur == '<' && equals(reader.peek(3), CDO_LL))
-      {
-        _cdo();
-      }
-      else if (cur == '/' && next == '*')
-      {
-        _comment();
-      }
-      else if (QUOTES.matches(cur))
-      {
-        _string();
-      }
-      else if (cur == '#'
-          && (matches(next, NMCHAR) || escapes.get(1).isPresent()))
-      {
-        _hashname();
-      }
-      else if (cur == '.'
-          && (matches(next, NMCHAR) || escapes.get(1).isPresent()))
-      {
-        _classname();
-      }
-      else if (cur == '!'
-          && forwardMatch("important", true, false))
-      {
-        _important();
-      }
-      else if (cur == '~' && next == '=')
-      {
-        _includes();
-      }
-      else if (cur == '|' && next == '=')
-      {
-        _dashmatch();
-      }
-      else if (cur == '^' && next == '=')
-      {
-        _prefixmatch();
-      }
-      else if (cur == '$' && next == '=')
-      {
-        _suffixmatch();
-      }
-      else if (cur == '*' && next == '=')
-      {
-        _substringmatch();
-      }
-      else
+    };
+  }
+
+  /**
+   * Carries an exception raised while tokens are pulled from a scanner.
+   */
+  static final class ScannerFailure extends RuntimeException
+  {
+    private static final long serialVersionUID = -2385390346371155727L;
+
+    ScannerFailure(Exception cause)
+    {
+      super(cause);
+    }
+
+    /**
+     * Throws the exception raised by the scanner.
+     */
+    void rethrow() throws
+        IOException,
+        CssException
+    {
+      if (getCause() instanceof IOException)
       {
-        builder.type = Type.CHAR;
-        builder.append(cur);
+        throw (IOException) getCause();
       }
-      consumer.add(builder.asToken());
+      throw (CssException) getCause();
     }
   }
 
@@ -259,7 +354,7 @@ final class CssScanner
       _string();
       builder.append('\'');
 
-      if (debug && builder.errors.size() < 1)
+      if (debug && !builder.hasErrors())
       {
         checkArgument(QUOTES.matches((char) reader.curChar));
       }
@@ -299,7 +394,7 @@ final class CssScanner
     builder.append(')');
     builder.type = Type.URI;
 
-    if (')' != reader.curChar && builder.errors.size() == 0)
+    if (')' != reader.curChar && !builder.hasErrors())
     {
       builder.error(CssErrorCode.SCANNER_ILLEGAL_SYNTAX, reader, reader.curChar);
     }
@@ -365,7 +460,7 @@ final class CssScanner
       builder.append(ch);
     }
 
-    if (debug && builder.errors.size() == 0)
+    if (debug && !builder.hasErrors())
     {
       checkState(QUOTES.matches((char) reader.curChar));
     }
@@ -635,7 +730,7 @@ final class CssScanner
       }
     }
 
-    if (debug && builder.errors.size() < 1)
+    if (debug && !builder.hasErrors())
     {
       checkState('/' == reader.curChar && '*' == reader.prevChar);
     }
@@ -741,7 +836,7 @@ final class CssScanner
        * that if a specific quantity literal is found.
        */
     builder.type = Type.QNTY_DIMEN;
-    TokenBuilder suffix = new TokenBuilder(reader, errHandler);
+    suffix.reset(reader);
     append(QNTSTART, suffix);
     if (suffix.getLast() != '%')
     { // QNTSTART = NMSTART | '%'
@@ -27,6 +27,7 @@ import org.idpf.epubcheck.util.css.CssExceptions.CssErrorCode;
 import org.idpf.epubcheck.util.css.CssExceptions.CssException;
 import org.idpf.epubcheck.util.css.CssExceptions.CssScannerException;
 
+import java.io.Serializable;
 import java.util.Iterator;
 import java.util.List;
 
@@ -38,8 +39,10 @@ import static com.google.common.base.Preconditions.checkState;
  * @author mgylling
  * @see CssTokenList
  */
-final class CssToken
+final class CssToken implements Serializable
 {
+  private static final long serialVersionUID = 1L;
+
   final Type type;
   final CssLocation location;
   final String chars;     //for tokens with string values
@@ -413,12 +416,12 @@ final class CssToken
   static class TokenBuilder
   {
     Type type;
-    final int line;
-    final int col;
-    final int offset;
-    final String systemID;
+    int line;
+    int col;
+    int offset;
+    String systemID;
     private final StringBuilder chars;
-    final List<CssScannerException> errors;
+    List<CssScannerException> errors; // allocated on the first error
     private final boolean debug = false;
     private final CssErrorHandler errorListener;
 
@@ -429,7 +432,6 @@ final class CssToken
       this.col = col;
       this.offset = offset;
       this.chars = new StringBuilder();
-      this.errors = Lists.newArrayList();
       this.errorListener = errorListener;
     }
 
@@ -438,6 +440,22 @@ final class CssToken
       this(reader.systemID, reader.line, reader.col, reader.offset, errorListener);
     }
 
+    /**
+     * Clears this builder to start a new token at the current position of the
+     * given reader.
+     */
+    TokenBuilder reset(final CssReader reader)
+    {
+      this.type = null;
+      this.systemID = reader.systemID;
+      this.line = reader.line;
+      this.col = reader.col;
+      this.offset = reader.offset;
+      this.chars.setLength(0);
+      this.errors = null;
+      return this;
+    }
+
     TokenBuilder append(int ch)
     {
       chars.append((char) ch);
@@ -469,6 +487,11 @@ final class CssToken
       return this;
     }
 
+    boolean hasErrors()
+    {
+      return errors != null;
+    }
+
     /**
      * All lexer-time errors are funnelled through this method. Reported errors are stored in
      * the resulting CssToken. This method also passes the error on to a CssErrorHandler,
@@ -478,6 +501,10 @@ final class CssToken
         CssException
     {
       CssScannerException cse = new CssScannerException(errorCode, CssLocation.create(reader), arguments);
+      if (errors == null)
+      {
+        errors = Lists.newArrayList();
+      }
       errors.add(cse);
       errorListener.error(cse);
     }
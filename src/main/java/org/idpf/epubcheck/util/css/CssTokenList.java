@@ -25,7 +25,8 @@ import com.google.common.base.Predicate;
 import org.idpf.epubcheck.util.css.CssToken.Type;
 
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -45,14 +46,22 @@ final class CssTokenList extends ArrayList<CssToken>
 
   CssTokenIterator iterator(final Predicate<CssToken> filter)
   {
-    return new CssTokenIterator(filter, this);
+    return new CssTokenIterator(filter, iterator());
   }
 
-  class CssTokenIterator
+  /**
+   * An iterator over tokens that are read from their source as they are
+   * needed. Only the tokens that have been read ahead of the iterator
+   * position are kept.
+   */
+  static class CssTokenIterator
   {
 
     private final Predicate<CssToken> filter;
-    final List<CssToken> list;
+    private final Iterator<CssToken> source;
+    private CssToken[] window = new CssToken[16]; // tokens read ahead
+    private int windowStart; // index of the first token of the window
+    private int windowSize;
     int next; // index of next element to return
     int lastRet = -1; // index of last element returned
     CssToken last = null; // last token returned
@@ -62,11 +71,64 @@ final class CssTokenList extends ArrayList<CssToken>
      *
      * @param filter A filter Predicate that is applied to all tokens unless
      *               another Predicate is passed using #next(Predicate)
+     * @param source The tokens to iterate over
      */
-    CssTokenIterator(final Predicate<CssToken> filter, List<CssToken> list)
+    CssTokenIterator(final Predicate<CssToken> filter, Iterator<CssToken> source)
     {
       this.filter = checkNotNull(filter);
-      this.list = list;
+      this.source = checkNotNull(source);
+    }
+
+    /**
+     * Get the token at the given index, reading it from the source if needed,
+     * or null if the source has less tokens. The index must not be lower than
+     * the position of the iterator.
+     */
+    private CssToken get(int index)
+    {
+      while (index >= windowStart + windowSize)
+      {
+        if (!source.hasNext())
+        {
+          return null;
+        }
+        if (windowSize == window.length)
+        {
+          // drop the tokens before the iterator position
+          int passed = next - windowStart;
+          System.arraycopy(window, passed, window, 0, windowSize - passed);
+          Arrays.fill(window, windowSize - passed, windowSize, null);
+          windowStart = next;
+          windowSize -= passed;
+          if (windowSize == window.length)
+          {
+            window = Arrays.copyOf(window, 2 * window.length);
+          }
+        }
+        window[windowSize++] = source.next();
+      }
+      return window[index - windowStart];
+    }
+
+    /**
+     * Get the index of the next token that matches the given filter, or -1.
+     */
+    private int find(final Predicate<CssToken> filter)
+    {
+      int i = next;
+      while (true)
+      {
+        CssToken tk = get(i);
+        if (tk == null)
+        {
+          return -1;
+        }
+        if (filter.apply(tk))
+        {
+          return i;
+        }
+        i++;
+      }
     }
 
     /**
@@ -86,13 +148,12 @@ final class CssTokenList extends ArrayList<CssToken>
     {
       while (true)
       {
-        int i = next;
-        if (i >= size())
+        CssToken tk = get(next);
+        if (tk == null)
         {
           throw new NoSuchElementException();
         }
-        next = i + 1;
-        CssToken tk = get(lastRet = i);
+        lastRet = next++;
         if (filter.apply(tk))
         {
           last = tk;
@@ -114,19 +175,7 @@ final class CssTokenList extends ArrayList<CssToken>
      */
     boolean hasNext(final Predicate<CssToken> filter)
     {
-      int i = next;
-      while (true)
-      {
-        if (i == size())
-        {
-          return false;
-        }
-        if (filter.apply(get(i)))
-        {
-          return true;
-        }
-        i++;
-      }
+      return find(filter) >= 0;
     }
 
     /**
@@ -142,20 +191,31 @@ final class CssTokenList extends ArrayList<CssToken>
      */
     public CssToken peek(Predicate<CssToken> filter)
     {
-      int _next = next;
-      int _lastRet = lastRet;
-      CssToken _last = last;
-      if (hasNext(filter))
+      int i = find(filter);
+      if (i >= 0)
       {
-        CssToken tk = next(filter);
-        next = _next;
-        lastRet = _lastRet;
-        last = _last;
-        return tk;
+        return get(i);
       }
       throw new NoSuchElementException();
     }
 
+    /**
+     * Read the remaining tokens from the source without keeping them.
+     */
+    void skipRemaining()
+    {
+      int count = windowStart + windowSize;
+      while (source.hasNext())
+      {
+        source.next();
+        count++;
+      }
+      Arrays.fill(window, null);
+      windowStart = count;
+      windowSize = 0;
+      next = count;
+    }
+
     /**
      * Get the list index of the last element returned prior to filtering,
      * or -1 if no element has yet been returned.
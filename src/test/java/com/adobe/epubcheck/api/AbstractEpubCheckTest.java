@@ -23,7 +23,6 @@
 package com.adobe.epubcheck.api;
 
 import com.adobe.epubcheck.messages.MessageId;
-import com.adobe.epubcheck.opf.DocumentValidator;
 import com.adobe.epubcheck.util.*;
 
 import java.io.*;
@@ -42,6 +41,11 @@ public abstract class AbstractEpubCheckTest
 
   private String basepath;
 
+  /**
+   * Number of content documents validated at the same time
+   */
+  protected int contentThreads = 1;
+
   protected AbstractEpubCheckTest(String basepath)
   {
     this.basepath = basepath;
@@ -71,7 +75,7 @@ public abstract class AbstractEpubCheckTest
 
   public void testValidateDocument(String fileName, List<MessageId> errors, List<MessageId> warnings, List<MessageId> fatalErrors, String resultFile, boolean verbose)
   {
-    DocumentValidator epubCheck;
+    EpubCheck epubCheck;
     outWriter.printf("Starting testValidateDocument('%s')\n", fileName);
     ValidationReport testReport;
     if (fileName.startsWith("http://") || fileName.startsWith("https://"))
@@ -116,6 +120,7 @@ public abstract class AbstractEpubCheckTest
     }
 
 
+    epubCheck.setContentThreads(contentThreads);
     epubCheck.validate();
 
     if (verbose)
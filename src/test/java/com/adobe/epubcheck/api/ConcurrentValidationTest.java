@@ -0,0 +1,123 @@
+package com.adobe.epubcheck.api;
+
+import com.adobe.epubcheck.reporting.CheckingReport;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ConcurrentValidationTest
+{
+  private static final String[] EPUBS = {
+      "/30/epub/valid/lorem.epub",
+      "/30/epub/valid/epub30-spec.epub",
+      "/30/epub/valid/font-obfuscation.epub",
+      "/30/epub/invalid/lorem-xht-sch-1.epub",
+      "/30/epub/invalid/lorem-xht-rng-1.epub",
+      "/30/epub/invalid/fallback-cycle.epub",
+      "/30/epub/invalid/nav-invalid.epub",
+      "/20/epub/valid/issue169.epub",
+      "/20/epub/invalid/issue236.epub",
+      "/20/epub/invalid/bad_opf_namespace.epub"
+  };
+  private static final int RUNS = 3;
+  private static final int THREADS = 8;
+
+  @Test
+  public void testConcurrentRunsMatchSequentialRuns() throws
+      Exception
+  {
+    Map<String, Result> expected = new HashMap<String, Result>();
+    for (String epub : EPUBS)
+    {
+      expected.put(epub, validate(epub));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try
+    {
+      List<String> submitted = new ArrayList<String>();
+      List<Future<Result>> futures = new ArrayList<Future<Result>>();
+      for (int i = 0; i < RUNS; i++)
+      {
+        for (final String epub : EPUBS)
+        {
+          submitted.add(epub);
+          futures.add(executor.submit(new Callable<Result>()
+          {
+            public Result call() throws
+                Exception
+            {
+              return validate(epub);
+            }
+          }));
+        }
+      }
+      for (int i = 0; i < futures.size(); i++)
+      {
+        Result actual = futures.get(i).get();
+        Result sequential = expected.get(submitted.get(i));
+        assertEquals(submitted.get(i), sequential.json, actual.json);
+        assertEquals(submitted.get(i), sequential.context.getReportedMessageIds(), actual.context.getReportedMessageIds());
+        assertEquals(submitted.get(i), sequential.context.getErrorCount(), actual.context.getErrorCount());
+        assertEquals(submitted.get(i), sequential.context.getWarningCount(), actual.context.getWarningCount());
+      }
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testContextIsPerReport() throws
+      IOException
+  {
+    Result invalid = validate("/30/epub/invalid/lorem-xht-sch-1.epub");
+    Result valid = validate("/30/epub/valid/lorem.epub");
+    assertFalse(invalid.context.getErrorCount() == 0);
+    assertEquals(0, valid.context.getErrorCount());
+    assertFalse(valid.context.getReportedMessageIds().containsAll(invalid.context.getReportedMessageIds()));
+  }
+
+  private Result validate(String resource) throws
+      IOException
+  {
+    File file = new File(this.getClass().getResource(resource).getPath());
+    CheckingReport report = new CheckingReport(file.getPath(), null);
+    report.initialize();
+    new EpubCheck(file, report).doValidate();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    report.generate(out);
+    return new Result(removeTimes(out.toString("UTF-8")), report.getContext());
+  }
+
+  private static String removeTimes(String json)
+  {
+    return json.replaceAll("\"(checkDate|elapsedTime)\" : [^,\\n]*", "");
+  }
+
+  private static class Result
+  {
+    final String json;
+    final ValidationContext context;
+
+    Result(String json, ValidationContext context)
+    {
+      this.json = json;
+      this.context = context;
+    }
+  }
+}
@@ -560,6 +560,14 @@ public class Epub30CheckExpandedTest extends AbstractEpubCheckTest
     testValidateDocument("invalid/epub30-spec/", expectedErrors, expectedWarnings);
   }
 
+  @Test
+  public void testValidateEPUB30_InvalidLinksInParallel()
+  {
+    // cross-reference errors must come out in the same order as sequentially
+    contentThreads = 4;
+    testValidateEPUB30_InvalidLinks();
+  }
+
   @Test
   public void testValidateEPUB30_basicDual()
   {
@@ -222,6 +222,14 @@ public class Epub30CheckTest extends AbstractEpubCheckTest
     testValidateDocument("valid/epub30-spec.epub", expectedErrors, expectedWarnings, "valid/epub30-spec.txt");
   }
 
+  @Test
+  public void testValidateEPUB30specValidInParallel()
+  {
+    // same messages, in the same order, as the sequential run above
+    contentThreads = 4;
+    testValidateEPUB30specValid();
+  }
+
   @Test
   public void testValidateEPUB30Issue203()
   {
@@ -0,0 +1,180 @@
+package com.adobe.epubcheck.bitmap;
+
+import org.junit.Test;
+import org.w3c.dom.Node;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataFormatImpl;
+import javax.imageio.stream.FileImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ImageHeaderReaderTest
+{
+  @Test
+  public void testSameDimensionsAsImageIO() throws
+      IOException
+  {
+    List<File> images = new ArrayList<File>();
+    findImages(new File(this.getClass().getResource("/30/expanded").getPath()), images);
+    assertTrue(images.size() > 0);
+    for (File image : images)
+    {
+      String suffix = image.getName().substring(image.getName().lastIndexOf('.') + 1);
+      int[] expected = readWithImageIO(image, suffix);
+      InputStream in = new FileInputStream(image);
+      try
+      {
+        int[] actual = ImageHeaderReader.readDimensions(in, suffix);
+        if (expected != null)
+        {
+          assertArrayEquals(image.getPath(), expected, actual);
+        }
+      }
+      finally
+      {
+        in.close();
+      }
+    }
+  }
+
+  @Test
+  public void testGIFLogicalScreen() throws
+      IOException
+  {
+    byte[] gif = {'G', 'I', 'F', '8', '9', 'a', 0x2C, 0x01, (byte) 0xC8, 0x00};
+    assertArrayEquals(new int[]{300, 200}, ImageHeaderReader.readDimensions(new ByteArrayInputStream(gif), "gif"));
+  }
+
+  @Test
+  public void testGIFSameDimensionsAsImageIO() throws
+      IOException
+  {
+    File image = File.createTempFile("image", ".gif");
+    try
+    {
+      ImageIO.write(new BufferedImage(30, 20, BufferedImage.TYPE_BYTE_INDEXED), "gif", image);
+      assertArrayEquals(new int[]{30, 20}, readWithImageIO(image, "gif"));
+      InputStream in = new FileInputStream(image);
+      try
+      {
+        assertArrayEquals(new int[]{30, 20}, ImageHeaderReader.readDimensions(in, "gif"));
+      }
+      finally
+      {
+        in.close();
+      }
+    }
+    finally
+    {
+      image.delete();
+    }
+  }
+
+  @Test
+  public void testWrongFormat() throws
+      IOException
+  {
+    byte[] gif = {'G', 'I', 'F', '8', '9', 'a', 0x2C, 0x01, (byte) 0xC8, 0x00};
+    assertNull(ImageHeaderReader.readDimensions(new ByteArrayInputStream(gif), "png"));
+    assertNull(ImageHeaderReader.readDimensions(new ByteArrayInputStream(gif), "jpg"));
+    assertNull(ImageHeaderReader.readDimensions(new ByteArrayInputStream(gif), "bmp"));
+  }
+
+  @Test
+  public void testTruncatedJPEG() throws
+      IOException
+  {
+    byte[] jpeg = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0x00, 0x10, 'J', 'F'};
+    assertNull(ImageHeaderReader.readDimensions(new ByteArrayInputStream(jpeg), "jpeg"));
+  }
+
+  private static void findImages(File dir, List<File> images)
+  {
+    File[] files = dir.listFiles();
+    if (files == null)
+    {
+      return;
+    }
+    for (File file : files)
+    {
+      String name = file.getName().toLowerCase();
+      if (file.isDirectory())
+      {
+        findImages(file, images);
+      }
+      else if (name.endsWith(".jpg") || name.endsWith(".jpeg") || name.endsWith(".png") || name.endsWith(".gif"))
+      {
+        images.add(file);
+      }
+    }
+  }
+
+  private static int[] readWithImageIO(File image, String suffix) throws
+      IOException
+  {
+    Iterator<ImageReader> readers = ImageIO.getImageReadersBySuffix(suffix);
+    if (!readers.hasNext())
+    {
+      return null;
+    }
+    ImageReader reader = readers.next();
+    FileImageInputStream stream = new FileImageInputStream(image);
+    try
+    {
+      reader.setInput(stream);
+      // the GIF logical screen, like BitmapChecker
+      IIOMetadata metadata = reader.getStreamMetadata();
+      if (metadata != null && metadata.isStandardMetadataFormatSupported())
+      {
+        Node dimension = getChild(metadata.getAsTree(IIOMetadataFormatImpl.standardMetadataFormatName), "Dimension");
+        Node width = getChild(dimension, "HorizontalScreenSize");
+        Node height = getChild(dimension, "VerticalScreenSize");
+        if (width != null && height != null)
+        {
+          return new int[]{getIntValue(width), getIntValue(height)};
+        }
+      }
+      return new int[]{reader.getWidth(0), reader.getHeight(0)};
+    }
+    catch (IOException e)
+    {
+      return null;
+    }
+    finally
+    {
+      reader.dispose();
+      stream.close();
+    }
+  }
+
+  private static Node getChild(Node node, String name)
+  {
+    for (Node child = node != null ? node.getFirstChild() : null; child != null; child = child.getNextSibling())
+    {
+      if (name.equals(child.getNodeName()))
+      {
+        return child;
+      }
+    }
+    return null;
+  }
+
+  private static int getIntValue(Node node)
+  {
+    return Integer.parseInt(node.getAttributes().getNamedItem("value").getNodeValue());
+  }
+}
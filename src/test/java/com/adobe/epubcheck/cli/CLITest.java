@@ -1,12 +1,15 @@
 package com.adobe.epubcheck.cli;
 
 import com.adobe.epubcheck.tool.EpubChecker;
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
 import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.PrintWriter;
 import java.net.URL;
 
 import static org.junit.Assert.assertEquals;
@@ -52,6 +55,102 @@ public class CLITest
     assertEquals(1, run(new String[]{epubPath + "invalid/lorem-xht-sch-1.epub"}));
   }
 
+  @Test
+  public void testInvalidEPUBThreads()
+  {
+    assertEquals(1, run(new String[]{epubPath + "invalid/lorem-xht-sch-1.epub", "--threads", "4"}));
+  }
+
+  @Test
+  public void testMissingThreadsCount()
+  {
+    assertEquals(1, run(new String[]{epubPath + "valid/lorem.epub", "--threads", "none"}));
+  }
+
+  @Test
+  public void testBatchFileList() throws
+      IOException
+  {
+    File list = File.createTempFile("epubcheck-batch", ".txt");
+    try
+    {
+      PrintWriter writer = new PrintWriter(list, "UTF-8");
+      writer.println("# books to check");
+      writer.println(getAbsoluteBasedir(epubPath + "valid/lorem.epub"));
+      writer.println(getAbsoluteBasedir(epubPath + "invalid/lorem-xht-sch-1.epub"));
+      writer.close();
+      assertEquals(2, run(new String[]{list.getPath(), "--batch", "--jobs", "2"}) & 2);
+    }
+    finally
+    {
+      list.delete();
+    }
+  }
+
+  @Test
+  public void testBatchGlobJsonOutput() throws
+      IOException
+  {
+    File outDir = File.createTempFile("epubcheck-batch", "");
+    outDir.delete();
+    try
+    {
+      String glob = new File(getAbsoluteBasedir(epubPath + "valid/lorem.epub")).getParent() + "/lorem.ep?b";
+      assertEquals(0, run(new String[]{glob, "--batch", "--json", outDir.getPath()}) & 6);
+      assertTrue(new File(outDir, "lorem.epubcheck.json").exists());
+      assertTrue(new File(outDir, "summary.txt").exists());
+    }
+    finally
+    {
+      File[] files = outDir.listFiles();
+      if (files != null)
+      {
+        for (File file : files)
+        {
+          file.delete();
+        }
+      }
+      outDir.delete();
+    }
+  }
+
+  @Test
+  public void testBatchDuplicateNames() throws
+      IOException
+  {
+    File tmpDir = File.createTempFile("epubcheck-batch", "");
+    tmpDir.delete();
+    File outDir = new File(tmpDir, "out");
+    try
+    {
+      // a/lorem.epub and b/lorem.epub must not both be reported as lorem-2
+      File lorem = new File(getAbsoluteBasedir(epubPath + "valid/lorem.epub"));
+      File list = new File(tmpDir, "list.txt");
+      String[] names = {"a/lorem.epub", "b/lorem.epub", "c/lorem-2.epub"};
+      for (String name : names)
+      {
+        File copy = new File(tmpDir, name);
+        copy.getParentFile().mkdirs();
+        Files.copy(lorem, copy);
+        Files.append(copy.getPath() + "\n", list, Charsets.UTF_8);
+      }
+      assertEquals(0, run(new String[]{list.getPath(), "--batch", "--json", outDir.getPath()}) & 6);
+      assertTrue(new File(outDir, "lorem.epubcheck.json").exists());
+      assertTrue(new File(outDir, "lorem-2.epubcheck.json").exists());
+      assertTrue(new File(outDir, "lorem-3.epubcheck.json").exists());
+    }
+    finally
+    {
+      delete(tmpDir);
+    }
+  }
+
+  @Test
+  public void testBatchMissingJobsCount()
+  {
+    assertEquals(1, run(new String[]{epubPath + "valid/", "--batch", "--jobs", "none"}));
+  }
+
   @Test
   public void testValidExp()
   {
@@ -182,6 +281,19 @@ public class CLITest
     return run(args, false);
   }
 
+  private static void delete(File file)
+  {
+    File[] files = file.listFiles();
+    if (files != null)
+    {
+      for (File child : files)
+      {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+
 	private String getAbsoluteBasedir(String base)
   {
 		URL fileURL = this.getClass().getResource(base);
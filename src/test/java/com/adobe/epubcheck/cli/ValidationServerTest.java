@@ -0,0 +1,179 @@
+package com.adobe.epubcheck.cli;
+
+import com.adobe.epubcheck.tool.ValidationServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ValidationServerTest
+{
+  private ValidationServer server;
+
+  @Before
+  public void setUp() throws
+      IOException
+  {
+    server = new ValidationServer(0, 2, 2, 60000);
+    server.start();
+  }
+
+  @After
+  public void tearDown()
+  {
+    server.stop();
+  }
+
+  @Test
+  public void testCheckValidEPUB() throws
+      IOException
+  {
+    HttpURLConnection connection = post("/30/epub/valid/lorem.epub");
+    assertEquals(200, connection.getResponseCode());
+    assertEquals(0, Integer.parseInt(connection.getHeaderField("X-EpubCheck-Result")) & 6);
+    String json = read(connection.getInputStream());
+    assertTrue(json.contains("\"filename\" : \"lorem.epub\""));
+  }
+
+  @Test
+  public void testCheckInvalidEPUB() throws
+      IOException
+  {
+    HttpURLConnection connection = post("/30/epub/invalid/lorem-xht-sch-1.epub");
+    assertEquals(200, connection.getResponseCode());
+    assertEquals(2, Integer.parseInt(connection.getHeaderField("X-EpubCheck-Result")) & 2);
+    String json = read(connection.getInputStream());
+    assertTrue(json.contains("\"ID\" : \"RSC-005\""));
+  }
+
+  @Test
+  public void testUploadTooLarge() throws
+      IOException
+  {
+    server.setMaxUploadSize(1024);
+    HttpURLConnection connection = post("/30/epub/valid/lorem.epub");
+    assertEquals(413, connection.getResponseCode());
+  }
+
+  @Test
+  public void testCustomMessagesParameterRejected() throws
+      IOException
+  {
+    HttpURLConnection connection = (HttpURLConnection) url("/check?customMessages=/etc/passwd").openConnection();
+    connection.setRequestMethod("POST");
+    assertEquals(400, connection.getResponseCode());
+  }
+
+  @Test
+  public void testRejectedBeforeBodyIsRead() throws
+      IOException,
+      InterruptedException
+  {
+    server.stop();
+    server = new ValidationServer(0, 1, 1, 60000);
+    server.start();
+    // two slots, held by requests whose body is still being sent
+    HttpURLConnection first = startPost();
+    HttpURLConnection second = startPost();
+    try
+    {
+      // wait for the slow requests to be admitted
+      for (int i = 0; i < 100 && !read(url("/status").openStream()).contains("\"admitted\":2"); i++)
+      {
+        Thread.sleep(50);
+      }
+      assertEquals(503, post("/30/epub/valid/lorem.epub").getResponseCode());
+    }
+    finally
+    {
+      first.disconnect();
+      second.disconnect();
+    }
+  }
+
+  @Test
+  public void testCheckRequiresPost() throws
+      IOException
+  {
+    HttpURLConnection connection = (HttpURLConnection) url("/check").openConnection();
+    assertEquals(405, connection.getResponseCode());
+  }
+
+  private HttpURLConnection post(String resource) throws
+      IOException
+  {
+    String name = resource.substring(resource.lastIndexOf('/') + 1);
+    HttpURLConnection connection = (HttpURLConnection) url("/check?name=" + name).openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    InputStream in = new FileInputStream(this.getClass().getResource(resource).getPath());
+    OutputStream out = connection.getOutputStream();
+    try
+    {
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) > 0)
+      {
+        out.write(buffer, 0, read);
+      }
+    }
+    finally
+    {
+      in.close();
+      out.close();
+    }
+    return connection;
+  }
+
+  /**
+   * Starts a POST whose body is never completed.
+   */
+  private HttpURLConnection startPost() throws
+      IOException
+  {
+    HttpURLConnection connection = (HttpURLConnection) url("/check?name=slow.epub").openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.setFixedLengthStreamingMode(1024 * 1024);
+    OutputStream out = connection.getOutputStream();
+    out.write(new byte[1024]);
+    out.flush();
+    return connection;
+  }
+
+  private URL url(String path) throws
+      IOException
+  {
+    return new URL("http://127.0.0.1:" + server.getPort() + path);
+  }
+
+  private static String read(InputStream in) throws
+      IOException
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try
+    {
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) > 0)
+      {
+        bytes.write(buffer, 0, read);
+      }
+    }
+    finally
+    {
+      in.close();
+    }
+    return bytes.toString("UTF-8");
+  }
+}
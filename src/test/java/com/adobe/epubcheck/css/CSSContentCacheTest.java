@@ -0,0 +1,252 @@
+package com.adobe.epubcheck.css;
+
+import com.adobe.epubcheck.api.EpubCheck;
+import com.adobe.epubcheck.reporting.CheckingReport;
+import com.google.common.io.ByteStreams;
+import org.idpf.epubcheck.util.css.CssEvents;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CSSContentCacheTest
+{
+  private static final String[] EPUBS = {
+      "/30/epub/valid/epub30-spec.epub",
+      "/30/epub/valid/font_fallback_chain.epub",
+      "/30/epub/valid/issue145.epub",
+      "/30/epub/invalid/font_no_fallback.epub",
+      "/30/epub/invalid/issue221.epub"
+  };
+
+  private File directory;
+
+  @Before
+  public void createDirectory() throws
+      IOException
+  {
+    directory = File.createTempFile("csscache", "");
+    directory.delete();
+    directory.mkdir();
+  }
+
+  @After
+  public void deleteDirectory()
+  {
+    File[] files = directory.listFiles();
+    if (files != null)
+    {
+      for (File file : files)
+      {
+        file.delete();
+      }
+    }
+    directory.delete();
+  }
+
+  @Test
+  public void testSameReportWithCache() throws
+      IOException
+  {
+    CSSContentCache cache = new CSSContentCache(CSSContentCache.DEFAULT_MAX_MEMORY_SIZE, directory,
+        CSSContentCache.DEFAULT_MAX_DIRECTORY_SIZE);
+    for (String epub : EPUBS)
+    {
+      String expected = validate(epub, null);
+      // the first validation fills the cache, the second one replays it
+      assertEquals(epub, expected, validate(epub, cache));
+      assertEquals(epub, expected, validate(epub, cache));
+      // read back from the disk
+      assertEquals(epub, expected, validate(epub, new CSSContentCache(0, directory, CSSContentCache.DEFAULT_MAX_DIRECTORY_SIZE)));
+    }
+    assertFalse(directory.list().length == 0);
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEvicted()
+  {
+    CSSContentCache cache = new CSSContentCache(250);
+    CSSParseCache.Stylesheet a = stylesheet("a { color: red }");
+    CSSParseCache.Stylesheet b = stylesheet("b { color: red }");
+    CSSParseCache.Stylesheet c = stylesheet("c { color: red }");
+    CSSParseCache.Stylesheet d = stylesheet("d { color: red }");
+    cache.put("a", a, 100);
+    cache.put("b", b, 100);
+    assertSame(a, cache.get("a"));
+    cache.put("c", c, 50);
+    assertSame(b, cache.get("b"));
+    cache.put("d", d, 100);
+    assertNull(cache.get("a"));
+    assertSame(b, cache.get("b"));
+    assertSame(c, cache.get("c"));
+    assertSame(d, cache.get("d"));
+
+    // larger than the cache on its own
+    cache.put("e", a, 251);
+    assertNull(cache.get("e"));
+    assertSame(d, cache.get("d"));
+  }
+
+  @Test
+  public void testUnreadableEntryIsMissing() throws
+      IOException
+  {
+    CSSContentCache cache = new CSSContentCache(0, directory, CSSContentCache.DEFAULT_MAX_DIRECTORY_SIZE);
+    String key = cache.getKey("p { color: red }".getBytes("UTF-8"));
+    assertEquals(64, key.length());
+    assertEquals(key, cache.getKey("p { color: red }".getBytes("UTF-8")));
+    OutputStream out = new FileOutputStream(new File(directory, key + ".css.ser"));
+    try
+    {
+      out.write("not a style sheet".getBytes("UTF-8"));
+    }
+    finally
+    {
+      out.close();
+    }
+    assertNull(cache.get(key));
+
+    CSSParseCache.Stylesheet stylesheet = stylesheet("p { color: red }");
+    cache.put(key, stylesheet, 16);
+    CSSParseCache.Stylesheet stored = cache.get(key);
+    assertNotNull(stored);
+    assertEquals(stylesheet.getEvents().size(), stored.getEvents().size());
+  }
+
+  @Test
+  public void testOtherClassesNotRead() throws
+      IOException
+  {
+    CSSContentCache cache = new CSSContentCache(0, directory, CSSContentCache.DEFAULT_MAX_DIRECTORY_SIZE);
+    String key = cache.getKey("p { color: red }".getBytes("UTF-8"));
+    cache.put(key, stylesheet("p { color: red }"), 16);
+    File file = new File(directory, key + ".css.ser");
+    byte[] stored = readBytes(file);
+
+    // a serialized object of another class, after a valid header
+    DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+    try
+    {
+      out.write(stored, 0, 16);
+      ObjectOutputStream objects = new ObjectOutputStream(out);
+      objects.writeObject(new ArrayList<Object>(Arrays.asList(new File("file"))));
+      objects.flush();
+    }
+    finally
+    {
+      out.close();
+    }
+    assertNull(cache.get(key));
+
+    // the stored events of another format version
+    stored[7]++;
+    write(file, stored);
+    assertNull(cache.get(key));
+    stored[7]--;
+    write(file, stored);
+    assertNotNull(cache.get(key));
+  }
+
+  @Test
+  public void testDirectorySizeBounded() throws
+      IOException
+  {
+    CSSContentCache cache = new CSSContentCache(0, directory, 16 * 1024);
+    long total = 0;
+    for (int i = 0; i < 40; i++)
+    {
+      String css = "p.c" + i + " { color: red }";
+      String key = cache.getKey(css.getBytes("UTF-8"));
+      cache.put(key, stylesheet(css), css.length());
+      assertNotNull(cache.get(key));
+      total += new File(directory, key + ".css.ser").length();
+    }
+    assertTrue(total > 16 * 1024);
+    long size = 0;
+    for (File file : directory.listFiles())
+    {
+      size += file.length();
+    }
+    assertTrue(size <= 16 * 1024);
+    String last = "p.c39 { color: red }";
+    assertNotNull(cache.get(cache.getKey(last.getBytes("UTF-8"))));
+    String first = "p.c0 { color: red }";
+    assertNull(cache.get(cache.getKey(first.getBytes("UTF-8"))));
+  }
+
+  private static byte[] readBytes(File file) throws
+      IOException
+  {
+    InputStream in = new FileInputStream(file);
+    try
+    {
+      return ByteStreams.toByteArray(in);
+    }
+    finally
+    {
+      in.close();
+    }
+  }
+
+  private static void write(File file, byte[] bytes) throws
+      IOException
+  {
+    OutputStream out = new FileOutputStream(file);
+    try
+    {
+      out.write(bytes);
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+
+  private static CSSParseCache.Stylesheet stylesheet(String css)
+  {
+    try
+    {
+      CSSParseCache parseCache = new CSSParseCache();
+      parseCache.parseStylesheet("style.css", new ByteArrayInputStream(css.getBytes("UTF-8")), new CssEvents(),
+          new CssEvents());
+      return parseCache.takeStylesheet("style.css");
+    }
+    catch (Exception e)
+    {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private String validate(String epub, CSSContentCache cache) throws
+      IOException
+  {
+    File file = new File(this.getClass().getResource(epub).getPath());
+    CheckingReport report = new CheckingReport(file.getPath(), null);
+    report.initialize();
+    EpubCheck check = new EpubCheck(file, report);
+    check.setCssCache(cache);
+    check.doValidate();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    report.generate(out);
+    return out.toString("UTF-8").replaceAll("\"(checkDate|elapsedTime)\" : [^,\\n]*", "");
+  }
+}
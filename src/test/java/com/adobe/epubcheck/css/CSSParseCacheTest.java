@@ -0,0 +1,88 @@
+package com.adobe.epubcheck.css;
+
+import org.idpf.epubcheck.util.css.CssEvents;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CSSParseCacheTest
+{
+  @Test
+  public void testStylesheetRecordedAndTakenOnce() throws
+      Exception
+  {
+    CSSParseCache cache = new CSSParseCache();
+    String css = "p { color: red }";
+    cache.parseStylesheet("style.css", new ByteArrayInputStream(css.getBytes("UTF-8")), null, null);
+    assertEquals(css.length(), cache.getRecordedSize());
+    assertNotNull(cache.takeStylesheet("style.css"));
+    assertNull(cache.takeStylesheet("style.css"));
+    assertEquals(0, cache.getRecordedSize());
+  }
+
+  @Test
+  public void testLargeStylesheetNotRecorded() throws
+      Exception
+  {
+    CSSParseCache cache = new CSSParseCache();
+    String css = repeat("p { color: red }\n", CSSParseCache.MAX_RECORDED_SIZE / 10);
+    CssEvents handler = new CssEvents();
+    cache.parseStylesheet("style.css", new ByteArrayInputStream(css.getBytes("UTF-8")), handler, handler);
+    // the events still went to the handlers of the parse
+    assertTrue(handler.size() > 0);
+    assertNull(cache.takeStylesheet("style.css"));
+    assertEquals(0, cache.getRecordedSize());
+  }
+
+  @Test
+  public void testInlineStylesWithinTotalSize()
+  {
+    CSSParseCache cache = new CSSParseCache();
+    CssEvents events = new CssEvents();
+    String css = repeat("p { color: red }\n", CSSParseCache.MAX_RECORDED_SIZE / 20);
+    int count = (int) (2 * CSSParseCache.MAX_RECORDED_TOTAL / css.length());
+    for (int i = 0; i < count; i++)
+    {
+      cache.putInlineStyle("doc" + i + ".xhtml", css, events);
+    }
+    assertTrue(cache.getRecordedSize() <= CSSParseCache.MAX_RECORDED_TOTAL);
+    assertSame(events, cache.takeInlineStyle("doc0.xhtml", css));
+    assertNull(cache.takeInlineStyle("doc" + (count - 1) + ".xhtml", css));
+
+    // too large on its own
+    String large = repeat("p { color: red }\n", CSSParseCache.MAX_RECORDED_SIZE / 10);
+    cache.putInlineStyle("large.xhtml", large, events);
+    assertNull(cache.takeInlineStyle("large.xhtml", large));
+  }
+
+  @Test
+  public void testClear() throws
+      Exception
+  {
+    CSSParseCache cache = new CSSParseCache();
+    CssEvents events = new CssEvents();
+    cache.putInlineStyle("doc.xhtml", "p { color: red }", events);
+    cache.parseStylesheet("style.css", new ByteArrayInputStream("p { color: red }".getBytes("UTF-8")), null, null);
+    assertTrue(cache.getRecordedSize() > 0);
+    cache.clear();
+    assertEquals(0, cache.getRecordedSize());
+    assertNull(cache.takeInlineStyle("doc.xhtml", "p { color: red }"));
+    assertNull(cache.takeStylesheet("style.css"));
+  }
+
+  private static String repeat(String s, int count)
+  {
+    StringBuilder sb = new StringBuilder(s.length() * count);
+    for (int i = 0; i < count; i++)
+    {
+      sb.append(s);
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,154 @@
+package com.adobe.epubcheck.messages;
+
+import com.adobe.epubcheck.util.ValidationReport;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Formattable;
+import java.util.Formatter;
+import java.util.IllegalFormatException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class MessageDictionaryTest
+{
+  @Test
+  public void testDefaultMessagesAreShared()
+  {
+    MessageDictionary first = new ValidationReport("a.epub").getDictionary();
+    MessageDictionary second = new ValidationReport("b.epub").getDictionary();
+    for (MessageId id : MessageId.values())
+    {
+      assertSame(id.toString(), first.getMessage(id), second.getMessage(id));
+    }
+  }
+
+  @Test
+  public void testTemplatesFormatLikeStringFormat()
+  {
+    MessageDictionary dictionary = new ValidationReport("a.epub").getDictionary();
+    Object[][] argumentLists = {
+        {},
+        {"one"},
+        {"one", 2, null, "four", "five", "six"}
+    };
+    for (MessageId id : MessageId.values())
+    {
+      Message message = dictionary.getMessage(id);
+      for (Object[] args : argumentLists)
+      {
+        assertEquals(id.toString(), format(message.getMessage(), args), message.getMessage(args));
+      }
+    }
+    String[] templates = {"%s and %2$s then %s %%", "100% sure", "%d items", "%-5s|", "line%nbreak", "%<s", "%0$s", "%S"};
+    Formattable formattable = new Formattable()
+    {
+      public void formatTo(Formatter formatter, int flags, int width, int precision)
+      {
+        formatter.format("formatted");
+      }
+    };
+    for (String template : templates)
+    {
+      Message message = new Message(MessageId.RSC_001, Severity.ERROR, template, "");
+      for (Object[] args : argumentLists)
+      {
+        assertEquals(template, format(template, args), message.getMessage(args));
+      }
+      assertEquals(template, format(template, formattable, "b"), message.getMessage(formattable, "b"));
+    }
+  }
+
+  @Test
+  public void testOverlayIsSharedByReports() throws
+      IOException
+  {
+    File file = File.createTempFile("messages", ".txt");
+    try
+    {
+      write(file, "ID\tSeverity\tMessage\tSuggestion\nRSC-001\tWARNING\nXYZ-999\tERROR\n");
+      ValidationReport first = new ValidationReport("a.epub");
+      first.setOverrideFile(file);
+      ValidationReport second = new ValidationReport("b.epub");
+      second.setOverrideFile(file);
+
+      Message message = first.getDictionary().getMessage(MessageId.RSC_001);
+      assertEquals(Severity.WARNING, message.getSeverity());
+      assertSame(message, second.getDictionary().getMessage(MessageId.RSC_001));
+      assertSame(new ValidationReport("c.epub").getDictionary().getMessage(MessageId.RSC_002),
+          first.getDictionary().getMessage(MessageId.RSC_002));
+      // the unknown ID is reported to each report
+      assertEquals(1, first.getErrorCount());
+      assertEquals(1, second.getErrorCount());
+
+      write(file, "RSC-001\tUSAGE\n");
+      file.setLastModified(file.lastModified() + 2000);
+      ValidationReport third = new ValidationReport("c.epub");
+      third.setOverrideFile(file);
+      assertEquals(Severity.USAGE, third.getDictionary().getMessage(MessageId.RSC_001).getSeverity());
+      assertNotSame(message, third.getDictionary().getMessage(MessageId.RSC_001));
+      assertEquals(0, third.getErrorCount());
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testOverlayReloadedWhenOnlyContentChanges() throws
+      IOException
+  {
+    File file = File.createTempFile("messages", ".txt");
+    try
+    {
+      write(file, "RSC-001\tUSAGE\n");
+      long lastModified = file.lastModified();
+      ValidationReport first = new ValidationReport("a.epub");
+      first.setOverrideFile(file);
+      assertEquals(Severity.USAGE, first.getDictionary().getMessage(MessageId.RSC_001).getSeverity());
+
+      // same size and modification time
+      write(file, "RSC-001\tERROR\n");
+      file.setLastModified(lastModified);
+      ValidationReport second = new ValidationReport("b.epub");
+      second.setOverrideFile(file);
+      assertEquals(Severity.ERROR, second.getDictionary().getMessage(MessageId.RSC_001).getSeverity());
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+
+  private static String format(String template, Object... args)
+  {
+    try
+    {
+      return String.format(template, args);
+    }
+    catch (IllegalFormatException e)
+    {
+      return template + " :" + e.getMessage();
+    }
+  }
+
+  private static void write(File file, String content) throws
+      IOException
+  {
+    OutputStream out = new FileOutputStream(file);
+    try
+    {
+      out.write(content.getBytes("UTF-8"));
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+}
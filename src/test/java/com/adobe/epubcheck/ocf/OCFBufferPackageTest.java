@@ -0,0 +1,196 @@
+package com.adobe.epubcheck.ocf;
+
+import com.adobe.epubcheck.api.EpubCheck;
+import com.adobe.epubcheck.util.ValidationReport;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OCFBufferPackageTest
+{
+  private static final String[] EPUBS = {
+      "/30/epub/valid/lorem.epub",
+      "/30/epub/valid/epub30-spec.epub",
+      "/30/epub/valid/font-obfuscation.epub",
+      "/20/epub/valid/issue169.epub"
+  };
+
+  @Test
+  public void testSameContentAsZipFile() throws
+      IOException
+  {
+    for (String epub : EPUBS)
+    {
+      File file = getFile(epub);
+      ZipFile zip = new ZipFile(file);
+      try
+      {
+        OCFPackage expected = new OCFZipPackage(zip);
+        OCFPackage actual = new OCFBufferPackage(ByteBuffer.wrap(readBytes(new FileInputStream(file))), file.getPath());
+
+        assertEquals(epub, expected.getEntries(), actual.getEntries());
+        assertEquals(epub, expected.getFileEntries(), actual.getFileEntries());
+        assertEquals(epub, expected.getDirectoryEntries(), actual.getDirectoryEntries());
+        assertEquals(epub, expected.getName(), actual.getName());
+        for (String name : expected.getFileEntries())
+        {
+          assertTrue(name, actual.hasEntry(name));
+          assertEquals(name, expected.getTimeEntry(name), actual.getTimeEntry(name));
+          assertArrayEquals(name, readBytes(expected.getInputStream(name)), readBytes(actual.getInputStream(name)));
+        }
+        assertFalse(actual.hasEntry("missing.xhtml"));
+        assertNull(actual.getInputStream("missing.xhtml"));
+      }
+      finally
+      {
+        zip.close();
+      }
+    }
+  }
+
+  @Test
+  public void testMappedBuffer() throws
+      IOException
+  {
+    File file = getFile(EPUBS[0]);
+    FileInputStream in = new FileInputStream(file);
+    try
+    {
+      ByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+      OCFPackage ocf = new OCFBufferPackage(buffer, file.getPath());
+      assertEquals("application/epub+zip", new String(readBytes(ocf.getInputStream("mimetype")), "US-ASCII"));
+    }
+    finally
+    {
+      in.close();
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testNotAZip() throws
+      IOException
+  {
+    new OCFBufferPackage(ByteBuffer.wrap("not a zip file".getBytes("US-ASCII")), "test.epub");
+  }
+
+  @Test
+  public void testNameLengthPastCentralDirectory() throws
+      IOException
+  {
+    File file = getFile(EPUBS[0]);
+    ByteBuffer buffer = ByteBuffer.wrap(readBytes(new FileInputStream(file))).order(ByteOrder.LITTLE_ENDIAN);
+    int end = buffer.limit() - 22;
+    assertEquals(0x06054b50, buffer.getInt(end));
+    int pos = buffer.getInt(end + 16);
+    buffer.putShort(pos + 28, (short) 0xFFFF);
+    try
+    {
+      new OCFBufferPackage(buffer, file.getPath());
+      fail("expected an IOException");
+    }
+    catch (IOException expected)
+    {
+    }
+
+    ValidationReport report = new ValidationReport(file.getName());
+    new EpubCheck(buffer, report, file.getPath()).doValidate();
+    assertEquals(1, report.fatalErrorList.size());
+    assertTrue(report.fatalErrorList.get(0).message.contains("invalid CEN header"));
+  }
+
+  @Test
+  public void testLocalHeaderOffsetPastEnd() throws
+      IOException
+  {
+    File file = getFile(EPUBS[0]);
+    ByteBuffer buffer = ByteBuffer.wrap(readBytes(new FileInputStream(file))).order(ByteOrder.LITTLE_ENDIAN);
+    int end = buffer.limit() - 22;
+    assertEquals(0x06054b50, buffer.getInt(end));
+    int pos = buffer.getInt(end + 16);
+    // negative once cast to an int
+    buffer.putInt(pos + 42, 0x80000000);
+    try
+    {
+      new OCFBufferPackage(buffer, file.getPath());
+      fail("expected an IOException");
+    }
+    catch (IOException expected)
+    {
+    }
+
+    ValidationReport report = new ValidationReport(file.getName());
+    new EpubCheck(buffer, report, file.getPath()).doValidate();
+    assertEquals(1, report.fatalErrorList.size());
+    assertTrue(report.fatalErrorList.get(0).message.contains("invalid CEN header"));
+  }
+
+  @Test
+  public void testSameMessagesAsFile() throws
+      IOException
+  {
+    File file = getFile("/30/epub/invalid/lorem-xht-sch-1.epub");
+    ValidationReport fileReport = new ValidationReport(file.getName());
+    new EpubCheck(file, fileReport).doValidate();
+    ValidationReport bufferReport = new ValidationReport(file.getName());
+    new EpubCheck(ByteBuffer.wrap(readBytes(new FileInputStream(file))), bufferReport, file.getPath()).doValidate();
+
+    assertEquals(getIds(fileReport), getIds(bufferReport));
+    assertTrue(bufferReport.getErrorCount() > 0);
+  }
+
+  private static List<String> getIds(ValidationReport report)
+  {
+    List<String> ids = new ArrayList<String>();
+    for (ValidationReport.ItemReport item : report.errorList)
+    {
+      ids.add(item.message);
+    }
+    for (ValidationReport.ItemReport item : report.warningList)
+    {
+      ids.add(item.message);
+    }
+    return ids;
+  }
+
+  private File getFile(String resource)
+  {
+    return new File(this.getClass().getResource(resource).getPath());
+  }
+
+  private static byte[] readBytes(InputStream in) throws
+      IOException
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try
+    {
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1)
+      {
+        out.write(buffer, 0, read);
+      }
+    }
+    finally
+    {
+      in.close();
+    }
+    return out.toByteArray();
+  }
+}
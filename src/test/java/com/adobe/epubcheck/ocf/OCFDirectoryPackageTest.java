@@ -0,0 +1,127 @@
+package com.adobe.epubcheck.ocf;
+
+import com.adobe.epubcheck.api.EpubCheck;
+import com.adobe.epubcheck.reporting.CheckingReport;
+import com.adobe.epubcheck.util.Archive;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OCFDirectoryPackageTest
+{
+  private static final String[] DIRECTORIES = {
+      "/30/expanded/valid/lorem-basic",
+      "/30/expanded/valid/wasteland-basic",
+      "/30/expanded/invalid/lorem-mimetype",
+      "/30/expanded/invalid/lorem-mimetype-2",
+      "/30/expanded/invalid/lorem-encryption",
+      "/30/expanded/invalid/lorem-xhtml-sch-1",
+      "/20/expanded/valid/issue256",
+      "/20/expanded/invalid/lorem-mimetype"
+  };
+
+  @Test
+  public void testSameContentAsArchive() throws
+      IOException
+  {
+    for (String directory : DIRECTORIES)
+    {
+      Archive archive = new Archive(getFile(directory).getPath());
+      archive.createArchive();
+      ZipFile zip = new ZipFile(archive.getEpubFile());
+      try
+      {
+        OCFPackage expected = new OCFZipPackage(zip);
+        OCFPackage actual = new OCFDirectoryPackage(getFile(directory));
+
+        assertEquals(directory, expected.getEntries(), actual.getEntries());
+        assertEquals(directory, expected.getFileEntries(), actual.getFileEntries());
+        assertEquals(directory, expected.getDirectoryEntries(), actual.getDirectoryEntries());
+        assertEquals(directory, expected.getName(), actual.getName());
+        assertEquals(directory, expected.getPackagePath(), actual.getPackagePath());
+        for (String name : expected.getFileEntries())
+        {
+          assertTrue(name, actual.hasEntry(name));
+          assertEquals(name, expected.getTimeEntry(name), actual.getTimeEntry(name));
+          assertEquals(name, expected.getSize(name), actual.getSize(name));
+          assertArrayEquals(name, readBytes(expected.getInputStream(name)), readBytes(actual.getInputStream(name)));
+        }
+        assertFalse(actual.hasEntry("missing.xhtml"));
+        assertNull(actual.getInputStream("missing.xhtml"));
+      }
+      finally
+      {
+        zip.close();
+        archive.deleteEpubFile();
+      }
+    }
+  }
+
+  @Test
+  public void testSameReportAsArchive() throws
+      IOException
+  {
+    for (String directory : DIRECTORIES)
+    {
+      Archive archive = new Archive(getFile(directory).getPath());
+      archive.createArchive();
+      try
+      {
+        String expected = validate(archive.getEpubFile(), archive.getEpubFile());
+        String actual = validate(getFile(directory), archive.getEpubFile());
+        assertEquals(directory, expected, actual);
+      }
+      finally
+      {
+        archive.deleteEpubFile();
+      }
+      assertFalse(directory, archive.getEpubFile().exists());
+    }
+  }
+
+  private static String validate(File file, File epubFile) throws
+      IOException
+  {
+    CheckingReport report = new CheckingReport(epubFile.getPath(), null);
+    report.initialize();
+    new EpubCheck(file, report).doValidate();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    report.generate(out);
+    return out.toString("UTF-8").replaceAll("\"(checkDate|elapsedTime)\" : [^,\\n]*", "");
+  }
+
+  private File getFile(String resource)
+  {
+    return new File(this.getClass().getResource(resource).getPath());
+  }
+
+  private static byte[] readBytes(InputStream in) throws
+      IOException
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try
+    {
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1)
+      {
+        out.write(buffer, 0, read);
+      }
+    }
+    finally
+    {
+      in.close();
+    }
+    return out.toByteArray();
+  }
+}
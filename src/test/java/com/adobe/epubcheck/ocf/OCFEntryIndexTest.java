@@ -0,0 +1,51 @@
+package com.adobe.epubcheck.ocf;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OCFEntryIndexTest
+{
+  @Test
+  public void testFileAndDirectoryEntries()
+  {
+    OCFEntryIndex index = new OCFEntryIndex(Arrays.asList("mimetype", "META-INF/", "META-INF/container.xml",
+        "EPUB/", "EPUB/package.opf", "mimetype"));
+    assertEquals(6, index.getEntries().size());
+    assertEquals(new HashSet<String>(Arrays.asList("mimetype", "META-INF/container.xml", "EPUB/package.opf")),
+        index.getFileEntries());
+    assertEquals(new HashSet<String>(Arrays.asList("META-INF/", "EPUB/")), index.getDirectoryEntries());
+  }
+
+  @Test
+  public void testHasFileEntries()
+  {
+    OCFEntryIndex index = new OCFEntryIndex(Arrays.asList("EPUB/", "EPUB/images/", "EPUB/text/",
+        "EPUB/text/a.xhtml", "EPUB/texts/", "EPUB/textual.css", "empty/"));
+    assertTrue(index.hasFileEntries("EPUB/"));
+    assertTrue(index.hasFileEntries("EPUB/text/"));
+    assertFalse(index.hasFileEntries("EPUB/images/"));
+    assertFalse(index.hasFileEntries("EPUB/texts/"));
+    assertFalse(index.hasFileEntries("empty/"));
+    assertFalse(index.hasFileEntries("zzz/"));
+  }
+
+  @Test
+  public void testConflicts()
+  {
+    // "e" followed by a combining acute accent, and its precomposed form
+    String decomposed = "EPUB/café.xhtml";
+    String composed = "EPUB/café.xhtml";
+    OCFEntryIndex index = new OCFEntryIndex(Arrays.asList("EPUB/a.xhtml", "EPUB/A.xhtml", decomposed, composed));
+
+    assertTrue(index.isCaseConflict("EPUB/a.xhtml") ^ index.isCaseConflict("EPUB/A.xhtml"));
+    assertTrue(index.isNormalizationConflict(decomposed) ^ index.isNormalizationConflict(composed));
+    assertFalse(index.isNormalizationConflict("EPUB/a.xhtml") || index.isNormalizationConflict("EPUB/A.xhtml"));
+    assertFalse(index.isCaseConflict(decomposed) || index.isCaseConflict(composed));
+  }
+}
@@ -0,0 +1,128 @@
+package com.adobe.epubcheck.ocf;
+
+import com.adobe.epubcheck.util.ValidationReport;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OCFZipPackageTest
+{
+  private static final String EPUB = "/30/epub/valid/lorem.epub";
+  private static final String ENTRY = "EPUB/lorem.xhtml";
+
+  @Test
+  public void testDigestComputedOnRead() throws
+      IOException
+  {
+    ZipFile zip = new ZipFile(getFile(EPUB));
+    try
+    {
+      OCFPackage lazy = new OCFZipPackage(zip);
+      OCFPackage read = new OCFZipPackage(zip);
+      InputStream in = read.getInputStream(ENTRY);
+      byte[] buffer = new byte[100];
+      while (in.read(buffer) != -1)
+      {
+        // consume the entry like a checker would
+      }
+      in.close();
+      assertTrue(read.getEntryDigest(ENTRY) != null);
+      assertEquals(zip.getEntry(ENTRY).getSize(), read.getDigestedSize(ENTRY));
+      assertEquals(getMetadata(lazy), getMetadata(read));
+    }
+    finally
+    {
+      zip.close();
+    }
+  }
+
+  @Test
+  public void testPartialReadFallsBack() throws
+      IOException
+  {
+    ZipFile zip = new ZipFile(getFile(EPUB));
+    try
+    {
+      OCFPackage lazy = new OCFZipPackage(zip);
+      OCFPackage partial = new OCFZipPackage(zip);
+      InputStream in = partial.getInputStream(ENTRY);
+      in.read(new byte[10]);
+      in.close();
+      assertEquals(null, partial.getEntryDigest(ENTRY));
+      assertEquals(getMetadata(lazy), getMetadata(partial));
+    }
+    finally
+    {
+      zip.close();
+    }
+  }
+
+  @Test
+  public void testDigestRemaining() throws
+      IOException
+  {
+    ZipFile zip = new ZipFile(getFile(EPUB));
+    try
+    {
+      OCFPackage lazy = new OCFZipPackage(zip);
+      OCFPackage partial = new OCFZipPackage(zip);
+      InputStream in = partial.getInputStream(ENTRY);
+      in.read(new byte[10]);
+      partial.digestRemaining(ENTRY, in);
+      in.close();
+      assertTrue(partial.getEntryDigest(ENTRY) != null);
+      assertEquals(getMetadata(lazy), getMetadata(partial));
+    }
+    finally
+    {
+      zip.close();
+    }
+  }
+
+  @Test
+  public void testNoHashing() throws
+      IOException
+  {
+    ZipFile zip = new ZipFile(getFile(EPUB));
+    try
+    {
+      OCFPackage ocf = new OCFZipPackage(zip);
+      ocf.setHashing(false);
+      List<String> metadata = getMetadata(ocf);
+      assertEquals(3, metadata.size());
+      for (String info : metadata)
+      {
+        assertTrue(info, !info.contains("SHA-256"));
+      }
+    }
+    finally
+    {
+      zip.close();
+    }
+  }
+
+  private static List<String> getMetadata(OCFPackage ocf)
+  {
+    ValidationReport report = new ValidationReport(EPUB);
+    ocf.reportMetadata(ENTRY, report);
+    List<String> result = new ArrayList<String>();
+    for (ValidationReport.ItemReport item : report.getInfoList())
+    {
+      result.add(item.message);
+    }
+    return result;
+  }
+
+  private File getFile(String resource)
+  {
+    return new File(this.getClass().getResource(resource).getPath());
+  }
+}
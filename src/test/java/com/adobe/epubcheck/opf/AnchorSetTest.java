@@ -0,0 +1,50 @@
+package com.adobe.epubcheck.opf;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AnchorSetTest
+{
+  @Test
+  public void testAddAndGetType()
+  {
+    AnchorSet anchors = new AnchorSet();
+    int count = 10000;
+    for (int i = 0; i < count; i++)
+    {
+      assertTrue(anchors.add("id" + i, i % 3));
+    }
+    assertEquals(count, anchors.size());
+    for (int i = 0; i < count; i++)
+    {
+      assertEquals(i % 3, anchors.getType("id" + i));
+    }
+    assertEquals(-1, anchors.getType("id" + count));
+    assertEquals(-1, anchors.getType(""));
+  }
+
+  @Test
+  public void testDuplicateKeepsFirstType()
+  {
+    AnchorSet anchors = new AnchorSet();
+    assertTrue(anchors.add("note", XRefChecker.RT_HYPERLINK));
+    assertFalse(anchors.add("note", XRefChecker.RT_SVG_PAINT));
+    assertEquals(1, anchors.size());
+    assertEquals(XRefChecker.RT_HYPERLINK, anchors.getType("note"));
+  }
+
+  @Test
+  public void testCollidingIds()
+  {
+    // "Aa" and "BB" have the same hash code
+    AnchorSet anchors = new AnchorSet();
+    assertTrue(anchors.add("Aa", XRefChecker.RT_GENERIC));
+    assertTrue(anchors.add("BB", XRefChecker.RT_SVG_SYMBOL));
+    assertEquals(XRefChecker.RT_GENERIC, anchors.getType("Aa"));
+    assertEquals(XRefChecker.RT_SVG_SYMBOL, anchors.getType("BB"));
+    assertEquals(-1, anchors.getType("AaBB"));
+  }
+}
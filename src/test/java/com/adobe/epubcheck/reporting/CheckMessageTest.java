@@ -0,0 +1,82 @@
+package com.adobe.epubcheck.reporting;
+
+import com.adobe.epubcheck.messages.Message;
+import com.adobe.epubcheck.messages.MessageId;
+import com.adobe.epubcheck.messages.MessageLocation;
+import com.adobe.epubcheck.messages.Severity;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class CheckMessageTest
+{
+  private List<CheckMessage> messages;
+  private Map<Object, CheckMessage> index;
+
+  @Before
+  public void setUp()
+  {
+    messages = new ArrayList<CheckMessage>();
+    index = new HashMap<Object, CheckMessage>();
+  }
+
+  @Test
+  public void testSameArgumentsAreMerged()
+  {
+    Message message = new Message(MessageId.RSC_007, Severity.ERROR, "Referenced resource '%1$s' could not be found.", "");
+    CheckMessage first = add(message, "a.xhtml", 1, "missing.png");
+    CheckMessage second = add(message, "b.xhtml", 2, "missing.png");
+    add(message, "a.xhtml", 3, "other.png");
+    assertSame(first, second);
+    assertEquals(2, messages.size());
+    assertEquals("Referenced resource 'missing.png' could not be found.", messages.get(0).getMessage());
+    assertEquals("Referenced resource 'other.png' could not be found.", messages.get(1).getMessage());
+  }
+
+  @Test
+  public void testUnusedArgumentsAreIgnored()
+  {
+    Message message = new Message(MessageId.RSC_005, Severity.ERROR, "Error while parsing file '%2$s'.", "");
+    add(message, "a.xhtml", 1, "first", "same.xhtml");
+    add(message, "a.xhtml", 2, "second", "same.xhtml");
+    assertEquals(1, messages.size());
+  }
+
+  @Test
+  public void testSameTextIsMerged()
+  {
+    // the arguments don't match the template, the text is the same whatever they are
+    Message message = new Message(MessageId.OPF_060, Severity.ERROR, "Duplicate entry in the ZIP file: '%1$f'.", "");
+    add(message, "a.epub", 0, "a.xhtml");
+    add(message, "a.epub", 0, "b.xhtml");
+    assertEquals(1, messages.size());
+  }
+
+  @Test
+  public void testAdditionalLocations()
+  {
+    Message message = new Message(MessageId.RSC_007, Severity.ERROR, "Referenced resource '%1$s' could not be found.", "");
+    for (int i = 1; i <= 30; i++)
+    {
+      add(message, "a.xhtml", i, "missing.png");
+      // duplicates of kept locations are not counted
+      add(message, "a.xhtml", 1, "missing.png");
+    }
+    assertEquals(1, messages.size());
+    List<MessageLocation> locations = messages.get(0).getLocations();
+    assertEquals(26, locations.size());
+    assertEquals("There are 5 additional locations for this message.", locations.get(25).getFileName());
+  }
+
+  private CheckMessage add(Message message, String file, int line, Object... args)
+  {
+    return CheckMessage.addCheckMessage(messages, index, message, new MessageLocation(file, line, 1), args);
+  }
+}
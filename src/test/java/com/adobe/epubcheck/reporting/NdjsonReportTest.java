@@ -0,0 +1,64 @@
+package com.adobe.epubcheck.reporting;
+
+import com.adobe.epubcheck.api.EpubCheck;
+import com.adobe.epubcheck.messages.MessageId;
+import com.adobe.epubcheck.messages.MessageLocation;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NdjsonReportTest
+{
+  @Test
+  public void testMessagesAreWrittenAsTheyAreReported() throws
+      IOException
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    NdjsonReport report = new NdjsonReport("test.epub", out);
+    report.initialize();
+    report.message(MessageId.RSC_001, new MessageLocation("test.epub", 1, 2), "a.xhtml");
+    String[] lines = out.toString("UTF-8").split("\n");
+    assertEquals(1, lines.length);
+    JsonNode message = new ObjectMapper().readTree(lines[0]);
+    assertEquals("RSC-001", message.get("ID").getTextValue());
+    assertEquals("ERROR", message.get("severity").getTextValue());
+    assertEquals(1, message.get("line").getIntValue());
+    assertEquals(2, message.get("column").getIntValue());
+    assertTrue(message.get("message").getTextValue().contains("a.xhtml"));
+  }
+
+  @Test
+  public void testSummaryCountsMessages() throws
+      IOException
+  {
+    File file = new File(this.getClass().getResource("/30/epub/invalid/lorem-xht-sch-1.epub").getPath());
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    NdjsonReport report = new NdjsonReport(file.getPath(), out);
+    report.initialize();
+    new EpubCheck(file, report).doValidate();
+    assertEquals(0, report.generate());
+
+    String[] lines = out.toString("UTF-8").split("\n");
+    ObjectMapper mapper = new ObjectMapper();
+    int errors = 0;
+    for (int i = 0; i < lines.length - 1; i++)
+    {
+      if ("ERROR".equals(mapper.readTree(lines[i]).get("severity").getTextValue()))
+      {
+        errors++;
+      }
+    }
+    assertTrue(errors > 0);
+    JsonNode checker = mapper.readTree(lines[lines.length - 1]).get("checker");
+    assertEquals(file.getName(), checker.get("filename").getTextValue());
+    assertEquals(errors, checker.get("nError").getIntValue());
+    assertEquals(report.getErrorCount(), errors);
+  }
+}
@@ -0,0 +1,208 @@
+package com.adobe.epubcheck.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ArchiveTest
+{
+  private File baseDir;
+
+  @Before
+  public void createPublication() throws
+      IOException
+  {
+    baseDir = File.createTempFile("archive", "");
+    baseDir.delete();
+    baseDir.mkdir();
+    write("META-INF/container.xml", "<container/>".getBytes("UTF-8"));
+    write("EPUB/content.opf", "<package/>".getBytes("UTF-8"));
+    write("EPUB/empty.txt", new byte[0]);
+    write("EPUB/chapter.xhtml", repeat("<p>lorem ipsum</p>", 5000).getBytes("UTF-8"));
+    byte[] media = new byte[3 * 1024 * 1024];
+    new Random(7).nextBytes(media);
+    write("EPUB/media.bin", media);
+    write("Thumbs.db", new byte[]{1, 2, 3});
+    write("mimetype", "application/epub+zip".getBytes("US-ASCII"));
+  }
+
+  @After
+  public void deletePublication()
+  {
+    delete(baseDir);
+  }
+
+  @Test
+  public void testEntriesAreDeflatedWithMimetypeStoredFirst() throws
+      IOException
+  {
+    Archive archive = new Archive(baseDir.getPath());
+    archive.setThreads(4);
+    archive.createArchive();
+    try
+    {
+      byte[] header = new byte[58];
+      InputStream in = new FileInputStream(archive.getEpubFile());
+      try
+      {
+        assertEquals(header.length, in.read(header));
+      }
+      finally
+      {
+        in.close();
+      }
+      assertEquals(8, header[26]);
+      assertEquals(0, header[28]);
+      assertEquals("mimetypeapplication/epub+zip", new String(header, 30, 28, "US-ASCII"));
+
+      ZipFile zip = new ZipFile(archive.getEpubFile());
+      try
+      {
+        Enumeration<? extends ZipEntry> entries = zip.entries();
+        ZipEntry mimetype = entries.nextElement();
+        assertEquals("mimetype", mimetype.getName());
+        assertEquals(ZipEntry.STORED, mimetype.getMethod());
+        int count = 1;
+        while (entries.hasMoreElements())
+        {
+          ZipEntry entry = entries.nextElement();
+          assertEquals(entry.getName(), ZipEntry.DEFLATED, entry.getMethod());
+          assertArrayEquals(entry.getName(), read(new FileInputStream(new File(baseDir, entry.getName()))),
+              read(zip.getInputStream(entry)));
+          count++;
+        }
+        assertEquals(archive.getEntryNames().size(), count);
+        assertEquals(6, count);
+        assertTrue(zip.getEntry("EPUB/chapter.xhtml").getCompressedSize() < 1000);
+      }
+      finally
+      {
+        zip.close();
+      }
+    }
+    finally
+    {
+      archive.deleteEpubFile();
+    }
+  }
+
+  @Test
+  public void testMissingFileFailsWithCause()
+  {
+    Archive archive = new Archive(baseDir.getPath());
+    assertEquals(6, archive.getEntryNames().size());
+    assertTrue(new File(baseDir, "EPUB/chapter.xhtml").delete());
+    try
+    {
+      archive.createArchive();
+      fail("expected a RuntimeException");
+    }
+    catch (RuntimeException e)
+    {
+      assertTrue(e.getCause() instanceof FileNotFoundException);
+    }
+    finally
+    {
+      archive.deleteEpubFile();
+    }
+  }
+
+  @Test
+  public void testSameArchiveWithOneThread() throws
+      IOException
+  {
+    Archive parallel = new Archive(baseDir.getPath());
+    parallel.setThreads(8);
+    parallel.createArchive();
+    byte[] expected = read(new FileInputStream(parallel.getEpubFile()));
+    parallel.deleteEpubFile();
+
+    Archive sequential = new Archive(baseDir.getPath());
+    sequential.setThreads(1);
+    sequential.createArchive();
+    byte[] actual = read(new FileInputStream(sequential.getEpubFile()));
+    sequential.deleteEpubFile();
+
+    assertTrue(Arrays.equals(expected, actual));
+    assertFalse(sequential.getEpubFile().exists());
+  }
+
+  private void write(String name, byte[] content) throws
+      IOException
+  {
+    File file = new File(baseDir, name);
+    file.getParentFile().mkdirs();
+    OutputStream out = new FileOutputStream(file);
+    try
+    {
+      out.write(content);
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+
+  private static String repeat(String text, int count)
+  {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < count; i++)
+    {
+      sb.append(text);
+    }
+    return sb.toString();
+  }
+
+  private static byte[] read(InputStream in) throws
+      IOException
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try
+    {
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1)
+      {
+        out.write(buffer, 0, read);
+      }
+    }
+    finally
+    {
+      in.close();
+    }
+    return out.toByteArray();
+  }
+
+  private static void delete(File file)
+  {
+    File[] files = file.listFiles();
+    if (files != null)
+    {
+      for (File child : files)
+      {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+}
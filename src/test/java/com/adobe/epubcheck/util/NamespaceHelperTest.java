@@ -0,0 +1,155 @@
+package com.adobe.epubcheck.util;
+
+import com.adobe.epubcheck.messages.Message;
+import com.adobe.epubcheck.messages.MessageLocation;
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.LocatorImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class NamespaceHelperTest
+{
+  private final NamespaceHelper helper = new NamespaceHelper();
+  private final LocatorImpl locator = new LocatorImpl();
+  private final List<String> messages = new ArrayList<String>();
+  private final ValidationReport report = new ValidationReport("test.xhtml")
+  {
+    @Override
+    public void message(Message message, MessageLocation location, Object... args)
+    {
+      messages.add(message.getID() + " " + location.getLine() + " " + args[0]);
+    }
+  };
+
+  @Before
+  public void reportUsage()
+  {
+    report.setReportingLevel(ReportingLevel.Usage);
+  }
+
+  @Test
+  public void testExpectedNamespacesNotReported()
+  {
+    start(1, "html", EpubConstants.HtmlNamespaceUri, "xmlns:epub", EpubConstants.EpubTypeNamespaceUri);
+    start(2, "p", EpubConstants.HtmlNamespaceUri, "epub:type", "chapter");
+    end();
+    end();
+    assertMessages();
+  }
+
+  @Test
+  public void testUsedNamespaceReportedOnce()
+  {
+    start(1, "html", EpubConstants.HtmlNamespaceUri, "xmlns:m", "urn:m");
+    start(2, "m:math", "urn:m");
+    end();
+    end();
+    assertMessages("HTM-010 1 urn:m");
+  }
+
+  @Test
+  public void testUnusedNamespacesInDeclarationOrder()
+  {
+    // not the iteration order of a HashMap of the uris
+    start(1, "html", EpubConstants.HtmlNamespaceUri, "xmlns:z", "urn:z", "xmlns:y", "urn:y", "xmlns:x", "urn:x");
+    start(2, "p", EpubConstants.HtmlNamespaceUri);
+    end();
+    end();
+    assertMessages("HTM-010 1 urn:z", "HTM-010 1 urn:y", "HTM-010 1 urn:x",
+        "HTM-044 1 urn:z", "HTM-044 1 urn:y", "HTM-044 1 urn:x");
+  }
+
+  @Test
+  public void testUnusedNamespaceReportedAtEndOfScope()
+  {
+    start(1, "html", EpubConstants.HtmlNamespaceUri);
+    start(2, "div", EpubConstants.HtmlNamespaceUri, "xmlns:a", "urn:a");
+    end();
+    assertMessages("HTM-010 2 urn:a", "HTM-044 2 urn:a");
+    start(3, "p", EpubConstants.HtmlNamespaceUri, "a:x", "1");
+    end();
+    end();
+    assertMessages("HTM-010 2 urn:a", "HTM-044 2 urn:a");
+  }
+
+  @Test
+  public void testShadowedPrefix()
+  {
+    // the inner declaration of the prefix is used, the outer one is not
+    start(1, "html", EpubConstants.HtmlNamespaceUri, "xmlns:a", "urn:a");
+    start(2, "div", EpubConstants.HtmlNamespaceUri, "xmlns:a", "urn:b");
+    start(3, "p", EpubConstants.HtmlNamespaceUri, "a:x", "1");
+    end();
+    end();
+    assertMessages("HTM-010 1 urn:a", "HTM-010 2 urn:b");
+    end();
+    assertMessages("HTM-010 1 urn:a", "HTM-010 2 urn:b", "HTM-044 1 urn:a");
+  }
+
+  @Test
+  public void testShadowedPrefixRestoredAfterScope()
+  {
+    start(1, "html", EpubConstants.HtmlNamespaceUri, "xmlns:a", "urn:a");
+    start(2, "div", EpubConstants.HtmlNamespaceUri, "xmlns:a", "urn:b");
+    end();
+    start(3, "p", EpubConstants.HtmlNamespaceUri, "a:x", "1");
+    end();
+    end();
+    assertMessages("HTM-010 1 urn:a", "HTM-010 2 urn:b", "HTM-044 2 urn:b");
+  }
+
+  @Test
+  public void testRedeclaredUri()
+  {
+    // once the uri is redeclared with another prefix, the outer prefix no
+    // longer matches
+    start(1, "html", EpubConstants.HtmlNamespaceUri, "xmlns:a", "urn:x");
+    start(2, "div", EpubConstants.HtmlNamespaceUri, "xmlns:b", "urn:x");
+    start(3, "p", EpubConstants.HtmlNamespaceUri, "a:y", "1");
+    end();
+    end();
+    assertMessages("HTM-010 1 urn:x", "HTM-010 2 urn:x", "HTM-044 2 urn:x");
+    end();
+    assertMessages("HTM-010 1 urn:x", "HTM-010 2 urn:x", "HTM-044 2 urn:x", "HTM-044 1 urn:x");
+  }
+
+  @Test
+  public void testRedeclaredUriUsedByElement()
+  {
+    // an element in the namespace uses the innermost declaration of its uri
+    start(1, "html", EpubConstants.HtmlNamespaceUri, "xmlns:a", "urn:x");
+    start(2, "div", EpubConstants.HtmlNamespaceUri, "xmlns:b", "urn:x");
+    start(3, "b:p", "urn:x");
+    end();
+    end();
+    end();
+    assertMessages("HTM-010 1 urn:x", "HTM-010 2 urn:x", "HTM-044 1 urn:x");
+  }
+
+  private void start(int line, String qName, String uri, String... attributes)
+  {
+    AttributesImpl atts = new AttributesImpl();
+    for (int i = 0; i < attributes.length; i += 2)
+    {
+      atts.addAttribute("", "", attributes[i], "CDATA", attributes[i + 1]);
+    }
+    locator.setLineNumber(line);
+    helper.onStartElement("test.xhtml", locator, uri, qName, atts, report);
+  }
+
+  private void end()
+  {
+    helper.onEndElement(report);
+  }
+
+  private void assertMessages(String... expected)
+  {
+    assertEquals(Arrays.asList(expected), messages);
+  }
+}
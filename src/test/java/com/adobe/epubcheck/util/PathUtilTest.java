@@ -41,4 +41,15 @@ public class PathUtilTest {
 		assertEquals(urlWithoutAnchor, PathUtil.removeAnchor(urlWithoutAnchor));
 	}
 
+	@Test
+	public void testIsRemote() {
+		assertTrue(PathUtil.isRemote("http://example.org/"));
+		assertTrue(PathUtil.isRemote("rtsp://example.org/video.mp4?a=b#c"));
+		assertFalse(PathUtil.isRemote("EPUB/chapter.xhtml"));
+		assertFalse(PathUtil.isRemote("EPUB/chapter.xhtml?http://example.org/"));
+		assertFalse(PathUtil.isRemote("mailto:someone@example.org"));
+		assertFalse(PathUtil.isRemote("://example.org/"));
+		assertFalse(PathUtil.isRemote("http://example.org/\n"));
+	}
+
 }
@@ -0,0 +1,95 @@
+package com.adobe.epubcheck.util;
+
+import com.adobe.epubcheck.messages.MessageId;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+
+public class TextSearcherTest
+{
+  private static final String[] TEXTS = {
+      "",
+      "http://example.org/",
+      "HTTP:HtTp:htttp: ftp:FTP:ftpppp: file:FILE:fileee: files:",
+      "see ftp: or file://a/b or http:",
+      "column-count: 2; column-gap: 1em; column-rule: none",
+      "transform: rotateX(10deg) rotateY(5deg) rotateXrotateX",
+      "@keyframes x { } transition: all; transitiontransition",
+      "aaaaaaa abab ababab"
+  };
+
+  @Test
+  public void testDictionariesMatchLikeTheirPatterns()
+  {
+    for (SearchDictionary.DictionaryType type : SearchDictionary.DictionaryType.values())
+    {
+      SearchDictionary dictionary = SearchDictionary.forType(type);
+      assertSame(dictionary, SearchDictionary.forType(type));
+      for (String text : TEXTS)
+      {
+        assertMatchesLikePatterns(dictionary.getDictEntries(), text);
+      }
+    }
+  }
+
+  @Test
+  public void testOverlappingEntries()
+  {
+    List<TextSearchDictionaryEntry> entries = entries("aa", "aaa", "a", "ab", "bab", "(a)(b)", "a+", "b|ab", "[ab]{2}");
+    for (String text : TEXTS)
+    {
+      assertMatchesLikePatterns(entries, text);
+    }
+    assertArrayEquals(new int[]{3, 2, 7, 0, 0, 0, 1, 0, 3}, TextSearcher.compile(entries).countMatches("aaaaaaa"));
+  }
+
+  @Test
+  public void testRandomTexts()
+  {
+    List<TextSearchDictionaryEntry> entries = entries("ab", "ba", "abc", "bc", "c", "cab", "a(b|c)", "(?i)cA", "b*c", "^a", "c$");
+    Random random = new Random(42);
+    for (int i = 0; i < 500; i++)
+    {
+      char[] text = new char[random.nextInt(30)];
+      for (int c = 0; c < text.length; c++)
+      {
+        text[c] = "abcA ".charAt(random.nextInt(5));
+      }
+      assertMatchesLikePatterns(entries, new String(text));
+    }
+  }
+
+  private static List<TextSearchDictionaryEntry> entries(String... regexes)
+  {
+    List<TextSearchDictionaryEntry> entries = new ArrayList<TextSearchDictionaryEntry>();
+    for (String regex : regexes)
+    {
+      entries.add(new TextSearchDictionaryEntry(regex, regex, MessageId.CSS_009));
+    }
+    return entries;
+  }
+
+  private static void assertMatchesLikePatterns(List<TextSearchDictionaryEntry> entries, String text)
+  {
+    int[] expected = new int[entries.size()];
+    for (int i = 0; i < expected.length; i++)
+    {
+      Matcher matcher = entries.get(i).getPattern().matcher(text);
+      int position = 0;
+      while (matcher.find(position))
+      {
+        position = matcher.end();
+        expected[i]++;
+      }
+    }
+    int[] actual = TextSearcher.compile(entries).countMatches(text);
+    assertArrayEquals("in '" + text + "': " + Arrays.toString(actual), expected, actual);
+  }
+}
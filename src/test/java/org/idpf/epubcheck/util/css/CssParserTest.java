@@ -2,6 +2,7 @@ package org.idpf.epubcheck.util.css;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Lists;
 import org.idpf.epubcheck.util.css.CssExceptions.CssException;
 import org.idpf.epubcheck.util.css.CssExceptions.CssScannerException;
@@ -11,6 +12,7 @@ import org.idpf.epubcheck.util.css.CssTokenList.CssTokenIterator;
 import org.junit.Test;
 
 import java.io.*;
+import java.util.Iterator;
 import java.util.List;
 
 import static org.idpf.epubcheck.util.css.CssTokenList.Filters.FILTER_NONE;
@@ -1350,6 +1352,75 @@ public class CssParserTest {
 		assertEquals(4, iter.index());
 	}
 		
+	@Test
+	public void testReplayedEvents() throws Exception {
+		String s = "@media print { p { color: red } } @font-face { src: url(a.otf) } p { ; color: }";
+		HandlerImpl parsed = new HandlerImpl(false);
+		CssEvents events = new CssEvents(parsed, parsed);
+		new CssParser().parse(new StringReader(s), CssLocation.NO_SID, events, events);
+		HandlerImpl replayed = new HandlerImpl(false);
+		events.replay(replayed, replayed);
+
+		checkBasics(replayed, true);
+		assertEquals(parsed.callbacks + parsed.selectors.size(), events.size()); // endSelectors isn't counted
+		assertEquals(parsed.callbacks, replayed.callbacks);
+		assertEquals(parsed.errors, replayed.errors);
+		assertEquals(parsed.atRules, replayed.atRules);
+		assertEquals(parsed.declarations, replayed.declarations);
+		assertEquals(parsed.selectors, replayed.selectors);
+		assertFalse(replayed.errors.isEmpty());
+	}
+
+	@Test
+	public void testStyleAttributeParser() throws Exception {
+		String[] values = { "color: red", "; width: 1px;\n height: 'a", "}{ color: blue", "\n\n  bad;;", "margin: 0 /* x" };
+		HandlerImpl batched = new HandlerImpl(false);
+		CssParser.StyleAttributeParser parser = new CssParser().newStyleAttributeParser(CssLocation.NO_SID, batched, batched);
+		for (int i = 0; i < values.length; i++) {
+			HandlerImpl single = execStyleAttr(values[i], false);
+			int errors = batched.errors.size();
+			int declarations = batched.declarations.size();
+			parser.parse(values[i], 10 * i + 1);
+			assertEquals(single.errors.size(), batched.errors.size() - errors);
+			for (int j = 0; j < single.errors.size(); j++) {
+				CssException expected = single.errors.get(j);
+				CssException actual = batched.errors.get(errors + j);
+				assertEquals(expected.getMessage(), actual.getMessage());
+				assertEquals(expected.getLocation().getLine() + 10 * i, actual.getLocation().getLine());
+				assertEquals(expected.getLocation().getColumn(), actual.getLocation().getColumn());
+			}
+			assertEquals(single.declarations.size(), batched.declarations.size() - declarations);
+			for (int j = 0; j < single.declarations.size(); j++) {
+				CssDeclaration expected = single.declarations.get(j);
+				CssDeclaration actual = batched.declarations.get(declarations + j);
+				assertEquals(expected.toCssString(), actual.toCssString());
+				assertEquals(expected.getLocation().getLine() + 10 * i, actual.getLocation().getLine());
+				assertEquals(expected.getLocation().getColumn(), actual.getLocation().getColumn());
+			}
+		}
+		assertFalse(batched.errors.isEmpty());
+	}
+
+	@Test
+	public void testTokenListReadsLazily() throws Exception {
+		final int[] read = new int[1];
+		// an endless source: tokens must only be read as they are needed
+		Iterator<CssToken> source = new AbstractIterator<CssToken>() {
+			@Override
+			protected CssToken computeNext() {
+				return read[0]++ % 2 == 0 ? spc : chr;
+			}
+		};
+		CssTokenIterator iter = new CssTokenIterator(FILTER_S_CMNT, source);
+		for (int i = 0; i < 10000; i++) {
+			assertSame(spc, iter.peek(FILTER_NONE));
+			assertSame(chr, iter.peek());
+			assertSame(chr, iter.next());
+		}
+		assertEquals(19999, iter.index());
+		assertEquals(20000, read[0]);
+	}
+
 	private int countTokens(CssTokenIterator iter) {
 		int c = 0;
 		while(iter.hasNext()) {